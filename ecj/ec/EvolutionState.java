@@ -166,6 +166,13 @@ public class EvolutionState implements Singleton
     /** An array of random number generators, indexed by the thread number you were given (or, if you're not in a multithreaded area, use 0).  These generators are not threadsafe in and of themselves, but if you only use the random number generator assigned to your thread, as was intended, then you get random numbers in a threadsafe way.  These generators must each have a different seed, of course.*/
     public MersenneTwisterFast[] random;
 
+    /** Should the random number generators be reseeded for each individual (see reseedRandom(...))?
+        Set by the <tt>rng.derive</tt> parameter.  Don't modify this during a run. */
+    public boolean deriveRandom;
+
+    /** The seed from which reseedRandom(...) derives its seeds. */
+    public long randomDerivationSeed;
+
     /** An array of HashMaps, indexed by the thread number you were given (or, if you're not in a multithreaded area, use 0).  This allows you to store per-thread specialized information (typically keyed with a string).  */
     public HashMap[] data;
 
@@ -274,6 +281,42 @@ public class EvolutionState implements Singleton
     public final static String P_CHECKPOINTDIRECTORY = "checkpoint-directory";
     public final static String P_CHECKPOINT = "checkpoint";
     final static String P_CHECKPOINTPREFIX_OLD = "prefix";
+    public final static String P_DERIVE_RANDOM = "derive";
+
+    /** Purposes of random numbers, for reseedRandom(...) */
+    public final static int RANDOM_INITIALIZATION = 0;
+    public final static int RANDOM_DUPLICATES = 1;
+    public final static int RANDOM_BREEDING = 2;
+    public final static int RANDOM_EVALUATION = 3;
+
+    /** Reseeds random[thread] with a seed derived from the generation, the given purpose
+        (one of the RANDOM_... constants), and the subpopulation and index of the individual
+        about to be created, bred, or evaluated.  This is done by initialization, SimpleBreeder,
+        and SimpleEvaluator if deriveRandom is true, so that the random numbers used for each
+        individual are the same no matter which thread handles it or how many threads there are.
+        A run then comes out the same regardless of the number of breeding and evaluation threads,
+        so long as the breeding pipelines and problems only use the random numbers they are given,
+        and do not carry state from one individual to the next (as StochasticUniversalSelection does,
+        for example).  Reseeding a MersenneTwisterFast is fairly expensive: with deriveRandom you
+        will probably want to set <tt>rng</tt> to ec.util.Xoroshiro128PlusPlus. */
+    public void reseedRandom(int thread, int purpose, int subpopulation, int index)
+        {
+        long seed = FingerprintSet.combine(randomDerivationSeed, generation);
+        seed = FingerprintSet.combine(seed, purpose);
+        seed = FingerprintSet.combine(seed, subpopulation);
+        seed = FingerprintSet.combine(seed, index);
+        random[thread].setSeed(new int[] { (int) seed, (int)(seed >>> 32) });
+        }
+
+    /** Reseeds every random number generator with a seed derived from the generation, the given
+        purpose, and the generator's thread number.  This is done if deriveRandom is true at the end
+        of initialization, breeding, and evaluation, so that the generators come out of them in the
+        same state no matter how many threads did the work. */
+    public void reseedRandom(int purpose)
+        {
+        for(int thread = 0; thread < random.length; thread++)
+            reseedRandom(thread, purpose, -1, thread);
+        }
 
     /** This will be called to create your evolution state; immediately
         after the constructor is called,
@@ -295,6 +338,12 @@ public class EvolutionState implements Singleton
         for(int i = 0; i < data.length; i++)
             data[i] = new HashMap();
 
+        // should we derive random numbers per individual?
+        p = new Parameter(Evolve.P_RNG).push(P_DERIVE_RANDOM);
+        deriveRandom = parameters.getBoolean(p,null,false);
+        if (deriveRandom)
+            randomDerivationSeed = random[0].nextLong();
+
         // we ignore the base, it's worthless anyway for EvolutionState
 
         p = new Parameter(P_CHECKPOINT);
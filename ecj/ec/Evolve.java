@@ -8,7 +8,11 @@
 package ec;
 import ec.util.*;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 
 /* 
  * Evolve.java
@@ -45,6 +49,19 @@ import java.io.PrintWriter;
  * seed.0 to x, seed.1 to x+1, seed.2 to x+2, etc. for best results.  It also works if seed.0
  * is x, seed.1 is y (a number much bigger than x), seed.2 is z (a number much bigger than y) etc.
  *
+ * <p>Jobs normally run one after another.  If you set <tt>parallel-jobs</tt> to more than 1
+ * (or to <tt>auto</tt>), then up to that many jobs run at the same time in the same JVM,
+ * which avoids paying JVM startup and warm-up once per job.  Each job gets its own
+ * ParameterDatabase, EvolutionState, Output, random number generators, and job file prefix,
+ * and the evaluation and breeding threads requested are divided evenly among the concurrent
+ * jobs (each gets at least one).  Each job's messages to stdout and stderr are prefixed with
+ * its job number, and a summary of every job is printed when they're all done.  A fatal error
+ * in one job ends that job only, but ECJ then exits with a non-zero status once all the jobs
+ * are done, so that scripts can tell something went wrong.  Note that because the number of threads per job changes,
+ * the random number generator seeds (and so the results) will generally differ from those of
+ * a sequential run.  Also note that your Problem, and anything else in your run, must not
+ * keep its state in static variables, since other jobs would share them.
+ *
  * If you set seed.0=time etc. for multiple jobs, the values of each seed will be set to the
  * current time that the job starts plus the job number * numberOfSeeds.  As current time always
  * goes up, this shouldn't be an issue.  However it's theoretically possible that if you checkpoint and restart
@@ -62,10 +79,22 @@ import java.io.PrintWriter;
  <font size=-1> int >= 1 (default)</font></td>
  <td valign=top>(The number of jobs to iterate.  The current job number (0...jobs-1) will be added to each seed UNLESS the seed is loaded from the system time.  The job number also gets added as a prefix (if the number of jobs is more than 1)).</td></tr>
 
+ <tr><td valign=top><tt>parallel-jobs</tt></br>
+ <font size=-1> int >= 1 (default), or string = <tt>auto</tt></font></td>
+ <td valign=top>(How many jobs to run at the same time in this JVM.  If <tt>auto</tt>, this is the number of processors.  Evaluation and breeding threads are divided evenly among the concurrent jobs.)</td></tr>
+
  <tr><td valign=top><tt>nostore</tt><br>
  <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
  <td valign=top>(should the ec.util.Output facility <i>not</i> store announcements in memory?)</td></tr>
 
+ <tr><td valign=top><tt>max-announcements</tt><br>
+ <font size=-1> int &gt;= 0 (default is 0)</font></td>
+ <td valign=top>(the maximum number of announcements the ec.util.Output facility stores in memory; 0 means no limit)</td></tr>
+
+ <tr><td valign=top><tt>async-output</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should the ec.util.Output facility write messages out on a separate writer thread, so that threads which print don't wait on each other or on disk?  Errors are still written immediately.)</td></tr>
+
  <tr><td valign=top><tt>flush</tt><br>
  <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
  <td valign=top>(should I flush all output as soon as it's printed (useful for debugging when an exception occurs))</td></tr>
@@ -82,6 +111,14 @@ import java.io.PrintWriter;
  <font size=-1>int != 0, or string  = <tt>time</tt></font></td>
  <td valign=top>(the seed for random number generator #<i>n</i>.  <i>n</i> should range from 0 to Max(evalthreads,breedthreads)-1.  If value is <tt>time</tt>, then the seed is based on the system clock plus <i>n</i>.)</td></tr>
 
+ <tr><td valign=top><tt>rng</tt><br>
+ <font size=-1>classname, inherits ec.util.MersenneTwisterFast (default)</font></td>
+ <td valign=top>(the class of the random number generators, for example ec.util.Xoroshiro128PlusPlus)</td></tr>
+
+ <tr><td valign=top><tt>rng.derive</tt><br>
+ <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</td>
+ <td valign=top>(should the random number generators be reseeded for each individual, so that the run comes out the same no matter how many threads are used?  See EvolutionState.reseedRandom(...))</td></tr>
+
  <tr><td valign=top><tt>state</tt><br>
  <font size=-1>classname, inherits and != ec.EvolutionState</font></td>
  <td valign=top>(the EvolutionState object class)</td></tr>
@@ -106,6 +143,10 @@ import java.io.PrintWriter;
  <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</td>
  <td valign=top>(at the end of a run, do we print out a list of all the parameters stored in the parameter database?)</td></tr>
 
+ <tr><td valign=top><tt>print-startup-times</tt><br>
+ <font size=-1>int &gt;= 0 (default is 0)</td>
+ <td valign=top>(at the end of a run, print out this many of the parameters whose classes took the most time to load and instantiate, slowest first.  0 prints nothing.)</td></tr>
+
  </table>
  * 
  *
@@ -120,6 +161,7 @@ public class Evolve
     public final static String P_PRINTALLPARAMETERS = "print-all-params";
     public final static String P_PRINTUNUSEDPARAMETERS = "print-unused-params";
     public final static String P_PRINTUNACCESSEDPARAMETERS = "print-unaccessed-params";
+    public final static String P_PRINTSTARTUPTIMES = "print-startup-times";
 
     /** The argument indicating that we're starting up from a checkpoint file. */
     public static final String A_CHECKPOINT = "-checkpoint";
@@ -145,6 +187,9 @@ public class Evolve
     /** seed parameter */
     public static final String P_SEED = "seed";
 
+    /** random number generator class parameter */
+    public static final String P_RNG = "rng";
+
     /** 'time' seed parameter value */
     public static final String V_SEED_TIME = "time";
 
@@ -160,6 +205,18 @@ public class Evolve
     /** Should we muzzle stdout and stderr? [deprecated] */
     static final String P_MUZZLE = "muzzle";
 
+    /** How many jobs may run at the same time? */
+    public static final String P_PARALLELJOBS = "parallel-jobs";
+
+    /** Should Output not store announcements? */
+    public static final String P_NOSTORE = "nostore";
+
+    /** The maximum number of announcements Output stores */
+    public static final String P_MAXANNOUNCEMENTS = "max-announcements";
+
+    /** Should Output write on a separate writer thread? */
+    public static final String P_ASYNCOUTPUT = "async-output";
+
 
 
     /** Optionally prints the help message. */
@@ -222,6 +279,14 @@ public class Evolve
     
     /** Loads a ParameterDatabase from checkpoint if "-params" is in the command-line arguments. */
     public static ParameterDatabase loadParameterDatabase(String[] args) 
+        {
+        return loadParameterDatabase(args, false);
+        }
+
+    /** Loads a ParameterDatabase as loadParameterDatabase(args) does, but if <i>throwsErrors</i> is true,
+        a problem throws an Output.OutputExitException rather than exiting the JVM.  This is for
+        callers, such as EvolveDaemon, which must survive a bad request. */
+    public static ParameterDatabase loadParameterDatabase(String[] args, boolean throwsErrors) 
         {
         // search for a -file
         ParameterDatabase parameters = null;        
@@ -237,7 +302,7 @@ public class Evolve
                 catch(Exception e)
                     {
                     e.printStackTrace();
-                    Output.initialError("An exception was generated upon reading the parameter file \"" + args[x+1] + "\".\nHere it is:\n" + e); 
+                    loadError(throwsErrors, "An exception was generated upon reading the parameter file \"" + args[x+1] + "\".\nHere it is:\n" + e); 
                     }
                     
         // search for a resource class (we may or may not use this)
@@ -247,15 +312,16 @@ public class Evolve
                 try
                     {
                     if (parameters != null)  // uh oh
-                        Output.initialError("Both -file and -at arguments provided.  This is not permitted.\nFor help, try:  java ec.Evolve -help");
+                        loadError(throwsErrors, "Both -file and -at arguments provided.  This is not permitted.\nFor help, try:  java ec.Evolve -help");
                     else 
                         cls = Class.forName(args[x+1]);
                     break;
                     }
+                catch (Output.OutputExitException e) { throw e; }
                 catch (Exception e)
                     {
                     e.printStackTrace();
-                    Output.initialError(
+                    loadError(throwsErrors,
                         "An exception was generated upon extracting the class to load the parameter file relative to: " + args[x+1] + 
                         "\nFor help, try:  java ec.Evolve -help\n\n" + e);
                     }
@@ -266,7 +332,7 @@ public class Evolve
                 try
                     {
                     if (parameters != null)  // uh oh
-                        Output.initialError("Both -file and -from arguments provided.  This is not permitted.\nFor help, try:  java ec.Evolve -help");
+                        loadError(throwsErrors, "Both -file and -from arguments provided.  This is not permitted.\nFor help, try:  java ec.Evolve -help");
                     else 
                         {
                         if (cls == null)  // no -at
@@ -276,19 +342,29 @@ public class Evolve
                         }
                     break;
                     }
+                catch (Output.OutputExitException e) { throw e; }
                 catch (Exception e)
                     {
                     e.printStackTrace();
-                    Output.initialError(
+                    loadError(throwsErrors,
                         "The parameter file is missing at the resource location: " + args[x+1] + " relative to the class: " + cls + "\n\nFor help, try:  java ec.Evolve -help");
                     }
 
         if (parameters == null)
-            Output.initialError("No parameter or checkpoint file was specified.\nFor help, try:   java ec.Evolve -help" );
+            loadError(throwsErrors, "No parameter or checkpoint file was specified.\nFor help, try:   java ec.Evolve -help" );
         return parameters;
         }
     
     
+    /** Reports a problem in loading the parameter database, either with Output.initialError(...), which
+        exits, or if <i>throwsErrors</i> is true, by throwing an Output.OutputExitException. */
+    static void loadError(boolean throwsErrors, String message)
+        {
+        if (throwsErrors)
+            throw new Output.OutputExitException("STARTUP ERROR:\n" + message);
+        else Output.initialError(message);
+        }
+
     /** Loads the number of threads. */
     public static int determineThreads(Output output, ParameterDatabase parameters, Parameter threadParameter)
         {
@@ -338,6 +414,24 @@ public class Evolve
         return generator;
         }
 
+    /** Builds and primes a random number generator with the given seed.  The generator is a
+        MersenneTwisterFast unless the <tt>rng</tt> parameter names some subclass of it. */
+    public static MersenneTwisterFast buildGenerator(Output output, ParameterDatabase parameters, int seed)
+        {
+        Parameter p = new Parameter(P_RNG);
+        if (!parameters.exists(p, null))
+            return primeGenerator(new MersenneTwisterFast(seed));
+
+        try
+            {
+            MersenneTwisterFast generator = (MersenneTwisterFast)(parameters.getInstanceForParameter(p, null, MersenneTwisterFast.class));
+            generator.setSeed(seed);
+            return primeGenerator(generator);
+            }
+        catch (ParamClassLoadException e) { output.fatal("Could not load the random number generator: " + e.getMessage(), p, null); }
+        return null;  // never happens
+        }
+
     /** Loads a random generator seed.  First, the seed is loaded from the seedParameter.  If the parameter
         is V_SEED_TIME, the seed is set to the currentTime value.  Then the seed is incremented by the offset. 
         This method is broken out of initialize(...) primarily to share code with ec.eval.MasterProblem.*/
@@ -391,6 +485,64 @@ public class Evolve
         }
 
 
+    /** Constructs and sets up an Output object whose stdout and stderr logs (logs #0 and #1, as usual)
+        write to the given streams, with each line prefixed by <i>prefix</i>.  This is used to tell apart
+        the messages of several jobs running at the same time.  Closing the Output does not close the streams. */
+    
+    public static Output buildOutput(PrintStream out, PrintStream err, String prefix)
+        {
+        Output output = new Output(true);
+        output.addLog(buildPrefixedLog(out, prefix, false));
+        output.addLog(buildPrefixedLog(err, prefix, true));
+        return output;
+        }
+
+    static Log buildPrefixedLog(final PrintStream stream, final String prefix, boolean postAnnouncements)
+        {
+        Log log = new Log(new PrefixedWriter(stream, prefix), 
+            new LogRestarter()
+                {
+                public Log restart(Log l) throws IOException
+                    {
+                    l.writer = new PrintWriter(new PrefixedWriter(stream, prefix));
+                    return l;
+                    }
+                public Log reopen(Log l) throws IOException
+                    {
+                    return l;  // makes no sense
+                    }
+                }, postAnnouncements, true);
+        log.isLoggingToSystemOut = true;  // don't close the underlying stream
+        return log;
+        }
+
+    /** A Writer which writes to a PrintStream, putting a prefix at the start of every line.
+        Each write is done atomically with respect to other PrefixedWriters on the same stream. */
+    static class PrefixedWriter extends Writer
+        {
+        PrintStream stream;
+        String prefix;
+        boolean atLineStart = true;
+        
+        PrefixedWriter(PrintStream stream, String prefix) { this.stream = stream; this.prefix = prefix; }
+        
+        public void write(char[] cbuf, int off, int len)
+            {
+            StringBuilder sb = new StringBuilder(len + prefix.length());
+            for(int i = off; i < off + len; i++)
+                {
+                if (atLineStart) { sb.append(prefix); atLineStart = false; }
+                sb.append(cbuf[i]);
+                if (cbuf[i] == '\n') atLineStart = true;
+                }
+            synchronized(stream) { stream.print(sb.toString()); }
+            }
+        
+        public void flush() { stream.flush(); }
+        public void close() { stream.flush(); }
+        }
+
+
     /** Initializes an evolutionary run given the parameters and a random seed adjustment (added to each random seed).
         The adjustment offers a convenient way to change the seeds of the random number generators each time you
         do a new evolutionary run.  You are of course welcome to replace the random number generators after initialize(...)
@@ -434,6 +586,18 @@ public class Evolve
             output.getLog(1).silent = true;
             }
 
+        // Should Output store announcements, and how many?
+        if (parameters.getBoolean(new Parameter(P_NOSTORE), null, false))
+            output.setStore(false);
+        int maxAnnouncements = parameters.getIntWithDefault(new Parameter(P_MAXANNOUNCEMENTS), null, 0);
+        if (maxAnnouncements < 0)
+            output.fatal("The maximum number of announcements must be >= 0", new Parameter(P_MAXANNOUNCEMENTS), null);
+        output.setMaxAnnouncements(maxAnnouncements);
+
+        // Should Output write on its own thread?
+        if (parameters.getBoolean(new Parameter(P_ASYNCOUTPUT), null, false))
+            output.setAsynchronous(true);
+
         // output was already created for us.  
         output.systemMessage(Version.message());
                 
@@ -460,7 +624,7 @@ public class Evolve
             for (int y=0;y<x;y++)
                 if (seeds[x]==seeds[y])
                     output.fatal(P_SEED+"."+x+" ("+seeds[x]+") and "+P_SEED+"."+y+" ("+seeds[y]+") ought not be the same seed.",null,null); 
-            random[x] = Evolve.primeGenerator(new MersenneTwisterFast(seeds[x]));    // we prime the generator to be more sure of randomness.
+            random[x] = Evolve.buildGenerator(output, parameters, seeds[x]);    // we prime the generator to be more sure of randomness.
             seedMessage = seedMessage + seeds[x] + " ";
             }
 
@@ -503,6 +667,7 @@ public class Evolve
         state.parameters.getBoolean(new Parameter(P_PRINTUNUSEDPARAMETERS),null,false);
         state.parameters.getBoolean(new Parameter(P_PRINTUNACCESSEDPARAMETERS),null,false);
         state.parameters.getBoolean(new Parameter(P_PRINTALLPARAMETERS),null,false);
+        state.parameters.getIntWithDefault(new Parameter(P_PRINTSTARTUPTIMES),null,0);
                 
         //...okay, here we go...
                 
@@ -539,6 +704,14 @@ public class Evolve
             state.parameters.list(pw,false);
             }
 
+        int startupTimes = state.parameters.getIntWithDefault(new Parameter(P_PRINTSTARTUPTIMES),null,0);
+        if (startupTimes > 0)
+            {
+            pw.println("\n\nSlowest Parameters to Load and Instantiate\n"+
+                "========================================== (Not including setup) \n");
+            state.parameters.listInstantiationTimes(pw, startupTimes);
+            }
+
         pw.flush();
 
         System.err.flush();
@@ -553,6 +726,190 @@ public class Evolve
 
 
 
+    /** A summary of a completed job, as produced by runJob(...). */
+    public static class JobSummary
+        {
+        /** The job number. */
+        public int job;
+        /** The result of the run: EvolutionState.R_SUCCESS or R_FAILURE, or -1 if the job failed with an error. */
+        public int result = -1;
+        /** The generation the run ended on. */
+        public int generations;
+        /** How long the job took, in milliseconds. */
+        public long millis;
+        /** The best fitness of the run, per subpopulation, if the Statistics object could tell us. */
+        public String[] bestFitness;
+        /** The best individual of the run, per subpopulation, as printed by printIndividualForHumans(...),
+            if the Statistics object could tell us. */
+        public String[] bestIndividual;
+        /** The error which ended the job, if any. */
+        public Throwable error;
+        
+        public String toString()
+            {
+            StringBuilder sb = new StringBuilder("Job " + job + ": ");
+            if (error != null) sb.append("ERROR (" + error + ")");
+            else sb.append(result == EvolutionState.R_SUCCESS ? "success" : "failure");
+            sb.append(", " + generations + " generations, " + (millis / 1000.0) + " seconds");
+            if (bestFitness != null)
+                for(int x = 0; x < bestFitness.length; x++)
+                    sb.append("\n    Subpop " + x + " best fitness of run: " + bestFitness[x]);
+            return sb.toString();
+            }
+        }
+
+
+    /** Runs a fresh EvolutionState, built by initialize(...), to completion, cleans up, and returns a summary.
+        This does the same thing as state.run(EvolutionState.C_STARTED_FRESH) followed by cleanup(state),
+        but keeps track of the result. */
+        
+    public static JobSummary runJob(EvolutionState state, int job)
+        {
+        JobSummary summary = new JobSummary();
+        summary.job = job;
+        long time = System.currentTimeMillis();
+
+        state.startFresh();
+        int result = EvolutionState.R_NOTDONE;
+        while ( result == EvolutionState.R_NOTDONE )
+            result = state.evolve();
+        state.finish(result);
+
+        summary.result = result;
+        summary.generations = state.generation;
+        Individual[] best = bestOfRun(state.statistics);
+        if (best != null)
+            {
+            summary.bestFitness = new String[best.length];
+            summary.bestIndividual = new String[best.length];
+            StringWriter writer = new StringWriter();
+            int log = state.output.addLog(writer, null, false, false);
+            for(int x = 0; x < best.length; x++)
+                {
+                summary.bestFitness[x] = (best[x] == null ? "?" : best[x].fitness.fitnessToStringForHumans());
+                if (best[x] == null) continue;
+                best[x].printIndividualForHumans(state, log);
+                state.output.flush();
+                summary.bestIndividual[x] = writer.toString();
+                writer.getBuffer().setLength(0);
+                }
+            }
+        cleanup(state);
+        summary.millis = System.currentTimeMillis() - time;
+        return summary;
+        }
+
+
+    /** Returns the best individuals of the run so far, per subpopulation, from the first SimpleStatistics
+        or SimpleShortStatistics among the given Statistics and its descendants, or null if there is none. */
+    static Individual[] bestOfRun(Statistics statistics)
+        {
+        if (statistics instanceof ec.simple.SimpleStatistics)
+            return ((ec.simple.SimpleStatistics)statistics).getBestSoFar();
+        if (statistics instanceof ec.simple.SimpleShortStatistics)
+            return ((ec.simple.SimpleShortStatistics)statistics).getBestSoFar();
+        for(int x = 0; x < statistics.children.length; x++)
+            {
+            Individual[] best = bestOfRun(statistics.children[x]);
+            if (best != null) return best;
+            }
+        return null;
+        }
+
+
+    /** Runs jobs <i>firstJob</i> ... <i>numJobs</i>-1, up to <i>parallelJobs</i> of them at a time, each
+        in its own thread with its own ParameterDatabase (loaded from <i>args</i>), EvolutionState, and Output.
+        The evalthreads and breedthreads values are divided by <i>parallelJobs</i> for each job.  Returns a
+        summary of each job, indexed by job number minus firstJob. */
+
+    public static JobSummary[] runJobsInParallel(final String[] args, final int firstJob, final int numJobs, final int parallelJobs)
+        {
+        final JobSummary[] summaries = new JobSummary[numJobs - firstJob];
+        final int startTime = (int)(System.currentTimeMillis());
+        ThreadPool pool = new ThreadPool();
+        for(int j = firstJob; j < numJobs; j++)
+            {
+            final int job = j;
+            Runnable run = new Runnable()
+                {
+                public void run()
+                    {
+                    JobSummary summary;
+                    Output output = buildOutput(System.out, System.err, "[job " + job + "] ");
+                    output.setThrowsErrors(true);  // a fatal error ends this job, not the JVM
+                    long time = System.currentTimeMillis();
+                    try
+                        {
+                        ParameterDatabase parameters = loadParameterDatabase(args);
+                        shareThreads(output, parameters, new Parameter(P_EVALTHREADS), parallelJobs);
+                        shareThreads(output, parameters, new Parameter(P_BREEDTHREADS), parallelJobs);
+                        fixTimeSeeds(parameters, startTime);
+                        EvolutionState state = initialize(parameters, job, output);
+                        state.output.systemMessage("Job: " + job);
+                        state.job = new Object[1];
+                        state.job[0] = Integer.valueOf(job);
+                        state.runtimeArguments = args;
+                        String jobFilePrefix = "job." + job + ".";
+                        state.output.setFilePrefix(jobFilePrefix);
+                        state.checkpointPrefix = jobFilePrefix + state.checkpointPrefix;
+                        summary = runJob(state, job);
+                        }
+                    catch (Throwable e)  // including Output.OutputExitException from fatal errors
+                        {
+                        output.close();
+                        summary = new JobSummary();
+                        summary.job = job;
+                        summary.error = e;
+                        summary.millis = System.currentTimeMillis() - time;
+                        }
+                    synchronized(summaries) { summaries[job - firstJob] = summary; }
+                    }
+                };
+            pool.start(run, parallelJobs, "ECJ Job " + job);
+            }
+        pool.joinAll();
+        pool.killAll();
+        return summaries;
+        }
+
+
+    /** Jobs started at the same moment would get the same 'time' seeds, so we replace 
+        any 'time' seeds with a single common starting time (plus the seed number):
+        initialize(...) then makes them different for each job by adding the job offset. */
+    static void fixTimeSeeds(ParameterDatabase parameters, int time)
+        {
+        int threads = Math.max(parameters.getInt(new Parameter(P_EVALTHREADS), null), 
+            parameters.getInt(new Parameter(P_BREEDTHREADS), null));
+        for(int x = 0; x < threads; x++)
+            {
+            Parameter seed = new Parameter(P_SEED).push("" + x);
+            if (V_SEED_TIME.equalsIgnoreCase(parameters.getString(seed, null)))
+                parameters.set(seed, "" + (time + x));
+            }
+        }
+
+    /** Divides the number of threads requested by the given parameter by <i>parallelJobs</i> 
+        (leaving at least 1), and sets the parameter to that value.  If the parameter was
+        <tt>auto</tt>, the seeds for the remaining threads are set to <tt>time</tt> if they're
+        not defined, just as <tt>auto</tt> would have done. */
+    static void shareThreads(Output output, ParameterDatabase parameters, Parameter threadParameter, int parallelJobs)
+        {
+        boolean auto = V_THREADS_AUTO.equalsIgnoreCase(parameters.getString(threadParameter, null));
+        int threads = determineThreads(output, parameters, threadParameter) / parallelJobs;
+        if (threads < 1) threads = 1;
+        parameters.set(threadParameter, "" + threads);
+        if (auto)
+            for(int x = 0; x < threads; x++)
+                {
+                Parameter seed = new Parameter(P_SEED).push("" + x);
+                if (!parameters.exists(seed, null))
+                    parameters.set(seed, V_SEED_TIME);
+                }
+        }
+
+
+
+
 /*
 
  * MAIN
@@ -725,6 +1082,34 @@ public class Evolve
         int numJobs = parameters.getIntWithDefault(new Parameter("jobs"), null, 1);
         if (numJobs < 1)
             Output.initialError("The 'jobs' parameter must be >= 1 (or not exist, which defaults to 1)");
+            
+        // How many jobs can we run at once?  If more than one, we hand everything off
+        // to runJobsInParallel(...).
+        int parallelJobs = 1;
+        if (V_THREADS_AUTO.equalsIgnoreCase(parameters.getString(new Parameter(P_PARALLELJOBS), null)))
+            parallelJobs = Runtime.getRuntime().availableProcessors();
+        else
+            {
+            parallelJobs = parameters.getIntWithDefault(new Parameter(P_PARALLELJOBS), null, 1);
+            if (parallelJobs < 1)
+                Output.initialError("The 'parallel-jobs' parameter must be >= 1 or 'auto' (or not exist, which defaults to 1)");
+            }
+        if (parallelJobs > 1 && numJobs - currentJob > 1)
+            {
+            if (parallelJobs > numJobs - currentJob)
+                parallelJobs = numJobs - currentJob;
+            Output.initialMessage("Running jobs " + currentJob + " through " + (numJobs - 1) + ", " + parallelJobs + " at a time");
+            JobSummary[] summaries = runJobsInParallel(args, currentJob, numJobs, parallelJobs);
+            System.out.flush();
+            Output.initialMessage("\nSummary of Jobs\n===============\n");
+            boolean failed = false;
+            for(int i = 0; i < summaries.length; i++)
+                {
+                Output.initialMessage(summaries[i].toString());
+                if (summaries[i].error != null) failed = true;
+                }
+            System.exit(failed ? 1 : 0);
+            }
                 
                 
         // Now we know how many jobs remain.  Let's loop for that many jobs.  Each time we'll
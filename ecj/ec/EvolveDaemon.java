@@ -0,0 +1,440 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec;
+import ec.util.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+/*
+ * EvolveDaemon.java
+ */
+
+/**
+ * EvolveDaemon keeps a single, warmed-up JVM running and performs evolutionary runs on request,
+ * sent to it over a local socket.  This is useful if you're doing parameter sweeps or
+ * meta-optimization and would otherwise launch ec.Evolve thousands of times, each time paying
+ * for JVM startup, class loading, parameter file parsing, and JIT warm-up.
+ *
+ * <p>To start the daemon:
+ *
+ * <p><tt>java ec.EvolveDaemon [-port </tt><i>port</i><tt>] [-workers </tt><i>n</i><tt>] [-token-file </tt><i>file</i><tt>]</tt>
+ *
+ * <p>The daemon listens on the loopback interface only (127.0.0.1), on the given port (default
+ * 15000), and performs up to <i>n</i> runs at the same time (default: the number of processors).
+ * Further requests wait until a worker is free.  As with parallel jobs in ec.Evolve, the
+ * <tt>evalthreads</tt> and <tt>breedthreads</tt> of each run are divided by <i>n</i> (leaving
+ * at least 1), so that the workers together don't ask for more threads than a single run would.
+ *
+ * <p><b>Security.</b>  A run can load any class and write any file that the daemon's user can, so the
+ * daemon only accepts requests from clients which know its token.  When it starts, the daemon
+ * writes a new random token to the token file, which only its user may read (by default
+ * <tt>.ecj-daemon-</tt><i>port</i> in the user's home directory), and it deletes the file when it stops.
+ * Other users on the machine can connect to the port, but not read the token.
+ *
+ * <p>To submit a run and wait for its results:
+ *
+ * <p><tt>java ec.EvolveDaemon -client [-port </tt><i>port</i><tt>] [-token-file </tt><i>file</i><tt>] -file </tt><i>parameter_file</i> <tt>[-p </tt><i>parameter=value</i><tt>]*</tt>
+ *
+ * <p>...or use <tt>-from</tt> and <tt>-at</tt> as in ec.Evolve.  The client prints everything
+ * the run writes to stdout and stderr as it happens, followed by the results of the run: a summary
+ * (its result, generations, time, and best fitness of the run per subpopulation), the best individual
+ * of the run in each subpopulation, and the contents of the files that the run wrote, such as its final
+ * statistics.  <tt>java ec.EvolveDaemon -client -stop</tt> asks the daemon to quit once its current runs
+ * are done.  The client makes the <tt>-file</tt> path absolute before sending it, since the daemon may be
+ * running in another directory.
+ *
+ * <p>Every run gets its own ParameterDatabase, EvolutionState, and Output, and its files are
+ * prefixed with <tt>run.</tt><i>N</i><tt>.</tt> (where <i>N</i> counts up from 0) so that simultaneous
+ * runs don't write over each other's statistics files.  Each run is job 0: its seeds are not offset.
+ * Fatal errors end the run rather than the daemon.  Your Problem (and anything else in the run)
+ * must not keep its state in static variables, since other runs would share them, and must not
+ * call System.exit().  Problems which load large data sets may share them with later runs:
+ * see Problem.getSharedData(...).
+ *
+ * <p><b>The protocol.</b>  You can write your own client.  Connect to the port, send the token on
+ * the first line, then each command-line argument on its own line (UTF-8), and then an empty line.
+ * Relative paths are resolved against the daemon's working directory, not yours.  If the daemon hasn't
+ * received the empty line within READ_TIMEOUT milliseconds, or the token is wrong, it drops the connection.
+ * The daemon replies with the run's output, line by line, and then with one line beginning with <tt>#DONE</tt>,
+ * after which the summary of the run follows.  Then for each subpopulation there is a line <tt>#BEST</tt>
+ * <i>subpopulation</i> followed by its best individual, and for each file that the run wrote there is a
+ * line <tt>#FILE</tt> <i>path</i> followed by the contents of the file.  Then the connection is closed.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class EvolveDaemon
+    {
+    /** The default port */
+    public static final int DEFAULT_PORT = 15000;
+
+    /** The argument indicating the port. */
+    public static final String A_PORT = "-port";
+
+    /** The argument indicating the number of runs which may be performed at once. */
+    public static final String A_WORKERS = "-workers";
+
+    /** The argument indicating the file holding the daemon's token. */
+    public static final String A_TOKEN_FILE = "-token-file";
+
+    /** The argument indicating that we're a client submitting a run. */
+    public static final String A_CLIENT = "-client";
+
+    /** The argument (sent by a client) asking the daemon to stop. */
+    public static final String A_STOP = "-stop";
+
+    /** The line which begins the end of a run's output. */
+    public static final String DONE = "#DONE";
+
+    /** The line which begins the best individual of the run in a subpopulation. */
+    public static final String BEST = "#BEST";
+
+    /** The line which begins the contents of a file written by the run. */
+    public static final String FILE = "#FILE";
+
+    /** How long (in milliseconds) the daemon waits for a client to finish sending its arguments. */
+    public static final int READ_TIMEOUT = 30000;
+
+    static final String ENCODING = "UTF-8";
+
+    /** Returns the default token file for the given port: <tt>.ecj-daemon-</tt><i>port</i> in the user's home directory. */
+    public static File defaultTokenFile(int port)
+        {
+        return new File(System.getProperty("user.home"), ".ecj-daemon-" + port);
+        }
+
+    ServerSocket server;
+    ThreadPool pool = new ThreadPool();
+    int workers;
+    File tokenFile;
+    String token;
+    int runs = 0;
+    volatile boolean stopped = false;
+
+    /** Builds a daemon listening on the loopback interface at the given port, doing at most
+        <i>workers</i> runs at once, and writes a new token to the given file. */
+    public EvolveDaemon(int port, int workers, File tokenFile) throws IOException
+        {
+        this.workers = workers;
+        this.tokenFile = tokenFile;
+        server = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+        token = newToken();
+        try
+            {
+            writeToken(tokenFile, token);
+            }
+        catch (IOException e)
+            {
+            server.close();
+            throw e;
+            }
+        }
+
+    /** Returns a new random token of 128 bits, in hexadecimal. */
+    static String newToken()
+        {
+        byte[] bytes = new byte[16];
+        new java.security.SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for(int x = 0; x < bytes.length; x++)
+            sb.append(Integer.toHexString((bytes[x] & 0xFF) | 0x100).substring(1));
+        return sb.toString();
+        }
+
+    /** Writes the token to a new file which only the owner may read or write, replacing any old file. */
+    static void writeToken(File file, String token) throws IOException
+        {
+        file.delete();
+        try
+            {
+            java.nio.file.Files.createFile(file.toPath(), java.nio.file.attribute.PosixFilePermissions.asFileAttribute(
+                    java.nio.file.attribute.PosixFilePermissions.fromString("rw-------")));
+            }
+        catch (UnsupportedOperationException e)  // not a POSIX file system
+            {
+            if (!file.createNewFile())
+                throw new IOException("Could not create the token file " + file);
+            file.setReadable(false, false);
+            file.setWritable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(true, true);
+            }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+        try { writer.write(token + "\n"); }
+        finally { writer.close(); }
+        }
+
+    /** Reads the token from the given file. */
+    static String readToken(File file) throws IOException
+        {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+        try
+            {
+            String line = reader.readLine();
+            if (line == null) throw new IOException("The token file " + file + " is empty");
+            return line.trim();
+            }
+        finally
+            {
+            reader.close();
+            }
+        }
+
+    /** Accepts and performs requests until asked to stop. */
+    public void serve()
+        {
+        Output.initialMessage("ECJ daemon listening on " + server.getLocalSocketAddress() + " with " + workers +
+            " workers, token in " + tokenFile);
+        while(!stopped)
+            {
+            final Socket socket;
+            try
+                {
+                socket = server.accept();
+                }
+            catch (IOException e)
+                {
+                if (!stopped) Output.initialWarning("Could not accept a connection: " + e);
+                continue;
+                }
+            final int run = runs++;
+            // blocks if all the workers are busy.  The worker reads the arguments, so a slow
+            // or silent client holds up only its own worker, not the accepting thread.
+            pool.start(new Runnable() { public void run() { handle(socket, run); } },
+                workers, "ECJ Daemon Run " + run);
+            }
+        pool.joinAll();
+        pool.killAll();
+        try { server.close(); } catch (IOException e) { }
+        tokenFile.delete();
+        Output.initialMessage("ECJ daemon stopped");
+        }
+
+    /** Reads a request from the socket and either performs the run or stops the daemon. */
+    void handle(Socket socket, int run)
+        {
+        String[] args = readRequest(socket, token);
+        if (args == null)
+            close(socket);
+        else if (args.length == 1 && args[0].equals(A_STOP))
+            {
+            stopped = true;
+            close(socket);
+            try { server.close(); } catch (IOException e) { }  // wakes up the accepting thread
+            }
+        else perform(socket, args, run);
+        }
+
+    /** Reads the token and then the arguments, one per line, up to an empty line, and returns the arguments.
+        Returns null if there was a problem, including a wrong token or the client taking longer than READ_TIMEOUT. */
+    static String[] readRequest(Socket socket, String token)
+        {
+        try
+            {
+            socket.setSoTimeout(READ_TIMEOUT);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), ENCODING));
+            String line = reader.readLine();
+            if (line == null || !java.security.MessageDigest.isEqual(line.getBytes(ENCODING), token.getBytes(ENCODING)))
+                {
+                Output.initialWarning("Rejected a request from " + socket.getRemoteSocketAddress() + " without the right token");
+                return null;
+                }
+            ArrayList<String> args = new ArrayList<String>();
+            while((line = reader.readLine()) != null && line.length() > 0)
+                args.add(line);
+            return args.toArray(new String[args.size()]);
+            }
+        catch (IOException e)
+            {
+            return null;
+            }
+        }
+
+    static void close(Socket socket)
+        {
+        try { socket.close(); } catch (IOException e) { }
+        }
+
+    /** Performs one run, writing its output and then its results to the socket. */
+    void perform(Socket socket, String[] args, int run)
+        {
+        PrintStream stream = null;
+        try
+            {
+            stream = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), true, ENCODING);
+            Evolve.JobSummary summary;
+            Output output = Evolve.buildOutput(stream, stream, "");
+            output.setThrowsErrors(true);  // a fatal error ends this run, not the daemon
+            long time = System.currentTimeMillis();
+            try
+                {
+                ParameterDatabase parameters = Evolve.loadParameterDatabase(args, true);
+                Evolve.shareThreads(output, parameters, new Parameter(Evolve.P_EVALTHREADS), workers);
+                Evolve.shareThreads(output, parameters, new Parameter(Evolve.P_BREEDTHREADS), workers);
+                EvolutionState state = Evolve.initialize(parameters, 0, output);
+                state.output.systemMessage("Run: " + run);
+                state.job = new Object[] { Integer.valueOf(0) };
+                state.runtimeArguments = args;
+                String prefix = "run." + run + ".";
+                state.output.setFilePrefix(prefix);
+                state.checkpointPrefix = prefix + state.checkpointPrefix;
+                summary = Evolve.runJob(state, 0);
+                }
+            catch (Throwable e)  // including Output.OutputExitException from fatal errors
+                {
+                output.close();
+                summary = new Evolve.JobSummary();
+                summary.error = e;
+                summary.millis = System.currentTimeMillis() - time;
+                }
+            synchronized(stream)
+                {
+                stream.println(DONE + " run " + run);
+                stream.println(summary);
+                if (summary.bestIndividual != null)
+                    for(int x = 0; x < summary.bestIndividual.length; x++)
+                        if (summary.bestIndividual[x] != null)
+                            {
+                            stream.println(BEST + " " + x);
+                            stream.print(summary.bestIndividual[x]);
+                            }
+                for(int x = 0; x < output.numLogs(); x++)
+                    {
+                    File file = output.getLog(x).filename;
+                    if (file != null && file.isFile())
+                        {
+                        stream.println(FILE + " " + file.getAbsolutePath());
+                        copy(file, stream);
+                        }
+                    }
+                stream.flush();
+                }
+            }
+        catch (IOException e)
+            {
+            Output.initialWarning("Run " + run + " could not talk to its client: " + e);
+            }
+        finally
+            {
+            if (stream != null) stream.close();
+            close(socket);
+            }
+        }
+
+    /** Copies the given file, a line at a time, to the stream, ungzipping it first if its name ends in .gz */
+    static void copy(File file, PrintStream stream) throws IOException
+        {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz"))
+            in = new java.util.zip.GZIPInputStream(in);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        try
+            {
+            String line;
+            while((line = reader.readLine()) != null)
+                stream.println(line);
+            }
+        finally
+            {
+            reader.close();
+            }
+        }
+
+    /** Sends the token in the given file and the arguments to the daemon at the given port, and copies its
+        reply to the given stream.  The <tt>-file</tt> argument is first made absolute, relative to our own working
+        directory.  Returns true if the run finished (successfully or not) and false if the connection ended early. */
+    public static boolean submit(int port, File tokenFile, String[] args, PrintStream out) throws IOException
+        {
+        String token = readToken(tokenFile);
+        args = args.clone();
+        for(int x = 0; x < args.length - 1; x++)
+            if (args[x].equals(Evolve.A_FILE))
+                args[x+1] = new File(args[x+1]).getAbsolutePath();
+
+        Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+        try
+            {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), ENCODING));
+            writer.write(token + "\n");
+            for(int x = 0; x < args.length; x++)
+                writer.write(args[x] + "\n");
+            writer.write("\n");
+            writer.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), ENCODING));
+            boolean done = false;
+            String line;
+            while((line = reader.readLine()) != null)
+                {
+                if (line.startsWith(DONE)) done = true;
+                out.println(line);
+                }
+            out.flush();
+            return done;
+            }
+        finally
+            {
+            close(socket);
+            }
+        }
+
+    public static void main(String[] args)
+        {
+        int port = DEFAULT_PORT;
+        int workers = Runtime.getRuntime().availableProcessors();
+        File tokenFile = null;
+        boolean client = false;
+        ArrayList<String> rest = new ArrayList<String>();
+        for(int x = 0; x < args.length; x++)
+            {
+            if (args[x].equals(A_PORT) && x < args.length - 1)
+                {
+                try { port = Integer.parseInt(args[++x]); }
+                catch (NumberFormatException e) { Output.initialError("Invalid port: " + args[x]); }
+                }
+            else if (args[x].equals(A_WORKERS) && x < args.length - 1)
+                {
+                try { workers = Integer.parseInt(args[++x]); }
+                catch (NumberFormatException e) { Output.initialError("Invalid number of workers: " + args[x]); }
+                if (workers < 1) Output.initialError("The number of workers must be >= 1");
+                }
+            else if (args[x].equals(A_TOKEN_FILE) && x < args.length - 1)
+                tokenFile = new File(args[++x]);
+            else if (args[x].equals(A_CLIENT)) client = true;
+            else rest.add(args[x]);
+            }
+        if (tokenFile == null) tokenFile = defaultTokenFile(port);
+
+        if (client)
+            {
+            try
+                {
+                boolean done = submit(port, tokenFile, rest.toArray(new String[rest.size()]), System.out);
+                System.exit(done || rest.contains(A_STOP) ? 0 : 1);
+                }
+            catch (IOException e)
+                {
+                Output.initialError("Could not reach the ECJ daemon on port " + port + ": " + e);
+                }
+            }
+        else
+            {
+            try
+                {
+                new EvolveDaemon(port, workers, tokenFile).serve();
+                }
+            catch (IOException e)
+                {
+                Output.initialError("Could not start the ECJ daemon on port " + port + ": " + e);
+                }
+            System.exit(0);
+            }
+        }
+    }
@@ -164,6 +164,21 @@ public abstract class Fitness implements Prototype, Comparable
     */ 
     public abstract boolean betterThan(Fitness _fitness);
 
+    /** Returns a single number which orders fitnesses of this class exactly as betterThan()
+        and equivalentTo() do: for any two fitnesses fit1 and fit2 of the same class,
+        fit1.betterThan(fit2) must be true exactly when fit1.scalarFitness() > fit2.scalarFitness(),
+        and fit1.equivalentTo(fit2) exactly when their scalarFitness() values are equal.
+        If there is no such number, as is the case for multiobjective fitnesses, return NaN.
+        FitnessSnapshot uses this to let selection methods compare primitive values instead
+        of calling betterThan().  By default this returns NaN.  If you override betterThan()
+        or equivalentTo() in a subclass which defines scalarFitness(), you should override
+        scalarFitness() too.
+    */
+    public double scalarFitness()
+        {
+        return Double.NaN;
+        }
+
     /** Should print the fitness out fashion pleasing for humans to read, 
         with a verbosity of Output.V_NO_GENERAL.
     */
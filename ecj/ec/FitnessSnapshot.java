@@ -0,0 +1,181 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec;
+import ec.util.*;
+import ec.steadystate.*;
+
+/*
+ * FitnessSnapshot.java
+ */
+
+/**
+ * A FitnessSnapshot holds, in primitive arrays, the fitness information of every individual in a
+ * subpopulation as of some point in time, so that selection methods can compare individuals by
+ * reading arrays rather than calling Fitness.betterThan(...) and Individual.size() over and over.
+ * A snapshot is built once per generation per subpopulation, the first time someone asks for one, and
+ * is then shared by every selection method and thread which asks for it until the individuals or
+ * their fitnesses change.
+ *
+ * <p><tt>scalars</tt> holds the Fitness.scalarFitness() of each individual, which orders them exactly
+ * as betterThan() does; but if any individual lacks a scalar fitness (for example, because its fitness
+ * is multiobjective) it is null, and you must fall back to calling betterThan().  The fitness() and
+ * size() of each individual are computed only if someone asks for them.
+ *
+ * <p>best(...) finds the best (or worst) few individuals without sorting all of them, using the scalar
+ * fitnesses if it has them.  It is used to load elites and by BestSelection.
+ *
+ * <p>A snapshot is only good as long as the subpopulation's individuals and their fitnesses are left
+ * alone.  get(...) hands out a new one when the subpopulation's individuals array has been replaced or
+ * the generation has changed, but if you modify fitnesses or individuals in place you must call
+ * invalidate(...) afterwards.  SimpleEvolutionState does this after every evaluation.  No snapshots
+ * are handed out at all under SteadyStateEvolutionState, which replaces individuals one by one.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class FitnessSnapshot
+    {
+    /** The individuals the snapshot was taken of. */
+    public Individual[] individuals;
+    /** The generation in which the snapshot was taken. */
+    public int generation;
+    /** The scalarFitness() of each individual, or null if some individual has none. */
+    public double[] scalars;
+    double[] fitnesses;
+    long[] sizes;
+
+    /** Takes a snapshot of the scalar fitnesses of the given individuals. */
+    public FitnessSnapshot(Individual[] individuals, int generation)
+        {
+        this.individuals = individuals;
+        this.generation = generation;
+
+        double[] s = new double[individuals.length];
+        for(int x = 0; x < s.length; x++)
+            {
+            if (individuals[x] == null || individuals[x].fitness == null)
+                return;  // leave scalars null
+            s[x] = individuals[x].fitness.scalarFitness();
+            if (s[x] != s[x])  // NaN: no scalar fitness
+                return;
+            }
+        scalars = s;
+        }
+
+    /** Returns a snapshot of the given subpopulation, building one if necessary, or null if
+        snapshots can't be used under this EvolutionState.  Threadsafe. */
+    public static FitnessSnapshot get(final EvolutionState state, final int subpopulation)
+        {
+        if (state instanceof SteadyStateEvolutionState)
+            return null;
+
+        Subpopulation subpop = state.population.subpops[subpopulation];
+        synchronized(subpop)
+            {
+            FitnessSnapshot snapshot = subpop.fitnessSnapshot;
+            if (snapshot == null || snapshot.individuals != subpop.individuals || snapshot.generation != state.generation)
+                subpop.fitnessSnapshot = snapshot = new FitnessSnapshot(subpop.individuals, state.generation);
+            return snapshot;
+            }
+        }
+
+    /** Discards the snapshot, if any, of the given subpopulation.  Call this if you have changed its
+        individuals or their fitnesses in place. */
+    public static void invalidate(final EvolutionState state, final int subpopulation)
+        {
+        Subpopulation subpop = state.population.subpops[subpopulation];
+        synchronized(subpop)
+            {
+            subpop.fitnessSnapshot = null;
+            }
+        }
+
+    /** Discards the snapshots, if any, of every subpopulation. */
+    public static void invalidate(final EvolutionState state)
+        {
+        for(int x = 0; x < state.population.subpops.length; x++)
+            invalidate(state, x);
+        }
+
+    /** Returns the indices of the k best individuals in the snapshot, from best to worst, or of the k
+        worst individuals, from worst to best, if <i>worst</i> is true.  Threadsafe. */
+    public int[] best(int k, boolean worst)
+        {
+        return best(individuals, scalars, k, worst);
+        }
+
+    /** Returns the indices of the k best individuals in inds, from best to worst, or of the k worst
+        individuals, from worst to best, if <i>worst</i> is true.  If scalars is non-null, it must hold
+        the scalarFitness() of each individual and is used to compare them; otherwise they are compared
+        with betterThan().  Equally fit individuals are ordered by index.  This takes expected O(n + k log k)
+        time rather than the O(n log n) of sorting all the individuals.  If k is larger than inds.length,
+        all of them are returned; if it is 0 or less, none are.  */
+    public static int[] best(final Individual[] inds, final double[] scalars, int k, final boolean worst)
+        {
+        if (k > inds.length) k = inds.length;
+        if (k <= 0) return new int[0];
+        int[] order = new int[inds.length];
+        for(int x = 0; x < order.length; x++)
+            order[x] = x;
+
+        // here "a < b" means that a comes before b: it's fitter (or less fit if worst is true),
+        // or as fit and at a lower index
+        SortComparatorL comp = new SortComparatorL()
+            {
+            public boolean lt(long a, long b) { return before((int)a, (int)b); }
+            public boolean gt(long a, long b) { return before((int)b, (int)a); }
+            boolean before(int a, int b)
+                {
+                if (scalars != null)
+                    {
+                    if (scalars[a] != scalars[b])
+                        return (scalars[a] > scalars[b]) != worst;
+                    }
+                else if (inds[a].fitness.betterThan(inds[b].fitness))
+                    return !worst;
+                else if (inds[b].fitness.betterThan(inds[a].fitness))
+                    return worst;
+                return a < b;
+                }
+            };
+
+        // move the k best (or worst) to the front, then sort just them
+        QuickSort.qselect(order, k, comp);
+        int[] best = new int[k];
+        System.arraycopy(order, 0, best, 0, k);
+        QuickSort.qsort(best, comp);
+        return best;
+        }
+
+    /** Returns the fitness() of each individual.  Threadsafe. */
+    public synchronized double[] fitnesses()
+        {
+        if (fitnesses == null)
+            {
+            double[] f = new double[individuals.length];
+            for(int x = 0; x < f.length; x++)
+                f[x] = individuals[x].fitness.fitness();
+            fitnesses = f;
+            }
+        return fitnesses;
+        }
+
+    /** Returns the size() of each individual.  Threadsafe. */
+    public synchronized long[] sizes()
+        {
+        if (sizes == null)
+            {
+            long[] s = new long[individuals.length];
+            for(int x = 0; x < s.length; x++)
+                s[x] = individuals[x].size();
+            sizes = s;
+            }
+        return sizes;
+        }
+    }
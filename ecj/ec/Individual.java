@@ -119,6 +119,27 @@ public abstract class Individual implements Prototype, Comparable
         hash code. */
     public abstract int hashCode();
 
+    /** Returns a 64-bit fingerprint of the individual's genotype, such that individuals which are
+        equals(...) each other always return the same fingerprint, and individuals which are not
+        almost never do.  Fingerprints are used in place of hashCode() and equals(...) to detect
+        duplicate individuals (see ec.util.FingerprintSet), perhaps using FingerprintSet.combine(...).
+        The default form simply scrambles hashCode(), which is no better at telling individuals
+        apart than hashCode() is: so unless hasUniqueFingerprint() is true, FingerprintSet confirms
+        duplicates by calling equals(...). */
+    public long fingerprint()
+        {
+        return FingerprintSet.mix(hashCode());
+        }
+
+    /** Returns true if two individuals with the same fingerprint() may be presumed to be equal,
+        without calling equals(...).  Override this to return true only if fingerprint() folds
+        every bit of your genotype into all 64 bits, rather than building it from 32-bit hash codes
+        of your genes or of other objects.  The default returns false. */
+    public boolean hasUniqueFingerprint()
+        {
+        return false;
+        }
+
     /** Overridden here because hashCode() is not expected to return the pointer
         to the object.  toString() normally uses hashCode() to print a unique identifier,
         and that's no longer the case.   You're welcome to override this anyway you 
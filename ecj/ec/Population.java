@@ -140,6 +140,7 @@ public class Population implements Group
                 }
             subpops[x] = (Subpopulation)(state.parameters.getInstanceForParameterEq(p,null,Subpopulation.class));  // Subpopulation.class is fine
             subpops[x].setup(state,p);
+            subpops[x].index = x;
             
             // test for loadinds
             if (loadInds && subpops[x].loadInds)  // uh oh
@@ -169,6 +170,21 @@ public class Population implements Group
                 subpops[x].populate(state, thread);
             }
         }
+
+    /** Populates the population just as populate(state, thread) does, but populates each
+        subpopulation in parallel using numThreads threads from the given pool (see
+        Subpopulation.populate(state, numThreads, pool)).  A population loaded from a
+        single file is read on thread 0. */ 
+    public void populate(EvolutionState state, int numThreads, ThreadPool pool)
+        {
+        if (loadInds)
+            populate(state, 0);
+        else
+            {
+            for(int x=0;x<subpops.length;x++)
+                subpops[x].populate(state, numThreads, pool);
+            }
+        }
         
         
     /** Prints an entire population in a form readable by humans. 
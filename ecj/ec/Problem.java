@@ -53,6 +53,13 @@ import ec.util.*;
  * and do nothing during prepareToEvaluate or finishEvaluating.  That should be true for
  * the vast majority of Problem types.
  *
+ * <p>Several runs may share a JVM: parallel jobs in ec.Evolve, or the runs performed by
+ * ec.EvolveDaemon.  If your Problem loads a large data set in setup(...), it may store what
+ * it loaded with putSharedData(...), under a key which identifies where the data came from
+ * (see resourceKey(...)), so that identical setups in later runs can fetch it with getSharedData(...)
+ * instead of loading it again.  The shared data must not be modified.  The store holds its data
+ * softly, so the garbage collector may drop data which no Problem is presently using.
+ *
  * @author Sean Luke
  * @version 2.0 
  */
@@ -79,6 +86,54 @@ public abstract class Problem implements Prototype
             { throw new InternalError(); } // never happens
         }
 
+    static final java.util.HashMap<Object, java.lang.ref.SoftReference<Object>> sharedData = 
+        new java.util.HashMap<Object, java.lang.ref.SoftReference<Object>>();
+
+    /** Returns the data stored under the given key by a Problem earlier in this JVM, or null if there
+        is none (or the garbage collector has since dropped it). */
+    public static Object getSharedData(Object key)
+        {
+        synchronized(sharedData)
+            {
+            java.lang.ref.SoftReference<Object> ref = sharedData.get(key);
+            return (ref == null ? null : ref.get());
+            }
+        }
+
+    /** Stores data under the given key for Problems later in this JVM.  Returns the data now stored
+        under the key: if another Problem stored data under the key in the meantime, that data is kept and
+        returned instead, so that everyone uses the same copy. */
+    public static Object putSharedData(Object key, Object data)
+        {
+        synchronized(sharedData)
+            {
+            Object old = getSharedData(key);
+            if (old != null) return old;
+            sharedData.put(key, new java.lang.ref.SoftReference<Object>(data));
+            return data;
+            }
+        }
+
+    /** Removes all shared data. */
+    public static void clearSharedData()
+        {
+        synchronized(sharedData) { sharedData.clear(); }
+        }
+
+    /** Returns a String identifying the present contents of the file or resource named by the given parameter
+        (or the default parameter), suitable for building a key for getSharedData(...) and putSharedData(...),
+        or null if neither parameter exists.  For a file this includes its absolute path, length, and modification
+        time, so if the file changes, so does the key.  Class-relative resources (<tt>@ClassName path</tt>) are
+        identified by the parameter value alone. */
+    public static String resourceKey(final EvolutionState state, final Parameter parameter, final Parameter defaultParameter)
+        {
+        String value = state.parameters.getString(parameter, defaultParameter);
+        if (value == null) return null;
+        java.io.File file = state.parameters.getFile(parameter, defaultParameter);
+        if (file == null) return value;
+        return file.getAbsolutePath() + " " + file.length() + " " + file.lastModified();
+        }
+
     /** May be called by the Evaluator prior to a series of individuals to 
         evaluate, and then ended with a finishEvaluating(...).  If this is the
         case then the Problem is free to delay modifying the individuals or their
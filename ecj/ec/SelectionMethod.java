@@ -6,6 +6,7 @@
 
 
 package ec;
+import ec.util.*;
 
 /* 
  * SelectionMethod.java
@@ -21,9 +22,24 @@ package ec;
  * SelectionMethods might include Tournament Selection, Fitness Proportional Selection, etc.
  * SelectionMethods don't have parent sources.
  *
+ * <p>SelectionMethods which compare individuals may do so using a FitnessSnapshot
+ * of the subpopulation rather than calling Fitness.betterThan(...), which is much faster
+ * in large populations.  This is optional: set <tt>fitness-snapshot</tt> to use it.
+ * SelectionMethods which support it call loadFitnessSnapshot(...) in prepareToProduce(...)
+ * and compare using the arrays in <tt>snapshot</tt> if it is non-null.  A snapshot taken
+ * during evaluation (for example by a coevolutionary evaluator) holds the fitnesses as they
+ * were when it was taken.
+ *
  <p><b>Typical Number of Individuals Produced Per <tt>produce(...)</tt> call</b><br>
  Always 1.
 
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare individuals using a FitnessSnapshot where we can?)</td></tr>
+ </table>
+
  * @author Sean Luke
  * @version 1.0 
  */
@@ -31,6 +47,28 @@ package ec;
 public abstract class SelectionMethod extends BreedingSource
     {
     public static final int INDS_PRODUCED = 1;
+    public static final String P_FITNESS_SNAPSHOT = "fitness-snapshot";
+
+    /** Should we compare individuals using a FitnessSnapshot where we can? */
+    public boolean useFitnessSnapshot;
+    
+    /** The snapshot of the subpopulation we're selecting from, set by loadFitnessSnapshot(...),
+        or null if we're not using one. */
+    public FitnessSnapshot snapshot;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state,base);
+        useFitnessSnapshot = state.parameters.getBoolean(base.push(P_FITNESS_SNAPSHOT),defaultBase().push(P_FITNESS_SNAPSHOT),false);
+        }
+
+    /** Sets snapshot to the FitnessSnapshot of the given subpopulation if useFitnessSnapshot is true
+        and one is available, else to null, and returns it.  Call this in prepareToProduce(...). */
+    public FitnessSnapshot loadFitnessSnapshot(final EvolutionState state, final int subpopulation)
+        {
+        snapshot = (useFitnessSnapshot ? FitnessSnapshot.get(state, subpopulation) : null);
+        return snapshot;
+        }
 
     /** Returns 1 (the typical default value) */
     public int typicalIndsProduced() { return INDS_PRODUCED; }
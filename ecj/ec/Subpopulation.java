@@ -30,6 +30,8 @@ import ec.util.*;
  * by filling the array with individuals created using the Subpopulations' 
  * species' emptyClone() method, though you might override this to create
  * them with other means, by loading from text files for example.
+ * populate(state, numThreads, pool) does the same thing in parallel: it is
+ * used by SimpleInitializer when there is more than one breeding thread.
  *
  * <p>In a multithreaded area of a run, Subpopulations should be considered
  * immutable.  That is, once they are created, they should not be modified,
@@ -57,7 +59,7 @@ import ec.util.*;
 
  <tr><td valign=top><i>base</i>.<tt>duplicate-retries</tt><br>
  <font size=-1>int &gt;= 0</font></td>
- <td valign=top>(during initialization, when we produce an individual which already exists in the subpopulation, the number of times we try to replace it with something unique.  Ignored if we're loading from a file.)</td></tr>
+ <td valign=top>(during initialization, when we produce an individual which already exists in the subpopulation, the number of times we try to replace it with something unique.  Individuals are compared by their fingerprint(), confirmed with equals(...) unless their hasUniqueFingerprint() is true.  Ignored if we're loading from a file.)</td></tr>
  </table>
 
  <p><b>Default Base</b><br>
@@ -93,9 +95,16 @@ public class Subpopulation implements Group
 
     /** Do we allow duplicates? */
     public int numDuplicateRetries;
+
+    /** The position of this subpopulation in the Population, set by Population.setup(...). */
+    public int index;
     
     /** What is our fill behavior beyond files? */
     public int extraBehavior;
+
+    /** The most recent FitnessSnapshot of the individuals, if any.  Use FitnessSnapshot.get(...) 
+        rather than reading this directly, as it may be out of date. */
+    public transient FitnessSnapshot fitnessSnapshot;
     
     public static final String P_SUBPOPULATION = "subpop";
     public static final String P_FILE = "file";
@@ -220,6 +229,27 @@ public class Subpopulation implements Group
 
 
     public void populate(EvolutionState state, int thread)
+        {
+        populate(state, thread, 1, null);
+        }
+
+    /** Populates the subpopulation just as populate(state, thread) does, but in parallel
+        using numThreads threads from the given pool, thread <i>y</i> using state.random[<i>y</i>].
+        Each thread creates an equal share of the individuals and weeds out duplicates among
+        them, then any duplicates among different threads' individuals are weeded out on
+        thread 0.  Individuals loaded from a file are parsed in parallel as well.  The results
+        are the same from run to run so long as numThreads stays the same, or regardless of
+        numThreads if state.deriveRandom is true.  If you override
+        populate(state, thread), you should override this method as well. */
+    public void populate(EvolutionState state, int numThreads, ThreadPool pool)
+        {
+        populate(state, 0, numThreads, pool);
+        }
+
+    /** A private helper function for populate(...).  If numThreads is 1, the subpopulation is
+        populated on the given thread, else it's populated in parallel by numThreads threads from
+        the pool.  Although this method is declared protected, you should not call it. */
+    protected void populate(final EvolutionState state, final int thread, final int numThreads, final ThreadPool pool)
         {
         int len = individuals.length;           // original length of individual array
         int start = 0;                                          // where to start filling new individuals in -- may get modified if we read some individuals in
@@ -231,7 +261,14 @@ public class Subpopulation implements Group
             if (stream == null)
                 state.output.fatal("Could not load subpopulation from file", file);
             
-            try { readSubpopulation(state, new LineNumberReader(new InputStreamReader(stream))); }
+            try 
+                { 
+                LineNumberReader reader = new LineNumberReader(new InputStreamReader(stream));
+                if (numThreads > 1)
+                    readSubpopulation(state, reader, numThreads, pool);
+                else
+                    readSubpopulation(state, reader);
+                }
             catch (IOException e) { state.output.fatal("An IOException occurred when trying to read from the file " + state.parameters.getString(file, null) + ".  The IOException was: \n" + e,
                     file, null); }
             
@@ -285,32 +322,75 @@ public class Subpopulation implements Group
             }
 
         // populating the remainder with random individuals
-        HashMap h = null;
-        if (numDuplicateRetries >= 1)
-            h = new HashMap((individuals.length - start) / 2);  // seems reasonable
+        if (numThreads <= 1)
+            {
+            populate(state, thread, start, individuals.length,
+                numDuplicateRetries >= 1 ? new FingerprintSet(individuals.length - start) : null);
+            return;
+            }
 
-        for(int x=start;x<individuals.length;x++) 
+        final int total = individuals.length - start;
+        for(int y = 0; y < numThreads; y++)
             {
-            for(int tries=0; 
-                tries <= /* Yes, I see that*/ numDuplicateRetries; 
-                tries++)
+            final int threadnum = y;
+            final int from = start + (int)((total * (long) y) / numThreads);
+            final int to = start + (int)((total * (long)(y + 1)) / numThreads);
+            Runnable run = new Runnable()
                 {
-                individuals[x] = species.newIndividual(state, thread);
-
-                if (numDuplicateRetries >= 1)
+                public void run() 
                     {
-                    // check for duplicates
-                    Object o = h.get(individuals[x]);
-                    if (o == null) // found nothing, we're safe
-                        // hash it and go
-                        {
-                        h.put(individuals[x],individuals[x]);
-                        break;
-                        }
+                    // if we're deriving random numbers, weeding out duplicates here would make the
+                    // results depend on where the chunks begin, so we leave it all to the end
+                    populate(state, threadnum, from, to,
+                        numDuplicateRetries >= 1 && !state.deriveRandom ? new FingerprintSet(to - from) : null);
                     }
-                }  // oh well, we tried to cut down the duplicates
+                };
+            pool.start(run, "ECJ Initialization Thread " + y);
+            }
+        pool.joinAll();
+        
+        // each thread only weeded out its own duplicates: now weed out duplicates among threads
+        if (numDuplicateRetries >= 1)
+            {
+            FingerprintSet h = new FingerprintSet(total);
+            for(int x = start; x < individuals.length; x++)
+                weedOut(state, thread, x, h);
             }
         }
+
+    /** A private helper function for populate(...) which fills individuals[from ... to - 1]
+        with new random individuals created on the given thread.  If h is non-null, duplicates
+        are weeded out using it.  Although this method is declared protected, you should not call it. */
+    protected void populate(EvolutionState state, int thread, int from, int to, FingerprintSet h)
+        {
+        for(int x=from;x<to;x++) 
+            {
+            if (state.deriveRandom)
+                state.reseedRandom(thread, EvolutionState.RANDOM_INITIALIZATION, index, x);
+            individuals[x] = species.newIndividual(state, thread);
+            if (h != null)
+                weedOut(state, thread, x, h);
+            }
+        }
+
+    /** A private helper function for populate(...).  If individuals[x] is a duplicate of an
+        individual already in h, replaces it with new individuals created on the given thread
+        until it isn't, or until we've tried numDuplicateRetries times.  Adds the final individual
+        to h unless it's a duplicate.  Although this method is declared protected, you should not call it. */
+    protected void weedOut(EvolutionState state, int thread, int x, FingerprintSet h)
+        {
+        if (h.add(individuals[x])) // found nothing, we're safe
+            return;
+
+        if (state.deriveRandom)
+            state.reseedRandom(thread, EvolutionState.RANDOM_DUPLICATES, index, x);
+        for(int tries = 0; tries < numDuplicateRetries; tries++)
+            {
+            individuals[x] = species.newIndividual(state, thread);
+            if (h.add(individuals[x]))
+                break;
+            }  // oh well, we tried to cut down the duplicates
+        }
         
     /** Prints an entire subpopulation in a form readable by humans. 
         @deprecated Verbosity no longer has meaning
@@ -419,6 +499,100 @@ public class Subpopulation implements Group
                  }
         }
         
+    /** Reads a subpopulation from the text stream just as readSubpopulation(state, reader) does,
+        but parses the individuals in parallel using numThreads threads from the given pool.
+        To do so it reads the entire remainder of the stream, which must hold nothing but the
+        subpopulation, and splits it into individuals at each INDIVIDUAL_INDEX_PREAMBLE.  If the
+        number of individuals found this way is not the number of individuals in the file,
+        they are all parsed on the calling thread. */
+    public void readSubpopulation(final EvolutionState state, final LineNumberReader reader, 
+        final int numThreads, final ThreadPool pool) throws IOException
+        {
+        // read in number of individuals and check to see if this appears to be a valid subpopulation
+        int numIndividuals = Code.readIntegerWithPreamble(NUM_INDIVIDUALS_PREAMBLE, state, reader);
+
+        if (numIndividuals < 1)
+            state.output.fatal("On reading subpopulation from text stream, the subpopulation size must be >= 1.  The provided value was: " + numIndividuals + ".");
+
+        if (numIndividuals != individuals.length)
+            {
+            state.output.warnOnce("On reading subpopulation from text stream, the current subpopulation size didn't match the number of individuals in the file.  " + 
+                "The size of the subpopulation will be revised accordingly.  There were " + numIndividuals +
+                " individuals in the file and " + individuals.length + " individuals expected for the subopulation.");
+            individuals = new Individual[numIndividuals];
+            }
+        else for(int i = 0; i < individuals.length; i++)
+                 if (individuals[i] == null)
+                     {
+                     state.output.warnOnce("On reading subpopulation from text stream, some of the preexisting subpopulation's slots were null.  " +
+                         "If you're starting an evolutionary run by reading an existing population from a file, this is expected -- ignore this message.");
+                     break;
+                     }
+
+        // read in the rest of the stream and find where each individual starts
+        final int firstLine = reader.getLineNumber();
+        final ArrayList<String> lines = new ArrayList<String>();
+        for(String line = reader.readLine(); line != null; line = reader.readLine())
+            lines.add(line);
+        final int[] starts = new int[numIndividuals + 1];
+        int count = 0;
+        for(int i = 0; i < lines.size(); i++)
+            if (lines.get(i).startsWith(INDIVIDUAL_INDEX_PREAMBLE))
+                {
+                if (count < numIndividuals) starts[count] = i;
+                count++;
+                }
+        starts[numIndividuals] = lines.size();
+        
+        if (count != numIndividuals || numThreads <= 1)  // read them all here
+            {
+            starts[0] = 0;
+            readIndividuals(state, lines, firstLine, starts, 0, numIndividuals);
+            return;
+            }
+
+        for(int y = 0; y < numThreads; y++)
+            {
+            final int from = (int)((numIndividuals * (long) y) / numThreads);
+            final int to = (int)((numIndividuals * (long)(y + 1)) / numThreads);
+            Runnable run = new Runnable()
+                {
+                public void run() { readIndividuals(state, lines, firstLine, starts, from, to); }
+                };
+            pool.start(run, "ECJ Initialization Thread " + y);
+            }
+        pool.joinAll();
+        }
+        
+    /** A private helper function for readSubpopulation(state, reader, numThreads, pool) which
+        reads individuals[from ... to - 1] from the given lines, where individual i begins at
+        line starts[i], and the lines begin at line firstLine + 1 of the original stream.
+        Although this method is declared protected, you should not call it. */
+    protected void readIndividuals(EvolutionState state, ArrayList<String> lines, int firstLine, int[] starts, int from, int to)
+        {
+        StringBuilder s = new StringBuilder();
+        for(int i = starts[from]; i < starts[to]; i++)
+            s.append(lines.get(i)).append('\n');
+        LineNumberReader reader = new LineNumberReader(new StringReader(s.toString()));
+        reader.setLineNumber(firstLine + starts[from]);
+
+        try
+            {
+            for(int i = from; i < to; i++)
+                {
+                int j = Code.readIntegerWithPreamble(INDIVIDUAL_INDEX_PREAMBLE, state, reader);
+                // sanity check
+                if (j!=i) state.output.warnOnce("On reading subpopulation from text stream, some individual indexes in the subpopulation did not match.  " +
+                    "The first was individual " + i + ", which is listed in the file as " + j);
+                if (individuals[i] != null)
+                    individuals[i].readIndividual(state, reader);
+                else
+                    individuals[i] = species.newIndividual(state, reader);
+                }
+            }
+        catch (IOException e) { state.output.fatal("An IOException occurred when trying to read a subpopulation from a text stream.  The IOException was: \n" + e); }
+        }
+
     /** Writes a subpopulation in binary form, in a format readable by readSubpopulation(EvolutionState, DataInput). */
     public void writeSubpopulation(final EvolutionState state,
         final DataOutput dataOutput) throws IOException
@@ -15,7 +15,7 @@ import ec.simple.SimpleFitness;
 import ec.util.*;
 import java.util.*;
 
-public class CoevolutionaryECSuite extends ECSuite implements GroupedProblemForm
+public class CoevolutionaryECSuite extends ECSuite implements MemoizableGroupedProblemForm
     {
     public static final String P_SHOULD_SET_CONTEXT = "set-context";
     boolean shouldSetContext;
@@ -63,6 +63,14 @@ public class CoevolutionaryECSuite extends ECSuite implements GroupedProblemForm
         int[] subpops,
         final int threadnum)
         {
+        applyResult(state, ind, updateFitness, countVictoriesOnly, computeResult(state, ind, subpops, threadnum), subpops, threadnum);
+        }
+
+    public Object computeResult(final EvolutionState state,
+        final Individual[] ind,  // the individuals to evaluate together
+        int[] subpops,
+        final int threadnum)
+        {
         if (ind.length == 0)
             state.output.fatal("Number of individuals provided to CoevolutionaryECSuite is 0!");
         if (ind.length == 1)
@@ -89,7 +97,18 @@ public class CoevolutionaryECSuite extends ECSuite implements GroupedProblemForm
             pos += coind.genome.length;
             }
 
-        double trial = (function(state, problemType, vals, threadnum));
+        return Double.valueOf(function(state, problemType, vals, threadnum));
+        }
+
+    public void applyResult(final EvolutionState state,
+        final Individual[] ind,  // the individuals which were evaluated together
+        final boolean[] updateFitness,  // should this individuals' fitness be updated?
+        final boolean countVictoriesOnly, // can be neglected in cooperative coevolution
+        final Object result,
+        int[] subpops,
+        final int threadnum)
+        {
+        double trial = ((Double)result).doubleValue();
 
         // update individuals to reflect the trial
         for(int i = 0 ; i < ind.length; i++)
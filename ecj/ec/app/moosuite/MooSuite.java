@@ -30,12 +30,14 @@ import ec.vector.*;
    <li>POL: Poloni; requires exactly 2 decision variables (genes)
    <li>KUR: Kursawe from the Errata of Zitzler's TIK-Report 103: "SPEA2: Improving the Strength Pareto Evolutionary Algorithm"
    (note that many different versions are described in the literature).
+   <li>DTLZ1: Deb, Thiele, Laumanns & Zitzler; any number of objectives, with (number of objectives + 4) decision variables (genes) being typical
+   <li>DTLZ2: Deb, Thiele, Laumanns & Zitzler; any number of objectives, with (number of objectives + 9) decision variables (genes) being typical
    </ul>   
 
    <p><b>Parameters</b><br>
    <table>
    <tr><td valign=top><i>base</i>.<tt>type</tt><br>
-   <font size=-1>String, one of: zdt1, zdt2, zdt3, zdt4, zdt6, sphere, sch, fon, qv, pol, kur, f1, f2, unconstrained-f3</font></td>
+   <font size=-1>String, one of: zdt1, zdt2, zdt3, zdt4, zdt6, sphere, sch, fon, qv, pol, kur, f1, f2, unconstrained-f3, dtlz1, dtlz2</font></td>
    <td valign=top>The multi-objective optimization problem to test against. </td></tr>
    </table>
    @author Gabriel Catalin Balan 
@@ -63,6 +65,8 @@ public class MooSuite extends Problem implements SimpleProblemForm
     public static final String P_F1 = "f1";    
     public static final String P_F2 = "f2";
     public static final String P_F3 = "unconstrained-f3";
+    public static final String P_DTLZ1 = "dtlz1";
+    public static final String P_DTLZ2 = "dtlz2";
 
     //Some of the following problems requires an exact number of decision variables (genes). This is mentioned in comment preceding the problem.
 
@@ -80,6 +84,8 @@ public class MooSuite extends Problem implements SimpleProblemForm
     public static final int PROB_SCH = 12;
     public static final int PROB_F2 = 13;
     public static final int PROB_F3 = 14;
+    public static final int PROB_DTLZ1 = 15;
+    public static final int PROB_DTLZ2 = 16;
 
     public int problemType = PROB_ZDT1;  // defaults on zdt1
 
@@ -115,6 +121,10 @@ public class MooSuite extends Problem implements SimpleProblemForm
             problemType = PROB_F3;
         else if( wp.compareTo( P_SCH) == 0 || wp.compareTo( P_F1) == 0 )
             problemType = PROB_SCH;         
+        else if( wp.compareTo( P_DTLZ1) == 0)
+            problemType = PROB_DTLZ1;
+        else if( wp.compareTo( P_DTLZ2) == 0)
+            problemType = PROB_DTLZ2;
         else state.output.fatal(
             "Invalid value for parameter, or parameter not found.\n" +
             "Acceptable values are:\n" +
@@ -129,7 +139,9 @@ public class MooSuite extends Problem implements SimpleProblemForm
             "  " + P_KUR_SPEA2 + "\n" +
             "  " + P_SPHERE + "\n" +
             "  " + P_SCH + "(or " + P_F1 + ")\n"+
-            "  " + P_F2 + "\n\n" +
+            "  " + P_F2 + "\n" +
+            "  " + P_DTLZ1 + "\n" +
+            "  " + P_DTLZ2 + "\n\n" +
             "Are you by any chance running moosuite.params?  Instead\n" + 
             "You should be running one of the params files for these\n" + 
             "specific problems, such as zdt2.params.\n",
@@ -139,6 +151,8 @@ public class MooSuite extends Problem implements SimpleProblemForm
     private static final double TEN_PI = Math.PI*10;//ZDT3 uses it.
     private static final double FOUR_PI = Math.PI*4;//ZDT4 uses it.
     private static final double SIX_PI = Math.PI*6;//ZDT6 uses it.
+    private static final double TWENTY_PI = Math.PI*20;//DTLZ1 uses it.
+    private static final double HALF_PI = Math.PI/2;//DTLZ2 uses it.
     private static final double ONE_OVER_SQRT_3 = 1d/Math.sqrt(3);//FON uses it.
     private static final double A1 = 0.5*Math.sin(1) - 2*Math.cos(1) +    Math.sin(2)- 1.5*Math.cos(2);//POL uses it
     private static final double A2 = 1.5*Math.sin(1) -   Math.cos(1) + 2* Math.sin(2)- 0.5*Math.cos(2);//POL uses it
@@ -312,6 +326,44 @@ public class MooSuite extends Problem implements SimpleProblemForm
                 //objectives[0] = sum;
                 objectives[1] = sum;
                 break;
+            case PROB_DTLZ1:
+                numObjectives = objectives.length;
+                if(numDecisionVars<numObjectives) throw new RuntimeException("DTLZ1 needs at least as many decision variables (genes) as objectives.");
+                // the last (numDecisionVars - numObjectives + 1) variables are the distance from the front
+                sum = 0;
+                for(int i = numObjectives-1; i<numDecisionVars; i++)
+                    {
+                    double xi = genome[i]-0.5;
+                    sum += xi*xi - Math.cos(TWENTY_PI*xi);
+                    }
+                g = 100*(numDecisionVars - numObjectives + 1 + sum);
+                for(int j=0; j<numObjectives; j++)
+                    {
+                    f = 0.5*(1+g);
+                    for(int i=0; i<numObjectives-1-j; i++)
+                        f *= genome[i];
+                    if (j > 0)
+                        f *= 1-genome[numObjectives-1-j];
+                    objectives[j] = f;
+                    }
+                break;
+            case PROB_DTLZ2:
+                numObjectives = objectives.length;
+                if(numDecisionVars<numObjectives) throw new RuntimeException("DTLZ2 needs at least as many decision variables (genes) as objectives.");
+                // the last (numDecisionVars - numObjectives + 1) variables are the distance from the front
+                g = 0;
+                for(int i = numObjectives-1; i<numDecisionVars; i++)
+                    g += (genome[i]-0.5)*(genome[i]-0.5);
+                for(int j=0; j<numObjectives; j++)
+                    {
+                    f = 1+g;
+                    for(int i=0; i<numObjectives-1-j; i++)
+                        f *= Math.cos(genome[i]*HALF_PI);
+                    if (j > 0)
+                        f *= Math.sin(genome[numObjectives-1-j]*HALF_PI);
+                    objectives[j] = f;
+                    }
+                break;
 
             default:
                 state.output.fatal( "ec.app.ecsuite.ECSuite has an invalid problem -- how on earth did that happen?" );
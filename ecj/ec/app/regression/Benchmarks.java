@@ -693,88 +693,103 @@ public class Benchmarks extends GPProblem implements SimpleProblemForm
                 }
             else  // load from files
                 {
-                try
+                // the files may already have been loaded by an identical setup in this JVM
+                String key = "ec.app.regression.Benchmarks " + resourceKey(state, base.push(P_TRAINING_FILE), null) +
+                    " " + resourceKey(state, base.push(P_TESTING_FILE), null);
+                Object[] data = (Object[])(getSharedData(key));
+                if (data != null)
                     {
-                    int numInputs = 0;
+                    trainingInputs = (double[][])(data[0]);
+                    trainingOutputs = (double[])(data[1]);
+                    testingInputs = (double[][])(data[2]);
+                    testingOutputs = (double[])(data[3]);
+                    }
+                else
+                    {
+                    try
+                        {
+                        int numInputs = 0;
                                         
-                    // first load the number of input variables
-                    Scanner scan = new Scanner(training_file);
-                    if (scan.hasNextInt()) 
-                        numInputs = scan.nextInt();
-                    else state.output.fatal("Number of input variables not provided at beginning of training file ", base.push(P_TRAINING_FILE), null);
+                        // first load the number of input variables
+                        Scanner scan = new Scanner(training_file);
+                        if (scan.hasNextInt()) 
+                            numInputs = scan.nextInt();
+                        else state.output.fatal("Number of input variables not provided at beginning of training file ", base.push(P_TRAINING_FILE), null);
                                         
-                    // Load into an array list each element
-                    ArrayList input = new ArrayList();
-                    ArrayList output = new ArrayList();
-                    while(scan.hasNextDouble())
-                        {
-                        double[] in = new double[numInputs];
-                        double out = 0;
-                        for(int i = 0; i < numInputs; i++)
+                        // Load into an array list each element
+                        ArrayList input = new ArrayList();
+                        ArrayList output = new ArrayList();
+                        while(scan.hasNextDouble())
                             {
+                            double[] in = new double[numInputs];
+                            double out = 0;
+                            for(int i = 0; i < numInputs; i++)
+                                {
+                                if (scan.hasNextDouble())
+                                    in[i] = scan.nextDouble();
+                                else state.output.fatal("Non-normal number of data points in training file ", base.push(P_TRAINING_FILE), null);
+                                }
                             if (scan.hasNextDouble())
-                                in[i] = scan.nextDouble();
+                                out = scan.nextDouble();
                             else state.output.fatal("Non-normal number of data points in training file ", base.push(P_TRAINING_FILE), null);
+                            input.add(in);
+                            output.add(new Double(out));
                             }
-                        if (scan.hasNextDouble())
-                            out = scan.nextDouble();
-                        else state.output.fatal("Non-normal number of data points in training file ", base.push(P_TRAINING_FILE), null);
-                        input.add(in);
-                        output.add(new Double(out));
-                        }
                                         
-                    // dump to arrays
-                    int len = input.size();
-                    trainingInputs = new double[len][numInputs];
-                    trainingOutputs = new double[len];
-                    for(int i = 0; i < len; i++)
-                        {
-                        trainingInputs[i] = (double[])(input.get(i));
-                        trainingOutputs[i] = ((Double)(output.get(i))).doubleValue();
-                        }
+                        // dump to arrays
+                        int len = input.size();
+                        trainingInputs = new double[len][numInputs];
+                        trainingOutputs = new double[len];
+                        for(int i = 0; i < len; i++)
+                            {
+                            trainingInputs[i] = (double[])(input.get(i));
+                            trainingOutputs[i] = ((Double)(output.get(i))).doubleValue();
+                            }
 
         
-                    // same thing for testing
+                        // same thing for testing
 
 
-                    scan = new Scanner(testing_file);
-                    if (scan.hasNextInt()) 
-                        numInputs = scan.nextInt();
-                    else state.output.fatal("Number of input variables not provided at beginning of testing file ", base.push(P_TESTING_FILE), null);
+                        scan = new Scanner(testing_file);
+                        if (scan.hasNextInt()) 
+                            numInputs = scan.nextInt();
+                        else state.output.fatal("Number of input variables not provided at beginning of testing file ", base.push(P_TESTING_FILE), null);
                                         
-                    // Load into an array list each element
-                    input = new ArrayList();
-                    output = new ArrayList();
-                    while(scan.hasNextDouble())
-                        {
-                        double[] in = new double[numInputs];
-                        double out = 0;
-                        for(int i = 0; i < numInputs; i++)
+                        // Load into an array list each element
+                        input = new ArrayList();
+                        output = new ArrayList();
+                        while(scan.hasNextDouble())
                             {
+                            double[] in = new double[numInputs];
+                            double out = 0;
+                            for(int i = 0; i < numInputs; i++)
+                                {
+                                if (scan.hasNextDouble())
+                                    in[i] = scan.nextDouble();
+                                else state.output.fatal("Non-normal number of data points in testing file ", base.push(P_TESTING_FILE), null);
+                                }
                             if (scan.hasNextDouble())
-                                in[i] = scan.nextDouble();
+                                out = scan.nextDouble();
                             else state.output.fatal("Non-normal number of data points in testing file ", base.push(P_TESTING_FILE), null);
+                            input.add(in);
+                            output.add(new Double(out));
                             }
-                        if (scan.hasNextDouble())
-                            out = scan.nextDouble();
-                        else state.output.fatal("Non-normal number of data points in testing file ", base.push(P_TESTING_FILE), null);
-                        input.add(in);
-                        output.add(new Double(out));
-                        }
                                         
-                    // dump to arrays
-                    len = input.size();
-                    testingInputs = new double[len][numInputs];
-                    testingOutputs= new double[len];
-                    for(int i = 0; i < len; i++)
+                        // dump to arrays
+                        len = input.size();
+                        testingInputs = new double[len][numInputs];
+                        testingOutputs= new double[len];
+                        for(int i = 0; i < len; i++)
+                            {
+                            testingInputs[i] = (double[])(input.get(i));
+                            testingOutputs[i] = ((Double)(output.get(i))).doubleValue();
+                            }
+                        }
+                    catch (NumberFormatException e)
                         {
-                        testingInputs[i] = (double[])(input.get(i));
-                        testingOutputs[i] = ((Double)(output.get(i))).doubleValue();
+                        state.output.fatal("Some tokens in the file were not numbers.");
                         }
-                    }
-                catch (NumberFormatException e)
-                    {
-                    state.output.fatal("Some tokens in the file were not numbers.");
+                    putSharedData(key, new Object[] { trainingInputs, trainingOutputs, testingInputs, testingOutputs });
                     }
                 }
             }
@@ -36,34 +36,41 @@ public class SAT extends Problem implements SimpleProblemForm
         if (filename == null)  // uh oh
             state.output.fatal("Filename must be provided", base.push(P_FILENAME));
                 
-        try 
-            { 
-            BufferedReader inFile = new BufferedReader(new FileReader(filename)); 
-            String line=""; 
-            int cnt=0;
-            boolean start = false; 
-            while ((line = inFile.readLine()) != null) 
+        // the formula may already have been loaded by an identical setup in this JVM
+        String key = "ec.app.sat.SAT " + resourceKey(state, base.push(P_FILENAME), null);
+        formula = (Clause[])(getSharedData(key));
+        if (formula == null)
+            {
+            try 
                 { 
-                if (start) 
+                BufferedReader inFile = new BufferedReader(new FileReader(filename)); 
+                String line=""; 
+                int cnt=0;
+                boolean start = false; 
+                while ((line = inFile.readLine()) != null) 
                     { 
-                    formula[cnt++] = new Clause(line);
-                    continue; 
-                    }
+                    if (start) 
+                        { 
+                        formula[cnt++] = new Clause(line);
+                        continue; 
+                        }
                                 
-                if (line.startsWith("p")) 
-                    { 
-                    start = true;
-                    line = line.trim(); 
-                    int index = line.lastIndexOf(" "); 
-                    formula = new Clause[Integer.parseInt(line.substring(index+1))]; 
+                    if (line.startsWith("p")) 
+                        { 
+                        start = true;
+                        line = line.trim(); 
+                        int index = line.lastIndexOf(" "); 
+                        formula = new Clause[Integer.parseInt(line.substring(index+1))]; 
+                        }
                     }
+                inFile.close();
+                } 
+            catch (IOException e) 
+                { 
+                state.output.fatal("Error in SAT setup, while loading from file " + filename +
+                    "\nFrom parameter " + base.push(P_FILENAME) + "\nError:\n" + e);  
                 }
-            inFile.close();
-            } 
-        catch (IOException e) 
-            { 
-            state.output.fatal("Error in SAT setup, while loading from file " + filename +
-                "\nFrom parameter " + base.push(P_FILENAME) + "\nError:\n" + e);  
+            putSharedData(key, formula);
             }
         }
         
@@ -8,7 +8,6 @@
 package ec.breed;
 import ec.*;
 import ec.util.*;
-import java.util.*;
 
 /* 
  * UniquePipeline.java
@@ -20,6 +19,9 @@ import java.util.*;
 /**
  * UniquePipeline is a BreedingPipeline which tries very hard to guarantee that all
  * the individuals it produces are unique from members of the original subpopulation.
+ * It compares individuals by their fingerprint() (see ec.util.FingerprintSet) rather than
+ * with equals(...), confirming with equals(...) only those individuals whose fingerprints
+ * are not unique (see Individual.hasUniqueFingerprint()).
  *
  <p><b>Typical Number of Individuals Produced Per <tt>produce(...)</tt> call</b><br>
  ...as many as the child produces
@@ -51,7 +53,8 @@ public class UniquePipeline extends BreedingPipeline
     
     public static final int NUM_SOURCES = 1;
     
-    public HashSet set = new HashSet();
+    /** The fingerprints of the members of the original subpopulation. */
+    public FingerprintSet set = new FingerprintSet();
     
     public Parameter defaultBase() { return BreedDefaults.base().push(P_UNIQUE); }
 
@@ -64,7 +67,7 @@ public class UniquePipeline extends BreedingPipeline
     public Object clone()
         {
         UniquePipeline c = (UniquePipeline)(super.clone());
-        c.set = (HashSet)(set.clone());
+        c.set = (FingerprintSet)(set.clone());
         return c;
         }
 
@@ -9,6 +9,7 @@ package ec.coevolve;
 import ec.*;
 import ec.util.*;
 import ec.simple.*;
+import java.util.concurrent.*;
 
 /** 
  * CompetitiveEvaluator.java
@@ -26,8 +27,7 @@ import ec.simple.*;
  CompetitiveEvaluator expects to use Problems which adhere to the GroupedProblemForm interface, 
  which defines a new evaluate(...) function, plus a preprocess(...) and postprocess(...) function.
 
- <p>This competitive fitness evaluator is single-threaded -- maybe we'll hack in multithreading later. 
- And it only has two individuals competing during any fitness evaluation.  The order of individuals in the 
+ <p>Only two individuals compete during any fitness evaluation.  The order of individuals in the 
  subpopulation will be changed during the evaluation process.  There are seven evaluation topologies
  presently supported:
 
@@ -58,6 +58,18 @@ import ec.simple.*;
  Sean Luke in the Proceedings of GECCO 2002.
  </dl> 
 
+ <p>If <tt>evalthreads</tt> is greater than 1, the games are played in parallel.  The whole schedule of
+ games is first drawn on the calling thread with <tt>state.random[0]</tt>, exactly as it would be in a
+ single-threaded run, and is then divided into <i>batches</i> of games in which no individual has its fitness
+ updated twice.  The batches are played one after another, each batch divided among the threads, and each thread
+ has its own clone of the Problem.  Thus no two threads ever modify the same individual at the same time, and every
+ individual has its fitness updated by its games in the same order as it would with a single thread.  An opponent
+ whose fitness is not being updated (as in <i>rand-1-way</i>) may meanwhile be playing other games, so your
+ Problem's evaluate(...) method should only modify the fitnesses it is asked to update, and should not read the
+ fitnesses of the others.  So long as it does so (and doesn't draw random numbers), the results are
+ identical regardless of the number of threads.  A round robin tournament is divided into 2N-3 batches
+ (for N individuals), and a single elimination tournament into one batch per round.
+
  <p><b>Parameters</b><br>
  <table>
  <tr><td valign=top><i>base.</i><tt>style</tt><br>
@@ -104,6 +116,9 @@ public class CompetitiveEvaluator extends Evaluator
     public static final String P_OVER_EVAL = "over-eval";
     public boolean allowOverEvaluation;
 
+    // we use a threadpool here
+    public ThreadPool pool = new ThreadPool();
+
     public void setup( final EvolutionState state, final Parameter base )
         {
         super.setup( state, base );
@@ -172,38 +187,16 @@ public class CompetitiveEvaluator extends Evaluator
         }
 
     /**
-     * An evaluator that performs coevolutionary evaluation.  Like SimpleEvaluator,
-     * it applies evolution pipelines, one per thread, to various subchunks of
-     * a new population.
+     * An evaluator that performs coevolutionary evaluation.  The individuals are
+     * shuffled, then the games of the chosen tournament style are played, in parallel
+     * if there is more than one evaluation thread.
      */
     public void evaluatePopulation(final EvolutionState state)
         {
-        int numinds[] = new int[state.evalthreads];
-        int from[] = new int[state.evalthreads];
         boolean[] assessFitness = new boolean[state.population.subpops.length];
         for(int i = 0; i < assessFitness.length; i++)
             assessFitness[i] = true;                                        // update everyone's fitness in preprocess and postprocess
         
-        for (int y=0;y<state.evalthreads;y++)
-            {
-            // figure numinds
-            if (y<state.evalthreads-1) // not last one
-                numinds[y] = state.population.subpops[0].individuals.length/
-                    state.evalthreads;
-            else
-                numinds[y] = 
-                    state.population.subpops[0].individuals.length/
-                    state.evalthreads +
-                    
-                    (state.population.subpops[0].individuals.length -
-                        (state.population.subpops[0].individuals.length /
-                        state.evalthreads)
-                    *state.evalthreads);
-            // figure from
-            from[y] = (state.population.subpops[0].individuals.length/
-                state.evalthreads) * y;
-            }
-        
         randomizeOrder( state, state.population.subpops[0].individuals );
         
         GroupedProblemForm prob = (GroupedProblemForm)(p_problem.clone());
@@ -216,13 +209,13 @@ public class CompetitiveEvaluator extends Evaluator
                 evalSingleElimination( state, state.population.subpops[0].individuals, 0, prob);
                 break;
             case STYLE_ROUND_ROBIN:
-                evalRoundRobin( state, from, numinds, state.population.subpops[0].individuals, 0, prob );
+                evalRoundRobin( state, state.population.subpops[0].individuals, 0, prob );
                 break;
             case STYLE_N_RANDOM_COMPETITORS_ONEWAY:
-                evalNRandomOneWay( state, from, numinds, state.population.subpops[0].individuals, 0, prob );
+                evalNRandomOneWay( state, state.population.subpops[0].individuals, 0, prob );
                 break;
             case STYLE_N_RANDOM_COMPETITORS_TWOWAY:
-                evalNRandomTwoWay( state, from, numinds, state.population.subpops[0].individuals, 0, prob );
+                evalNRandomTwoWay( state, state.population.subpops[0].individuals, 0, prob );
                 break;
             default:
                 state.output.fatal("Invalid competition style in CompetitiveEvaluator.evaluatePopulation()");
@@ -252,12 +245,24 @@ public class CompetitiveEvaluator extends Evaluator
         // the bottom half will be winners.  Then we cut our array in half and repeat.
         while( len > 1 )
             {
-            for(int x=0;x<len/2;x++)
+            if (state.evalthreads == 1)
                 {
-                competition[0] = tourn[x];
-                competition[1] = tourn[len-x-1];
+                for(int x=0;x<len/2;x++)
+                    {
+                    competition[0] = tourn[x];
+                    competition[1] = tourn[len-x-1];
 
-                prob.evaluate(state,competition,updates,true,subpops, 0);
+                    prob.evaluate(state,competition,updates,true,subpops, 0);
+                    }
+                }
+            else
+                {
+                // the games in a round never share an individual, so they form a single batch
+                GameList round = new GameList();
+                for(int x=0;x<len/2;x++)
+                    round.add(x, len-x-1, true);
+                round.batch(len);
+                playSchedule(state, round, tourn, subpop, true, prob);
                 }
 
             for(int x=0;x<len/2;x++)
@@ -282,49 +287,20 @@ public class CompetitiveEvaluator extends Evaluator
 
 
     public void evalRoundRobin( final EvolutionState state,
-        int[] from, int[] numinds,
         final Individual[] individuals, int subpop,
         final GroupedProblemForm prob )
         {
         if (state.evalthreads==1)
-            evalRoundRobinPopChunk(state,from[0],numinds[0],0,individuals, subpop, prob);
+            evalRoundRobinPopChunk(state,0,individuals.length,0,individuals, subpop, prob);
         else
-            {
-            Thread[] t = new Thread[state.evalthreads];
-            
-            // start up the threads
-            for (int y=0;y<state.evalthreads;y++)
-                {
-                CompetitiveEvaluatorThread r = new RoundRobinCompetitiveEvaluatorThread();
-                r.threadnum = y;
-                r.numinds = numinds[y];
-                r.from = from[y];
-                r.me = this;
-                r.subpop = subpop;
-                r.state = state;
-                r.p = prob;
-                r.inds = individuals;
-                t[y] = new Thread(r);
-                t[y].start();
-                }
-            
-            // gather the threads
-            for (int y=0;y<state.evalthreads;y++) 
-                try { t[y].join(); }
-                catch(InterruptedException e)
-                    {
-                    state.output.fatal("Whoa! The main evaluation thread got interrupted!  Dying...");
-                    }
-            }
-        
+            playSchedule(state, new RoundRobinSchedule(individuals.length), individuals, subpop, false, prob);
         }
 
     /**
-     * A private helper function for evalutatePopulation which evaluates a chunk
-     * of individuals in a subpopulation for a given thread.
+     * A private helper function for evalRoundRobin which evaluates a chunk
+     * of individuals against every individual after them in the subpopulation.
      * 
-     * Although this method is declared public (for the benefit of a private
-     * helper class in this file), you should not call it.
+     * Although this method is declared public, you should not call it.
      * 
      * @param state
      * @param numinds
@@ -345,154 +321,96 @@ public class CompetitiveEvaluator extends Evaluator
         
         // evaluate chunk of population against entire population
         // since an individual x will be evaluated against all 
-        // other individuals <x in other threads, only evaluate it against
-        // individuals >x in this thread.
+        // other individuals <x elsewhere, only evaluate it against
+        // individuals >x here.
         for(int x=from;x<upperBound;x++)
             for(int y=x+1;y<individuals.length;y++)
                 {
                 competition[0] = individuals[x];
                 competition[1] = individuals[y];
-                prob.evaluate(state,competition,updates,false, subpops, 0);
+                prob.evaluate(state,competition,updates,false, subpops, threadnum);
                 }
         }
 
 
     public void evalNRandomOneWay( final EvolutionState state, 
-        int[] from, int[] numinds, 
         final Individual[] individuals, int subpop, 
         final GroupedProblemForm prob )
         {
+        GameList games = scheduleNRandomOneWay(state, individuals);
         if (state.evalthreads==1)
-            evalNRandomOneWayPopChunk(state,from[0],numinds[0],0,individuals, subpop, prob);
+            games.play(state, individuals, subpop, false, prob);
         else
             {
-            Thread[] t = new Thread[state.evalthreads];
-            
-            // start up the threads
-            for (int y=0;y<state.evalthreads;y++)
-                {
-                CompetitiveEvaluatorThread r = new NRandomOneWayCompetitiveEvaluatorThread();
-                r.threadnum = y;
-                r.numinds = numinds[y];
-                r.from = from[y];
-                r.subpop = subpop;
-                r.me = this;
-                r.state = state;
-                r.p = prob;
-                r.inds = individuals;
-                t[y] = new Thread(r);
-                t[y].start();
-                }
-            
-            // gather the threads
-            for (int y=0;y<state.evalthreads;y++) 
-                try { t[y].join(); }
-                catch(InterruptedException e)
-                    {
-                    state.output.fatal("Whoa! The main evaluation thread got interrupted!  Dying...");
-                    }
+            games.batch(individuals.length);
+            playSchedule(state, games, individuals, subpop, false, prob);
             }
         }
     
-    public void evalNRandomOneWayPopChunk( final EvolutionState state,
-        int from, int numinds, int threadnum,
-        final Individual[] individuals,
-        final int subpop,
-        final GroupedProblemForm prob )
+    /** Draws the games of a K-Random-Opponents-One-Way tournament, in the order in which they are to be played.  
+        Each individual plays groupSize games against random opponents, and only its own fitness is updated. */
+    GameList scheduleNRandomOneWay( final EvolutionState state,
+        final Individual[] individuals )
         {
-        Individual[] queue = new Individual[individuals.length];
-        int len = queue.length;
-        System.arraycopy(individuals,0,queue,0,len);
+        int len = individuals.length;
+        int[] queue = new int[len];
+        for(int i = 0; i < len; i++)
+            queue[i] = i;
 
-        Individual[] competition = new Individual[2];
-        int subpops[] = new int[] { subpop, subpop };
-        boolean[] updates = new boolean[2];
-        updates[0] = true;
-        updates[1] = false;
-        int upperBound = from+numinds;
+        GameList games = new GameList();
         
-        for(int x=from;x<upperBound;x++)
+        for(int x=0;x<len;x++)
             {
-            competition[0] = individuals[x];
             // fill up our tournament
             for(int y=0;y<groupSize;)
                 {
                 // swap to end and remove
                 int index = state.random[0].nextInt(len-y);
-                competition[1] = queue[index];
+                int opponent = queue[index];
                 queue[index] = queue[len-y-1];
-                queue[len-y-1] = competition[1];
+                queue[len-y-1] = opponent;
                 // if the opponent is not the actual individual, we can
                 // have a competition
-                if( competition[1] != individuals[x] )
+                if( opponent != x )
                     {
-                    prob.evaluate(state,competition,updates,false,subpops, 0);
+                    games.add(x, opponent, false);
                     y++;
                     }
                 }
             }
+        return games;
         }
 
     public void evalNRandomTwoWay( final EvolutionState state,
-        int[] from, int[] numinds,
         final Individual[] individuals, int subpop, 
         final GroupedProblemForm prob )
         {
+        GameList games = scheduleNRandomTwoWay(state, individuals);
         if (state.evalthreads==1)
-            evalNRandomTwoWayPopChunk(state,from[0],numinds[0],0,individuals, subpop, prob);
+            games.play(state, individuals, subpop, false, prob);
         else
             {
-            Thread[] t = new Thread[state.evalthreads];
-            
-            // start up the threads
-            for (int y=0;y<state.evalthreads;y++)
-                {
-                CompetitiveEvaluatorThread r = new NRandomTwoWayCompetitiveEvaluatorThread();
-                r.threadnum = y;
-                r.numinds = numinds[y];
-                r.from = from[y];
-                r.me = this;
-                r.subpop = subpop;
-                r.state = state;
-                r.p = prob;
-                r.inds = individuals;
-                t[y] = new Thread(r);
-                t[y].start();
-                }
-            
-            // gather the threads
-            for (int y=0;y<state.evalthreads;y++)
-                try { t[y].join(); }
-                catch(InterruptedException e)
-                    {
-                    state.output.fatal("Whoa! The main evaluation thread got interrupted!  Dying...");
-                    }
+            games.batch(individuals.length);
+            playSchedule(state, games, individuals, subpop, false, prob);
             }
         }
     
-    public void evalNRandomTwoWayPopChunk( final EvolutionState state,
-        int from, int numinds, int threadnum,
-        final Individual[] individuals,
-        final int subpop,
-        final GroupedProblemForm prob )
+    /** Draws the games of a K-Random-Opponents-Two-Way tournament, in the order in which they are to be played. */
+    GameList scheduleNRandomTwoWay( final EvolutionState state,
+        final Individual[] individuals )
         {
+        int len = individuals.length;
 
         // the number of games played for each player
-        EncapsulatedIndividual[] individualsOrdered = new EncapsulatedIndividual[individuals.length];
-        EncapsulatedIndividual[] queue = new EncapsulatedIndividual[individuals.length];
-        for( int i = 0 ; i < individuals.length ; i++ )
-            individualsOrdered[i] = new EncapsulatedIndividual( individuals[i], 0 );
+        int[] nOpponentsMet = new int[len];
+        int[] queue = new int[len];
 
-        Individual[] competition = new Individual[2];
-        int[] subpops = new int[] { subpop, subpop }; 
-        boolean[] updates = new boolean[2];
-        updates[0] = true;
-        int upperBound = from+numinds;
+        GameList games = new GameList();
         
-        for(int x=from;x<upperBound;x++)
+        for(int x=0;x<len;x++)
             {
-            System.arraycopy(individualsOrdered,0,queue,0,queue.length);
-            competition[0] = queue[x].ind;
+            for(int i = 0; i < len; i++)
+                queue[i] = i;
 
             // if the rest of individuals is not enough to fill
             // all games remaining for the current individual
@@ -507,68 +425,113 @@ public class CompetitiveEvaluator extends Evaluator
             // not for the opponents' (unless allowOverEvaluations is set to true)
 
             // if true, it means that he has to play against all opponents with greater index
-            if( individuals.length - x - 1 <= groupSize - queue[x].nOpponentsMet )
+            if( len - x - 1 <= groupSize - nOpponentsMet[x] )
                 {
-                for( int y = x+1 ; y < queue.length ; y++ )
+                for( int y = x+1 ; y < len ; y++ )
                     {
-                    competition[1] = queue[y].ind;
-                    updates[1] = (queue[y].nOpponentsMet < groupSize) || allowOverEvaluation;
-                    prob.evaluate( state, competition, updates, false, subpops, 0 );
-                    queue[x].nOpponentsMet++;
-                    if( updates[1] )
-                        queue[y].nOpponentsMet++;
+                    int opponent = queue[y];
+                    boolean update = (nOpponentsMet[opponent] < groupSize) || allowOverEvaluation;
+                    games.add(x, opponent, update);
+                    nOpponentsMet[x]++;
+                    if( update )
+                        nOpponentsMet[opponent]++;
                     }
                 }
             else // here he has to play against a selection of the opponents with greater index
                 {
                 // we can use the queue structure because we'll just rearrange the indexes
-                // but we should make sure we also rearrange the other vectors referring to the individuals
-
-                for( int y = 0 ; groupSize > queue[x].nOpponentsMet ; y++ )
+                for( int y = 0 ; groupSize > nOpponentsMet[x] ; y++ )
                     {
                     // swap to the end and remove from list
-                    int index = state.random[0].nextInt( queue.length - x - 1 - y )+x+1;
-                    competition[1] = queue[index].ind;
+                    int index = state.random[0].nextInt( len - x - 1 - y )+x+1;
+                    int opponent = queue[index];
 
-                    updates[1] = (queue[index].nOpponentsMet < groupSize) || allowOverEvaluation;
-                    prob.evaluate( state, competition, updates, false, subpops, 0 );
-                    queue[x].nOpponentsMet++;
-                    if( updates[1] )
-                        queue[index].nOpponentsMet++;
+                    boolean update = (nOpponentsMet[opponent] < groupSize) || allowOverEvaluation;
+                    games.add(x, opponent, update);
+                    nOpponentsMet[x]++;
+                    if( update )
+                        nOpponentsMet[opponent]++;
 
                     // swap the players (such that a player will not be considered twice)
-                    EncapsulatedIndividual temp = queue[index];
-                    queue[index] = queue[queue.length - y - 1];
-                    queue[queue.length - y - 1] = temp;
-
+                    queue[index] = queue[len - y - 1];
+                    queue[len - y - 1] = opponent;
                     }
 
                 }
 
             // if true, it means that the current player needs to play some games with other players with lower indexes.
             // this is an unfortunate situation, since all those players have already had their groupSize games for the evaluation
-            if( queue[x].nOpponentsMet < groupSize )
+            if( nOpponentsMet[x] < groupSize )
                 {
-                for( int y = queue[x].nOpponentsMet ; y < groupSize ; y++ )
+                for( int y = nOpponentsMet[x] ; y < groupSize ; y++ )
                     {
                     // select a random opponent with smaller index (don't even care for duplicates)
                     int index;
                     if( x > 0 ) // if x is 0, then there are no players with smaller index, therefore pick a random one
                         index = state.random[0].nextInt( x );
                     else
-                        index = state.random[0].nextInt( queue.length-1 )+1;
+                        index = state.random[0].nextInt( len-1 )+1;
                     // use the opponent for the evaluation
-                    competition[1] = queue[index].ind;
-                    updates[1] = (queue[index].nOpponentsMet < groupSize) || allowOverEvaluation;
-                    prob.evaluate( state, competition, updates, false, subpops, 0 );
-                    queue[x].nOpponentsMet++;
-                    if( updates[1] )
-                        queue[index].nOpponentsMet++;
-                    
+                    int opponent = queue[index];
+                    boolean update = (nOpponentsMet[opponent] < groupSize) || allowOverEvaluation;
+                    games.add(x, opponent, update);
+                    nOpponentsMet[x]++;
+                    if( update )
+                        nOpponentsMet[opponent]++;
                     }
                 }
 
             }
+        return games;
+        }
+
+    /** Plays all the games in the schedule with state.evalthreads threads, each with its own clone of prob.  
+        The batches are played in order, with a barrier between each, and the games within a batch are dealt
+        out among the threads.  Since no individual is updated twice in the same batch, no two threads ever
+        modify the same individual at once. */
+    void playSchedule(final EvolutionState state, final GameSchedule schedule,
+        final Individual[] individuals, final int subpop, final boolean countVictoriesOnly,
+        final GroupedProblemForm prob)
+        {
+        final int numThreads = state.evalthreads;
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        for(int i = 0; i < numThreads; i++)
+            {
+            final int threadnum = i;
+            final GroupedProblemForm p = (GroupedProblemForm)(((Problem)prob).clone());
+            pool.start(new Runnable()
+                {
+                public void run()
+                    {
+                    Individual[] competition = new Individual[2];
+                    int[] subpops = new int[] { subpop, subpop };
+                    int[] players = new int[2];
+                    boolean[] updates = new boolean[2];
+                    int numBatches = schedule.numBatches();
+                    for(int b = 0; b < numBatches; b++)
+                        {
+                        int numGames = schedule.numGames(b);
+                        for(int g = threadnum; g < numGames; g += numThreads)
+                            {
+                            schedule.getGame(b, g, players, updates);
+                            competition[0] = individuals[players[0]];
+                            competition[1] = individuals[players[1]];
+                            p.evaluate(state, competition, updates, countVictoriesOnly, subpops, threadnum);
+                            }
+                        try { barrier.await(); }
+                        catch (InterruptedException e)
+                            {
+                            state.output.fatal("Whoa! A competitive evaluation thread got interrupted!  Dying...");
+                            }
+                        catch (BrokenBarrierException e)
+                            {
+                            state.output.fatal("Whoa! A competitive evaluation thread got interrupted!  Dying...");
+                            }
+                        }
+                    }
+                }, "ECJ Competitive Evaluation Thread " + i);
+            }
+        pool.joinAll();
         }
 
     int nextPowerOfTwo( int N )
@@ -596,18 +559,6 @@ public class CompetitiveEvaluator extends Evaluator
 
     }
 
-// used by the K-Random-Opponents-One-Way and K-Random-Opponents-Two-Ways evaluations
-class EncapsulatedIndividual
-    {
-    public Individual ind;
-    public int nOpponentsMet;
-    public EncapsulatedIndividual( Individual ind_, int value_ )
-        {
-        ind = ind_;
-        nOpponentsMet = value_;
-        }
-    };
-
 /*
 // used by the Single-Elimination-Tournament, (Double-Elimination-Tournament and World-Cup) evaluations
 class IndividualAndVictories
@@ -630,31 +581,128 @@ class IndComparator implements SortComparator
         { return ((Individual)b).fitness.betterThan(((Individual)a).fitness); }
     }
 
-abstract class CompetitiveEvaluatorThread implements Runnable
+/** A schedule of two-player games, divided into batches.  No individual has its fitness updated by more than
+    one game of a batch, so the games of a batch may be played in parallel. */
+abstract class GameSchedule
     {
-    public int numinds;
-    public int from;
-    public CompetitiveEvaluator me;
-    public EvolutionState state;
-    public int threadnum;
-    public GroupedProblemForm p;
-    public int subpop;
-    public Individual[] inds;
+    /** Returns the number of batches. */
+    public abstract int numBatches();
+    /** Returns the number of games in the given batch. */
+    public abstract int numGames(int batch);
+    /** Loads the indices of the two players of the given game into players, and whether each should have its fitness updated into updates. */
+    public abstract void getGame(int batch, int game, int[] players, boolean[] updates);
     }
 
-class RoundRobinCompetitiveEvaluatorThread extends CompetitiveEvaluatorThread
+/** A round robin tournament among N individuals.  Batch d-1 holds the games between x and y where x + y = d,
+    so each individual plays its opponents in increasing order, just as in evalRoundRobinPopChunk(...). */
+class RoundRobinSchedule extends GameSchedule
     {
-    public synchronized void run()
-        { me.evalRoundRobinPopChunk(state,from,numinds,threadnum,inds, subpop, p); }
+    int n;
+    public RoundRobinSchedule(int n) { this.n = n; }
+    public int numBatches() { return n < 2 ? 0 : 2 * n - 3; }
+    public int numGames(int batch)
+        {
+        int d = batch + 1;
+        return (d - 1) / 2 - Math.max(0, d - n + 1) + 1;
+        }
+    public void getGame(int batch, int game, int[] players, boolean[] updates)
+        {
+        int d = batch + 1;
+        int x = Math.max(0, d - n + 1) + game;
+        players[0] = x;
+        players[1] = d - x;
+        updates[0] = updates[1] = true;
+        }
     }
 
-class NRandomOneWayCompetitiveEvaluatorThread extends CompetitiveEvaluatorThread
+/** A list of games in the order in which they were drawn.  The first player of each game always has its fitness
+    updated; the second only if requested.  After batch(...) is called, the games are also divided into batches:
+    each game goes in the batch immediately after the last one in which either of its players had its fitness
+    updated, so every individual still has its fitness updated in the order in which the games were drawn.
+    A player whose fitness is not updated is only read, and so may appear in other games of the same batch. */
+class GameList extends GameSchedule
     {
-    public synchronized void run()
-        { me.evalNRandomOneWayPopChunk(state,from,numinds,threadnum,inds, subpop, p); }
-    }
-class NRandomTwoWayCompetitiveEvaluatorThread extends CompetitiveEvaluatorThread
-    {
-    public synchronized void run()
-        { me.evalNRandomTwoWayPopChunk(state,from,numinds,threadnum,inds, subpop, p); }
+    int numGames;
+    int[] first = new int[16];
+    int[] second = new int[16];
+    boolean[] updateSecond = new boolean[16];
+    int[] order;            // the games sorted by batch
+    int[] batchStart;       // batch b is order[batchStart[b]] ... order[batchStart[b+1] - 1]
+
+    public void add(int player, int opponent, boolean updateOpponent)
+        {
+        if (numGames == first.length)
+            {
+            int[] f = new int[numGames * 2];
+            int[] s = new int[numGames * 2];
+            boolean[] u = new boolean[numGames * 2];
+            System.arraycopy(first, 0, f, 0, numGames);
+            System.arraycopy(second, 0, s, 0, numGames);
+            System.arraycopy(updateSecond, 0, u, 0, numGames);
+            first = f; second = s; updateSecond = u;
+            }
+        first[numGames] = player;
+        second[numGames] = opponent;
+        updateSecond[numGames] = updateOpponent;
+        numGames++;
+        }
+
+    /** Divides the games among batches, given the number of individuals they are drawn from. */
+    public void batch(int numIndividuals)
+        {
+        int[] next = new int[numIndividuals];    // the first batch in which each individual is free
+        int[] batchOf = new int[numGames];
+        int numBatches = 0;
+        for(int g = 0; g < numGames; g++)
+            {
+            int b = next[first[g]];
+            if (updateSecond[g] && next[second[g]] > b)
+                b = next[second[g]];
+            batchOf[g] = b;
+            next[first[g]] = b + 1;
+            if (updateSecond[g])
+                next[second[g]] = b + 1;
+            if (b + 1 > numBatches) numBatches = b + 1;
+            }
+
+        // counting sort the games by batch, keeping them in order within each batch
+        batchStart = new int[numBatches + 1];
+        for(int g = 0; g < numGames; g++)
+            batchStart[batchOf[g] + 1]++;
+        for(int b = 0; b < numBatches; b++)
+            batchStart[b + 1] += batchStart[b];
+        int[] fill = new int[numBatches];
+        System.arraycopy(batchStart, 0, fill, 0, numBatches);
+        order = new int[numGames];
+        for(int g = 0; g < numGames; g++)
+            order[fill[batchOf[g]]++] = g;
+        }
+
+    /** Plays all the games, in the order in which they were drawn, on a single thread. */
+    public void play(final EvolutionState state, final Individual[] individuals, final int subpop,
+        final boolean countVictoriesOnly, final GroupedProblemForm prob)
+        {
+        Individual[] competition = new Individual[2];
+        int[] subpops = new int[] { subpop, subpop };
+        boolean[] updates = new boolean[2];
+        updates[0] = true;
+        for(int g = 0; g < numGames; g++)
+            {
+            competition[0] = individuals[first[g]];
+            competition[1] = individuals[second[g]];
+            updates[1] = updateSecond[g];
+            prob.evaluate(state, competition, updates, countVictoriesOnly, subpops, 0);
+            }
+        }
+
+    public int numBatches() { return batchStart.length - 1; }
+    public int numGames(int batch) { return batchStart[batch + 1] - batchStart[batch]; }
+    public void getGame(int batch, int game, int[] players, boolean[] updates)
+        {
+        int g = order[batchStart[batch] + game];
+        players[0] = first[g];
+        players[1] = second[g];
+        updates[0] = true;
+        updates[1] = updateSecond[g];
+        }
     }
@@ -0,0 +1,51 @@
+/*
+  Copyright 2015 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.coevolve;
+import ec.*;
+
+/**
+ * MemoizableGroupedProblemForm.java
+ *
+
+ <p>MemoizableGroupedProblemForm is a GroupedProblemForm whose evaluate(...) method is split in two.
+ computeResult(...) tests a group of individuals together and returns the outcome, without
+ modifying anything, and applyResult(...) updates the fitnesses of the individuals to reflect that
+ outcome.  evaluate(...) should do exactly the same thing as applyResult(...) called on the
+ result of computeResult(...).
+
+ <p>The split lets MultiPopCoevolutionaryEvaluator compute many results in parallel without any
+ two threads modifying the same individual, and lets it compute the result of a group which
+ appears several times in the same generation just once (see its <tt>memoize</tt> parameter).
+ Since computeResult(...) may be called from several threads at once, each with its own clone of the
+ Problem, it must not modify the individuals, their fitnesses, or shared state.
+
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public interface MemoizableGroupedProblemForm extends GroupedProblemForm
+    {
+    /** Evaluates the individuals found in ind together and returns the outcome, in whatever form
+        applyResult(...) expects.  Do not modify the individuals or their fitnesses.  */
+    public Object computeResult(final EvolutionState state,
+        final Individual[] ind,  // the individuals to evaluate together
+        final int[] subpops,
+        final int threadnum);
+
+    /** Updates the fitness of each individual ind[i] for which updateFitness[i] is true to reflect
+        the given result, previously returned by computeResult(...) for the same individuals.
+        See evaluate(...) for the meaning of the other arguments. */
+    public void applyResult(final EvolutionState state,
+        final Individual[] ind,  // the individuals which were evaluated together
+        final boolean[] updateFitness,  // should this individuals' fitness be updated?
+        final boolean countVictoriesOnly, // don't bother updating Fitness with scores, just victories
+        final Object result,
+        final int[] subpops,
+        final int threadnum);
+    }
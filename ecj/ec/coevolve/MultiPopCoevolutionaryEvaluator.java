@@ -10,6 +10,8 @@ package ec.coevolve;
 import ec.*;
 import ec.simple.*;
 import ec.util.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 /** 
  * MultiPopCoevolutionaryEvaluator.java
@@ -28,9 +30,24 @@ import ec.util.*;
  MultiPopCoevolutionaryEvaluator expects to use Problems which adhere to the GroupedProblemForm
  interface, which defines a new evaluate(...) function, plus a preprocess(...) and postprocess(...) function.
 
- <p>This coevolutionary evaluator is single-threaded -- maybe we'll hack in multithreading later.  It allows
- any number of subpopulations (implicitly, any number of individuals being evaluated together). The order of
- individuals in the subpopulation may be changed during the evaluation process.
+ <p>This coevolutionary evaluator allows any number of subpopulations (implicitly, any number of individuals
+ being evaluated together). The order of individuals in the subpopulation may be changed during the evaluation process.
+
+ <p>The evaluator first draws every team of collaborators on the calling thread, and only then evaluates the
+ teams.  Thus no fitness is updated until every partner has been selected, whether there is one evaluation thread
+ or many, and whether or not <tt>memoize</tt> is set.  If your Problem is a MemoizableGroupedProblemForm, the result of each team is computed in parallel
+ (each thread with its own clone of the Problem), and the results are then applied to the individuals' fitnesses
+ on the calling thread, in the order in which the teams were drawn.  If <tt>memoize</tt> is set, a team whose
+ members are the very same individuals as an earlier team in the same generation is not computed again: the
+ earlier result is simply applied again.  This is only appropriate if your Problem is deterministic.
+
+ <p>If your Problem is only a GroupedProblemForm, the teams are instead divided into batches in which no individual
+ has its fitness updated twice, and the batches are evaluated one after another, the teams in each batch divided
+ among the threads.  Every individual still has its fitness updated by its teams in the order they were drawn, but
+ a collaborator whose fitness is not being updated may meanwhile be in other teams: so evaluate(...) must
+ not modify (even temporarily) individuals it is not asked to update.  In either case, so long as your Problem
+ doesn't draw random numbers, the results are the same regardless of the number of threads, and (if your Problem
+ is deterministic) regardless of <tt>memoize</tt>.
 
  <p>Ordinarily MultiPopCoevolutionaryEvaluator does "parallel" coevolution: all subpopulations are evaluated
  simultaneously, then bred simultaneously.  But if you set the "sequential" parameter in the class 
@@ -76,6 +93,11 @@ import ec.util.*;
  <font size=-1> boolean (default = false)</font></td>
  <td valign=top>(instead of selecting individuals from )
  </td></tr>
+
+ <tr><td valign=top><i>base.</i><tt>memoize</tt><br>
+ <font size=-1> boolean (default = false)</font></td>
+ <td valign=top>(should a team which appears more than once in a generation be computed only once?  Requires a MemoizableGroupedProblemForm.)
+ </td></tr>
  
 
  </table>
@@ -117,6 +139,13 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
     // the selection method used to select the other partners from the current generation
     public static final String P_SELECTION_METHOD_CURRENT = "select-current";
     SelectionMethod[] selectionMethodCurrent;
+
+    // should teams which appear more than once in a generation be computed only once?
+    public static final String P_MEMOIZE = "memoize";
+    protected boolean memoize;
+
+    // we use a threadpool here
+    public ThreadPool pool = new ThreadPool();
                         
     public void setup( final EvolutionState state, final Parameter base )
         {
@@ -185,6 +214,10 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
                                                                                           
         if( numElite + numCurrent + numPrev + numShuffled <= 0 )
             state.output.error( "The total number of partners to be selected should be > 0." );
+
+        memoize = state.parameters.getBoolean( base.push(P_MEMOIZE), null, false );
+        if (memoize && !(p_problem instanceof MemoizableGroupedProblemForm))
+            state.output.warning( "Memoization requires a MemoizableGroupedProblemForm; teams will not be memoized.", base.push(P_MEMOIZE) );
         state.output.exitIfErrors();
         }
 
@@ -264,6 +297,8 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
     Individual[] inds = null;
     // which individual should have its fitness updated as a result
     boolean[] updates = null;
+    // the teams drawn so far, if we're drawing them all before evaluating them
+    ArrayList<Team> teams = null;
         
 
 
@@ -289,6 +324,7 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
                 
         inds = new Individual[population.subpops.length];
         updates = new boolean[population.subpops.length];
+        teams = new ArrayList<Team>();
 
         // we start by warming up the selection methods
         if (numCurrent > 0)
@@ -333,7 +369,7 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
                     {
                     for(int ind = 0; ind < inds.length; ind++)
                         { inds[ind] = state.population.subpops[ind].individuals[ordering[k][ind][i]]; updates[ind] = true; }
-                    prob.evaluate(state,inds,updates, false, subpops, 0);
+                    recordTeam();
                     evaluations++;
                     }
             }
@@ -359,7 +395,7 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
                         if (ind == j) { inds[ind] = individual; updates[ind] = true; }
                         else  { inds[ind] = eliteIndividuals[ind][k]; updates[ind] = false; }
                         }
-                    prob.evaluate(state,inds,updates, false, subpops, 0);
+                    recordTeam();
                     evaluations++;
                     }
                                         
@@ -371,7 +407,7 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
                         if (ind == j) { inds[ind] = individual; updates[ind] = true; }
                         else { inds[ind] = produceCurrent(ind, state, 0); updates[ind] = true; }
                         }
-                    prob.evaluate(state,inds,updates, false, subpops, 0);
+                    recordTeam();
                     evaluations++;
                     }
 
@@ -383,12 +419,16 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
                         if (ind == j) { inds[ind] = individual; updates[ind] = true; }
                         else { inds[ind] = producePrevious(ind, state, 0); updates[ind] = false; }
                         }
-                    prob.evaluate(state,inds,updates, false, subpops, 0);
+                    recordTeam();
                     evaluations++;
                     }
                 }
             }
                         
+        // evaluate the teams we've drawn
+        evaluations = evaluateTeams(state, prob, subpops);
+        teams = null;
+                        
         // now shut down the selection methods
         if (numCurrent > 0)
             for( int i = 0 ; i < selectionMethodCurrent.length; i++)
@@ -408,6 +448,137 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
         }
 
 
+    /** Records the team presently in inds, to be evaluated by evaluateTeams(...) once all the teams have been drawn. */
+    void recordTeam()
+        {
+        teams.add(new Team(inds.clone(), updates.clone()));
+        }
+        
+
+    /** Evaluates all the recorded teams, in parallel if there is more than one evaluation thread, and
+        returns the number of evaluations actually performed. */
+    int evaluateTeams(final EvolutionState state, final GroupedProblemForm prob, final int[] subpops)
+        {
+        final int numThreads = state.evalthreads;
+        final Team[] t = teams.toArray(new Team[teams.size()]);
+
+        if (prob instanceof MemoizableGroupedProblemForm)
+            {
+            // gather the distinct teams, each with the index of its result
+            final ArrayList<Team> distinct = new ArrayList<Team>();
+            HashMap<Team, Integer> results = new HashMap<Team, Integer>();
+            int[] resultOf = new int[t.length];
+            for(int i = 0; i < t.length; i++)
+                {
+                Integer r = (memoize ? results.get(t[i]) : null);
+                if (r == null)
+                    {
+                    r = Integer.valueOf(distinct.size());
+                    distinct.add(t[i]);
+                    if (memoize) results.put(t[i], r);
+                    }
+                resultOf[i] = r.intValue();
+                }
+
+            // compute the results in parallel.  Nobody is modified, so the threads can't collide
+            final Object[] result = new Object[distinct.size()];
+            for(int i = 0; i < numThreads; i++)
+                {
+                final int threadnum = i;
+                final MemoizableGroupedProblemForm p = (MemoizableGroupedProblemForm)(((Problem)prob).clone());
+                Runnable run = new Runnable()
+                    {
+                    public void run()
+                        {
+                        for(int j = threadnum; j < result.length; j += numThreads)
+                            result[j] = p.computeResult(state, distinct.get(j).inds, subpops, threadnum);
+                        }
+                    };
+                if (numThreads == 1) run.run();
+                else pool.start(run, "ECJ Coevolutionary Evaluation Thread " + i);
+                }
+            pool.joinAll();
+                        
+            // apply the results in the order in which the teams were drawn
+            MemoizableGroupedProblemForm p = (MemoizableGroupedProblemForm)prob;
+            for(int i = 0; i < t.length; i++)
+                p.applyResult(state, t[i].inds, t[i].updates, false, result[resultOf[i]], subpops, 0);
+            return result.length;
+            }
+        else if (numThreads == 1)
+            {
+            // just evaluate them in the order in which they were drawn
+            for(int i = 0; i < t.length; i++)
+                prob.evaluate(state, t[i].inds, t[i].updates, false, subpops, 0);
+            return t.length;
+            }
+        else
+            {
+            // divide the teams into batches.  Each team goes in the batch immediately after the last
+            // one in which any of its members had its fitness updated.
+            IdentityHashMap<Individual, Integer> next = new IdentityHashMap<Individual, Integer>();  // the first batch in which each individual is free
+            int[] batchOf = new int[t.length];
+            int numBatches = 0;
+            for(int i = 0; i < t.length; i++)
+                {
+                int b = 0;
+                for(int j = 0; j < t[i].inds.length; j++)
+                    if (t[i].updates[j])
+                        {
+                        Integer n = next.get(t[i].inds[j]);
+                        if (n != null && n.intValue() > b) b = n.intValue();
+                        }
+                Integer n = Integer.valueOf(b + 1);
+                for(int j = 0; j < t[i].inds.length; j++)
+                    if (t[i].updates[j])
+                        next.put(t[i].inds[j], n);
+                batchOf[i] = b;
+                if (b + 1 > numBatches) numBatches = b + 1;
+                }
+                                
+            final ArrayList<ArrayList<Team>> batches = new ArrayList<ArrayList<Team>>();
+            for(int b = 0; b < numBatches; b++)
+                batches.add(new ArrayList<Team>());
+            for(int i = 0; i < t.length; i++)
+                batches.get(batchOf[i]).add(t[i]);
+
+            // evaluate the batches one after another
+            final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+            for(int i = 0; i < numThreads; i++)
+                {
+                final int threadnum = i;
+                final GroupedProblemForm p = (GroupedProblemForm)(((Problem)prob).clone());
+                pool.start(new Runnable()
+                    {
+                    public void run()
+                        {
+                        for(int b = 0; b < batches.size(); b++)
+                            {
+                            ArrayList<Team> batch = batches.get(b);
+                            for(int j = threadnum; j < batch.size(); j += numThreads)
+                                {
+                                Team team = batch.get(j);
+                                p.evaluate(state, team.inds, team.updates, false, subpops, threadnum);
+                                }
+                            try { barrier.await(); }
+                            catch (InterruptedException e)
+                                {
+                                state.output.fatal("Whoa! A coevolutionary evaluation thread got interrupted!  Dying...");
+                                }
+                            catch (BrokenBarrierException e)
+                                {
+                                state.output.fatal("Whoa! A coevolutionary evaluation thread got interrupted!  Dying...");
+                                }
+                            }
+                        }
+                    }, "ECJ Coevolutionary Evaluation Thread " + i);
+                }
+            pool.joinAll();
+            return t.length;
+            }
+        }
+
+
     /** Selects one individual from the previous subpopulation.  If there is no previous
         population, because we're at generation 0, then an individual from the current
         population is selected at random. */
@@ -477,29 +648,43 @@ public class MultiPopCoevolutionaryEvaluator extends Evaluator
                     best = x;
             eliteIndividuals[whichSubpop][0] = (Individual)(state.population.subpops[whichSubpop].individuals[best].clone());
             }
-        else if (numElite > 0)  // we'll need to sort
+        else if (numElite > 0)
             {
-            int[] orderedPop = new int[subpop.individuals.length];
-            for(int x=0;x<subpop.individuals.length;x++) orderedPop[x] = x;
+            // find the top N individuals, best first, without sorting everyone
+            int[] best = FitnessSnapshot.best(subpop.individuals, null, numElite, false);
 
-            // sort the best so far where "<" means "more fit than"
-            QuickSort.qsort(orderedPop, new EliteComparator(subpop.individuals));
-
-            // load the top N individuals
+            // load them
             for( int j = 0 ; j < numElite ; j++ )
-                eliteIndividuals[whichSubpop][j] = (Individual)(state.population.subpops[whichSubpop].individuals[orderedPop[j]].clone());
+                eliteIndividuals[whichSubpop][j] = (Individual)(state.population.subpops[whichSubpop].individuals[best[j]].clone());
             }
         }
 
     }
 
-class EliteComparator implements SortComparatorL
+/** A team of individuals to be evaluated together.  Teams are equal if their members are the very same individuals. */
+class Team
     {
     Individual[] inds;
-    public EliteComparator(Individual[] inds) {super(); this.inds = inds;}
-    public boolean lt(long a, long b)
-        { return inds[(int)a].fitness.betterThan(inds[(int)b].fitness); }
-    public boolean gt(long a, long b)
-        { return inds[(int)b].fitness.betterThan(inds[(int)a].fitness); }
+    boolean[] updates;
+    int hash;
+        
+    public Team(Individual[] inds, boolean[] updates)
+        {
+        this.inds = inds;
+        this.updates = updates;
+        for(int i = 0; i < inds.length; i++)
+            hash = hash * 31 + System.identityHashCode(inds[i]);
+        }
+        
+    public int hashCode() { return hash; }
+        
+    public boolean equals(Object obj)
+        {
+        if (!(obj instanceof Team)) return false;
+        Individual[] other = ((Team)obj).inds;
+        if (other.length != inds.length) return false;
+        for(int i = 0; i < inds.length; i++)
+            if (other[i] != inds[i]) return false;
+        return true;
+        }
     }
-
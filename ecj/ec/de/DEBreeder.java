@@ -28,6 +28,11 @@ import ec.vector.*;
  * <p>This class should be used in conjunction with 
  * DEEvaluator, which allows the children to enter the population only if they're superior to their
  * parents (the original individuals).  If so, they replace their parents.
+ *
+ * <p>DEBreeder breeds with <tt>breedthreads</tt> threads.  Each thread creates the children of a contiguous
+ * chunk of each subpopulation, using its own random number generator, so the results are reproducible
+ * given the same seeds and number of breeding threads.  Subclasses which override createIndividual(...)
+ * should only use <tt>state.random[thread]</tt>, and should not modify the current population.
  * 
  * <p><b>Parameters</b><br>
  * <table>
@@ -65,6 +70,9 @@ public class DEBreeder extends Breeder
     /** the best individuals in each population (required by some DE breeders).  It's not required by DEBreeder's algorithm */
     public int[] bestSoFarIndex = null;
 
+    // we use a threadpool here
+    public ThreadPool pool = new ThreadPool();
+
     public void setup(final EvolutionState state, final Parameter base) 
         {
         if (!state.parameters.exists(base.push(P_Cr), null))  // it wasn't specified -- hope we know what we're doing
@@ -102,7 +110,7 @@ public class DEBreeder extends Breeder
             }
         }
 
-    public Population breedPopulation(EvolutionState state)
+    public Population breedPopulation(final EvolutionState state)
         {
         // double check that we're using DEEvaluator
         if (!(state.evaluator instanceof DEEvaluator))
@@ -112,19 +120,31 @@ public class DEBreeder extends Breeder
         prepareDEBreeder(state);
 
         // create the new population
-        Population newpop = (Population) state.population.emptyClone();
+        final Population newpop = (Population) state.population.emptyClone();
 
-        // breed the children
         for( int subpop = 0 ; subpop < state.population.subpops.length ; subpop++ )
             {
             if (state.population.subpops[subpop].individuals.length < 4)  // Magic number, sorry.  createIndividual() requires at least 4 individuals in the pop
                 state.output.fatal("Subpopulation " + subpop + " has fewer than four individuals, and so cannot be used with DEBreeder.");
-            
-            Individual[] inds = newpop.subpops[subpop].individuals;
-            for( int i = 0 ; i < inds.length ; i++ )
+            }
+
+        // breed the children
+        final int numThreads = state.breedthreads;
+        if (numThreads == 1)
+            {
+            breedPopChunk(state, newpop, 0, 1);
+            }
+        else
+            {
+            for(int y = 0; y < numThreads; y++)
                 {
-                newpop.subpops[subpop].individuals[i] = createIndividual( state, subpop, i, 0);  // unthreaded for now
+                final int threadnum = y;
+                pool.start(new Runnable()
+                    {
+                    public void run() { breedPopChunk(state, newpop, threadnum, numThreads); }
+                    }, "ECJ Breeding Thread " + y );
                 }
+            pool.joinAll();
             }
 
         // store the current population for competition with the new children
@@ -132,6 +152,22 @@ public class DEBreeder extends Breeder
         return newpop;
         }
 
+    /** A private helper function for breedPopulation which breeds the children of the given thread's 
+        chunk of each subpopulation.  Although this method is declared protected, you should not call it. */
+    protected void breedPopChunk(EvolutionState state, Population newpop, int threadnum, int numThreads)
+        {
+        for( int subpop = 0 ; subpop < newpop.subpops.length ; subpop++ )
+            {
+            Individual[] inds = newpop.subpops[subpop].individuals;
+            int from = (int)(((long) inds.length) * threadnum / numThreads);
+            int to = (int)(((long) inds.length) * (threadnum + 1) / numThreads);
+            for( int i = from ; i < to ; i++ )
+                {
+                inds[i] = createIndividual( state, subpop, i, threadnum);
+                }
+            }
+        }
+
     /** Tests the Individual to see if its values are in range. */
     public boolean valid(DoubleVectorIndividual ind)
         {
@@ -19,6 +19,7 @@ import ec.simple.*;
  *
  * <p>This code could have been moved into the Breeder of course.  But then the better of the parents
  * and children would not appear in standard Statistics objects.  So we've broken it out here.
+ * Like evaluation, the comparison is divided among <tt>evalthreads</tt> threads.
  *
  * <p>The full description of Differential Evolution may be found in the book
  * "Differential Evolution: A Practical Approach to Global Optimization"
@@ -30,13 +31,13 @@ import ec.simple.*;
 
 public class DEEvaluator extends SimpleEvaluator
     {
-    public void evaluatePopulation(EvolutionState state)
+    public void evaluatePopulation(final EvolutionState state)
         {
         super.evaluatePopulation(state);
 
         if( state.breeder instanceof DEBreeder )
             {
-            Population previousPopulation = ((DEBreeder)(state.breeder)).previousPopulation; // for faster access
+            final Population previousPopulation = ((DEBreeder)(state.breeder)).previousPopulation; // for faster access
             if( previousPopulation != null )
                 {
                 if( previousPopulation.subpops.length != state.population.subpops.length )
@@ -45,12 +46,44 @@ public class DEEvaluator extends SimpleEvaluator
                     {
                     if( state.population.subpops[i].individuals.length != previousPopulation.subpops[i].individuals.length )
                         state.output.fatal( "DEEvaluator requires that subpopulation " + i + " should have the same number of individuals in all generations." );
-                    for( int j = 0 ; j < state.population.subpops[i].individuals.length ; j++ )
-                        if( previousPopulation.subpops[i].individuals[j].fitness.betterThan( state.population.subpops[i].individuals[j].fitness ) )
-                            state.population.subpops[i].individuals[j] = previousPopulation.subpops[i].individuals[j];
+                    }
+
+                final int numThreads = state.evalthreads;
+                if (numThreads == 1)
+                    {
+                    competePopChunk(state, previousPopulation, 0, 1);
+                    }
+                else
+                    {
+                    for(int y = 0; y < numThreads; y++)
+                        {
+                        final int threadnum = y;
+                        pool.start(new Runnable()
+                            {
+                            public void run() { competePopChunk(state, previousPopulation, threadnum, numThreads); }
+                            }, "ECJ Evaluation Thread " + y);
+                        }
+                    pool.joinAll();
                     }
                 }
             }
         else state.output.fatal("DEEvaluator requires DEBreeder to be the breeder.");
         }
+
+    /** A private helper function for evaluatePopulation which replaces children in the given thread's
+        chunk of each subpopulation with their parents if the parents are superior.  Although this method
+        is declared protected, you should not call it. */
+    protected void competePopChunk(EvolutionState state, Population previousPopulation, int threadnum, int numThreads)
+        {
+        for( int i = 0 ; i < previousPopulation.subpops.length ; i++ )
+            {
+            Individual[] inds = state.population.subpops[i].individuals;
+            Individual[] parents = previousPopulation.subpops[i].individuals;
+            int from = (int)(((long) inds.length) * threadnum / numThreads);
+            int to = (int)(((long) inds.length) * (threadnum + 1) / numThreads);
+            for( int j = from ; j < to ; j++ )
+                if( parents[j].fitness.betterThan( inds[j].fitness ) )
+                    inds[j] = parents[j];
+            }
+        }
     }
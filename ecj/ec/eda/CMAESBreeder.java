@@ -23,15 +23,98 @@ import ec.util.*;
  * individuals in the population with new samples generated from the
  * distribution.  All the heavy lifting is done in CMAESSpecies, not here.
  *
+ * <p>The new individuals are sampled by <tt>breedthreads</tt> threads, each filling a contiguous
+ * chunk of the subpopulation using its own random number generator.
+ *
+ * <p>CMAESBreeder can also restart each CMA-ES distribution when it stops making progress (see
+ * CMAESSpecies.stopCondition(...)), which helps considerably on multimodal problems.  With <b>ipop</b>
+ * restarts (Auger and Hansen, 2005), each restart multiplies lambda by <tt>restart-increase</tt>.  With
+ * <b>bipop</b> restarts (Hansen, 2009), each restart is either in the large regime, as in IPOP, or in the
+ * small regime, whichever has so far used fewer evaluations.  A small-regime restart uses 
+ * lambda = floor(lambda_0 (lambda_L / (2 lambda_0))^(U^2)) and sigma = sigma_0 10^(-2U), where lambda_0 and
+ * sigma_0 are the initial lambda and sigma, lambda_L is the latest large-regime lambda, and U is uniform
+ * in [0,1).  Restarts reset the mean as specified by the species' <tt>mean</tt> parameter, so you will probably 
+ * want to set it to <tt>random</tt>.
+ *
+ * <p>To run several CMA-ES instances concurrently, give each its own subpopulation with a CMAESSpecies.  Each
+ * is restarted independently, they are all evaluated together by the Evaluator's threads, and they share
+ * the run's <tt>generations</tt> or <tt>evaluations</tt> budget.  The best individual found by any of them,
+ * across all restarts, is kept in <tt>bestSoFar</tt>.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>restart</tt><br>
+ <font size=-1>String, one of none (default), ipop, or bipop</font></td>
+ <td valign=top>(the restart strategy)
+ </td></tr>
+
+ <tr><td valign=top><i>base</i>.<tt>restart-increase</tt><br>
+ <font size=-1>Floating-point value > 1.0 (default 2.0)</font></td>
+ <td valign=top>(how much to multiply lambda by on each IPOP or large-regime BIPOP restart)
+ </td></tr>
+ </table>
+ *
  * @author Sam McKay and Sean Luke
  * @version 1.0 
  */
 
 public class CMAESBreeder extends Breeder
     {
+    public static final String P_RESTART = "restart";
+    public static final String P_RESTART_INCREASE = "restart-increase";
+    public static final String V_NONE = "none";
+    public static final String V_IPOP = "ipop";
+    public static final String V_BIPOP = "bipop";
+
+    public static final int R_NONE = 0;
+    public static final int R_IPOP = 1;
+    public static final int R_BIPOP = 2;
+
+    /** The restart strategy: R_NONE, R_IPOP, or R_BIPOP. */
+    public int restartType = R_NONE;
+
+    /** How much lambda is multiplied by on each IPOP or large-regime BIPOP restart. */
+    public double restartIncrease;
+
+    /** The best individual found so far in any subpopulation, across all restarts.  Only maintained when restarting. */
+    public Individual bestSoFar;
+
+    /** The number of times each subpopulation's distribution has been restarted. */
+    public int[] restarts;
+
+    /** The lambda and sigma each subpopulation started with. */
+    public int[] initialLambda;
+    public double[] initialSigma;
+
+    /** The lambda of each subpopulation's most recent IPOP or large-regime BIPOP run. */
+    public int[] largeLambda;
+
+    /** The evaluations each subpopulation has spent in the large and small BIPOP regimes.
+        IPOP runs, and the first run, count as large. */
+    public long[] largeEvaluations;
+    public long[] smallEvaluations;
+
+    /** Is each subpopulation presently in the small BIPOP regime? */
+    public boolean[] smallRegime;
+
+    // we use a threadpool here
+    public ThreadPool pool = new ThreadPool();
+
     public void setup(final EvolutionState state, final Parameter base)
         {
-        // nothing to setup
+        String restart = state.parameters.getStringWithDefault(base.push(P_RESTART), null, V_NONE);
+        if (restart.equals(V_NONE))
+            restartType = R_NONE;
+        else if (restart.equals(V_IPOP))
+            restartType = R_IPOP;
+        else if (restart.equals(V_BIPOP))
+            restartType = R_BIPOP;
+        else
+            state.output.fatal("Unknown CMA-ES restart strategy: " + restart, base.push(P_RESTART), null);
+
+        restartIncrease = state.parameters.getDoubleWithDefault(base.push(P_RESTART_INCREASE), null, 2.0);
+        if (restartIncrease <= 1.0)
+            state.output.fatal("The CMA-ES restart increase must be > 1.0", base.push(P_RESTART_INCREASE), null);
         }
 
     /** Updates the CMA-ES distribution given the current population, then 
@@ -41,23 +124,122 @@ public class CMAESBreeder extends Breeder
     public Population breedPopulation(final EvolutionState state)
         {
         Population pop = state.population;
+        if (restartType != R_NONE && restarts == null)
+            setupRestarts(state);
+
         for(int i = 0; i < pop.subpops.length; i++)
             {
             Subpopulation subpop = pop.subpops[i];
             if (!(subpop.species instanceof CMAESSpecies))  // uh oh
                 state.output.fatal("To use CMAESBreeder, subpopulation " + i + " must contain a CMAESSpecies.  But it contains a " + subpop.species);
                         
-            CMAESSpecies species = (CMAESSpecies)(subpop.species);
+            final CMAESSpecies species = (CMAESSpecies)(subpop.species);
                 
             // update distribution[i] for subpop
             species.updateDistribution(state, subpop);
+
+            if (restartType != R_NONE)
+                {
+                // the subpopulation is now sorted, best first
+                if (bestSoFar == null || subpop.individuals[0].fitness.betterThan(bestSoFar.fitness))
+                    bestSoFar = (Individual)(subpop.individuals[0].clone());
+
+                if (smallRegime[i])
+                    smallEvaluations[i] += subpop.individuals.length;
+                else
+                    largeEvaluations[i] += subpop.individuals.length;
+
+                String reason = species.stopCondition(state, subpop);
+                if (reason != null)
+                    restart(state, i, reason);
+                }
                 
             // overwrite individuals
-            Individual[] inds = subpop.individuals;
-            for(int j = 0; j < inds.length; j++)
-                inds[j] = species.newIndividual(state, 0);
+            final Individual[] inds = subpop.individuals;
+            final int numThreads = state.breedthreads;
+            if (numThreads == 1)
+                {
+                sampleChunk(state, species, inds, 0, inds.length, 0);
+                }
+            else
+                {
+                for(int y = 0; y < numThreads; y++)
+                    {
+                    final int from = (int)(((long) inds.length) * y / numThreads);
+                    final int to = (int)(((long) inds.length) * (y + 1) / numThreads);
+                    final int threadnum = y;
+                    pool.start(new Runnable()
+                        {
+                        public void run() { sampleChunk(state, species, inds, from, to, threadnum); }
+                        }, "ECJ Breeding Thread " + y);
+                    }
+                pool.joinAll();
+                }
             }
                 
         return pop;
         }
+
+    /** Records each subpopulation's initial lambda and sigma, before its distribution is first updated. */
+    protected void setupRestarts(final EvolutionState state)
+        {
+        int len = state.population.subpops.length;
+        restarts = new int[len];
+        initialLambda = new int[len];
+        initialSigma = new double[len];
+        largeLambda = new int[len];
+        largeEvaluations = new long[len];
+        smallEvaluations = new long[len];
+        smallRegime = new boolean[len];
+        for(int i = 0; i < len; i++)
+            {
+            if (!(state.population.subpops[i].species instanceof CMAESSpecies))  // uh oh
+                state.output.fatal("To use CMAESBreeder, subpopulation " + i + " must contain a CMAESSpecies.  But it contains a " + state.population.subpops[i].species);
+            CMAESSpecies species = (CMAESSpecies)(state.population.subpops[i].species);
+            initialLambda[i] = species.lambda;
+            initialSigma[i] = species.sigma;
+            largeLambda[i] = species.lambda;
+            }
+        }
+
+    /** Restarts the distribution of the given subpopulation, choosing its new lambda and sigma
+        according to the restart strategy, and resizes the subpopulation to match. */
+    protected void restart(final EvolutionState state, int subpop, String reason)
+        {
+        CMAESSpecies species = (CMAESSpecies)(state.population.subpops[subpop].species);
+        int lambda;
+        double sigma;
+        if (restartType == R_BIPOP && smallEvaluations[subpop] < largeEvaluations[subpop])
+            {
+            double u = state.random[0].nextDouble();
+            lambda = (int)Math.floor(initialLambda[subpop] * Math.pow(0.5 * largeLambda[subpop] / initialLambda[subpop], u * u));
+            lambda = Math.max(lambda, 2);           // so that mu >= 1
+            sigma = initialSigma[subpop] * Math.pow(10.0, -2.0 * u);
+            smallRegime[subpop] = true;
+            }
+        else
+            {
+            largeLambda[subpop] = (int)Math.ceil(largeLambda[subpop] * restartIncrease);
+            lambda = largeLambda[subpop];
+            sigma = initialSigma[subpop];
+            smallRegime[subpop] = false;
+            }
+        restarts[subpop]++;
+
+        state.output.message("Subpopulation " + subpop + " restart " + restarts[subpop] + " (" + reason + ")" +
+            (restartType == R_BIPOP ? (smallRegime[subpop] ? " in small regime" : " in large regime") : "") +
+            ", lambda: " + lambda + ", sigma: " + sigma +
+            (bestSoFar == null ? "" : ", best so far: " + bestSoFar.fitness.fitnessToStringForHumans()));
+
+        species.restart(state, species.base, lambda, sigma);
+        state.population.subpops[subpop].individuals = new Individual[species.lambda];
+        }
+
+    /** A private helper function for breedPopulation which replaces individuals from (inclusive) to to (exclusive)
+        with new samples from the species' distribution.  Although this method is declared protected, you should not call it. */
+    protected void sampleChunk(EvolutionState state, CMAESSpecies species, Individual[] inds, int from, int to, int threadnum)
+        {
+        for(int j = from; j < to; j++)
+            inds[j] = species.newIndividual(state, threadnum);
+        }
     }
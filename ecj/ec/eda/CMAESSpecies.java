@@ -67,6 +67,34 @@ import java.util.Arrays;
  * alternatively set the initial mean values by hand.  But you must do one of
  * the two.
  *
+ * <p>Full CMA-ES stores and eigendecomposes an n x n covariance matrix, which costs O(n^2)
+ * memory and O(n^3) time per decomposition, and so is impractical beyond a few thousand
+ * dimensions.  For larger problems, CMAESSpecies offers two cheaper variants, selected with
+ * the <tt>covariance</tt> parameter.  <b>separable</b> is sep-CMA-ES (Ros and Hansen, 2008), which
+ * restricts the covariance matrix to its diagonal: it costs O(n) memory and time per individual, and
+ * by default its c1 and cmu learning rates are scaled up by (n+2)/3.  <b>limited-memory</b> is
+ * a limited-memory CMA-ES in the style of LM-CMA (Loshchilov, 2014): it represents the Cholesky
+ * factor A of the covariance matrix implicitly, via the last <tt>memory-size</tt> (m) rank-one
+ * evolution paths, at a cost of O(n m) memory and time per individual and O(n m^2) per generation.
+ * This variant has no rank-mu update, and so ignores cmu; by default its c1 is 0.1 / ln(n+1) and its
+ * cc is 0.5 / sqrt(n).  Both variants adapt sigma with the usual cumulative step-size adaptation.
+ * The alternative termination condition applies to the full and separable variants only.
+ *
+ * <p>In the full variant, updateDistribution(...) divides the rank-mu covariance update among
+ * <tt>breedthreads</tt> threads, each handling a block of rows of C.  The results are the same
+ * regardless of the number of threads.  The eigendecomposition of C is the most expensive part of
+ * the update for large genomes.  If <tt>lazy-decomposition</tt> is true, it is instead performed in a
+ * background thread, while the next generation is sampled and evaluated with the previous B and D,
+ * which are thus one decomposition out of date.  The new B and D are installed at the start of the
+ * following update.  This is still deterministic.
+ *
+ * <p>CMAESSpecies can be restarted with a new lambda and sigma by restart(...), which CMAESBreeder
+ * uses to implement IPOP and BIPOP restarts.  stopCondition(...) reports when the distribution has
+ * stopped making progress and ought to be restarted: when the fitnesses of the population and of the best
+ * individuals of recent generations lie within <tt>tol-fun</tt> of one another, when the standard deviations
+ * and the p_c evolution path are all below <tt>tol-x</tt> times the initial sigma, or when the condition of the
+ * covariance matrix exceeds 1e14.
+ *
  * <p>CMAESSpecies relies on the EJML matrix library, available at 
  * <a href="http://ejml.org/">http://ejml.org/</a>
 
@@ -84,6 +112,34 @@ import java.util.Arrays;
  These values will override those set as a result of <i>base</i>.<tt>mean</tt> 
  </td></tr>
 
+ <tr><td valign=top><i>base</i>.<tt>covariance</tt><br>
+ <font size=-1>String, one of full (default), separable, or limited-memory</font></td>
+ <td valign=top>(how the covariance matrix is represented)
+ </td></tr>
+
+ <tr><td valign=top><i>base</i>.<tt>memory-size</tt><br>
+ <font size=-1>Integer > 0</font></td>
+ <td valign=top>(the number of evolution paths stored by the limited-memory variant)<br>
+ If not provided, this defaults to 4 + Math.floor(3 * Math.log(n)).
+ </td></tr>
+
+ <tr><td valign=top><i>base</i>.<tt>lazy-decomposition</tt><br>
+ <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should the full variant eigendecompose C in the background, using a one-decomposition-stale B and D meanwhile?)
+ </td></tr>
+
+ <tr><td valign=top><i>base</i>.<tt>tol-fun</tt><br>
+ <font size=-1>Floating-point value >= 0.0</font></td>
+ <td valign=top>(the range of recent fitnesses below which the distribution should be restarted)<br>
+ If not provided, this defaults to 1e-12.
+ </td></tr>
+
+ <tr><td valign=top><i>base</i>.<tt>tol-x</tt><br>
+ <font size=-1>Floating-point value >= 0.0</font></td>
+ <td valign=top>(the standard deviation, relative to the initial sigma, below which the distribution should be restarted)<br>
+ If not provided, this defaults to 1e-12.
+ </td></tr>
+
  <tr><td valign=top><i>base</i>.<tt>sigma</tt><br>
  <font size=-1>Floating-point value > 0.0</font></td>
  <td valign=top>(the sigma scaling parameter)<br>
@@ -177,6 +233,24 @@ public class CMAESSpecies extends FloatVectorSpecies
 
     public static final String P_ALTERNATIVE_TERMINATION = "alternative-termination";
 
+    public static final String P_COVARIANCE = "covariance";
+    public static final String V_FULL = "full";
+    public static final String V_SEPARABLE = "separable";
+    public static final String V_LIMITED_MEMORY = "limited-memory";
+    public static final String P_MEMORY_SIZE = "memory-size";
+    public static final String P_LAZY_DECOMPOSITION = "lazy-decomposition";
+    public static final String P_TOL_FUN = "tol-fun";
+    public static final String P_TOL_X = "tol-x";
+
+    public static final int C_FULL = 0;
+    public static final int C_SEPARABLE = 1;
+    public static final int C_LIMITED_MEMORY = 2;
+
+    /** How the covariance matrix is represented: C_FULL, C_SEPARABLE, or C_LIMITED_MEMORY.
+        In the separable and limited-memory variants, the full matrices (c, b, d, bd, sbd, invsqrtC, 
+        and invD) are null. */
+    public int covarianceType = C_FULL;
+
     /** The individuals generated from the distribution. 
         If not specified in the parameters, by default 
         lambda = 4+(int)Math.floor(3*Math.log(n));
@@ -278,9 +352,75 @@ public class CMAESSpecies extends FloatVectorSpecies
     /** The most recent generation where an eigendecomposition on C was performed into B and D */
     public int lastEigenDecompositionGeneration = -1;
 
+    /** The generation in which individuals from the present distribution were first evaluated: 0 unless the distribution has been restarted. */
+    public int firstGeneration = 0;
+
+    /** The sigma the present distribution started with. */
+    public double initialSigma;
+
+    /** stopCondition(...) is met when the recent fitnesses all lie within this range. */
+    public double tolFun;
+
+    /** stopCondition(...) is met when the standard deviations and p_c are all smaller than tolX * initialSigma. */
+    public double tolX;
+
+    /** The fitnesses of the best individuals of recent generations, as recorded by stopCondition(...). */
+    public double[] bestFitnessHistory;
+
+    /** The number of fitnesses recorded in bestFitnessHistory, which may exceed its length. */
+    public int bestFitnessHistoryCount;
+
+    /** The base from which the species was set up, which may be that of another subpopulation if the
+        population's <tt>default-subpop</tt> was used.  restart(...) sets the species up from it again. */
+    public Parameter base;
+
+    // if > 0, these override the lambda and sigma parameters when restarting
+    int restartLambda = 0;
+    double restartSigma = 0;
+
     /** Should we terminate when the eigenvalues get too small?  If we don't, they might go negative and the eigendecomposition will fail. */
     public boolean useAltTermination;
 
+    /** Should the full variant eigendecompose C in a background thread? */
+    public boolean lazyDecomposition;
+
+    /** A copy of C presently being eigendecomposed in the background, or null. */
+    public DenseMatrix64F pendingC;
+
+    // the result of the background eigendecomposition, once it has finished.  If this is null
+    // but pendingC isn't, we were restored from a checkpoint and must redo the decomposition.
+    transient Decomposition[] pendingDecomposition;
+
+    // we use a threadpool here
+    public ThreadPool pool = new ThreadPool();
+
+    /** The diagonal of the "C" covariance matrix, used by the separable variant only. */
+    public double[] diagC;
+
+    /** The square roots of diagC, that is, the diagonal of "D", used by the separable variant only. */
+    public double[] diagD;
+
+    /** The maximum number of evolution paths stored by the limited-memory variant.
+        If not specified in the parameters, by default
+        memorySize = 4 + (int)Math.floor(3 * Math.log(n));
+    */
+    public int memorySize;
+
+    /** The number of evolution paths presently stored by the limited-memory variant. */
+    public int memoryCount;
+
+    /** The stored p_c evolution paths of the limited-memory variant, oldest first. */
+    public double[][] memoryP;
+
+    /** memoryV[t] = A_t^{-1} memoryP[t], where A_t is the Cholesky factor built from the first t stored paths. */
+    public double[][] memoryV;
+
+    /** The coefficients used to multiply by A, one per stored path. */
+    public double[] memoryB;
+
+    /** The coefficients used to multiply by A^{-1}, one per stored path. */
+    public double[] memoryD;
+
     public Parameter defaultBase()
         {
         return EDADefaults.base().push(P_CMAES_SPECIES);
@@ -289,6 +429,7 @@ public class CMAESSpecies extends FloatVectorSpecies
     public void setup(final EvolutionState state, final Parameter base)
         {
         super.setup(state, base);
+        this.base = base;
         MersenneTwisterFast random = state.random[0];
 
         Parameter def = defaultBase();
@@ -298,13 +439,52 @@ public class CMAESSpecies extends FloatVectorSpecies
 
         // set myself up and define my initial distribution here
         int n = genomeSize;
-        b = SimpleMatrix.identity(n);
-        c = SimpleMatrix.identity(n);
-        d = SimpleMatrix.identity(n);
-        bd = CommonOps.identity(n,n);
-        sbd = CommonOps.identity(n,n);
-        invsqrtC = SimpleMatrix.identity(n);
-        invD = SimpleMatrix.identity(n);
+
+        String cov = state.parameters.getStringWithDefault(base.push(P_COVARIANCE), def.push(P_COVARIANCE), V_FULL);
+        if (cov.equals(V_FULL))
+            covarianceType = C_FULL;
+        else if (cov.equals(V_SEPARABLE))
+            covarianceType = C_SEPARABLE;
+        else if (cov.equals(V_LIMITED_MEMORY))
+            covarianceType = C_LIMITED_MEMORY;
+        else
+            state.output.fatal("Unknown CMA-ES covariance type: " + cov, base.push(P_COVARIANCE), def.push(P_COVARIANCE));
+
+        if (covarianceType == C_FULL)
+            {
+            b = SimpleMatrix.identity(n);
+            c = SimpleMatrix.identity(n);
+            d = SimpleMatrix.identity(n);
+            bd = CommonOps.identity(n,n);
+            sbd = CommonOps.identity(n,n);
+            invsqrtC = SimpleMatrix.identity(n);
+            invD = SimpleMatrix.identity(n);
+            }
+        else if (covarianceType == C_SEPARABLE)
+            {
+            diagC = new double[n];
+            diagD = new double[n];
+            Arrays.fill(diagC, 1.0);
+            Arrays.fill(diagD, 1.0);
+            }
+        else
+            {
+            if(!state.parameters.exists(base.push(P_MEMORY_SIZE), def.push(P_MEMORY_SIZE)))
+                {
+                memorySize = 4+(int)Math.floor(3*Math.log(n));
+                }
+            else
+                {
+                memorySize = state.parameters.getInt(base.push(P_MEMORY_SIZE), def.push(P_MEMORY_SIZE),1);
+                if (memorySize <= 0) 
+                    state.output.fatal("If the CMA-ES memory-size parameter is provided, it must be a valid integer > 0", base.push(P_MEMORY_SIZE), def.push(P_MEMORY_SIZE));
+                }
+            memoryCount = 0;
+            memoryP = new double[memorySize][];
+            memoryV = new double[memorySize][];
+            memoryB = new double[memorySize];
+            memoryD = new double[memorySize];
+            }
 
         // Initialize dynamic (internal) strategy parameters and constants
         pc = new SimpleMatrix(n,1);
@@ -371,13 +551,18 @@ public class CMAESSpecies extends FloatVectorSpecies
             state.output.warning("A default mean value was specified, but certain mean values were overridden."); 
             }
 
-        String mes = "Initial Mean: <";
+        // a StringBuilder, as the genome may be very large
+        StringBuilder mes = new StringBuilder("Initial Mean: <");
         for(int i = 0; i < genomeSize - 1; i++)
-            mes = mes + xmean.get(i,0) + ", ";
-        mes = mes + xmean.get(genomeSize-1, 0) + ">";
-        state.output.message(mes);              
+            mes.append(xmean.get(i,0)).append(", ");
+        mes.append(xmean.get(genomeSize-1, 0)).append(">");
+        state.output.message(mes.toString());              
 
-        if(!state.parameters.exists(base.push(P_SIGMA), def.push(P_SIGMA)))
+        if (restartSigma > 0)
+            {
+            sigma = restartSigma;
+            }
+        else if(!state.parameters.exists(base.push(P_SIGMA), def.push(P_SIGMA)))
             {
             state.output.message("CMA-ES sigma was not provided, defaulting to 1.0");
             sigma = 1.0;
@@ -389,7 +574,18 @@ public class CMAESSpecies extends FloatVectorSpecies
                 state.output.fatal("If CMA-ES sigma is provided, it must be > 0.0", base.push(P_SIGMA), def.push(P_SIGMA));
             }
 
-        if(!state.parameters.exists(base.push(P_LAMBDA), def.push(P_LAMBDA)))
+        initialSigma = sigma;
+
+        // the initial samples must be drawn with sigma too, not just those after the first update
+        if (covarianceType == C_FULL)
+            CommonOps.scale(sigma, bd, sbd);
+
+
+        if (restartLambda > 0)
+            {
+            lambda = restartLambda;
+            }
+        else if(!state.parameters.exists(base.push(P_LAMBDA), def.push(P_LAMBDA)))
             {
             lambda = 4+(int)Math.floor(3*Math.log(n));
             }
@@ -457,17 +653,30 @@ public class CMAESSpecies extends FloatVectorSpecies
             sumSqr += weights[i]*weights[i];
         mueff=1.0/sumSqr;
 
-        mes = "Weights: <";
+        mes = new StringBuilder("Weights: <");
         for(int i = 0; i < weights.length -1; i++)
-            mes = mes + weights[i] + ", ";
-        mes = mes + (weights.length - 1) + ">";
-        state.output.message(mes);              
+            mes.append(weights[i]).append(", ");
+        mes.append(weights.length - 1).append(">");
+        state.output.message(mes.toString());              
         
         useAltTermination = state.parameters.getBoolean(base.push(P_ALTERNATIVE_TERMINATION), def.push(P_ALTERNATIVE_TERMINATION),false);
+        lazyDecomposition = state.parameters.getBoolean(base.push(P_LAZY_DECOMPOSITION), def.push(P_LAZY_DECOMPOSITION),false);
+
+        tolFun = state.parameters.getDoubleWithDefault(base.push(P_TOL_FUN), def.push(P_TOL_FUN), 1e-12);
+        if (tolFun < 0)
+            state.output.fatal("If the CMA-ES tol-fun parameter is provided, it must be a valid number >= 0.0", base.push(P_TOL_FUN), def.push(P_TOL_FUN));
+        tolX = state.parameters.getDoubleWithDefault(base.push(P_TOL_X), def.push(P_TOL_X), 1e-12);
+        if (tolX < 0)
+            state.output.fatal("If the CMA-ES tol-x parameter is provided, it must be a valid number >= 0.0", base.push(P_TOL_X), def.push(P_TOL_X));
+        bestFitnessHistory = new double[10 + (int)Math.ceil(30.0 * n / lambda)];
+        bestFitnessHistoryCount = 0;
 
         if(!state.parameters.exists(base.push(P_CC), def.push(P_CC)))
             {
-            cc = (4.0+mueff/n) / (n+4.0 + 2.0*mueff/n);  // time constant for cumulation for C
+            if (covarianceType == C_LIMITED_MEMORY)
+                cc = 0.5 / Math.sqrt(n);
+            else
+                cc = (4.0+mueff/n) / (n+4.0 + 2.0*mueff/n);  // time constant for cumulation for C
             }
         else
             {
@@ -489,7 +698,12 @@ public class CMAESSpecies extends FloatVectorSpecies
 
         if(!state.parameters.exists(base.push(P_C1), def.push(P_C1)))
             {
-            c1 = 2.0 / ((n+1.3)*(n+1.3)+mueff);  // learning rate for rank-one update of C
+            if (covarianceType == C_LIMITED_MEMORY)
+                c1 = 0.1 / Math.log(n + 1.0);
+            else
+                c1 = 2.0 / ((n+1.3)*(n+1.3)+mueff);  // learning rate for rank-one update of C
+            if (covarianceType == C_SEPARABLE)
+                c1 *= (n + 2.0) / 3.0;
             }
         else
             {
@@ -500,7 +714,12 @@ public class CMAESSpecies extends FloatVectorSpecies
         
         if(!state.parameters.exists(base.push(P_CMU), def.push(P_CMU)))
             {
-            cmu = Math.min(1.0-c1, 2.0*(mueff-2.0+1.0/mueff) / ((n+2.0)*(n+2.0)+mueff));
+            if (covarianceType == C_LIMITED_MEMORY)
+                cmu = 0.0;  // no rank-mu update
+            else if (covarianceType == C_SEPARABLE)
+                cmu = Math.min(1.0-c1, 2.0*(mueff-2.0+1.0/mueff) / ((n+2.0)*(n+2.0)+mueff) * (n + 2.0) / 3.0);
+            else
+                cmu = Math.min(1.0-c1, 2.0*(mueff-2.0+1.0/mueff) / ((n+2.0)*(n+2.0)+mueff));
             }
         else
             {
@@ -509,8 +728,7 @@ public class CMAESSpecies extends FloatVectorSpecies
                 state.output.fatal("If the CMA-ES cmu parameter is provided, it must be a valid number >= 0.0", base.push(P_CMU), def.push(P_CMU));
             }
 
-        if (c1 > (1 - cmu))  // uh oh
-            state.output.fatal("CMA-ES c1 must be <= 1 - cmu.  You are using c1=" + c1 + " and cmu=" + cmu);
+        // c1 > 1 - cmu is the same test, but can fail by roundoff when cmu defaults to exactly 1 - c1, as it does for large lambda
         if (cmu > (1 - c1))  // uh oh
             state.output.fatal("CMA-ES cmu must be <= 1 - c1.  You are using cmu=" + cmu + " and c1=" + c1);  
 
@@ -530,6 +748,9 @@ public class CMAESSpecies extends FloatVectorSpecies
         if (damps > damps_max || damps < damps_min)
             state.output.warning("CMA-ES damps ought to be close to 1.  You are using damps = " + damps);  
 
+        state.output.message("covariance: " + cov);
+        if (covarianceType == C_LIMITED_MEMORY)
+            state.output.message("memory: " + memorySize);
         state.output.message("lambda: " + lambda);
         state.output.message("mu:     " + mu);
         state.output.message("mueff:  " + mueff);
@@ -545,15 +766,40 @@ public class CMAESSpecies extends FloatVectorSpecies
     public Object clone()
         {
         CMAESSpecies myobj = (CMAESSpecies) (super.clone());
+        myobj.pool = new ThreadPool();
+        myobj.bestFitnessHistory = bestFitnessHistory.clone();
             
         // clone the distribution and other variables here
-        myobj.c = c.copy();
-        myobj.b = b.copy();
-        myobj.d = d.copy();
-        myobj.bd = bd.copy();
-        myobj.sbd = sbd.copy();
-        myobj.invsqrtC = invsqrtC.copy();
-        myobj.invD = invD.copy();
+        if (covarianceType == C_FULL)
+            {
+            myobj.c = c.copy();
+            myobj.b = b.copy();
+            myobj.d = d.copy();
+            myobj.bd = bd.copy();
+            myobj.sbd = sbd.copy();
+            myobj.invsqrtC = invsqrtC.copy();
+            myobj.invD = invD.copy();
+            if (pendingC != null)
+                myobj.pendingC = pendingC.copy();       // the clone will redo the decomposition
+            myobj.pendingDecomposition = null;
+            }
+        else if (covarianceType == C_SEPARABLE)
+            {
+            myobj.diagC = diagC.clone();
+            myobj.diagD = diagD.clone();
+            }
+        else
+            {
+            myobj.memoryP = new double[memorySize][];
+            myobj.memoryV = new double[memorySize][];
+            for(int t = 0; t < memoryCount; t++)
+                {
+                myobj.memoryP[t] = memoryP[t].clone();
+                myobj.memoryV[t] = memoryV[t].clone();
+                }
+            myobj.memoryB = memoryB.clone();
+            myobj.memoryD = memoryD.clone();
+            }
     
         myobj.xmean = xmean.copy();
         myobj.ps = ps.copy();
@@ -574,8 +820,10 @@ public class CMAESSpecies extends FloatVectorSpecies
         
         DoubleVectorIndividual dvind = (DoubleVectorIndividual)(newind);
 
-        DenseMatrix64F genome = DenseMatrix64F.wrap(genomeSize,1,dvind.genome);
-        DenseMatrix64F temp = new DenseMatrix64F(genomeSize,1);
+        // we work directly on primitive arrays rather than building matrices for each individual
+        double[] genome = dvind.genome;
+        double[] mean = xmean.getMatrix().data;
+        double[] z = new double[genomeSize];
 
         // arz(:,k) = randn(N,1); % standard normally distributed vector
         // arx(:,k) = xmean + sigma*(B*D*arz(:,k));
@@ -583,10 +831,30 @@ public class CMAESSpecies extends FloatVectorSpecies
             {           
 
             for( int i = 0; i < genomeSize; i++ ) 
-                dvind.genome[i] = random.nextGaussian();
+                z[i] = random.nextGaussian();
 
-            CommonOps.mult(sbd,genome,temp); // temp = sigma*b*d*genome;
-            CommonOps.add(temp,xmean.getMatrix(),genome); // genome = temp + xmean;
+            if (covarianceType == C_FULL)
+                {
+                double[] sbdData = sbd.data;
+                for(int i = 0, row = 0; i < genomeSize; i++, row += genomeSize)
+                    {
+                    double total = 0;
+                    for(int j = 0; j < genomeSize; j++)
+                        total += sbdData[row + j] * z[j];       // sigma*b*d*z
+                    genome[i] = total + mean[i];
+                    }
+                }
+            else if (covarianceType == C_SEPARABLE)
+                {
+                for(int i = 0; i < genomeSize; i++)
+                    genome[i] = mean[i] + sigma * diagD[i] * z[i];
+                }
+            else
+                {
+                multiplyA(z, genome, memoryCount);
+                for(int i = 0; i < genomeSize; i++)
+                    genome[i] = mean[i] + sigma * genome[i];
+                }
 
             boolean invalid_value = false;
             for(int i = 0; i < genomeSize; i++)
@@ -614,22 +882,29 @@ public class CMAESSpecies extends FloatVectorSpecies
         // only need partial sort?
         Arrays.sort(subpop.individuals);
 
-        SimpleMatrix artmp = new SimpleMatrix(genomeSize,mu);
+        if (covarianceType != C_FULL)
+            {
+            updateReducedDistribution(state, subpop);
+            return;
+            }
+
+        // install the B and D from last generation's background decomposition, if any
+        if (pendingC != null)
+            finishDecomposition(state);
+
+        double[][] artmp = new double[mu][genomeSize];
         SimpleMatrix xold = xmean;
         xmean = new SimpleMatrix(genomeSize, 1);
+        double[] xoldData = xold.getMatrix().data;
+        double[] xmeanData = xmean.getMatrix().data;
 
         for(int i = 0; i < mu; i++)
             {
-            DoubleVectorIndividual dvind = (DoubleVectorIndividual)(subpop.individuals[i]);
-
-            //won't modify the genome
-            SimpleMatrix arz = new SimpleMatrix(genomeSize,1,true,dvind.genome);
-            arz = (arz.minus(xold).divide(sigma));
-
+            double[] genome = ((DoubleVectorIndividual)(subpop.individuals[i])).genome;
             for(int j = 0; j < genomeSize; j++) 
                 {
-                xmean.set(j,0, xmean.get(j,0)+weights[i]*dvind.genome[j]);
-                artmp.set(j,i,arz.get(j,0));
+                xmeanData[j] = xmeanData[j] + weights[i] * genome[j];
+                artmp[i][j] = (genome[j] - xoldData[j]) / sigma;
                 }
             }
             
@@ -640,16 +915,14 @@ public class CMAESSpecies extends FloatVectorSpecies
         SimpleMatrix bz_scaled = bz.scale(Math.sqrt(cs*(2.0-cs) * mueff));
         ps = ps.scale(1.0-cs).plus(bz_scaled);
 
-        double h_sigma_value = ((ps.dot(ps) / (1.0 - Math.pow(1.0 - cs, 2.0 * (state.generation+1)) )) / genomeSize);
+        double h_sigma_value = ((ps.dot(ps) / (1.0 - Math.pow(1.0 - cs, 2.0 * (state.generation - firstGeneration + 1)) )) / genomeSize);
         int hsig = (h_sigma_value < (2.0 + (4.0 / (genomeSize + 1)))) ? 1 : 0;
 
         SimpleMatrix y_scaled = y.scale(hsig * Math.sqrt(cc * (2.0-cc) * mueff));
         pc = pc.scale(1.0-cc).plus(y_scaled);
 
         // % Adapt covariance matrix C
-        c = c.scale(1.0-c1-cmu);
-        c = c.plus( pc.mult(pc.transpose()).plus(c.scale((1.0-hsig)*cc*(2.0-cc))).scale(c1) );
-        c = c.plus( (artmp.mult(SimpleMatrix.diag(weights).mult(artmp.transpose()))).scale(cmu) );
+        updateCovariance(state, artmp, hsig);
 
         // % Adapt step-size sigma
         sigma = sigma*Math.exp((cs/damps)*(ps.normF()/chiN - 1.0));
@@ -665,26 +938,14 @@ public class CMAESSpecies extends FloatVectorSpecies
                 for(int j = 0; j < i; j++)
                     c.set(j,i,c.get(i,j));
 
-            // this copy gets modified by the decomposition
-            DenseMatrix64F copy = c.copy().getMatrix();
-            EigenDecomposition<DenseMatrix64F> eig = DecompositionFactory.eig(genomeSize,true,true);
-            if(eig.decompose(copy)) 
+            if (lazyDecomposition)
                 {
-                SimpleMatrix dinv = new SimpleMatrix(genomeSize,genomeSize);
-                for(int i = 0; i < genomeSize; i++)
-                    {
-                    double eigrt = Math.sqrt(eig.getEigenvalue(i).real);
-                    d.set(i,i,eigrt);
-                    dinv.set(i,i,1/eigrt);
-                    CommonOps.insert(eig.getEigenVector(i), b.getMatrix(),0,i);
-                    }
-
-                invsqrtC = b.mult(dinv.mult(b.transpose()));
-                CommonOps.mult(b.getMatrix(),d.getMatrix(), bd);
+                startDecomposition();
                 }
             else
                 {
-                state.output.fatal("CMA-ES eigendecomposition failed. ");
+                // this copy gets modified by the decomposition
+                installDecomposition(state, decompose(c.copy().getMatrix()));
                 }
             }
 
@@ -694,12 +955,405 @@ public class CMAESSpecies extends FloatVectorSpecies
         // if arfitness(1) <= stopfitness || max(D) > 1e7 * min(D)
         //   break;
         // end
-        if(useAltTermination && CommonOps.elementMax(d.extractDiag().getMatrix()) > 1e7*CommonOps.elementMin(d.extractDiag().getMatrix()))
+        if(useAltTermination && conditionExceeded())
+            {
+            state.evaluator.setRunComplete("CMAESSpecies: Stopped because matrix condition exceeded limit.");
+            }
+        }
+
+
+    /** Performs the rank-one and rank-mu updates of the full covariance matrix C, in place.  artmp[i] holds
+        (x_i - xold) / sigma for the ith best individual.  The rows of C are divided among breedthreads threads. */
+    protected void updateCovariance(final EvolutionState state, final double[][] artmp, final int hsig)
+        {
+        // weight the samples once, rather than once per row
+        final double[][] wartmp = new double[mu][genomeSize];
+        for(int k = 0; k < mu; k++)
+            for(int j = 0; j < genomeSize; j++)
+                wartmp[k][j] = weights[k] * artmp[k][j];
+
+        final int numThreads = Math.min(state.breedthreads, genomeSize);
+        if (numThreads <= 1)
+            {
+            updateCovarianceChunk(artmp, wartmp, hsig, 0, genomeSize);
+            }
+        else
+            {
+            for(int y = 0; y < numThreads; y++)
+                {
+                final int from = (int)(((long) genomeSize) * y / numThreads);
+                final int to = (int)(((long) genomeSize) * (y + 1) / numThreads);
+                pool.start(new Runnable()
+                    {
+                    public void run() { updateCovarianceChunk(artmp, wartmp, hsig, from, to); }
+                    }, "ECJ CMA-ES Update Thread " + y);
+                }
+            pool.joinAll();
+            }
+        }
+
+    /** A private helper function for updateCovariance which updates rows from (inclusive) to to (exclusive) of C.
+        Computes C = (1-c1-cmu) C + c1 (pc pc^T + (1-hsig) cc (2-cc) C') + cmu artmp^T W artmp, where C' is the 
+        already-scaled C.  Although this method is declared protected, you should not call it. */
+    protected void updateCovarianceChunk(double[][] artmp, double[][] wartmp, int hsig, int from, int to)
+        {
+        double[] cData = c.getMatrix().data;
+        double[] pcData = pc.getMatrix().data;
+        double scale = 1.0-c1-cmu;
+        double h = (1.0-hsig)*cc*(2.0-cc);
+        double[] rankMu = new double[genomeSize];
+        for(int i = from, row = from * genomeSize; i < to; i++, row += genomeSize)
+            {
+            // accumulate row i of artmp^T W artmp a sample at a time, which streams through memory
+            Arrays.fill(rankMu, 0.0);
+            for(int k = 0; k < mu; k++)
+                {
+                double a = artmp[k][i];
+                double[] w = wartmp[k];
+                for(int j = 0; j < genomeSize; j++)
+                    rankMu[j] += a * w[j];
+                }
+
+            double pci = pcData[i];
+            for(int j = 0; j < genomeSize; j++)
+                {
+                double scaled = cData[row + j] * scale;
+                cData[row + j] = (scaled + (pci * pcData[j] + scaled * h) * c1) + rankMu[j] * cmu;
+                }
+            }
+        }
+
+
+    /** The results of an eigendecomposition of C. */
+    static class Decomposition implements java.io.Serializable
+        {
+        private static final long serialVersionUID = 1;
+        SimpleMatrix b;
+        SimpleMatrix d;
+        SimpleMatrix invsqrtC;
+        DenseMatrix64F bd;
+        }
+
+    /** Eigendecomposes the given copy of C, which is destroyed in the process.  Returns null if the decomposition failed. 
+        This method doesn't modify the species, so it may be called from a background thread. */
+    protected Decomposition decompose(DenseMatrix64F copy)
+        {
+        EigenDecomposition<DenseMatrix64F> eig = DecompositionFactory.eig(genomeSize,true,true);
+        if(eig.decompose(copy)) 
+            {
+            Decomposition result = new Decomposition();
+            result.b = new SimpleMatrix(genomeSize,genomeSize);
+            result.d = new SimpleMatrix(genomeSize,genomeSize);
+            SimpleMatrix dinv = new SimpleMatrix(genomeSize,genomeSize);
+            for(int i = 0; i < genomeSize; i++)
+                {
+                double eigrt = Math.sqrt(eig.getEigenvalue(i).real);
+                result.d.set(i,i,eigrt);
+                dinv.set(i,i,1/eigrt);
+                CommonOps.insert(eig.getEigenVector(i), result.b.getMatrix(),0,i);
+                }
+
+            result.invsqrtC = result.b.mult(dinv.mult(result.b.transpose()));
+            result.bd = new DenseMatrix64F(genomeSize,genomeSize);
+            CommonOps.mult(result.b.getMatrix(),result.d.getMatrix(), result.bd);
+            return result;
+            }
+        else return null;
+        }
+
+    /** Replaces B, D, C^{-1/2}, and BD with the given decomposition, or fails if it is null. */
+    protected void installDecomposition(final EvolutionState state, Decomposition decomposition)
+        {
+        if (decomposition == null)
+            state.output.fatal("CMA-ES eigendecomposition failed. ");
+        b = decomposition.b;
+        d = decomposition.d;
+        invsqrtC = decomposition.invsqrtC;
+        bd = decomposition.bd;
+        }
+
+    /** Begins eigendecomposing a copy of C in a background thread. */
+    protected void startDecomposition()
+        {
+        pendingC = c.copy().getMatrix();
+        final DenseMatrix64F copy = pendingC.copy();    // this copy gets modified by the decomposition
+        final Decomposition[] result = new Decomposition[1];
+        pendingDecomposition = result;
+        pool.start(new Runnable()
+            {
+            public void run() { result[0] = decompose(copy); }
+            }, "ECJ CMA-ES Decomposition Thread");
+        }
+
+    /** Waits for the background eigendecomposition to finish (or, if we have been restored
+        from a checkpoint, redoes it), then installs it. */
+    protected void finishDecomposition(final EvolutionState state)
+        {
+        Decomposition decomposition;
+        if (pendingDecomposition == null)
+            {
+            decomposition = decompose(pendingC);
+            }
+        else
+            {
+            pool.joinAll();
+            decomposition = pendingDecomposition[0];
+            }
+        pendingC = null;
+        pendingDecomposition = null;
+        installDecomposition(state, decomposition);
+        }
+
+
+    /** Revises the separable or limited-memory CMA-ES distribution to reflect the fitness results in the 
+        provided subpopulation, which has already been sorted. */
+    protected void updateReducedDistribution(final EvolutionState state, final Subpopulation subpop)
+        {
+        int n = genomeSize;
+        double[] xold = xmean.getMatrix().data;
+        double[] psData = ps.getMatrix().data;
+        double[] pcData = pc.getMatrix().data;
+
+        // xmean = arx(:,arindex(1:mu))*weights;
+        double[] xnew = new double[n];
+        for(int i = 0; i < mu; i++)
+            {
+            double[] genome = ((DoubleVectorIndividual)(subpop.individuals[i])).genome;
+            for(int j = 0; j < n; j++)
+                xnew[j] += weights[i] * genome[j];
+            }
+
+        // % Cumulation: Update evolution paths
+        double[] y = new double[n];
+        for(int j = 0; j < n; j++)
+            y[j] = (xnew[j] - xold[j]) / sigma;
+
+        double[] bz = new double[n];                // C^{-1/2} y, or A^{-1} y
+        if (covarianceType == C_SEPARABLE)
+            {
+            for(int j = 0; j < n; j++)
+                bz[j] = y[j] / diagD[j];
+            }
+        else
+            {
+            multiplyInverseA(y, bz, memoryCount);
+            }
+
+        double psScale = Math.sqrt(cs*(2.0-cs) * mueff);
+        double psSqr = 0;
+        for(int j = 0; j < n; j++)
+            {
+            psData[j] = psData[j] * (1.0-cs) + bz[j] * psScale;
+            psSqr += psData[j] * psData[j];
+            }
+
+        double h_sigma_value = ((psSqr / (1.0 - Math.pow(1.0 - cs, 2.0 * (state.generation - firstGeneration + 1)) )) / genomeSize);
+        int hsig = (h_sigma_value < (2.0 + (4.0 / (genomeSize + 1)))) ? 1 : 0;
+
+        double pcScale = hsig * Math.sqrt(cc * (2.0-cc) * mueff);
+        for(int j = 0; j < n; j++)
+            pcData[j] = pcData[j] * (1.0-cc) + y[j] * pcScale;
+
+        // % Adapt covariance matrix C
+        if (covarianceType == C_SEPARABLE)
+            {
+            double[][] genomes = new double[mu][];
+            for(int i = 0; i < mu; i++)
+                genomes[i] = ((DoubleVectorIndividual)(subpop.individuals[i])).genome;
+
+            double hsigCorrection = (1.0-hsig)*cc*(2.0-cc);
+            for(int j = 0; j < n; j++)
+                {
+                double rankMu = 0;
+                for(int i = 0; i < mu; i++)
+                    {
+                    double artmp = (genomes[i][j] - xold[j]) / sigma;
+                    rankMu += weights[i] * artmp * artmp;
+                    }
+                diagC[j] = (1.0-c1-cmu) * diagC[j] + c1 * (pcData[j] * pcData[j] + hsigCorrection * diagC[j]) + cmu * rankMu;
+                diagD[j] = Math.sqrt(diagC[j]);
+                }
+            }
+        else
             {
+            storePath(pcData);
+            }
+
+        // % Adapt step-size sigma
+        sigma = sigma*Math.exp((cs/damps)*(Math.sqrt(psSqr)/chiN - 1.0));
+
+        System.arraycopy(xnew, 0, xold, 0, n);
+
+        if (useAltTermination && conditionExceeded())
             state.evaluator.setRunComplete("CMAESSpecies: Stopped because matrix condition exceeded limit.");
+        }
+
+    /** Returns true if max(D) > 1e7 * min(D), that is, the condition of C exceeds 1e14.  The limited-memory
+        variant doesn't know D, and so always returns false. */
+    public boolean conditionExceeded()
+        {
+        if (covarianceType == C_FULL)
+            return CommonOps.elementMax(d.extractDiag().getMatrix()) > 1e7*CommonOps.elementMin(d.extractDiag().getMatrix());
+        else if (covarianceType == C_SEPARABLE)
+            {
+            double max = diagD[0];
+            double min = diagD[0];
+            for(int j = 1; j < genomeSize; j++)
+                {
+                if (diagD[j] > max) max = diagD[j];
+                if (diagD[j] < min) min = diagD[j];
+                }
+            return max > 1e7 * min;
+            }
+        else return false;
+        }
+
+    /** Call this once per generation, after updateDistribution(...), to record the best fitness of the (now sorted) 
+        subpopulation and test whether the distribution has stopped making progress.  Returns a description of the 
+        stopping condition met, or null if there is none.  This never stops the run: see restart(...). */
+    public String stopCondition(final EvolutionState state, final Subpopulation subpop)
+        {
+        Individual[] inds = subpop.individuals;
+        double best = inds[0].fitness.fitness();
+        double worst = inds[inds.length - 1].fitness.fitness();
+        bestFitnessHistory[bestFitnessHistoryCount % bestFitnessHistory.length] = best;
+        bestFitnessHistoryCount++;
+
+        // TolFun: the recent best fitnesses, and all the present ones, are within tolFun of one another
+        if (bestFitnessHistoryCount >= bestFitnessHistory.length)
+            {
+            double max = Math.max(best, worst);
+            double min = Math.min(best, worst);
+            for(int i = 0; i < bestFitnessHistory.length; i++)
+                {
+                if (bestFitnessHistory[i] > max) max = bestFitnessHistory[i];
+                if (bestFitnessHistory[i] < min) min = bestFitnessHistory[i];
+                }
+            if (max - min < tolFun)
+                return "fitnesses within tol-fun";
+            }
+
+        // TolX: all the standard deviations, and p_c, are smaller than tolX * initialSigma
+        double[] pcData = pc.getMatrix().data;
+        boolean small = true;
+        for(int i = 0; i < genomeSize; i++)
+            {
+            double variance = (covarianceType == C_FULL ? c.get(i,i) :
+                (covarianceType == C_SEPARABLE ? diagC[i] : 1.0));  // we don't know the limited-memory variance
+            if (sigma * Math.max(Math.abs(pcData[i]), Math.sqrt(variance)) >= tolX * initialSigma)
+                { small = false; break; }
             }
+        if (small)
+            return "standard deviations within tol-x";
+
+        if (conditionExceeded())
+            return "matrix condition exceeded limit";
+        return null;
         }
 
+    /** Discards the present distribution and starts a new one, with the given lambda and sigma in place of
+        those specified by the parameters, exactly as if setup(...) were called again with the given base.  Individuals 
+        from the new distribution will first be evaluated in the next generation.  You will need to resize the 
+        subpopulation to the new lambda. */
+    public void restart(final EvolutionState state, final Parameter base, int lambda, double sigma)
+        {
+        // drop any decomposition still running in the background
+        pool.joinAll();
+        pendingC = null;
+        pendingDecomposition = null;
+
+        restartLambda = lambda;
+        restartSigma = sigma;
+        setup(state, base);
+        restartLambda = 0;
+        restartSigma = 0;
+
+        firstGeneration = state.generation + 1;
+        lastEigenDecompositionGeneration = state.generation;
+        }
 
+    /** Adds a copy of the given evolution path to the limited-memory store, discarding the oldest 
+        path if the store is full, then recomputes memoryV, memoryB, and memoryD. */
+    protected void storePath(double[] path)
+        {
+        if (memoryCount == memorySize)
+            {
+            // reuse the oldest arrays
+            double[] oldestP = memoryP[0];
+            double[] oldestV = memoryV[0];
+            System.arraycopy(memoryP, 1, memoryP, 0, memorySize - 1);
+            System.arraycopy(memoryV, 1, memoryV, 0, memorySize - 1);
+            memoryCount--;
+            memoryP[memoryCount] = oldestP;
+            memoryV[memoryCount] = oldestV;
+            System.arraycopy(path, 0, oldestP, 0, genomeSize);
+            }
+        else
+            {
+            memoryP[memoryCount] = path.clone();
+            memoryV[memoryCount] = new double[genomeSize];
+            }
+        memoryCount++;
+
+        // Each A_{t+1} = a A_t + b_t p_t v_t^T, where v_t = A_t^{-1} p_t (Igel, Suttorp, and Hansen, 2006).
+        // Removing the oldest path changes every A_t, so all the v_t must be recomputed.
+        double a = Math.sqrt(1.0 - c1);
+        for(int t = 0; t < memoryCount; t++)
+            {
+            double[] v = memoryV[t];
+            multiplyInverseA(memoryP[t], v, t);
+            double vSqr = 0;
+            for(int j = 0; j < genomeSize; j++)
+                vSqr += v[j] * v[j];
+            if (vSqr == 0)
+                {
+                memoryB[t] = 0;
+                memoryD[t] = 0;
+                }
+            else
+                {
+                double root = Math.sqrt(1.0 + c1 / (1.0 - c1) * vSqr);
+                memoryB[t] = a / vSqr * (root - 1.0);
+                memoryD[t] = 1.0 / (a * vSqr) * (1.0 - 1.0 / root);
+                }
+            }
+        }
+
+    /** Sets result to A z, where A is the Cholesky factor built from the first <i>count</i> stored paths.
+        result and z must be different arrays. */
+    protected void multiplyA(double[] z, double[] result, int count)
+        {
+        double a = Math.sqrt(1.0 - c1);
+        System.arraycopy(z, 0, result, 0, genomeSize);
+        for(int t = 0; t < count; t++)
+            {
+            double[] v = memoryV[t];
+            double[] p = memoryP[t];
+            double dot = 0;
+            for(int j = 0; j < genomeSize; j++)
+                dot += v[j] * z[j];
+            double coeff = memoryB[t] * dot;
+            for(int j = 0; j < genomeSize; j++)
+                result[j] = a * result[j] + coeff * p[j];
+            }
+        }
+
+    /** Sets result to A^{-1} y, where A is the Cholesky factor built from the first <i>count</i> stored paths.
+        result and y must be different arrays. */
+    protected void multiplyInverseA(double[] y, double[] result, int count)
+        {
+        double inva = 1.0 / Math.sqrt(1.0 - c1);
+        System.arraycopy(y, 0, result, 0, genomeSize);
+        for(int t = 0; t < count; t++)
+            {
+            double[] v = memoryV[t];
+            double dot = 0;
+            for(int j = 0; j < genomeSize; j++)
+                dot += v[j] * result[j];
+            double coeff = memoryD[t] * dot;
+            for(int j = 0; j < genomeSize; j++)
+                result[j] = inva * result[j] - coeff * v[j];
+            }
+        }
     }
 
@@ -70,13 +70,10 @@ public class ESSelection extends SelectionMethod
         MuCommaLambdaBreeder breeder = (MuCommaLambdaBreeder)(state.breeder);
         
         // determine my position in the array
-        int pos = (breeder.lambda[subpopulation] % state.breedthreads == 0 ? 
-            breeder.lambda[subpopulation]/state.breedthreads :
-            breeder.lambda[subpopulation]/state.breedthreads + 1) * 
-            thread + breeder.count[thread];  // note integer division
+        int pos = breeder.from[thread][subpopulation] + breeder.count[thread];
         
         // determine the parent
-        int parent = pos / breeder.mu[subpopulation]; // note integer division
+        int parent = pos / (breeder.lambda[subpopulation] / breeder.mu[subpopulation]); // note outer integer division
 
         // increment our count
         //breeder.count[thread]++;
@@ -100,10 +97,7 @@ public class ESSelection extends SelectionMethod
         MuCommaLambdaBreeder breeder = (MuCommaLambdaBreeder)(state.breeder);
         
         // determine my position in the array
-        int pos = (breeder.lambda[subpopulation] % state.breedthreads == 0 ? 
-            breeder.lambda[subpopulation]/state.breedthreads :
-            breeder.lambda[subpopulation]/state.breedthreads + 1) * 
-            thread + breeder.count[thread];  // note integer division
+        int pos = breeder.from[thread][subpopulation] + breeder.count[thread];
         
         // determine the parent
         int parent = pos / (breeder.lambda[subpopulation] / breeder.mu[subpopulation]); // note outer integer division
@@ -52,6 +52,12 @@ import ec.util.*;
  * also mix ESSelection operators with other operators (like Tournament Selection).  But you ought
  * to have <b>at least one</b> ESSelection operator in the pipeline -- else it wouldn't be Evolution
  * Strategies, would it?
+ *
+ * <p>MuCommaLambdaBreeder breeds with <tt>breedthreads</tt> threads from its ThreadPool, each creating a
+ * contiguous chunk of the lambda children, and likewise divides up the counting of children which are
+ * better than their parents.  It only partially sorts each subpopulation: it selects the mu best 
+ * individuals in expected linear time, then sorts just those.  The mu parents, and their order, are the 
+ * same as if the whole subpopulation had been (stably) sorted.
  
  <p><b>Parameters</b><br>
  <table>
@@ -86,6 +92,13 @@ public class MuCommaLambdaBreeder extends Breeder
     /** Modified by multiple threads, don't fool with this */
     public int[] count;
 
+    /** The index of the first child each breeding thread creates in each subpopulation, that is, from[thread][subpop].
+        ESSelection uses this to find its place. */
+    public int[][] from;
+
+    // we use a threadpool here
+    public ThreadPool pool = new ThreadPool();
+
     /** lambda should be no SMALLER than mu times this value. 
         This varies between (mu,lambda) (where it's 2) and
         (mu + lambda) (where it's 1).
@@ -194,31 +207,12 @@ public class MuCommaLambdaBreeder extends Breeder
         }
                 
 
-    public Population breedPopulation(EvolutionState state) 
+    public Population breedPopulation(final EvolutionState state) 
         {
         // Complete 1/5 statistics for last population
         
         if (parentPopulation != null)
-            {
-            // Only go from 0 to lambda-1, as the remaining individuals may be parents.
-            // A child C's parent's index I is equal to C / mu[subpopulation].
-            for (int x=0;x<state.population.subpops.length;x++)
-                {
-                int numChildrenBetter = 0;
-                for (int i = 0; i < lambda[x]; i++)
-                    {
-                    int parent = i / (lambda[x] / mu[x]);  // note integer division
-                    if (state.population.subpops[x].individuals[i].fitness.betterThan(
-                            parentPopulation.subpops[x].individuals[parent].fitness))
-                        numChildrenBetter++;
-                    }
-                if (numChildrenBetter > lambda[x] / 5.0)  // note double division
-                    comparison[x] = C_OVER_ONE_FIFTH_BETTER;
-                else if (numChildrenBetter < lambda[x] / 5.0)  // note double division
-                    comparison[x] = C_UNDER_ONE_FIFTH_BETTER;
-                else comparison[x] = C_EXACTLY_ONE_FIFTH_BETTER;
-                }
-            }
+            countOneFifth(state);
                         
         // load the parent population
         parentPopulation = state.population;
@@ -248,27 +242,7 @@ public class MuCommaLambdaBreeder extends Breeder
         // sort evaluation to get the Mu best of each subpopulation
         
         for(int x=0;x<state.population.subpops.length;x++)
-            {
-            final Individual[] i = state.population.subpops[x].individuals;
-
-            java.util.Arrays.sort(i,
-                new java.util.Comparator()
-                    {
-                    public int compare(Object o1, Object o2)
-                        {
-                        Individual a = (Individual) o1;
-                        Individual b = (Individual) o2;
-                        // return 1 if should appear after object b in the array.
-                        // This is the case if a has WORSE fitness.
-                        if (b.fitness.betterThan(a.fitness)) return 1;
-                        // return -1 if a should appear before object b in the array.
-                        // This is the case if b has WORSE fitness.
-                        if (a.fitness.betterThan(b.fitness)) return -1;
-                        // else return 0
-                        return 0;
-                        }
-                    });
-            }
+            selectMu(state.population.subpops[x].individuals, mu[x]);
 
         // now the subpops are sorted so that the best individuals
         // appear in the lowest indexes.
@@ -292,9 +266,9 @@ public class MuCommaLambdaBreeder extends Breeder
             state.output.warnOnce("Largest lambda size (" + numThreads +") is smaller than number of breedthreads (" + state.breedthreads +
                 "), so fewer breedthreads will be created.");
             
-        int numinds[][] = 
+        final int numinds[][] = 
             new int[numThreads][state.population.subpops.length];
-        int from[][] = 
+        from = 
             new int[numThreads][state.population.subpops.length];
         
         for(int x=0;x<state.population.subpops.length;x++)
@@ -353,37 +327,144 @@ public class MuCommaLambdaBreeder extends Breeder
             }
         else
             {
-            Thread[] t = new Thread[numThreads];
-                
-            // start up the threads
+            final Population _newpop = newpop;
             for(int y=0;y<numThreads;y++)
                 {
-                MuLambdaBreederThread r = new MuLambdaBreederThread();
-                r.threadnum = y;
-                r.newpop = newpop;
-                r.numinds = numinds[y];
-                r.from = from[y];
-                r.me = this;
-                r.state = state;
-                t[y] = new Thread(r);
-                t[y].start();
-                }
-                
-            // gather the threads
-            for(int y=0;y<numThreads;y++) 
-                try
-                    {
-                    t[y].join();
-                    }
-                catch(InterruptedException e)
+                final int threadnum = y;
+                pool.start(new Runnable()
                     {
-                    state.output.fatal("Whoa! The main breeding thread got interrupted!  Dying...");
-                    }
+                    public void run() { breedPopChunk(_newpop, state, numinds[threadnum], from[threadnum], threadnum); }
+                    }, "ECJ Breeding Thread " + y);
+                }
+            pool.joinAll();
             }
 
         return postProcess(newpop,state.population,state);
         }
 
+    /** Computes the 1/5 rule comparison for each subpopulation, by counting how many of the
+        children in the (just evaluated) population are better than their parents.  The
+        counting is divided among breedthreads threads. */
+    protected void countOneFifth(final EvolutionState state)
+        {
+        final int numThreads = state.breedthreads;
+        final int[][] better = new int[numThreads][state.population.subpops.length];
+        if (numThreads == 1)
+            {
+            countOneFifthChunk(state, better[0], 0, 1);
+            }
+        else
+            {
+            for(int y=0;y<numThreads;y++)
+                {
+                final int threadnum = y;
+                pool.start(new Runnable()
+                    {
+                    public void run() { countOneFifthChunk(state, better[threadnum], threadnum, numThreads); }
+                    }, "ECJ Breeding Thread " + y);
+                }
+            pool.joinAll();
+            }
+
+        for (int x=0;x<state.population.subpops.length;x++)
+            {
+            int numChildrenBetter = 0;
+            for(int y=0;y<numThreads;y++)
+                numChildrenBetter += better[y][x];
+            if (numChildrenBetter > lambda[x] / 5.0)  // note double division
+                comparison[x] = C_OVER_ONE_FIFTH_BETTER;
+            else if (numChildrenBetter < lambda[x] / 5.0)  // note double division
+                comparison[x] = C_UNDER_ONE_FIFTH_BETTER;
+            else comparison[x] = C_EXACTLY_ONE_FIFTH_BETTER;
+            }
+        }
+
+    /** A private helper function for countOneFifth which counts, for each subpopulation, how many 
+        children in the given thread's chunk are better than their parents.
+        Although this method is declared protected, you should not call it. */
+    protected void countOneFifthChunk(EvolutionState state, int[] better, int threadnum, int numThreads)
+        {
+        // Only go from 0 to lambda-1, as the remaining individuals may be parents.
+        // A child C's parent's index I is equal to C / (lambda / mu).
+        for (int x=0;x<state.population.subpops.length;x++)
+            {
+            Individual[] kids = state.population.subpops[x].individuals;
+            Individual[] elders = parentPopulation.subpops[x].individuals;
+            int start = (int)(((long)lambda[x]) * threadnum / numThreads);
+            int end = (int)(((long)lambda[x]) * (threadnum + 1) / numThreads);
+            int numChildrenBetter = 0;
+            for (int i = start; i < end; i++)
+                {
+                int parent = i / (lambda[x] / mu[x]);  // note integer division
+                if (kids[i].fitness.betterThan(elders[parent].fitness))
+                    numChildrenBetter++;
+                }
+            better[x] = numChildrenBetter;
+            }
+        }
+
+    /** Moves the mu best individuals to the front of the array, sorted best first.  The rest follow in
+        their original order.  The mu best and their order are exactly those which a stable sort of the 
+        whole array would produce, but this takes only expected O(n + mu log mu) time rather than O(n log n). */
+    protected void selectMu(final Individual[] inds, int mu)
+        {
+        int n = inds.length;
+        if (mu > n) mu = n;
+
+        // find the mu best, breaking ties by position just as a stable sort would
+        int[] indices = new int[n];
+        for(int i = 0; i < n; i++)
+            indices[i] = i;
+        QuickSort.qselect(indices, mu, new SortComparatorL()
+            {
+            public boolean lt(long a, long b)
+                {
+                Fitness fa = inds[(int)a].fitness;
+                Fitness fb = inds[(int)b].fitness;
+                return fa.betterThan(fb) || (!fb.betterThan(fa) && a < b);
+                }
+            public boolean gt(long a, long b)
+                {
+                return lt(b, a);
+                }
+            });
+
+        // gather the mu best in their original order, then sort them stably
+        java.util.Arrays.sort(indices, 0, mu);
+        Individual[] best = new Individual[mu];
+        boolean[] chosen = new boolean[n];
+        for(int i = 0; i < mu; i++)
+            {
+            best[i] = inds[indices[i]];
+            chosen[indices[i]] = true;
+            }
+        java.util.Arrays.sort(best,
+            new java.util.Comparator()
+                {
+                public int compare(Object o1, Object o2)
+                    {
+                    Individual a = (Individual) o1;
+                    Individual b = (Individual) o2;
+                    // return 1 if should appear after object b in the array.
+                    // This is the case if a has WORSE fitness.
+                    if (b.fitness.betterThan(a.fitness)) return 1;
+                    // return -1 if a should appear before object b in the array.
+                    // This is the case if b has WORSE fitness.
+                    if (a.fitness.betterThan(b.fitness)) return -1;
+                    // else return 0
+                    return 0;
+                    }
+                });
+
+        // the rest follow in their original order
+        Individual[] original = inds.clone();
+        System.arraycopy(best, 0, inds, 0, mu);
+        int pos = mu;
+        for(int i = 0; i < n; i++)
+            if (!chosen[i])
+                inds[pos++] = original[i];
+        }
+
     /** A hook for Mu+Lambda, not used in Mu,Lambda */
 
     public Population postProcess(Population newpop, Population oldpop, EvolutionState state)
@@ -399,8 +480,7 @@ public class MuCommaLambdaBreeder extends Breeder
     /** A private helper function for breedPopulation which breeds a chunk
         of individuals in a subpopulation for a given thread.
         Although this method is declared
-        public (for the benefit of a private helper class in this file),
-        you should not call it. */
+        public, you should not call it. */
     
     public void breedPopChunk(Population newpop, EvolutionState state, 
         int[] numinds, int[] from, int threadnum) 
@@ -441,20 +521,3 @@ public class MuCommaLambdaBreeder extends Breeder
         }
     }
 
-
-/** A private helper class for implementing multithreaded breeding */
-class MuLambdaBreederThread implements Runnable
-    {
-    Population newpop;
-    public int[] numinds;
-    public int[] from;
-    public MuCommaLambdaBreeder me;
-    public EvolutionState state;
-    public int threadnum;
-    public void run()
-        {
-        me.breedPopChunk(newpop,state,numinds,from,threadnum);
-        }
-    }
-
-
@@ -329,6 +329,11 @@ public class MetaProblem extends Problem implements SimpleProblemForm
     
     public Object[] domain;  // not deep cloned
     
+    /** The names of the base-level parameters being optimized, one per gene, or null where a name
+        is missing.  These are read once during setup rather than each time an individual is evaluated
+        or described, since every read from the ParameterDatabase acquires its lock.  */
+    public String[] parameterNames;  // not deep cloned
+    
     boolean setRandom;
     
     // default form does nothing
@@ -362,6 +367,12 @@ public class MetaProblem extends Problem implements SimpleProblemForm
         setRandom = state.parameters.getBoolean(base.push(P_SET_RANDOM), null, false);
         
         loadDomain(state, base);
+        
+        Parameter pb = base.push(P_PARAM);
+        int numParams = state.parameters.getInt(base.push(P_NUM_PARAMS), null, 1);
+        parameterNames = new String[Math.max(numParams, 0)];
+        for(int i = 0; i < parameterNames.length; i++)
+            parameterNames[i] = state.parameters.getString(pb.push("" + i), null);
         }
     
     
@@ -482,10 +493,9 @@ public class MetaProblem extends Problem implements SimpleProblemForm
         Parameter pb = base.push(P_PARAM);
         for(int i = 0; i < genome.length; i++)
             {
-            Parameter p = pb.push("" + i);
-            String param = state.parameters.getString(p, null);
+            String param = (i < parameterNames.length ? parameterNames[i] : null);
             if (param == null) 
-                state.output.fatal("Meta parameter number " + i + " missing.", p);
+                state.output.fatal("Meta parameter number " + i + " missing.", pb.push("" + i));
             // load it
             database.set(new Parameter(param), "" + map(state, genome, species, i));
             }
@@ -660,10 +670,9 @@ public class MetaProblem extends Problem implements SimpleProblemForm
         Parameter pb = base.push(P_PARAM);
         for(int i = 0; i < genome.length; i++)
             {
-            Parameter p = pb.push("" + i);
-            String param = state.parameters.getString(p, null);
+            String param = (i < parameterNames.length ? parameterNames[i] : null);
             if (param == null) 
-                state.output.fatal("Meta parameter number " + i + " missing.", p);
+                state.output.fatal("Meta parameter number " + i + " missing.", pb.push("" + i));
             // print it
             state.output.println("" + param + " = " + map(state, genome, species, i), log);
             }
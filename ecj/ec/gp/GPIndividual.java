@@ -125,6 +125,14 @@ public class GPIndividual extends Individual
         return hash;
         }
 
+    public long fingerprint()
+        {
+        long fingerprint = FingerprintSet.combine(FingerprintSet.SEED, this.getClass().hashCode());
+        for(int x=0;x<trees.length;x++)
+            fingerprint = FingerprintSet.combine(fingerprint, trees[x].treeFingerprint());
+        return fingerprint;
+        }
+
     /** Sets up a prototypical GPIndividual with those features which it
         shares with other GPIndividuals in its species, and nothing more. */
 
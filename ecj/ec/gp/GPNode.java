@@ -925,6 +925,21 @@ public abstract class GPNode implements GPNodeParent, Prototype
         return hash;
         }
 
+    /** Returns a 64-bit fingerprint of the tree, such that trees which are
+        rootedTreeEquals(...) always have the same fingerprint.  Like
+        rootedTreeHashCode(), it is built from the nodeHashCode() of each
+        node in the tree, but it is far less likely to be the same for two
+        different trees, since it is twice as long and mixes in each child's
+        fingerprint rather than XORing it.  Used to detect duplicate
+        individuals; override nodeHashCode() rather than this method. */
+    public long rootedTreeFingerprint()
+        {
+        long fingerprint = FingerprintSet.combine(FingerprintSet.SEED, nodeHashCode());
+        for(int x=0;x<children.length;x++)
+            fingerprint = FingerprintSet.combine(fingerprint, children[x].rootedTreeFingerprint());
+        return FingerprintSet.combine(fingerprint, children.length);
+        }
+
     /** Returns true if I am the "genetically" identical to this node, and our
         children arrays are the same length, though
         we may have different parents and children.  The default form
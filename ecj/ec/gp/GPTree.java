@@ -213,6 +213,14 @@ public class GPTree implements GPNodeParent, Prototype
         return child.rootedTreeHashCode();
         }
 
+    /** Returns a 64-bit fingerprint for comparing different GPTrees.
+        Two trees which are treeEquals(...) always have the same
+        fingerprint. */
+    public long treeFingerprint()
+        {
+        return child.rootedTreeFingerprint();
+        }
+
     /** Like clone() but doesn't copy the tree. */
     public GPTree lightClone()
         {
@@ -426,7 +434,7 @@ public class GPTree implements GPNodeParent, Prototype
     public void buildTree(final EvolutionState state, final int thread) 
         {
         GPInitializer initializer = ((GPInitializer)state.initializer);
-        child = constraints(initializer).init.newRootedTree(state,
+        child = constraints(initializer).initFor(thread).newRootedTree(state,
             constraints(initializer).treetype,
             thread,
             this,
@@ -80,6 +80,11 @@ public class GPTreeConstraints implements Clique
     /** The builder for the tree */
     public GPNodeBuilder init;
 
+    /** The builder for the tree on each thread: inits[0] is init, and the rest are clones of it,
+        so that trees may be built on several threads at once even though builders such as PTC2
+        keep their work in progress in instance variables. */
+    public GPNodeBuilder[] inits;
+
     /** The type of the root of the tree */
     public GPType treetype;
 
@@ -88,6 +93,13 @@ public class GPTreeConstraints implements Clique
     
     public String toString() { return name; }
 
+    /** Returns the builder to use on the given thread. */
+    public GPNodeBuilder initFor(final int thread)
+        {
+        if (inits == null || thread >= inits.length) return init;
+        return inits[thread];
+        }
+
     /** This must be called <i>after</i> the GPTypes and GPFunctionSets 
         have been set up. */
     public void setup(final EvolutionState state, final Parameter base)
@@ -107,6 +119,10 @@ public class GPTreeConstraints implements Clique
         // Load my initializing builder
         init = (GPNodeBuilder)(state.parameters.getInstanceForParameter(base.push(P_INIT),null,GPNodeBuilder.class));
         init.setup(state,base.push(P_INIT));
+        inits = new GPNodeBuilder[Math.max(state.breedthreads, state.evalthreads)];
+        inits[0] = init;
+        for(int x = 1; x < inits.length; x++)
+            inits[x] = (GPNodeBuilder)(init.clone());
 
         // Load my return type
         String s = state.parameters.getString(base.push(P_RETURNS),null);
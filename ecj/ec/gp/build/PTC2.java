@@ -81,6 +81,18 @@ public class PTC2 extends GPNodeBuilder
         return GPBuildDefaults.base().push(P_PTC2);
         }
 
+    public Object clone()
+        {
+        PTC2 c = (PTC2)(super.clone());
+        // the queue is scratch space, and mustn't be shared
+        c.s_node = null;
+        c.s_argpos = null;
+        c.s_depth = null;
+        c.s_size = 0;
+        c.dequeue_node = null;
+        return c;
+        }
+
     public void setup(final EvolutionState state, final Parameter base)
         {
         super.setup(state,base);
@@ -138,6 +138,13 @@ public class KozaFitness extends Fitness
         // loose some precision in the division.
         return ((KozaFitness)_fitness).standardizedFitness() > standardizedFitness;
         }
+
+    /** Returns the negated standardized fitness, for the same reason as betterThan(...):
+        adjusted fitness can lose precision and make distinct fitnesses look equal. */
+    public double scalarFitness()
+        {
+        return -standardizedFitness;
+        }
  
     public String fitnessToString()
         {
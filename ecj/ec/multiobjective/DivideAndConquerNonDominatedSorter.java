@@ -0,0 +1,362 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+
+/*
+ * DivideAndConquerNonDominatedSorter.java
+ */
+
+/**
+ * DivideAndConquerNonDominatedSorter implements Jensen's divide-and-conquer non-dominated sort
+ * (M. T. Jensen, "Reducing the Run-time Complexity of Multiobjective EAs: The NSGA-II and other
+ * Algorithms", IEEE Transactions on Evolutionary Computation, 2003), with the corrections of Fortin,
+ * Grenier, and Parizeau (GECCO 2013) and of Buzdalov and Shalyto (PPSN 2014) so that it handles
+ * points which share objective values.  It runs in O(N (log N)<sup>M-1</sup>) time for N points and
+ * M objectives, against O(M N<sup>2</sup>) in the worst case for the other sorts, and so is the best
+ * choice for large populations with three or more objectives.
+ *
+ * <p>The points are sorted lexicographically and duplicates removed.  Then the algorithm repeatedly
+ * splits the points at the median of the last objective under consideration: the lower half is
+ * ranked first, then is used to raise the ranks of the upper half ignoring that objective, and finally
+ * the upper half is ranked.  When only two objectives remain, ranks are computed by a sweep over the
+ * points.  This sorter is single-threaded and ignores the <tt>threads</tt> parameter.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class DivideAndConquerNonDominatedSorter extends NonDominatedSorter
+    {
+    private static final long serialVersionUID = 1;
+
+    // The unique points, in lexicographic order, and their ranks.  Subsets of points are
+    // always int arrays of indices into these, in increasing (thus lexicographic) order.
+    double[][] p;
+    int[] r;
+
+    // The staircase used by the sweeps: keys (values of objective 1) and ranks, both strictly increasing
+    double[] stairKeys;
+    int[] stairRanks;
+    int stairSize;
+
+    public int[] rank(double[][] points)
+        {
+        int n = points.length;
+        int[] ranks = new int[n];
+        if (n == 0) return ranks;
+        int[] order = lexicographicOrder(points);
+
+        // Remove duplicates: identical points get the rank of the first of them
+        int[] which = new int[n];  // index of each point in the unique points
+        p = new double[n][];
+        int numUnique = 0;
+        for(int i = 0; i < n; i++)
+            {
+            double[] point = points[order[i]];
+            if (numUnique == 0 || compareLexicographically(p[numUnique - 1], point) != 0)
+                p[numUnique++] = point;
+            which[order[i]] = numUnique - 1;
+            }
+        r = new int[numUnique];
+
+        int numObjectives = p[0].length;
+        if (numObjectives == 1)
+            {
+            for(int i = 0; i < numUnique; i++)
+                r[i] = i;
+            }
+        else
+            {
+            int[] all = new int[numUnique];
+            for(int i = 0; i < numUnique; i++)
+                all[i] = i;
+            stairKeys = new double[16];
+            stairRanks = new int[16];
+            helperA(all, numObjectives - 1);
+            }
+
+        for(int i = 0; i < n; i++)
+            ranks[i] = r[which[i]];
+        p = null;  // let GC have them
+        r = null;
+        stairKeys = null;
+        stairRanks = null;
+        return ranks;
+        }
+
+    /** Ranks the points in s considering objectives 0 ... k.  All the points in s have the
+        same values for objectives above k. */
+    void helperA(int[] s, int k)
+        {
+        int n = s.length;
+        if (n < 2) return;
+        if (n == 2)
+            {
+            if (weaklyDominates(p[s[0]], p[s[1]], k))
+                r[s[1]] = Math.max(r[s[1]], r[s[0]] + 1);
+            return;
+            }
+        if (k == 1)
+            {
+            sweepA(s);
+            return;
+            }
+
+        double min = p[s[0]][k];
+        double max = min;
+        for(int i = 1; i < n; i++)
+            {
+            double v = p[s[i]][k];
+            if (v < min) min = v;
+            if (v > max) max = v;
+            }
+        if (min == max)
+            {
+            helperA(s, k - 1);
+            return;
+            }
+
+        double median = median(s, null, k);
+        int[] lower = split(s, k, median, -1);
+        int[] equal = split(s, k, median, 0);
+        int[] upper = split(s, k, median, 1);
+        helperA(lower, k);
+        helperB(lower, equal, k - 1);
+        helperA(equal, k - 1);
+        helperB(merge(lower, equal), upper, k - 1);
+        helperA(upper, k);
+        }
+
+    /** Raises the ranks of the points in h according to the points in l, considering objectives
+        0 ... k.  The ranks of the points in l are final, and every point in l is less than or
+        equal to every point in h in the objectives above k. */
+    void helperB(int[] l, int[] h, int k)
+        {
+        if (l.length == 0 || h.length == 0) return;
+        if (l.length == 1 || h.length == 1)
+            {
+            for(int j = 0; j < h.length; j++)
+                {
+                int b = h[j];
+                for(int i = 0; i < l.length; i++)
+                    {
+                    int a = l[i];
+                    if (r[a] >= r[b] && weaklyDominates(p[a], p[b], k))
+                        r[b] = r[a] + 1;
+                    }
+                }
+            return;
+            }
+        if (k == 1)
+            {
+            sweepB(l, h);
+            return;
+            }
+
+        double lmin = Double.POSITIVE_INFINITY;
+        double lmax = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < l.length; i++)
+            {
+            double v = p[l[i]][k];
+            if (v < lmin) lmin = v;
+            if (v > lmax) lmax = v;
+            }
+        double hmin = Double.POSITIVE_INFINITY;
+        double hmax = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < h.length; i++)
+            {
+            double v = p[h[i]][k];
+            if (v < hmin) hmin = v;
+            if (v > hmax) hmax = v;
+            }
+        if (lmax <= hmin)
+            {
+            helperB(l, h, k - 1);
+            return;
+            }
+        if (lmin > hmax)
+            return;  // nothing in l can dominate anything in h
+
+        double median = median(l, h, k);
+        int[] l1 = split(l, k, median, -1);
+        int[] l2 = split(l, k, median, 0);
+        int[] l3 = split(l, k, median, 1);
+        int[] h1 = split(h, k, median, -1);
+        int[] h2 = split(h, k, median, 0);
+        int[] h3 = split(h, k, median, 1);
+        helperB(l1, h1, k);
+        helperB(merge(l1, l2), merge(h2, h3), k - 1);
+        helperB(l3, h3, k);
+        }
+
+    /** Ranks the points in s considering objectives 0 and 1. */
+    void sweepA(int[] s)
+        {
+        stairSize = 0;
+        for(int i = 0; i < s.length; i++)
+            {
+            int a = s[i];
+            int q = stairQuery(p[a][1]) + 1;
+            if (q > r[a]) r[a] = q;
+            stairInsert(p[a][1], r[a]);
+            }
+        }
+
+    /** Raises the ranks of the points in h according to the points in l considering objectives 0 and 1. */
+    void sweepB(int[] l, int[] h)
+        {
+        stairSize = 0;
+        int i = 0;
+        for(int j = 0; j < h.length; j++)
+            {
+            int b = h[j];
+            // only points lexicographically before b can dominate it
+            while(i < l.length && l[i] < b)
+                {
+                stairInsert(p[l[i]][1], r[l[i]]);
+                i++;
+                }
+            int q = stairQuery(p[b][1]) + 1;
+            if (q > r[b]) r[b] = q;
+            }
+        }
+
+    /** Returns the highest rank in the staircase among keys <= key, or -1 if there are none. */
+    int stairQuery(double key)
+        {
+        // find the last key <= key
+        int lo = 0;
+        int hi = stairSize;
+        while(lo < hi)
+            {
+            int mid = (lo + hi) >>> 1;
+            if (stairKeys[mid] <= key) lo = mid + 1;
+            else hi = mid;
+            }
+        return (lo == 0 ? -1 : stairRanks[lo - 1]);
+        }
+
+    /** Adds a key with the given rank to the staircase, removing entries which it makes redundant. */
+    void stairInsert(double key, int rank)
+        {
+        if (stairQuery(key) >= rank) return;  // redundant
+
+        // find the first key >= key
+        int lo = 0;
+        int hi = stairSize;
+        while(lo < hi)
+            {
+            int mid = (lo + hi) >>> 1;
+            if (stairKeys[mid] < key) lo = mid + 1;
+            else hi = mid;
+            }
+        int pos = lo;
+
+        // entries from pos onward with ranks <= rank are made redundant
+        int end = pos;
+        while(end < stairSize && stairRanks[end] <= rank) end++;
+        int shift = 1 - (end - pos);
+        if (stairSize + shift > stairKeys.length)
+            {
+            double[] k = new double[stairKeys.length * 2];
+            System.arraycopy(stairKeys, 0, k, 0, stairSize);
+            stairKeys = k;
+            int[] rr = new int[stairRanks.length * 2];
+            System.arraycopy(stairRanks, 0, rr, 0, stairSize);
+            stairRanks = rr;
+            }
+        if (shift != 0)
+            {
+            System.arraycopy(stairKeys, end, stairKeys, end + shift, stairSize - end);
+            System.arraycopy(stairRanks, end, stairRanks, end + shift, stairSize - end);
+            }
+        stairKeys[pos] = key;
+        stairRanks[pos] = rank;
+        stairSize += shift;
+        }
+
+    /** Returns true if a is less than or equal to b in objectives 0 ... k. */
+    static boolean weaklyDominates(double[] a, double[] b, int k)
+        {
+        for(int j = 0; j <= k; j++)
+            if (a[j] > b[j]) return false;
+        return true;
+        }
+
+    /** Returns the (lower) median of objective k over the points in a and b (which may be null). */
+    double median(int[] a, int[] b, int k)
+        {
+        int n = a.length + (b == null ? 0 : b.length);
+        double[] v = new double[n];
+        for(int i = 0; i < a.length; i++)
+            v[i] = p[a[i]][k];
+        if (b != null)
+            for(int i = 0; i < b.length; i++)
+                v[a.length + i] = p[b[i]][k];
+        return select(v, (n - 1) / 2);
+        }
+
+    /** Returns the element which would be at index i if v were sorted.  Reorders v. */
+    static double select(double[] v, int i)
+        {
+        int lo = 0;
+        int hi = v.length - 1;
+        while(lo < hi)
+            {
+            double pivot = v[(lo + hi) >>> 1];
+            int a = lo;
+            int b = hi;
+            while(a <= b)
+                {
+                while(v[a] < pivot) a++;
+                while(v[b] > pivot) b--;
+                if (a <= b)
+                    {
+                    double t = v[a]; v[a] = v[b]; v[b] = t;
+                    a++;
+                    b--;
+                    }
+                }
+            if (i <= b) hi = b;
+            else if (i >= a) lo = a;
+            else return v[i];
+            }
+        return v[i];
+        }
+
+    /** Returns, in order, the points in s whose objective k is less than (side -1), equal to (side 0),
+        or greater than (side 1) the given value. */
+    int[] split(int[] s, int k, double value, int side)
+        {
+        int count = 0;
+        for(int i = 0; i < s.length; i++)
+            if (compare(p[s[i]][k], value) == side) count++;
+        int[] result = new int[count];
+        count = 0;
+        for(int i = 0; i < s.length; i++)
+            if (compare(p[s[i]][k], value) == side) result[count++] = s[i];
+        return result;
+        }
+
+    static int compare(double a, double b)
+        {
+        return (a < b ? -1 : (a > b ? 1 : 0));
+        }
+
+    /** Merges two increasing arrays of indices. */
+    static int[] merge(int[] a, int[] b)
+        {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while(i < a.length && j < b.length)
+            result[k++] = (a[i] < b[j] ? a[i++] : b[j++]);
+        while(i < a.length) result[k++] = a[i++];
+        while(j < b.length) result[k++] = b[j++];
+        return result;
+        }
+    }
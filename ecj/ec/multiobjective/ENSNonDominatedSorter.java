@@ -0,0 +1,184 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+
+/*
+ * ENSNonDominatedSorter.java
+ */
+
+/**
+ * ENSNonDominatedSorter implements the Efficient Non-dominated Sort (ENS) of Zhang, Tian,
+ * Cheng, and Jin, "An Efficient Approach to Nondominated Sorting for Evolutionary
+ * Multiobjective Optimization", IEEE Transactions on Evolutionary Computation, 2015,
+ * using binary search over the fronts (ENS-BS).
+ *
+ * <p>The points are first sorted lexicographically.  A point can then only be dominated by
+ * points which come before it, so each point is compared only against the fronts built
+ * so far, and its front is found by binary search: it belongs to the first front none of
+ * whose members dominates it.  Each comparison touches a single primitive array.
+ *
+ * <p>If the sorter has more than one thread, points are processed in chunks.  For each chunk,
+ * the threads compute, in parallel, the front of each point with respect to the fronts built
+ * from the previous chunks.  Then the fronts are corrected for domination among points in the
+ * same chunk, and the chunk is added to the fronts.  The result is the same as with one thread.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class ENSNonDominatedSorter extends NonDominatedSorter
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The number of points per thread in each chunk when multithreaded. */
+    public static final int CHUNK_SIZE_PER_THREAD = 64;
+
+    // The fronts built so far, each in the order its points were added (lexicographic order)
+    int[][] fronts;
+    int[] frontSizes;
+    int numFronts;
+
+    public int[] rank(double[][] points)
+        {
+        int n = points.length;
+        int[] ranks = new int[n];
+        if (n == 0) return ranks;
+        int[] order = lexicographicOrder(points);
+
+        // Remove duplicates: identical points get the rank of the first of them
+        int[] unique = new int[n];
+        int[] duplicateOf = new int[n];
+        int numUnique = 0;
+        for(int i = 0; i < n; i++)
+            {
+            if (numUnique > 0 && compareLexicographically(points[unique[numUnique - 1]], points[order[i]]) == 0)
+                duplicateOf[order[i]] = unique[numUnique - 1];
+            else
+                {
+                duplicateOf[order[i]] = -1;
+                unique[numUnique++] = order[i];
+                }
+            }
+
+        fronts = new int[16][];
+        frontSizes = new int[16];
+        numFronts = 0;
+        if (numThreads > 1 && numUnique >= 2 * numThreads * CHUNK_SIZE_PER_THREAD)
+            rankInChunks(points, unique, numUnique, ranks);
+        else
+            for(int i = 0; i < numUnique; i++)
+                {
+                int p = unique[i];
+                ranks[p] = findFront(points, p);
+                addToFront(p, ranks[p]);
+                }
+        fronts = null;  // let GC have them
+        frontSizes = null;
+
+        for(int i = 0; i < n; i++)
+            if (duplicateOf[i] >= 0)
+                ranks[i] = ranks[duplicateOf[i]];
+        return ranks;
+        }
+
+    /** Returns the first front, among those built so far, none of whose members dominates p.
+        This may be numFronts, meaning that p needs a new front. */
+    int findFront(double[][] points, int p)
+        {
+        int lo = 0;
+        int hi = numFronts;
+        double[] point = points[p];
+        while(lo < hi)
+            {
+            int mid = (lo + hi) >>> 1;
+            if (isDominatedBy(points, point, mid))
+                lo = mid + 1;
+            else hi = mid;
+            }
+        return lo;
+        }
+
+    /** Returns true if some member of the given front dominates the point.  Members are checked
+        from the most recently added, since they are the most similar to the point. */
+    boolean isDominatedBy(double[][] points, double[] point, int front)
+        {
+        int[] members = fronts[front];
+        for(int i = frontSizes[front] - 1; i >= 0; i--)
+            if (dominates(points[members[i]], point))
+                return true;
+        return false;
+        }
+
+    void addToFront(int p, int front)
+        {
+        if (front == numFronts)
+            {
+            if (numFronts == fronts.length)
+                {
+                int[][] f = new int[numFronts * 2][];
+                System.arraycopy(fronts, 0, f, 0, numFronts);
+                fronts = f;
+                int[] s = new int[numFronts * 2];
+                System.arraycopy(frontSizes, 0, s, 0, numFronts);
+                frontSizes = s;
+                }
+            fronts[numFronts] = new int[16];
+            frontSizes[numFronts] = 0;
+            numFronts++;
+            }
+        int[] members = fronts[front];
+        if (frontSizes[front] == members.length)
+            {
+            int[] m = new int[members.length * 2];
+            System.arraycopy(members, 0, m, 0, members.length);
+            fronts[front] = members = m;
+            }
+        members[frontSizes[front]++] = p;
+        }
+
+    void rankInChunks(final double[][] points, final int[] unique, final int numUnique, final int[] ranks)
+        {
+        final int chunkSize = numThreads * CHUNK_SIZE_PER_THREAD;
+        for(int start = 0; start < numUnique; start += chunkSize)
+            {
+            final int end = Math.min(start + chunkSize, numUnique);
+
+            // find each point's front with respect to the previous chunks, in parallel
+            for(int t = 0; t < numThreads; t++)
+                {
+                final int thread = t;
+                final int from = start;
+                pool.start(new Runnable()
+                    {
+                    public void run()
+                        {
+                        for(int i = from + thread; i < end; i += numThreads)
+                            ranks[unique[i]] = findFront(points, unique[i]);
+                        }
+                    }, "ECJ Non-Dominated Sorting Thread " + t);
+                }
+            pool.joinAll();
+
+            // correct for domination within the chunk, then add the chunk to the fronts
+            for(int i = start; i < end; i++)
+                {
+                int p = unique[i];
+                double[] point = points[p];
+                int r = ranks[p];
+                for(int j = start; j < i; j++)
+                    {
+                    int q = unique[j];
+                    if (ranks[q] >= r && dominates(points[q], point))
+                        r = ranks[q] + 1;
+                    }
+                ranks[p] = r;
+                addToFront(p, r);
+                }
+            }
+        }
+    }
@@ -0,0 +1,191 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+
+/*
+ * KDTree.java
+ */
+
+/**
+ * A static k-d tree over a set of points in objective space, used to answer nearest-neighbor
+ * queries without computing the distance from every point to every other point.  The tree is
+ * built once, in O(N log N) time, and is read-only afterwards, so any number of threads may
+ * query it at the same time.
+ *
+ * <p>Distances are squared Euclidean distances, summed over the objectives in order exactly as
+ * MultiObjectiveFitness.sumSquaredObjectiveDistance(...) does, so the results are bit-for-bit
+ * the same as computing that method against every point.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class KDTree implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    /** Ranges of at most this many points are not split further but scanned linearly. */
+    public static final int LEAF_SIZE = 8;
+
+    final double[][] points;
+    final int[] index;      // permutation of the points: each subtree is a contiguous range
+    final int[] axis;       // splitting axis for the node stored at each position, or -1 for leaves
+    final int numDimensions;
+
+    /** Builds a k-d tree over the given points, which must all have the same number of dimensions.
+        The points are not copied, so don't modify them while you're using the tree. */
+    public KDTree(double[][] points)
+        {
+        this.points = points;
+        int n = points.length;
+        index = new int[n];
+        for(int i = 0; i < n; i++)
+            index[i] = i;
+        axis = new int[n];
+        numDimensions = (n == 0 ? 0 : points[0].length);
+        build(0, n, 0);
+        }
+
+    void build(int lo, int hi, int depth)
+        {
+        if (hi - lo <= LEAF_SIZE)
+            {
+            for(int i = lo; i < hi; i++)
+                axis[i] = -1;
+            return;
+            }
+        int a = depth % numDimensions;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, a);
+        axis[mid] = a;
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+        }
+
+    /** Reorders index[lo...hi] so that index[k] holds the point which would be there if the range were
+        sorted by the given axis, with smaller points before it and larger points after it. */
+    void select(int lo, int hi, int k, int a)
+        {
+        while(lo < hi)
+            {
+            double pivot = points[index[(lo + hi) >>> 1]][a];
+            int i = lo;
+            int j = hi;
+            while(i <= j)
+                {
+                while(points[index[i]][a] < pivot) i++;
+                while(points[index[j]][a] > pivot) j--;
+                if (i <= j)
+                    {
+                    int t = index[i]; index[i] = index[j]; index[j] = t;
+                    i++;
+                    j--;
+                    }
+                }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+            }
+        }
+
+    /** Returns the number of points in the tree. */
+    public int size()
+        {
+        return points.length;
+        }
+
+    /** Returns the squared distance between a and b, summed in objective order. */
+    public static double squaredDistance(double[] a, double[] b)
+        {
+        double s = 0;
+        for(int i = 0; i < a.length; i++)
+            {
+            double d = a[i] - b[i];
+            s += d * d;
+            }
+        return s;
+        }
+
+    /** Returns the k-th smallest squared distance (k = 1 being the smallest) from the query
+        to the points in the tree.  Points identical to the query, including the query itself if it
+        is in the tree, count as distance 0.  If k is larger than the number of points, returns
+        the largest distance. */
+    public double kthNearestSquaredDistance(double[] query, int k)
+        {
+        if (points.length == 0) return Double.POSITIVE_INFINITY;
+        if (k > points.length) k = points.length;
+        if (k < 1) k = 1;
+        double[] heap = new double[k];   // max-heap of the k smallest distances so far
+        int[] heapSize = new int[1];
+        search(query, 0, points.length, heap, heapSize);
+        return heap[0];
+        }
+
+    void search(double[] query, int lo, int hi, double[] heap, int[] heapSize)
+        {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        if (axis[mid] == -1)  // leaf
+            {
+            for(int i = lo; i < hi; i++)
+                offer(heap, heapSize, squaredDistance(query, points[index[i]]));
+            return;
+            }
+        int a = axis[mid];
+        double[] point = points[index[mid]];
+        offer(heap, heapSize, squaredDistance(query, point));
+        double diff = query[a] - point[a];
+        if (diff < 0)
+            {
+            search(query, lo, mid, heap, heapSize);
+            if (heapSize[0] < heap.length || diff * diff < heap[0])
+                search(query, mid + 1, hi, heap, heapSize);
+            }
+        else
+            {
+            search(query, mid + 1, hi, heap, heapSize);
+            if (heapSize[0] < heap.length || diff * diff < heap[0])
+                search(query, lo, mid, heap, heapSize);
+            }
+        }
+
+    /** Adds a distance to a bounded max-heap, dropping the largest if the heap is full. */
+    static void offer(double[] heap, int[] heapSize, double d)
+        {
+        int size = heapSize[0];
+        if (size < heap.length)
+            {
+            // sift up
+            int i = size;
+            while(i > 0)
+                {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] >= d) break;
+                heap[i] = heap[parent];
+                i = parent;
+                }
+            heap[i] = d;
+            heapSize[0] = size + 1;
+            }
+        else if (d < heap[0])
+            {
+            // replace the root and sift down
+            int i = 0;
+            while(true)
+                {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] > heap[child]) child++;
+                if (heap[child] <= d) break;
+                heap[i] = heap[child];
+                i = child;
+                }
+            heap[i] = d;
+            }
+        }
+    }
@@ -441,51 +441,21 @@ public class MultiObjectiveFitness extends Fitness
 
 
     /** Divides inds into pareto front ranks (each an ArrayList), and returns them, in order,
-        stored in an ArrayList. */
+        stored in an ArrayList.  Within each front, individuals appear in the order they appear in inds.
+        This uses an ENSNonDominatedSorter: if you want to choose the sorting algorithm, use
+        NonDominatedSorter.partitionIntoRanks(...) instead. */
     public static ArrayList partitionIntoRanks(Individual[] inds)
         {
-        Individual[] dummy = new Individual[0];
-        ArrayList frontsByRank = new ArrayList();
-
-        while(inds.length > 0)
-            {
-            ArrayList front = new ArrayList();
-            ArrayList nonFront = new ArrayList();
-            MultiObjectiveFitness.partitionIntoParetoFront(inds, front, nonFront);
-                        
-            // build inds out of remainder
-            inds = (Individual[]) nonFront.toArray(dummy);
-            frontsByRank.add(front);
-            }
-        return frontsByRank;
+        return new ENSNonDominatedSorter().partitionIntoRanks(inds);
         }
 
 
-    /** Returns the Pareto rank for each individual.  Rank 0 is the best rank, then rank 1, and so on.  This is O(n) but it has a high constant overhead because it
-        allocates a hashmap and does some autoboxing. */
+    /** Returns the Pareto rank for each individual.  Rank 0 is the best rank, then rank 1, and so on. 
+        This uses an ENSNonDominatedSorter: if you want to choose the sorting algorithm, use
+        NonDominatedSorter.rank(...) instead. */
     public static int[] getRankings(Individual[] inds)
         {
-        int[] r = new int[inds.length];
-        ArrayList ranks = partitionIntoRanks(inds);  // get all the ranks
-        
-        // build a mapping of Individual -> index in inds array
-        HashMap m = new HashMap();
-        for(int i = 0; i < inds.length; i++)
-            m.put(inds[i], Integer.valueOf(i));
-        
-        int numRanks = ranks.size();
-        for(int rank = 0 ; rank < numRanks; rank++)  // for each rank...
-            {
-            ArrayList front = (ArrayList)(ranks.get(rank));
-            int numInds = front.size();
-            for(int ind = 0; ind < numInds; ind++)  // for each individual in that rank ...
-                {
-                // get the index of the individual in the inds array
-                int i = ((Integer)(m.get(front.get(ind)))).intValue();
-                r[i] = rank;  // set the rank in the corresponding ranks array
-                }
-            }
-        return r;
+        return new ENSNonDominatedSorter().rank(inds);
         }
 
 
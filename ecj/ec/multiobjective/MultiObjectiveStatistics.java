@@ -8,11 +8,14 @@ package ec.multiobjective;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.StringTokenizer;
 import ec.EvolutionState;
 import ec.Individual;
 import ec.Subpopulation;
 import ec.multiobjective.MultiObjectiveFitness;
 import ec.simple.SimpleStatistics;
+import ec.steadystate.SteadyStateEvolutionState;
 import ec.util.*;
 import java.io.*;
 
@@ -35,6 +38,24 @@ import java.io.*;
  * Pareto Front file specified with the parameters below.  This file can be easily read by
  * gnuplot or Excel etc. to display the Front (if it's 2D or perhaps 3D).
  * 
+ * 
+ * <p>MultiObjectiveStatistics can also measure the quality of the Pareto Front of each subpopulation
+ * after every evaluation, using QualityIndicators: its hypervolume, and its IGD and IGD+ with respect
+ * to a reference front read from a file (in the same format as the Pareto Front file).  These are computed
+ * by a background thread so as not to hold up the run, and written one line per subpopulation per generation,
+ * in the form <tt><i>generation subpopulation</i> [<i>hypervolume</i>] [<i>IGD IGD+</i>]</tt>,
+ * to the indicators file if there is one, else to the statistics file.  The final values are also written
+ * with the Pareto Fronts at the end of the run.  If the front hasn't changed since the previous generation,
+ * the previous values are reused.
+ *
+ * <p>If the run is steady-state and keeps a ParetoArchive of each subpopulation (see SteadyStateEvolutionState),
+ * the fronts of the archives are reported rather than the fronts of the subpopulations.
+ *
+ * <p>The hypervolume is measured against a reference point, which should be slightly worse than the worst
+ * point you expect on the front.  By default it is the worst bound of each objective: its max if it is
+ * minimized, and its min if it is maximized.  The hypervolume is computed exactly for up to
+ * <tt>max-exact-objectives</tt> objectives, else it is estimated by Monte Carlo sampling.
+ * 
  * <p>
  * <b>Parameters</b><br>
  * <table>
@@ -43,6 +64,36 @@ import java.io.*;
  * <font size=-1>String (a filename)</font></td>
  * <td valign=top>(The Pareto Front file, if any)</td>
  * </tr>
+ * <tr>
+ * <td valign=top><i>base</i>.<tt>hypervolume</tt><br>
+ * <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ * <td valign=top>(Measure the hypervolume of the Pareto Front?)</td>
+ * </tr>
+ * <tr>
+ * <td valign=top><i>base</i>.<tt>hypervolume.reference-point</tt><br>
+ * <font size=-1>String (one number per objective, separated by whitespace)</font></td>
+ * <td valign=top>(The reference point for the hypervolume)</td>
+ * </tr>
+ * <tr>
+ * <td valign=top><i>base</i>.<tt>hypervolume.max-exact-objectives</tt><br>
+ * <font size=-1>int &gt;= 1 (default = 6)</font></td>
+ * <td valign=top>(The largest number of objectives for which the hypervolume is computed exactly)</td>
+ * </tr>
+ * <tr>
+ * <td valign=top><i>base</i>.<tt>hypervolume.samples</tt><br>
+ * <font size=-1>int &gt;= 1 (default = 100000)</font></td>
+ * <td valign=top>(The number of samples for the Monte Carlo estimate of the hypervolume)</td>
+ * </tr>
+ * <tr>
+ * <td valign=top><i>base</i>.<tt>reference-front</tt><br>
+ * <font size=-1>String (a filename)</font></td>
+ * <td valign=top>(The reference front for IGD and IGD+, if any)</td>
+ * </tr>
+ * <tr>
+ * <td valign=top><i>base</i>.<tt>indicators</tt><br>
+ * <font size=-1>String (a filename)</font></td>
+ * <td valign=top>(The file for the quality indicators, if any)</td>
+ * </tr>
  * </table>
  */
 
@@ -52,11 +103,46 @@ public class MultiObjectiveStatistics extends SimpleStatistics
     public static final String P_PARETO_FRONT_FILE = "front";
     public static final String P_SILENT_FRONT_FILE = "silent.front";
         
+    public static final String P_HYPERVOLUME = "hypervolume";
+    public static final String P_REFERENCE_POINT = "reference-point";
+    public static final String P_MAX_EXACT_OBJECTIVES = "max-exact-objectives";
+    public static final String P_SAMPLES = "samples";
+    public static final String P_REFERENCE_FRONT = "reference-front";
+    public static final String P_INDICATORS_FILE = "indicators";
+        
     public boolean silentFront;
 
     /** The pareto front log */
     public int frontLog = 0;  // stdout by default
 
+    /** Should we measure the hypervolume? */
+    public boolean doHypervolume;
+
+    /** The hypervolume reference point, in the objectives' own terms, or null to use the objectives' bounds. */
+    public double[] referencePoint;
+
+    /** The largest number of objectives for which the hypervolume is computed exactly. */
+    public int maxExactObjectives;
+
+    /** The number of samples for Monte Carlo estimates of the hypervolume. */
+    public int samples;
+
+    /** The reference front for IGD and IGD+, in the objectives' own terms, or null. */
+    public double[][] referenceFront;
+
+    /** The quality indicators log */
+    public int indicatorsLog;
+
+    // The front and indicator values last computed for each subpopulation, for reuse
+    double[][][] lastFront;
+    double[][] lastIndicators;
+
+    // The queue of indicator computations waiting for the background thread
+    transient LinkedList<Runnable> indicatorQueue;
+    boolean indicatorThreadRunning;
+    Object indicatorLock = new Object[0];  // arrays are serializable
+    ThreadPool indicatorPool = new ThreadPool();
+
     public void setup(final EvolutionState state, final Parameter base)
         {
         super.setup(state,base);
@@ -83,6 +169,238 @@ public class MultiObjectiveStatistics extends SimpleStatistics
                 }
             }
         else state.output.warning("No Pareto Front statistics file specified, printing to stdout at end.", base.push(P_PARETO_FRONT_FILE));
+
+        // quality indicators
+        doHypervolume = state.parameters.getBoolean(base.push(P_HYPERVOLUME), null, false);
+        Parameter hv = base.push(P_HYPERVOLUME);
+        String ref = state.parameters.getString(hv.push(P_REFERENCE_POINT), null);
+        if (ref != null)
+            {
+            StringTokenizer tok = new StringTokenizer(ref);
+            referencePoint = new double[tok.countTokens()];
+            for(int i = 0; i < referencePoint.length; i++)
+                {
+                try { referencePoint[i] = Double.parseDouble(tok.nextToken()); }
+                catch (NumberFormatException e)
+                    { state.output.fatal("Invalid hypervolume reference point: " + ref, hv.push(P_REFERENCE_POINT)); }
+                }
+            }
+        maxExactObjectives = state.parameters.getIntWithDefault(hv.push(P_MAX_EXACT_OBJECTIVES), null, 6);
+        if (maxExactObjectives < 1)
+            state.output.fatal("The maximum number of objectives for an exact hypervolume must be >= 1.", hv.push(P_MAX_EXACT_OBJECTIVES));
+        samples = state.parameters.getIntWithDefault(hv.push(P_SAMPLES), null, 100000);
+        if (samples < 1)
+            state.output.fatal("The number of hypervolume samples must be >= 1.", hv.push(P_SAMPLES));
+
+        File referenceFrontFile = state.parameters.getFile(base.push(P_REFERENCE_FRONT), null);
+        if (referenceFrontFile != null)
+            {
+            try
+                {
+                referenceFront = QualityIndicators.readFront(referenceFrontFile);
+                }
+            catch (IOException e)
+                {
+                state.output.fatal("An IOException occurred while trying to read the reference front " + referenceFrontFile + ":\n" + e,
+                    base.push(P_REFERENCE_FRONT));
+                }
+            }
+
+        indicatorsLog = statisticslog;
+        File indicatorsFile = state.parameters.getFile(base.push(P_INDICATORS_FILE), null);
+        if (indicatorsFile != null && (doHypervolume || referenceFront != null))
+            {
+            try
+                {
+                indicatorsLog = state.output.addLog(indicatorsFile, !compress, compress);
+                }
+            catch (IOException i)
+                {
+                state.output.fatal("An IOException occurred while trying to create the log " + indicatorsFile + ":\n" + i);
+                }
+            }
+        }
+
+
+    /** Returns the front of the individuals, as a matrix of their distinct nondominated objectives
+        in which smaller values are better. */
+    double[][] front(Individual[] inds)
+        {
+        return QualityIndicators.nondominated(NonDominatedSorter.extractObjectives(inds));
+        }
+
+    /** Returns the individuals whose front is reported for the given subpopulation: the members of its
+        Pareto archive if there is one, else the individuals of the subpopulation. */
+    Individual[] frontIndividuals(EvolutionState state, int subpop)
+        {
+        if (state instanceof SteadyStateEvolutionState)
+            {
+            ParetoArchive[] archives = ((SteadyStateEvolutionState)state).archives;
+            if (archives != null && archives[subpop].size() > 0)
+                return archives[subpop].getIndividuals();
+            }
+        return state.population.subpops[subpop].individuals;
+        }
+
+    /** Returns the hypervolume reference point, in which smaller values are better. */
+    double[] referencePoint(EvolutionState state, MultiObjectiveFitness typicalFitness)
+        {
+        int numObjectives = typicalFitness.getNumObjectives();
+        double[] ref;
+        if (referencePoint != null)
+            {
+            if (referencePoint.length != numObjectives)
+                state.output.fatal("The hypervolume reference point has " + referencePoint.length + 
+                    " values, but there are " + numObjectives + " objectives.");
+            ref = referencePoint.clone();
+            }
+        else
+            {
+            ref = new double[numObjectives];
+            for(int i = 0; i < numObjectives; i++)
+                ref[i] = (typicalFitness.maximize[i] ? typicalFitness.minObjective[i] : typicalFitness.maxObjective[i]);
+            }
+        return QualityIndicators.toMinimization(ref, typicalFitness.maximize);
+        }
+
+    /** Returns the reference front, in which smaller values are better. */
+    double[][] referenceFront(EvolutionState state, MultiObjectiveFitness typicalFitness)
+        {
+        if (referenceFront == null) return null;
+        double[][] front = new double[referenceFront.length][];
+        for(int i = 0; i < front.length; i++)
+            {
+            if (referenceFront[i].length != typicalFitness.getNumObjectives())
+                state.output.fatal("The reference front has points with " + referenceFront[i].length + 
+                    " values, but there are " + typicalFitness.getNumObjectives() + " objectives.");
+            front[i] = QualityIndicators.toMinimization(referenceFront[i].clone(), typicalFitness.maximize);
+            }
+        return front;
+        }
+
+    /** Returns the indicators of the given front of the given subpopulation: the hypervolume, IGD, and IGD+,
+        any of which may be NaN if not being computed.  Reuses the previous values if the front hasn't changed. 
+        The seed is used for Monte Carlo estimates of the hypervolume. */
+    double[] computeIndicators(int subpop, double[][] front, double[] reference, double[][] refFront, long seed)
+        {
+        synchronized(indicatorLock)
+            {
+            if (lastFront != null && subpop < lastFront.length && Arrays.deepEquals(front, lastFront[subpop]))
+                return lastIndicators[subpop];
+            }
+
+        double[] values = new double[] { Double.NaN, Double.NaN, Double.NaN };
+        if (doHypervolume)
+            {
+            if (reference.length <= maxExactObjectives)
+                values[0] = QualityIndicators.hypervolume(front, reference);
+            else values[0] = QualityIndicators.hypervolumeMonteCarlo(front, reference, samples, new MersenneTwisterFast(seed));
+            }
+        if (refFront != null)
+            {
+            values[1] = QualityIndicators.igd(front, refFront);
+            values[2] = QualityIndicators.igdPlus(front, refFront);
+            }
+
+        synchronized(indicatorLock)
+            {
+            if (lastFront == null || subpop >= lastFront.length)
+                {
+                double[][][] f = new double[subpop + 1][][];
+                double[][] v = new double[subpop + 1][];
+                if (lastFront != null)
+                    {
+                    System.arraycopy(lastFront, 0, f, 0, lastFront.length);
+                    System.arraycopy(lastIndicators, 0, v, 0, lastIndicators.length);
+                    }
+                lastFront = f;
+                lastIndicators = v;
+                }
+            lastFront[subpop] = front;
+            lastIndicators[subpop] = values;
+            }
+        return values;
+        }
+
+    /** Measures the fronts of the subpopulations on the background thread, and writes out the results. */
+    public void postEvaluationStatistics(final EvolutionState state)
+        {
+        super.postEvaluationStatistics(state);
+        if (!doHypervolume && referenceFront == null) return;
+        if (indicatorsLog == statisticslog && !doGeneration) return;
+
+        for(int s = 0; s < state.population.subpops.length; s++)
+            {
+            // gather everything now, while the population is stable
+            MultiObjectiveFitness typicalFitness = (MultiObjectiveFitness)(state.population.subpops[s].individuals[0].fitness);
+            final int subpop = s;
+            final int generation = state.generation;
+            final double[][] front = front(frontIndividuals(state, s));
+            final double[] reference = referencePoint(state, typicalFitness);
+            final double[][] refFront = referenceFront(state, typicalFitness);
+            submitIndicatorTask(new Runnable()
+                {
+                public void run()
+                    {
+                    double[] values = computeIndicators(subpop, front, reference, refFront, generation);
+                    state.output.println(generation + " " + subpop + indicatorsToString(values, false), indicatorsLog);
+                    }
+                });
+            }
+        }
+
+    /** Returns the indicators which are being computed as a string, with or without their names. */
+    String indicatorsToString(double[] values, boolean names)
+        {
+        String s = "";
+        if (doHypervolume)
+            s += (names ? "\nHypervolume: " : " ") + values[0];
+        if (referenceFront != null)
+            s += (names ? "\nIGD: " : " ") + values[1] + (names ? "\nIGD+: " : " ") + values[2];
+        return s;
+        }
+
+    void submitIndicatorTask(Runnable task)
+        {
+        synchronized(indicatorLock)
+            {
+            if (indicatorQueue == null) indicatorQueue = new LinkedList<Runnable>();
+            indicatorQueue.add(task);
+            if (indicatorThreadRunning) return;  // it'll get to it
+            indicatorThreadRunning = true;
+            }
+        indicatorPool.start(new Runnable()
+            {
+            public void run()
+                {
+                while(true)
+                    {
+                    Runnable next;
+                    synchronized(indicatorLock)
+                        {
+                        if (indicatorQueue.isEmpty())
+                            {
+                            indicatorThreadRunning = false;
+                            return;
+                            }
+                        next = indicatorQueue.removeFirst();
+                        }
+                    next.run();
+                    }
+                }
+            }, "ECJ Quality Indicators Thread");
+        }
+
+    /** Waits until the background thread has finished measuring all the fronts given to it so far. */
+    public void waitForIndicators()
+        {
+        indicatorPool.joinAll();
+        }
+
+    public void preCheckpointStatistics(final EvolutionState state)
+        {
+        super.preCheckpointStatistics(state);
+        waitForIndicators();  // the queue isn't checkpointed
         }
 
 
@@ -91,6 +409,7 @@ public class MultiObjectiveStatistics extends SimpleStatistics
     public void finalStatistics(final EvolutionState state, final int result)
         {
         bypassFinalStatistics(state, result);  // just call super.super.finalStatistics(...)
+        waitForIndicators();
 
         if (doFinal) state.output.println("\n\n\n PARETO FRONTS", statisticslog);
         for (int s = 0; s < state.population.subpops.length; s++)
@@ -99,7 +418,7 @@ public class MultiObjectiveStatistics extends SimpleStatistics
             if (doFinal) state.output.println("\n\nPareto Front of Subpopulation " + s, statisticslog);
 
             // build front
-            ArrayList front = typicalFitness.partitionIntoParetoFront(state.population.subpops[s].individuals, null, null);
+            ArrayList front = typicalFitness.partitionIntoParetoFront(frontIndividuals(state, s), null, null);
 
             // sort by objective[0]
             Object[] sortedFront = front.toArray();
@@ -122,6 +441,14 @@ public class MultiObjectiveStatistics extends SimpleStatistics
             if (doFinal)
                 for (int i = 0; i < sortedFront.length; i++)
                     ((Individual)(sortedFront[i])).printIndividualForHumans(state, statisticslog);
+
+            // print out the quality of the front
+            if (doFinal && (doHypervolume || referenceFront != null))
+                {
+                double[] values = computeIndicators(s, front(frontIndividuals(state, s)),
+                    referencePoint(state, typicalFitness), referenceFront(state, typicalFitness), state.generation);
+                state.output.println("\nQuality of the Pareto Front of Subpopulation " + s + indicatorsToString(values, true), statisticslog);
+                }
                 
             // write short version of front out to disk
             if (!silentFront)
@@ -0,0 +1,184 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+import ec.*;
+import ec.util.*;
+import java.util.*;
+
+/*
+ * NonDominatedSorter.java
+ */
+
+/**
+ * A NonDominatedSorter divides a set of points in objective space into Pareto front ranks:
+ * rank 0 holds the points which nobody dominates, rank 1 the points dominated only by
+ * points in rank 0, and so on.  This is the core of NSGA-II and of
+ * MultiObjectiveFitness.partitionIntoRanks(...).
+ *
+ * <p>Sorters work on a primitive matrix of objectives, <tt>double[point][objective]</tt>,
+ * in which <b>smaller values are better</b> for every objective.  The matrix is typically
+ * extracted once from the Individuals with extractObjectives(...), which negates
+ * objectives which are maximized, so no MultiObjectiveFitness objects are touched while sorting.
+ * Subclasses implement rank(double[][]), which returns the rank of each point.  Identical
+ * points (which do not dominate one another) always receive the same rank.
+ *
+ * <p>Two sorters are provided.  ENSNonDominatedSorter (the default) is the Efficient
+ * Non-dominated Sort, which is very fast when there are a small number of objectives and
+ * which can use multiple threads.  DivideAndConquerNonDominatedSorter is Jensen's
+ * divide-and-conquer algorithm, which is asymptotically faster,
+ * O(N (log N)<sup>M-1</sup>) for N points and M objectives, and is the better choice for
+ * very large populations with three or more objectives.
+ *
+ * <p><b>Parameters</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>threads</tt><br>
+ * <font size=-1>int &gt;= 1 (default = 1)</font></td>
+ * <td valign=top>(The number of threads the sorter may use.  Sorters which are not multithreaded ignore this.)</td></tr>
+ * </table>
+ *
+ * <p><b>Default Base</b><br>
+ * multi.sorter
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public abstract class NonDominatedSorter implements Setup
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String P_SORTER = "sorter";
+    public static final String P_THREADS = "threads";
+
+    /** The number of threads the sorter may use. */
+    public int numThreads = 1;
+
+    /** Pool for the threads, if any. */
+    public ThreadPool pool = new ThreadPool();
+
+    public Parameter defaultBase()
+        {
+        return MultiObjectiveDefaults.base().push(P_SORTER);
+        }
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        Parameter def = defaultBase();
+        numThreads = state.parameters.getIntWithDefault(base.push(P_THREADS), def.push(P_THREADS), 1);
+        if (numThreads < 1)
+            state.output.fatal("The number of threads must be >= 1.", base.push(P_THREADS), def.push(P_THREADS));
+        }
+
+    /** Loads the NonDominatedSorter specified at <i>base</i>.<tt>sorter</tt> (else <tt>multi.sorter</tt>) and sets
+        it up.  If neither parameter exists, an ENSNonDominatedSorter is returned. */
+    public static NonDominatedSorter loadSorter(final EvolutionState state, final Parameter base)
+        {
+        Parameter p = base.push(P_SORTER);
+        Parameter def = MultiObjectiveDefaults.base().push(P_SORTER);
+        NonDominatedSorter sorter;
+        if (state.parameters.exists(p, def))
+            sorter = (NonDominatedSorter)(state.parameters.getInstanceForParameter(p, def, NonDominatedSorter.class));
+        else
+            sorter = new ENSNonDominatedSorter();
+        sorter.setup(state, p);
+        return sorter;
+        }
+
+    /** Returns the Pareto rank of each point (rank 0 is best).  Each point is an array of
+        objective values in which smaller values are better. */
+    public abstract int[] rank(double[][] points);
+
+    /** Returns the Pareto rank of each individual (rank 0 is best).  The individuals must have MultiObjectiveFitnesses. */
+    public int[] rank(Individual[] inds)
+        {
+        return rank(extractObjectives(inds));
+        }
+
+    /** Divides inds into Pareto front ranks (each an ArrayList), and returns them, in order,
+        stored in an ArrayList.  Within each front, individuals appear in the order they appear in inds. */
+    public ArrayList<ArrayList<Individual>> partitionIntoRanks(Individual[] inds)
+        {
+        ArrayList<ArrayList<Individual>> frontsByRank = new ArrayList<ArrayList<Individual>>();
+        if (inds.length == 0) return frontsByRank;
+        int[] ranks = rank(inds);
+        for(int i = 0; i < inds.length; i++)
+            {
+            while(frontsByRank.size() <= ranks[i])
+                frontsByRank.add(new ArrayList<Individual>());
+            frontsByRank.get(ranks[i]).add(inds[i]);
+            }
+        return frontsByRank;
+        }
+
+    /** Copies the objectives of the given individuals, which must have MultiObjectiveFitnesses,
+        into a new matrix, negating maximized objectives so that smaller values are always better. */
+    public static double[][] extractObjectives(Individual[] inds)
+        {
+        double[][] points = new double[inds.length][];
+        for(int i = 0; i < inds.length; i++)
+            {
+            MultiObjectiveFitness fit = (MultiObjectiveFitness)(inds[i].fitness);
+            double[] obj = fit.getObjectives();
+            double[] point = new double[obj.length];
+            for(int j = 0; j < obj.length; j++)
+                point[j] = (fit.maximize[j] ? -obj[j] : obj[j]);
+            points[i] = point;
+            }
+        return points;
+        }
+
+    /** Returns true if point a Pareto-dominates point b (smaller values being better). */
+    public static boolean dominates(double[] a, double[] b)
+        {
+        boolean better = false;
+        for(int j = 0; j < a.length; j++)
+            {
+            if (a[j] < b[j]) better = true;
+            else if (a[j] > b[j]) return false;
+            }
+        return better;
+        }
+
+    /** Returns the indices of the points sorted lexicographically (by objective 0, then 1, and so on).
+        Identical points appear in the order of their indices. */
+    public static int[] lexicographicOrder(double[][] points)
+        {
+        int n = points.length;
+        int[] order = new int[n];
+        for(int i = 0; i < n; i++)
+            order[i] = i;
+        // A merge sort: populations often have many identical points, which ec.util.QuickSort handles badly
+        int[] temp = new int[n];
+        for(int width = 1; width < n; width *= 2)
+            {
+            for(int lo = 0; lo < n; lo += 2 * width)
+                {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid, k = lo;
+                while(i < mid && j < hi)
+                    temp[k++] = (compareLexicographically(points[order[j]], points[order[i]]) < 0 ? order[j++] : order[i++]);
+                while(i < mid) temp[k++] = order[i++];
+                while(j < hi) temp[k++] = order[j++];
+                }
+            int[] t = order; order = temp; temp = t;
+            }
+        return order;
+        }
+
+    /** Returns -1, 0, or 1 if a is lexicographically less than, equal to, or greater than b. */
+    public static int compareLexicographically(double[] a, double[] b)
+        {
+        for(int j = 0; j < a.length; j++)
+            {
+            if (a[j] < b[j]) return -1;
+            if (a[j] > b[j]) return 1;
+            }
+        return 0;
+        }
+    }
@@ -0,0 +1,707 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+import ec.*;
+import ec.util.*;
+import java.util.*;
+
+/*
+ * ParetoArchive.java
+ */
+
+/**
+ * A ParetoArchive holds the nondominated individuals found so far: an individual is added only if no
+ * member of the archive dominates (or has the same objectives as) it, and adding it removes any members
+ * it dominates.  The archive may be bounded in size, in which case, when it overflows, the member in the
+ * most crowded region of the front is removed, or the member which contributes the least hypervolume.
+ *
+ * <p>The archive is stored in an ND-Tree (A. Jaszkiewicz and T. Lust, "ND-Tree-based update: a Fast
+ * Algorithm for the Dynamic Nondominance Problem", IEEE Transactions on Evolutionary Computation, 2018).
+ * Each node of the tree knows the best (ideal) and worst (nadir) value of each objective among the points
+ * below it.  A new point is compared only against nodes whose bounds show that it might dominate, or be
+ * dominated by, some of their points: a node whose nadir dominates the point rejects it at once, and a node
+ * whose ideal it dominates is discarded whole.  New points are inserted into the nearest leaf, which is split
+ * when it holds too many points.  Insertion and dominance queries thus usually take time sub-linear in the
+ * size of the archive.  Bounding requires a pass over the whole archive, but only happens when an accepted
+ * individual overflows a full archive.  Hypervolume contributions are remembered, and recomputed only for
+ * the members whose contributions an addition or removal may have changed, but they are exact and so still
+ * grow expensive with many objectives.
+ *
+ * <p>Like a Population, a ParetoArchive is not synchronized: SteadyStateEvolutionState, the
+ * ParetoArchiveSelection breeding from it, and MultiObjectiveStatistics all use it from the main thread.
+ * If you share an archive among threads, lock it yourself.  Individuals are not copied when they are added,
+ * so don't modify them afterwards.
+ *
+ * <p>SteadyStateEvolutionState can maintain a ParetoArchive of each subpopulation, to which every evaluated
+ * individual is added.  ParetoArchiveSelection selects parents from it, with select(...), and
+ * MultiObjectiveStatistics reports the archives as the Pareto fronts of the run.
+ *
+ * <p><b>Parameters</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>size</tt><br>
+ * <font size=-1>int &gt;= 0 (default = 0)</font></td>
+ * <td valign=top>(The maximum number of individuals in the archive, or 0 if it is unbounded.)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>bound</tt><br>
+ * <font size=-1>String, one of: <tt>crowding</tt> (default) or <tt>hypervolume</tt></font></td>
+ * <td valign=top>(When the archive overflows, remove the member with the smallest crowding distance, or the one with the smallest hypervolume contribution.)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>reference-point</tt><br>
+ * <font size=-1>String (one number per objective, separated by whitespace)</font></td>
+ * <td valign=top>(The reference point for hypervolume contributions.  By default it is the worst bound of each objective.)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>leaf-size</tt><br>
+ * <font size=-1>int &gt;= 1 (default = 20)</font></td>
+ * <td valign=top>(The largest number of points in a leaf of the tree before it is split.)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>children</tt><br>
+ * <font size=-1>int &gt;= 2, or 0 (default)</font></td>
+ * <td valign=top>(The number of children a leaf is split into, or 0 for one more than the number of objectives.)</td></tr>
+ * </table>
+ *
+ * <p><b>Default Base</b><br>
+ * multi.archive
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class ParetoArchive implements Prototype
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String P_ARCHIVE = "archive";
+    public static final String P_SIZE = "size";
+    public static final String P_BOUND = "bound";
+    public static final String P_REFERENCE_POINT = "reference-point";
+    public static final String P_LEAF_SIZE = "leaf-size";
+    public static final String P_CHILDREN = "children";
+    public static final String V_CROWDING = "crowding";
+    public static final String V_HYPERVOLUME = "hypervolume";
+
+    public static final int BOUND_CROWDING = 0;
+    public static final int BOUND_HYPERVOLUME = 1;
+
+    /** The maximum number of individuals in the archive, or 0 if it is unbounded. */
+    public int maxSize = 0;
+
+    /** How to choose the member to remove when the archive overflows: BOUND_CROWDING or BOUND_HYPERVOLUME. */
+    public int bound = BOUND_CROWDING;
+
+    /** The hypervolume reference point, in the objectives' own terms, or null to use the objectives' bounds. */
+    public double[] referencePoint;
+
+    /** The largest number of points in a leaf before it is split. */
+    public int leafSize = 20;
+
+    /** The number of children a leaf is split into, or 0 for one more than the number of objectives. */
+    public int numChildren = 0;
+
+    Node root;
+    int size;
+
+    // The members and their crowding distances, for select(...), or null if the archive has changed since
+    transient Entry[] selectable;
+    transient double[] crowding;
+
+    /** A member of the archive, with its objectives in minimization form. */
+    static class Entry implements java.io.Serializable
+        {
+        private static final long serialVersionUID = 1;
+        Individual ind;
+        double[] point;
+        double contribution = Double.NaN;  // hypervolume contribution, or NaN if not known
+        Entry(Individual ind, double[] point) { this.ind = ind; this.point = point; }
+        }
+
+    /** A node of the ND-Tree.  Leaves hold entries, other nodes hold children.  The ideal and nadir
+        bound the points below the node, though not always tightly, since they aren't updated on removal. */
+    static class Node implements java.io.Serializable
+        {
+        private static final long serialVersionUID = 1;
+        double[] ideal;
+        double[] nadir;
+        ArrayList<Entry> entries;      // null if not a leaf
+        ArrayList<Node> children;      // null if a leaf
+
+        Node(double[] point)
+            {
+            ideal = point.clone();
+            nadir = point.clone();
+            entries = new ArrayList<Entry>();
+            }
+
+        boolean isLeaf() { return entries != null; }
+
+        boolean isEmpty() { return (isLeaf() ? entries.isEmpty() : children.isEmpty()); }
+
+        /** Extends the bounds to include the point. */
+        void include(double[] point)
+            {
+            for(int j = 0; j < point.length; j++)
+                {
+                if (point[j] < ideal[j]) ideal[j] = point[j];
+                if (point[j] > nadir[j]) nadir[j] = point[j];
+                }
+            }
+
+        /** Returns the squared distance from the point to the middle of the bounds. */
+        double distanceToMidpoint(double[] point)
+            {
+            double d = 0;
+            for(int j = 0; j < point.length; j++)
+                {
+                double diff = point[j] - (ideal[j] + nadir[j]) / 2;
+                d += diff * diff;
+                }
+            return d;
+            }
+
+        /** Adds the entries below the node to the list. */
+        void gather(ArrayList<Entry> list)
+            {
+            if (isLeaf()) list.addAll(entries);
+            else for(int i = 0; i < children.size(); i++)
+                     children.get(i).gather(list);
+            }
+
+        /** If the node has a single child, takes over its contents. */
+        void collapse()
+            {
+            if (!isLeaf() && children.size() == 1)
+                {
+                Node child = children.get(0);
+                entries = child.entries;
+                children = child.children;
+                ideal = child.ideal;
+                nadir = child.nadir;
+                }
+            }
+        }
+
+    public Parameter defaultBase()
+        {
+        return MultiObjectiveDefaults.base().push(P_ARCHIVE);
+        }
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        Parameter def = defaultBase();
+
+        maxSize = state.parameters.getIntWithDefault(base.push(P_SIZE), def.push(P_SIZE), 0);
+        if (maxSize < 0)
+            state.output.fatal("The archive size must be >= 0.", base.push(P_SIZE), def.push(P_SIZE));
+
+        String b = state.parameters.getStringWithDefault(base.push(P_BOUND), def.push(P_BOUND), V_CROWDING);
+        if (b.equalsIgnoreCase(V_CROWDING))
+            bound = BOUND_CROWDING;
+        else if (b.equalsIgnoreCase(V_HYPERVOLUME))
+            bound = BOUND_HYPERVOLUME;
+        else state.output.fatal("The archive bound must be either '" + V_CROWDING + "' or '" + V_HYPERVOLUME + "'.",
+            base.push(P_BOUND), def.push(P_BOUND));
+
+        String ref = state.parameters.getString(base.push(P_REFERENCE_POINT), def.push(P_REFERENCE_POINT));
+        if (ref != null)
+            {
+            StringTokenizer tok = new StringTokenizer(ref);
+            referencePoint = new double[tok.countTokens()];
+            for(int i = 0; i < referencePoint.length; i++)
+                {
+                try { referencePoint[i] = Double.parseDouble(tok.nextToken()); }
+                catch (NumberFormatException e)
+                    { state.output.fatal("Invalid archive reference point: " + ref, base.push(P_REFERENCE_POINT), def.push(P_REFERENCE_POINT)); }
+                }
+            }
+
+        leafSize = state.parameters.getIntWithDefault(base.push(P_LEAF_SIZE), def.push(P_LEAF_SIZE), 20);
+        if (leafSize < 1)
+            state.output.fatal("The archive leaf size must be >= 1.", base.push(P_LEAF_SIZE), def.push(P_LEAF_SIZE));
+
+        numChildren = state.parameters.getIntWithDefault(base.push(P_CHILDREN), def.push(P_CHILDREN), 0);
+        if (numChildren != 0 && numChildren < 2)
+            state.output.fatal("The number of archive children must be >= 2, or 0.", base.push(P_CHILDREN), def.push(P_CHILDREN));
+        }
+
+    /** Returns a copy of the archive, with the same settings and members (which are not themselves copied). */
+    public Object clone()
+        {
+        try
+            {
+            ParetoArchive other = (ParetoArchive)(super.clone());
+            other.root = null;
+            other.size = 0;
+            other.selectable = null;
+            other.crowding = null;
+            ArrayList<Entry> list = entries();
+            for(int i = 0; i < list.size(); i++)
+                {
+                Entry e = list.get(i);
+                other.insert(new Entry(e.ind, e.point));
+                }
+            return other;
+            }
+        catch (CloneNotSupportedException e) { throw new InternalError(); } // never happens
+        }
+
+    /** Removes all the members of the archive. */
+    public void clear()
+        {
+        root = null;
+        size = 0;
+        selectable = null;
+        crowding = null;
+        }
+
+    /** Returns the number of members of the archive. */
+    public int size()
+        {
+        return size;
+        }
+
+    /** Returns the members of the archive. */
+    public Individual[] getIndividuals()
+        {
+        ArrayList<Entry> list = entries();
+        Individual[] inds = new Individual[list.size()];
+        for(int i = 0; i < inds.length; i++)
+            inds[i] = list.get(i).ind;
+        return inds;
+        }
+
+    /** Offers an individual, which must have a MultiObjectiveFitness, to the archive.  It is added unless
+        some member dominates it or has the same objectives, in which case false is returned.  Members which
+        it dominates are removed.  If the archive then overflows, a member is removed to bound it, which may
+        be the individual itself, in which case false is also returned. */
+    public boolean add(Individual ind)
+        {
+        double[] point = toMinimization((MultiObjectiveFitness)(ind.fitness));
+        ArrayList<Entry> changed = new ArrayList<Entry>();
+        if (root != null)
+            {
+            if (!update(root, point, changed)) return false;
+            if (root.isEmpty()) root = null;
+            }
+        selectable = null;
+        crowding = null;
+        Entry entry = new Entry(ind, point);
+        insert(entry);
+        boolean cached = (maxSize > 0 && bound == BOUND_HYPERVOLUME);
+        if (cached)
+            {
+            changed.add(entry);
+            invalidateContributions(changed);
+            }
+        if (maxSize > 0 && size > maxSize)
+            {
+            Entry loser = chooseToRemove((MultiObjectiveFitness)(ind.fitness));
+            remove(root, loser);
+            size--;
+            if (root.isEmpty()) root = null;
+            if (cached)
+                {
+                changed.clear();
+                changed.add(loser);
+                invalidateContributions(changed);
+                }
+            return (loser != entry);
+            }
+        return true;
+        }
+
+    /** Returns true if some member of the archive dominates the individual, which must have a
+        MultiObjectiveFitness, or has the same objectives, that is, if add(...) would reject it. */
+    public boolean isDominated(Individual ind)
+        {
+        return (root != null && covered(root, toMinimization((MultiObjectiveFitness)(ind.fitness))));
+        }
+
+    /** Returns the members of the archive which the individual, which must have a MultiObjectiveFitness, dominates. */
+    public Individual[] getDominatedBy(Individual ind)
+        {
+        ArrayList<Entry> list = new ArrayList<Entry>();
+        if (root != null) dominatedBy(root, toMinimization((MultiObjectiveFitness)(ind.fitness)), list);
+        Individual[] inds = new Individual[list.size()];
+        for(int i = 0; i < inds.length; i++)
+            inds[i] = list.get(i).ind;
+        return inds;
+        }
+
+    /** Returns a member of the archive chosen by a tournament of the given size, in which the members are
+        picked at random and the one in the least crowded region of the front (with the largest crowding
+        distance) wins, or null if the archive is empty.  The crowding distances are computed once and
+        reused until the archive changes. */
+    public Individual select(MersenneTwisterFast random, int tournamentSize)
+        {
+        if (size == 0) return null;
+        if (selectable == null)
+            {
+            ArrayList<Entry> list = entries();
+            selectable = list.toArray(new Entry[list.size()]);
+            double[][] points = new double[selectable.length][];
+            for(int i = 0; i < points.length; i++)
+                points[i] = selectable[i].point;
+            crowding = crowdingDistances(points);
+            }
+        int best = random.nextInt(selectable.length);
+        for(int x = 1; x < tournamentSize; x++)
+            {
+            int j = random.nextInt(selectable.length);
+            if (crowding[j] > crowding[best]) best = j;
+            }
+        return selectable[best].ind;
+        }
+
+    static double[] toMinimization(MultiObjectiveFitness fit)
+        {
+        double[] obj = fit.getObjectives();
+        double[] point = new double[obj.length];
+        for(int j = 0; j < obj.length; j++)
+            point[j] = (fit.maximize[j] ? -obj[j] : obj[j]);
+        return point;
+        }
+
+    /** Returns true if a is less than or equal to b in every objective. */
+    static boolean weaklyDominates(double[] a, double[] b)
+        {
+        for(int j = 0; j < a.length; j++)
+            if (a[j] > b[j]) return false;
+        return true;
+        }
+
+    ArrayList<Entry> entries()
+        {
+        ArrayList<Entry> list = new ArrayList<Entry>();
+        if (root != null) root.gather(list);
+        return list;
+        }
+
+
+    /// THE ND-TREE
+
+    /** Returns false if some point below the node weakly dominates y.  Otherwise removes the points
+        below the node which y dominates, adding them to the removed list, and returns true.  The node may be left empty. */
+    boolean update(Node n, double[] y, ArrayList<Entry> removed)
+        {
+        if (weaklyDominates(n.nadir, y))
+            return false;  // every point below n weakly dominates y
+        if (NonDominatedSorter.dominates(y, n.ideal))
+            {
+            // y dominates every point below n
+            int before = removed.size();
+            n.gather(removed);
+            size -= removed.size() - before;
+            n.entries = new ArrayList<Entry>();
+            n.children = null;
+            return true;
+            }
+        if (weaklyDominates(n.ideal, y) || weaklyDominates(y, n.nadir))
+            {
+            if (n.isLeaf())
+                {
+                for(int i = n.entries.size() - 1; i >= 0; i--)
+                    {
+                    Entry e = n.entries.get(i);
+                    if (weaklyDominates(e.point, y)) return false;
+                    if (NonDominatedSorter.dominates(y, e.point)) { removed.add(n.entries.remove(i)); size--; }
+                    }
+                }
+            else
+                {
+                for(int i = n.children.size() - 1; i >= 0; i--)
+                    {
+                    Node child = n.children.get(i);
+                    if (!update(child, y, removed)) return false;
+                    if (child.isEmpty()) n.children.remove(i);
+                    }
+                n.collapse();
+                }
+            }
+        return true;
+        }
+
+    /** Returns true if some point below the node weakly dominates y. */
+    boolean covered(Node n, double[] y)
+        {
+        if (weaklyDominates(n.nadir, y)) return !n.isEmpty();
+        if (!weaklyDominates(n.ideal, y)) return false;
+        if (n.isLeaf())
+            {
+            for(int i = n.entries.size() - 1; i >= 0; i--)
+                if (weaklyDominates(n.entries.get(i).point, y))
+                    return true;
+            return false;
+            }
+        for(int i = 0; i < n.children.size(); i++)
+            if (covered(n.children.get(i), y))
+                return true;
+        return false;
+        }
+
+    /** Adds to the list the entries below the node which y dominates. */
+    void dominatedBy(Node n, double[] y, ArrayList<Entry> list)
+        {
+        if (!weaklyDominates(y, n.nadir)) return;
+        if (n.isLeaf())
+            {
+            for(int i = 0; i < n.entries.size(); i++)
+                {
+                Entry e = n.entries.get(i);
+                if (NonDominatedSorter.dominates(y, e.point)) list.add(e);
+                }
+            }
+        else for(int i = 0; i < n.children.size(); i++)
+                 dominatedBy(n.children.get(i), y, list);
+        }
+
+    /** Inserts an entry, which no point in the archive dominates, into the tree. */
+    void insert(Entry e)
+        {
+        if (root == null) root = new Node(e.point);
+        Node n = root;
+        while(!n.isLeaf())
+            {
+            n.include(e.point);
+            Node closest = null;
+            double best = Double.POSITIVE_INFINITY;
+            for(int i = 0; i < n.children.size(); i++)
+                {
+                Node child = n.children.get(i);
+                double d = child.distanceToMidpoint(e.point);
+                if (d < best) { best = d; closest = child; }
+                }
+            n = closest;
+            }
+        n.include(e.point);
+        n.entries.add(e);
+        size++;
+        if (n.entries.size() > leafSize)
+            split(n);
+        }
+
+    /** Splits a leaf into children, seeded by points far from one another. */
+    void split(Node n)
+        {
+        ArrayList<Entry> entries = n.entries;
+        int count = entries.size();
+        int c = (numChildren == 0 ? entries.get(0).point.length + 1 : numChildren);
+        if (c > count) c = count;
+        n.entries = null;
+        n.children = new ArrayList<Node>();
+
+        double[][] distance = new double[count][count];
+        for(int i = 0; i < count; i++)
+            for(int k = i + 1; k < count; k++)
+                distance[i][k] = distance[k][i] = Math.sqrt(KDTree.squaredDistance(
+                        entries.get(i).point, entries.get(k).point));
+
+        // the first seed is the point farthest, on average, from the others; each later seed
+        // is the point farthest, on average, from the seeds so far
+        boolean[] used = new boolean[count];
+        int[] seeds = new int[c];
+        for(int s = 0; s < c; s++)
+            {
+            int best = -1;
+            double bestDistance = -1;
+            for(int i = 0; i < count; i++)
+                {
+                if (used[i]) continue;
+                double d = 0;
+                if (s == 0) for(int k = 0; k < count; k++) d += distance[i][k];
+                else for(int k = 0; k < s; k++) d += distance[i][seeds[k]];
+                if (d > bestDistance) { bestDistance = d; best = i; }
+                }
+            used[best] = true;
+            seeds[s] = best;
+            Entry e = entries.get(best);
+            Node child = new Node(e.point);
+            child.entries.add(e);
+            n.children.add(child);
+            }
+
+        // the remaining points go to the nearest child
+        for(int i = 0; i < count; i++)
+            {
+            if (used[i]) continue;
+            Entry e = entries.get(i);
+            Node closest = null;
+            double best = Double.POSITIVE_INFINITY;
+            for(int k = 0; k < c; k++)
+                {
+                Node child = n.children.get(k);
+                double d = child.distanceToMidpoint(e.point);
+                if (d < best) { best = d; closest = child; }
+                }
+            closest.include(e.point);
+            closest.entries.add(e);
+            }
+        }
+
+    /** Removes the entry from below the node, returning true if it was found. */
+    boolean remove(Node n, Entry e)
+        {
+        if (!weaklyDominates(n.ideal, e.point) || !weaklyDominates(e.point, n.nadir))
+            return false;
+        if (n.isLeaf())
+            return n.entries.remove(e);
+        for(int i = 0; i < n.children.size(); i++)
+            {
+            Node child = n.children.get(i);
+            if (remove(child, e))
+                {
+                if (child.isEmpty()) n.children.remove(i);
+                n.collapse();
+                return true;
+                }
+            }
+        return false;
+        }
+
+
+    /// BOUNDING
+
+    /** Returns the member to remove when the archive overflows. */
+    Entry chooseToRemove(MultiObjectiveFitness typicalFitness)
+        {
+        ArrayList<Entry> list = entries();
+        double[][] points = new double[list.size()][];
+        for(int i = 0; i < points.length; i++)
+            points[i] = list.get(i).point;
+
+        double[] values;
+        if (bound == BOUND_HYPERVOLUME)
+            {
+            double[] reference = referencePoint(typicalFitness);
+            values = new double[points.length];
+            double[][] others = new double[points.length - 1][];
+            for(int i = 0; i < points.length; i++)
+                {
+                Entry e = list.get(i);
+                if (e.contribution != e.contribution)  // NaN: not known
+                    {
+                    for(int k = 0, count = 0; k < points.length; k++)
+                        if (k != i) others[count++] = points[k];
+                    e.contribution = QualityIndicators.hypervolumeContribution(e.point, others, reference);
+                    }
+                values[i] = e.contribution;
+                }
+            }
+        else values = crowdingDistances(points);
+
+        int worst = 0;
+        for(int i = 1; i < values.length; i++)
+            if (values[i] < values[worst]) worst = i;
+        return list.get(worst);
+        }
+
+    /** Forgets the hypervolume contributions which may have been changed by the addition or removal of
+        the given entries.  The contribution of a member z changes when an entry c is added or removed only if some
+        of the space dominated by both is dominated by no other member, that is, only if no other member
+        weakly dominates the worse of c and z in each objective.  Usually only c's neighbors qualify. */
+    void invalidateContributions(ArrayList<Entry> changed)
+        {
+        if (root == null) return;
+        ArrayList<Entry> list = entries();
+        for(int i = 0; i < list.size(); i++)
+            {
+            Entry z = list.get(i);
+            if (z.contribution != z.contribution) continue;  // NaN: already not known
+            double[] q = new double[z.point.length];
+            for(int k = 0; k < changed.size(); k++)
+                {
+                Entry c = changed.get(k);
+                if (c == z) continue;
+                for(int j = 0; j < q.length; j++)
+                    q[j] = Math.max(c.point[j], z.point[j]);
+                if (!coveredByOthers(root, q, z, c))
+                    {
+                    z.contribution = Double.NaN;
+                    break;
+                    }
+                }
+            }
+        }
+
+    /** Returns true if some point below the node, other than those of a and b, weakly dominates y. */
+    boolean coveredByOthers(Node n, double[] y, Entry a, Entry b)
+        {
+        if (!weaklyDominates(n.ideal, y)) return false;
+        if (n.isLeaf())
+            {
+            for(int i = n.entries.size() - 1; i >= 0; i--)
+                {
+                Entry e = n.entries.get(i);
+                if (e != a && e != b && weaklyDominates(e.point, y))
+                    return true;
+                }
+            return false;
+            }
+        for(int i = 0; i < n.children.size(); i++)
+            if (coveredByOthers(n.children.get(i), y, a, b))
+                return true;
+        return false;
+        }
+
+    /** Returns the hypervolume reference point, in which smaller values are better. */
+    double[] referencePoint(MultiObjectiveFitness typicalFitness)
+        {
+        int numObjectives = typicalFitness.getNumObjectives();
+        double[] ref = new double[numObjectives];
+        for(int i = 0; i < numObjectives; i++)
+            {
+            if (referencePoint != null && i < referencePoint.length)
+                ref[i] = referencePoint[i];
+            else ref[i] = (typicalFitness.maximize[i] ? typicalFitness.minObjective[i] : typicalFitness.maxObjective[i]);
+            }
+        return QualityIndicators.toMinimization(ref, typicalFitness.maximize);
+        }
+
+    /** Returns the crowding distance of each point, as in NSGA-II: the sum over the objectives of the
+        normalized distance between its neighbors on either side.  The extreme points have infinite distance. */
+    static double[] crowdingDistances(double[][] points)
+        {
+        int n = points.length;
+        double[] distances = new double[n];
+        if (n == 0) return distances;
+        int[] order = new int[n];
+        int[] temp = new int[n];
+        for(int j = 0; j < points[0].length; j++)
+            {
+            for(int i = 0; i < n; i++)
+                order[i] = i;
+            sortByObjective(points, j, order, temp);
+            double min = points[order[0]][j];
+            double max = points[order[n - 1]][j];
+            distances[order[0]] = Double.POSITIVE_INFINITY;
+            distances[order[n - 1]] = Double.POSITIVE_INFINITY;
+            if (max == min) continue;
+            for(int i = 1; i < n - 1; i++)
+                distances[order[i]] += (points[order[i + 1]][j] - points[order[i - 1]][j]) / (max - min);
+            }
+        return distances;
+        }
+
+    /** Stably sorts the indices in order by the given objective of their points, using temp as scratch space. */
+    static void sortByObjective(double[][] points, int objective, int[] order, int[] temp)
+        {
+        int n = order.length;
+        int[] from = order;
+        int[] to = temp;
+        for(int width = 1; width < n; width *= 2)
+            {
+            for(int lo = 0; lo < n; lo += 2 * width)
+                {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid, k = lo;
+                while(i < mid && j < hi)
+                    to[k++] = (points[from[j]][objective] < points[from[i]][objective] ? from[j++] : from[i++]);
+                while(i < mid) to[k++] = from[i++];
+                while(j < hi) to[k++] = from[j++];
+                }
+            int[] t = from; from = to; to = t;
+            }
+        if (from != order)
+            System.arraycopy(from, 0, order, 0, n);
+        }
+    }
@@ -0,0 +1,114 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+import ec.*;
+import ec.util.*;
+import ec.select.*;
+import ec.steadystate.*;
+
+/*
+ * ParetoArchiveSelection.java
+ */
+
+/**
+ * Selects parents from the ParetoArchive which SteadyStateEvolutionState keeps of each subpopulation,
+ * rather than from the subpopulation itself, so that the nondominated individuals found during the run
+ * keep breeding after they have been replaced in the subpopulation.  Each archive member is picked by a
+ * tournament of <i>size</i> random members, won by the one in the least crowded region of the front
+ * (see ParetoArchive.select(...)).  With probability 1 - <i>archive-probability</i>, or if there is no
+ * archive or it is still empty, this instead does an ordinary TournamentSelection from the subpopulation.
+ *
+ * <p>The produce(subpopulation, state, thread) method, which must return an index into the subpopulation,
+ * always does an ordinary TournamentSelection.
+
+ <p><b>Typical Number of Individuals Produced Per <tt>produce(...)</tt> call</b><br>
+ Always 1.
+
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base.</i><tt>archive-probability</tt><br>
+ <font size=-1>0.0 &lt;= double &lt;= 1.0 (default = 1.0)</font></td>
+ <td valign=top>(the probability of selecting from the archive rather than from the subpopulation)</td></tr>
+ </table>
+
+ <p>The other parameters are those of TournamentSelection.
+
+ <p><b>Default Base</b><br>
+ multi.archive-select
+
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class ParetoArchiveSelection extends TournamentSelection
+    {
+    private static final long serialVersionUID = 1;
+
+    /** default base */
+    public static final String P_ARCHIVE_SELECT = "archive-select";
+    public static final String P_ARCHIVE_PROBABILITY = "archive-probability";
+
+    /** The probability of selecting from the archive rather than from the subpopulation. */
+    public double archiveProbability;
+
+    public Parameter defaultBase()
+        {
+        return MultiObjectiveDefaults.base().push(P_ARCHIVE_SELECT);
+        }
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state,base);
+
+        Parameter def = defaultBase();
+        archiveProbability = state.parameters.getDoubleWithMax(base.push(P_ARCHIVE_PROBABILITY),
+            def.push(P_ARCHIVE_PROBABILITY), 0.0, 1.0);
+        if (archiveProbability < 0.0)
+            {
+            if (state.parameters.exists(base.push(P_ARCHIVE_PROBABILITY), def.push(P_ARCHIVE_PROBABILITY)))
+                state.output.fatal("The archive probability must be between 0.0 and 1.0 inclusive.",
+                    base.push(P_ARCHIVE_PROBABILITY), def.push(P_ARCHIVE_PROBABILITY));
+            archiveProbability = 1.0;
+            }
+        }
+
+    /** Returns the archive of the given subpopulation, or null if there isn't one. */
+    public ParetoArchive getArchive(final EvolutionState state, final int subpopulation)
+        {
+        if (!(state instanceof SteadyStateEvolutionState)) return null;
+        ParetoArchive[] archives = ((SteadyStateEvolutionState)state).archives;
+        return (archives == null ? null : archives[subpopulation]);
+        }
+
+    public int produce(final int min,
+        final int max,
+        final int start,
+        final int subpopulation,
+        final Individual[] inds,
+        final EvolutionState state,
+        final int thread)
+        {
+        int n=INDS_PRODUCED;
+        if (n<min) n = min;
+        if (n>max) n = max;
+
+        ParetoArchive archive = getArchive(state, subpopulation);
+        MersenneTwisterFast random = state.random[thread];
+        for(int q=0;q<n;q++)
+            {
+            Individual ind = null;
+            if (archive != null && archive.size() > 0 && random.nextBoolean(archiveProbability))
+                ind = archive.select(random, getTournamentSizeToUse(random));
+            if (ind == null)
+                ind = state.population.subpops[subpopulation].individuals[produce(subpopulation,state,thread)];
+            inds[start+q] = ind;
+            }
+        return n;
+        }
+    }
@@ -0,0 +1,421 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+import ec.util.*;
+import java.io.*;
+import java.util.*;
+
+/*
+ * QualityIndicators.java
+ */
+
+/**
+ * QualityIndicators is a library of static methods which measure the quality of a Pareto front:
+ * its hypervolume (exactly, or approximately by Monte Carlo sampling), and its Inverted Generational
+ * Distance (IGD) and IGD+ with respect to a reference front.  MultiObjectiveStatistics uses these to
+ * report the progress of a run.
+ *
+ * <p>Like NonDominatedSorter, these methods work on primitive matrices of objectives,
+ * <tt>double[point][objective]</tt>, in which <b>smaller values are better</b>.  Use
+ * NonDominatedSorter.extractObjectives(...) to get such a matrix from Individuals, and
+ * toMinimization(...) to convert other points (such as a reference point or a reference front).
+ *
+ * <p>The exact hypervolume is computed with the WFG algorithm of While, Bradstreet, and Barone
+ * ("A Fast Way of Calculating Exact Hypervolumes", IEEE Transactions on Evolutionary Computation, 2012),
+ * with a sweep for two objectives.  Its cost grows exponentially with the number of objectives, so
+ * for many objectives use the Monte Carlo estimate instead.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class QualityIndicators
+    {
+    private QualityIndicators() { }
+
+    /** Negates, in place, the objectives of each point which are maximized, so that smaller
+        values are better, and returns the points. */
+    public static double[][] toMinimization(double[][] points, boolean[] maximize)
+        {
+        for(int i = 0; i < points.length; i++)
+            toMinimization(points[i], maximize);
+        return points;
+        }
+
+    /** Negates, in place, the objectives of the point which are maximized, so that smaller
+        values are better, and returns the point. */
+    public static double[] toMinimization(double[] point, boolean[] maximize)
+        {
+        for(int j = 0; j < point.length; j++)
+            if (maximize[j]) point[j] = -point[j];
+        return point;
+        }
+
+    /** Returns the points which are not dominated by any other point.  Identical points are kept only once. */
+    public static double[][] nondominated(double[][] points)
+        {
+        int[] ranks = new ENSNonDominatedSorter().rank(points);
+        int[] order = NonDominatedSorter.lexicographicOrder(points);
+        ArrayList<double[]> front = new ArrayList<double[]>();
+        double[] last = null;
+        for(int i = 0; i < order.length; i++)
+            {
+            double[] point = points[order[i]];
+            if (ranks[order[i]] != 0) continue;
+            if (last != null && NonDominatedSorter.compareLexicographically(last, point) == 0) continue;
+            front.add(point);
+            last = point;
+            }
+        return front.toArray(new double[front.size()][]);
+        }
+
+
+    /// HYPERVOLUME
+
+    /** Returns the exact hypervolume dominated by the points and bounded by the reference point.
+        Points which do not strictly dominate the reference point contribute nothing. */
+    public static double hypervolume(double[][] points, double[] reference)
+        {
+        // translate so that the reference point is the origin and larger is better:
+        // each point then stands for the box from the origin to it
+        ArrayList<double[]> boxes = new ArrayList<double[]>();
+        for(int i = 0; i < points.length; i++)
+            {
+            double[] box = new double[reference.length];
+            boolean inside = true;
+            for(int j = 0; j < reference.length; j++)
+                {
+                box[j] = reference[j] - points[i][j];
+                if (box[j] <= 0) { inside = false; break; }
+                }
+            if (inside) boxes.add(box);
+            }
+        double[][] b = boxes.toArray(new double[boxes.size()][]);
+        return wfg(nondominatedBoxes(b, reference.length), reference.length);
+        }
+
+    /** The WFG algorithm: the hypervolume is the sum of each box's volume not covered by the boxes after it. */
+    static double wfg(double[][] boxes, int dims)
+        {
+        int n = boxes.length;
+        if (n == 0) return 0;
+        if (n == 1) return volume(boxes[0], dims);
+        if (dims == 1)
+            {
+            double max = 0;
+            for(int i = 0; i < n; i++)
+                if (boxes[i][0] > max) max = boxes[i][0];
+            return max;
+            }
+        if (dims == 2) return area(boxes);
+
+        // sort by the last dimension, largest first, so that later limit sets are small
+        sortDescending(boxes, dims - 1);
+        double total = 0;
+        for(int k = 0; k < n; k++)
+            {
+            double[] box = boxes[k];
+            double[][] limit = new double[n - k - 1][dims];
+            for(int i = k + 1; i < n; i++)
+                {
+                double[] other = boxes[i];
+                double[] l = limit[i - k - 1];
+                for(int j = 0; j < dims; j++)
+                    l[j] = Math.min(box[j], other[j]);
+                }
+            total += volume(box, dims) - wfg(nondominatedBoxes(limit, dims), dims);
+            }
+        return total;
+        }
+
+    static double volume(double[] box, int dims)
+        {
+        double v = 1;
+        for(int j = 0; j < dims; j++)
+            v *= box[j];
+        return v;
+        }
+
+    /** The area covered by two-dimensional boxes. */
+    static double area(double[][] boxes)
+        {
+        sortDescending(boxes, 0);
+        double area = 0;
+        double height = 0;
+        for(int i = 0; i < boxes.length; i++)
+            if (boxes[i][1] > height)
+                {
+                area += boxes[i][0] * (boxes[i][1] - height);
+                height = boxes[i][1];
+                }
+        return area;
+        }
+
+    static void sortDescending(double[][] boxes, final int dim)
+        {
+        Arrays.sort(boxes, new Comparator<double[]>()
+            {
+            public int compare(double[] a, double[] b) { return Double.compare(b[dim], a[dim]); }
+            });
+        }
+
+    /** Returns the boxes not contained in other boxes (larger being better), in the first dims dimensions. */
+    static double[][] nondominatedBoxes(double[][] boxes, int dims)
+        {
+        int n = boxes.length;
+        if (n < 2) return boxes;
+        boolean[] dominated = new boolean[n];
+        int count = n;
+        for(int i = 0; i < n; i++)
+            {
+            if (dominated[i]) continue;
+            for(int k = i + 1; k < n; k++)
+                {
+                if (dominated[k]) continue;
+                int c = compareBoxes(boxes[i], boxes[k], dims);
+                if (c == 1 || c == 0) { dominated[k] = true; count--; }       // i contains k (or they're identical)
+                else if (c == -1) { dominated[i] = true; count--; break; }
+                }
+            }
+        double[][] result = new double[count][];
+        count = 0;
+        for(int i = 0; i < n; i++)
+            if (!dominated[i]) result[count++] = boxes[i];
+        return result;
+        }
+
+    /** Returns 1 if box a contains b, -1 if b contains a, 0 if they are identical, and 2 if neither contains the other. */
+    static int compareBoxes(double[] a, double[] b, int dims)
+        {
+        boolean aBigger = false;
+        boolean bBigger = false;
+        for(int j = 0; j < dims; j++)
+            {
+            if (a[j] > b[j]) aBigger = true;
+            else if (a[j] < b[j]) bBigger = true;
+            if (aBigger && bBigger) return 2;
+            }
+        return (aBigger ? 1 : (bBigger ? -1 : 0));
+        }
+
+    /** Returns the exclusive hypervolume contribution of each point: the hypervolume dominated by it and by
+        no other point, bounded by the reference point.  The points must be distinct and not dominate one another.
+        Points which do not strictly dominate the reference point contribute nothing. */
+    public static double[] hypervolumeContributions(double[][] points, double[] reference)
+        {
+        int n = points.length;
+        int dims = reference.length;
+        double[] contributions = new double[n];
+        double[][] boxes = new double[n][];
+        int numBoxes = 0;
+        for(int i = 0; i < n; i++)
+            {
+            double[] box = new double[dims];
+            boolean inside = true;
+            for(int j = 0; j < dims; j++)
+                {
+                box[j] = reference[j] - points[i][j];
+                if (box[j] <= 0) { inside = false; break; }
+                }
+            if (inside) { boxes[i] = box; numBoxes++; }
+            }
+
+        if (dims == 2)
+            {
+            // sorted by the first dimension, largest first, the second dimension is increasing
+            Integer[] order = new Integer[numBoxes];
+            numBoxes = 0;
+            for(int i = 0; i < n; i++)
+                if (boxes[i] != null) order[numBoxes++] = Integer.valueOf(i);
+            final double[][] b = boxes;
+            Arrays.sort(order, new Comparator<Integer>()
+                {
+                public int compare(Integer x, Integer y) { return Double.compare(b[y.intValue()][0], b[x.intValue()][0]); }
+                });
+            for(int k = 0; k < numBoxes; k++)
+                {
+                double[] box = boxes[order[k].intValue()];
+                double width = box[0] - (k + 1 < numBoxes ? boxes[order[k + 1].intValue()][0] : 0);
+                double height = box[1] - (k > 0 ? boxes[order[k - 1].intValue()][1] : 0);
+                contributions[order[k].intValue()] = width * height;
+                }
+            return contributions;
+            }
+
+        for(int i = 0; i < n; i++)
+            {
+            if (boxes[i] == null) continue;
+            double[][] others = new double[n - 1][];
+            for(int k = 0, count = 0; k < n; k++)
+                if (k != i) others[count++] = points[k];
+            contributions[i] = hypervolumeContribution(points[i], others, reference);
+            }
+        return contributions;
+        }
+
+    /** Returns the exclusive hypervolume contribution of a point: the hypervolume dominated by it and by
+        none of the other points, bounded by the reference point.  The other points must not include the point. */
+    public static double hypervolumeContribution(double[] point, double[][] others, double[] reference)
+        {
+        int dims = reference.length;
+        double[] box = new double[dims];
+        for(int j = 0; j < dims; j++)
+            {
+            box[j] = reference[j] - point[j];
+            if (box[j] <= 0) return 0;
+            }
+        ArrayList<double[]> limit = new ArrayList<double[]>();
+        for(int k = 0; k < others.length; k++)
+            {
+            double[] l = new double[dims];
+            boolean inside = true;
+            for(int j = 0; j < dims; j++)
+                {
+                l[j] = Math.min(box[j], reference[j] - others[k][j]);
+                if (l[j] <= 0) { inside = false; break; }
+                }
+            if (inside) limit.add(l);
+            }
+        double[][] b = limit.toArray(new double[limit.size()][]);
+        return volume(box, dims) - wfg(nondominatedBoxes(b, dims), dims);
+        }
+
+    /** Returns a Monte Carlo estimate of the hypervolume dominated by the points and bounded by the
+        reference point, using the given number of samples drawn uniformly from the box between the
+        best value of each objective and the reference point. */
+    public static double hypervolumeMonteCarlo(double[][] points, double[] reference, int samples, MersenneTwisterFast random)
+        {
+        int dims = reference.length;
+        double[][] front = nondominated(points);
+        ArrayList<double[]> inside = new ArrayList<double[]>();
+        for(int i = 0; i < front.length; i++)
+            {
+            boolean in = true;
+            for(int j = 0; j < dims; j++)
+                if (front[i][j] >= reference[j]) { in = false; break; }
+            if (in) inside.add(front[i]);
+            }
+        if (inside.size() == 0 || samples <= 0) return 0;
+        front = inside.toArray(new double[inside.size()][]);
+
+        double[] lower = reference.clone();
+        for(int i = 0; i < front.length; i++)
+            for(int j = 0; j < dims; j++)
+                if (front[i][j] < lower[j]) lower[j] = front[i][j];
+        double boxVolume = 1;
+        for(int j = 0; j < dims; j++)
+            boxVolume *= reference[j] - lower[j];
+
+        double[] sample = new double[dims];
+        int hits = 0;
+        for(int s = 0; s < samples; s++)
+            {
+            for(int j = 0; j < dims; j++)
+                sample[j] = lower[j] + random.nextDouble() * (reference[j] - lower[j]);
+            for(int i = 0; i < front.length; i++)
+                if (weaklyDominates(front[i], sample))
+                    { hits++; break; }
+            }
+        return boxVolume * hits / (double)samples;
+        }
+
+    static boolean weaklyDominates(double[] a, double[] b)
+        {
+        for(int j = 0; j < a.length; j++)
+            if (a[j] > b[j]) return false;
+        return true;
+        }
+
+
+    /// IGD AND IGD+
+
+    /** Returns the Inverted Generational Distance of the front with respect to the reference front:
+        the mean, over the reference points, of the Euclidean distance to the nearest point in the front. */
+    public static double igd(double[][] front, double[][] referenceFront)
+        {
+        if (referenceFront.length == 0) return 0;
+        if (front.length == 0) return Double.POSITIVE_INFINITY;
+        KDTree tree = new KDTree(front);
+        double sum = 0;
+        for(int i = 0; i < referenceFront.length; i++)
+            sum += Math.sqrt(tree.kthNearestSquaredDistance(referenceFront[i], 1));
+        return sum / referenceFront.length;
+        }
+
+    /** Returns the IGD+ of the front with respect to the reference front (Ishibuchi et al., EMO 2015): like IGD,
+        except that only the amounts by which a point in the front is worse than a reference point count
+        towards the distance between them.  Unlike IGD, IGD+ is weakly Pareto compliant. */
+    public static double igdPlus(double[][] front, double[][] referenceFront)
+        {
+        if (referenceFront.length == 0) return 0;
+        if (front.length == 0) return Double.POSITIVE_INFINITY;
+        double sum = 0;
+        for(int i = 0; i < referenceFront.length; i++)
+            {
+            double[] z = referenceFront[i];
+            double best = Double.POSITIVE_INFINITY;
+            for(int k = 0; k < front.length; k++)
+                {
+                double[] a = front[k];
+                double d = 0;
+                for(int j = 0; j < z.length && d < best; j++)
+                    {
+                    double diff = a[j] - z[j];
+                    if (diff > 0) d += diff * diff;
+                    }
+                if (d < best) best = d;
+                }
+            sum += Math.sqrt(best);
+            }
+        return sum / referenceFront.length;
+        }
+
+
+    /// READING FRONTS
+
+    /** Reads a front, one point per line, with objective values separated by whitespace: the format
+        MultiObjectiveStatistics writes its front file in.  Blank lines and lines starting with # are ignored. */
+    public static double[][] readFront(File file) throws IOException
+        {
+        return readFront(new FileReader(file));
+        }
+
+    /** Reads a front, one point per line, with objective values separated by whitespace.
+        Blank lines and lines starting with # are ignored.  Closes the reader. */
+    public static double[][] readFront(Reader reader) throws IOException
+        {
+        ArrayList<double[]> points = new ArrayList<double[]>();
+        BufferedReader r = new BufferedReader(reader);
+        try
+            {
+            String line;
+            int numObjectives = -1;
+            while((line = r.readLine()) != null)
+                {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) continue;
+                StringTokenizer tok = new StringTokenizer(line);
+                double[] point = new double[tok.countTokens()];
+                for(int j = 0; j < point.length; j++)
+                    {
+                    try { point[j] = Double.parseDouble(tok.nextToken()); }
+                    catch (NumberFormatException e) { throw new IOException("Bad number in front line: " + line); }
+                    }
+                if (numObjectives == -1) numObjectives = point.length;
+                else if (point.length != numObjectives)
+                    throw new IOException("Front line has " + point.length + " values rather than " + numObjectives + ": " + line);
+                points.add(point);
+                }
+            }
+        finally
+            {
+            r.close();
+            }
+        return points.toArray(new double[points.size()][]);
+        }
+    }
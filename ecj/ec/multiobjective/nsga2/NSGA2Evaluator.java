@@ -36,6 +36,22 @@ import ec.util.*;
  * declaration.  However it will adhere to the 'reevaluate-elites' parameter in SimpleBreeder
  * to determine whether to force fitness reevaluation.
  *
+ * <p>The front ranks are computed by a NonDominatedSorter, by default an ENSNonDominatedSorter.
+ * For very large populations with three or more objectives, consider a DivideAndConquerNonDominatedSorter,
+ * or give the sorter several threads.
+ *
+ * <p><b>Parameters</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>sorter</tt><br>
+ * <font size=-1>classname, inherits and != ec.multiobjective.NonDominatedSorter (default = ec.multiobjective.ENSNonDominatedSorter)</font></td>
+ * <td valign=top>(The algorithm used to divide the population into front ranks)</td></tr>
+ * </table>
+ *
+ * <p><b>Parameter bases</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>sorter</tt></td>
+ * <td>sorter (default base: multi.sorter)</td></tr>
+ * </table>
  */
  
 public class NSGA2Evaluator extends SimpleEvaluator
@@ -45,10 +61,15 @@ public class NSGA2Evaluator extends SimpleEvaluator
         population larger to include the children. */
     public int originalPopSize[];
 
+    /** The algorithm which divides the population into front ranks. */
+    public NonDominatedSorter sorter;
+
     public void setup(final EvolutionState state, final Parameter base)
         {
         super.setup(state, base);
 
+        sorter = NonDominatedSorter.loadSorter(state, base);
+
         Parameter p = new Parameter(Initializer.P_POP);
         int subpopsLength = state.parameters.getInt(p.push(Population.P_SIZE), null, 1);
         Parameter p_subpop;
@@ -140,7 +161,7 @@ public class NSGA2Evaluator extends SimpleEvaluator
     public ArrayList assignFrontRanks(Subpopulation subpop)
         {
         Individual[] inds = subpop.individuals;
-        ArrayList frontsByRank = MultiObjectiveFitness.partitionIntoRanks(inds);
+        ArrayList frontsByRank = sorter.partitionIntoRanks(inds);
 
         int numRanks = frontsByRank.size();
         for(int rank = 0; rank < numRanks; rank++)
@@ -0,0 +1,31 @@
+/*
+  Copyright 2015 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+package ec.multiobjective.nsga3;
+
+import ec.multiobjective.nsga2.*;
+
+/* 
+ * NSGA3Breeder.java
+ */
+
+/**
+ * NSGA-III breeds just as NSGA-II does: this NSGA2Breeder subclass breeds a set of children from the Population,
+ * then joins the original Population with the children in a (mu+mu) fashion, and NSGA3Evaluator reduces
+ * them to the next archive.  An NSGA3Breeder may have multiple threads for breeding.
+ *
+ * <p>NSGA-III has fixed archive size (the population size), and so ignores the 'elites'
+ * declaration.  However it will adhere to the 'reevaluate-elites' parameter in SimpleBreeder
+ * to determine whether to force fitness reevaluation.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class NSGA3Breeder extends NSGA2Breeder
+    {
+    private static final long serialVersionUID = 1;
+    }
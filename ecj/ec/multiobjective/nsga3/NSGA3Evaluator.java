@@ -0,0 +1,506 @@
+/*
+  Copyright 2015 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+package ec.multiobjective.nsga3;
+
+import java.util.*;
+import ec.*;
+import ec.multiobjective.*;
+import ec.simple.*;
+import ec.util.*;
+
+/*
+ * NSGA3Evaluator.java
+ */
+
+
+/**
+ * The NSGA3Evaluator is a simple generational evaluator which
+ * evaluates every single member of the population (in a multithreaded fashion).
+ * Then, like NSGA2Evaluator, it reduces the population to an <i>archive</i> consisting of the
+ * best front ranks.  But when there isn't enough space to fit another front rank, individuals
+ * in that final front rank vie for the remaining slots not by their sparsity, which discriminates
+ * poorly among individuals when there are more than three objectives, but by <i>reference-point niching</i>
+ * (K. Deb and H. Jain, "An Evolutionary Many-Objective Optimization Algorithm Using Reference-point Based
+ * Non-dominated Sorting Approach, Part I", IEEE Transactions on Evolutionary Computation, 2014).
+ *
+ * <p>A set of reference points is spread evenly over the unit simplex, by the method of Das and Dennis,
+ * when the evaluator first sees a subpopulation.  Each generation, the objectives of the individuals in the
+ * ranks which are being considered for the archive are copied into a primitive matrix and normalized:
+ * they are translated so that the best value of each objective is 0, then divided by the intercepts with
+ * the axes of the hyperplane through the extreme individuals of each objective.  Each individual is then
+ * associated with the reference point whose line (from the origin) is perpendicularly closest to it.  The
+ * slots left in the archive go, one at a time, to individuals of the final rank associated with the
+ * reference point which has the fewest individuals in the archive so far: the closest individual to its
+ * line if it has none, else a random one.  This keeps the archive spread along the whole front.
+ *
+ * <p>The evaluator is also responsible for calculating the rank, niche, and niche distance values stored
+ * in the NSGA3MultiObjectiveFitness class and used largely for statistical information.
+ *
+ * <p>The number of reference points with <i>p</i> divisions of each objective and <i>M</i> objectives is
+ * (<i>M</i> + <i>p</i> - 1) choose <i>p</i>.  By default <i>p</i> is the largest value which yields
+ * no more reference points than the population size.  With many objectives this leaves few divisions,
+ * and all the reference points lie on the boundary of the simplex; so you may instead specify a second,
+ * inner layer of reference points, shrunk halfway towards the center of the simplex.
+ *
+ * <p>NSGA-III has fixed archive size (the population size), and so ignores the 'elites'
+ * declaration.  However it will adhere to the 'reevaluate-elites' parameter in SimpleBreeder
+ * to determine whether to force fitness reevaluation.
+ *
+ * <p>The front ranks are computed by a NonDominatedSorter, by default an ENSNonDominatedSorter.
+ *
+ * <p><b>Parameters</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>divisions</tt><br>
+ * <font size=-1>int &gt;= 1, or 0 (default)</font></td>
+ * <td valign=top>(The number of divisions of each objective for the reference points, or 0 to choose it from the population size)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>inner-divisions</tt><br>
+ * <font size=-1>int &gt;= 0 (default = 0)</font></td>
+ * <td valign=top>(The number of divisions for an inner layer of reference points, or 0 for no inner layer)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>sorter</tt><br>
+ * <font size=-1>classname, inherits and != ec.multiobjective.NonDominatedSorter (default = ec.multiobjective.ENSNonDominatedSorter)</font></td>
+ * <td valign=top>(The algorithm used to divide the population into front ranks)</td></tr>
+ * </table>
+ *
+ * <p><b>Parameter bases</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>sorter</tt></td>
+ * <td>sorter (default base: multi.sorter)</td></tr>
+ * </table>
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class NSGA3Evaluator extends SimpleEvaluator
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String P_DIVISIONS = "divisions";
+    public static final String P_INNER_DIVISIONS = "inner-divisions";
+
+    /** Objective values smaller than this are treated as zero when normalizing. */
+    public static final double EPSILON = 1e-10;
+
+    /** The original population size is stored here so NSGA3 knows how large to create the archive
+        (it's the size of the original population -- keep in mind that NSGA3Breeder had made the
+        population larger to include the children. */
+    public int originalPopSize[];
+
+    /** The algorithm which divides the population into front ranks. */
+    public NonDominatedSorter sorter;
+
+    /** The number of divisions of each objective for the reference points, or 0 to choose it from the population size. */
+    public int divisions;
+
+    /** The number of divisions for an inner layer of reference points, or 0 for no inner layer. */
+    public int innerDivisions;
+
+    /** The reference points of each subpopulation, each on the unit simplex, or null if they have not been built yet. */
+    public double[][][] referencePoints;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+
+        sorter = NonDominatedSorter.loadSorter(state, base);
+
+        divisions = state.parameters.getIntWithDefault(base.push(P_DIVISIONS), null, 0);
+        if (divisions < 0)
+            state.output.fatal("The number of divisions must be >= 0.", base.push(P_DIVISIONS));
+        innerDivisions = state.parameters.getIntWithDefault(base.push(P_INNER_DIVISIONS), null, 0);
+        if (innerDivisions < 0)
+            state.output.fatal("The number of inner divisions must be >= 0.", base.push(P_INNER_DIVISIONS));
+
+        Parameter p = new Parameter(Initializer.P_POP);
+        int subpopsLength = state.parameters.getInt(p.push(Population.P_SIZE), null, 1);
+        Parameter p_subpop;
+        originalPopSize = new int[subpopsLength];
+        for (int i = 0; i < subpopsLength; i++)
+            {
+            p_subpop = p.push(Population.P_SUBPOP).push("" + i).push(Subpopulation.P_SUBPOPSIZE);
+            originalPopSize[i] = state.parameters.getInt(p_subpop, null, 1);
+            }
+        referencePoints = new double[subpopsLength][][];
+        }
+
+
+    /**
+     * Evaluates the population, then builds the archive and reduces the population to just the archive.
+     */
+    public void evaluatePopulation(final EvolutionState state)
+        {
+        super.evaluatePopulation(state);
+        for (int x = 0; x < state.population.subpops.length; x++)
+            state.population.subpops[x].individuals =
+                buildArchive(state, x);
+        }
+
+
+    /** Build the auxiliary fitness data and reduce the subpopulation to just the archive, which is
+        returned. */
+    public Individual[] buildArchive(EvolutionState state, int subpop)
+        {
+        Individual[] inds = state.population.subpops[subpop].individuals;
+        int archiveSize = Math.min(originalPopSize[subpop], inds.length);
+        double[][] points = NonDominatedSorter.extractObjectives(inds);
+        int[] ranks = sorter.rank(points);
+        for(int i = 0; i < inds.length; i++)
+            {
+            NSGA3MultiObjectiveFitness fit = (NSGA3MultiObjectiveFitness)(inds[i].fitness);
+            fit.rank = ranks[i];
+            fit.niche = -1;
+            fit.nicheDistance = 0;
+            }
+
+        // find the last rank, which may not fit in the archive entirely
+        int numRanks = 0;
+        for(int i = 0; i < ranks.length; i++)
+            if (ranks[i] >= numRanks) numRanks = ranks[i] + 1;
+        int[] rankSizes = new int[numRanks];
+        for(int i = 0; i < ranks.length; i++)
+            rankSizes[ranks[i]]++;
+        int lastRank = 0;
+        int count = rankSizes[0];
+        while(count < archiveSize)
+            count += rankSizes[++lastRank];
+
+        // the candidates are the individuals in the last rank and the ranks before it
+        int numCandidates = 0;
+        for(int i = 0; i < ranks.length; i++)
+            if (ranks[i] <= lastRank) numCandidates++;
+        int[] candidates = new int[numCandidates];
+        double[][] candidatePoints = new double[numCandidates][];
+        numCandidates = 0;
+        for(int i = 0; i < ranks.length; i++)
+            if (ranks[i] <= lastRank)
+                {
+                candidates[numCandidates] = i;
+                candidatePoints[numCandidates] = points[i];
+                numCandidates++;
+                }
+
+        // normalize and associate the candidates with reference points
+        if (referencePoints[subpop] == null)
+            referencePoints[subpop] = buildReferencePoints(state, points[0].length, archiveSize, subpop);
+        double[][] refs = referencePoints[subpop];
+        boolean[] firstRank = new boolean[numCandidates];
+        for(int i = 0; i < numCandidates; i++)
+            firstRank[i] = (ranks[candidates[i]] == 0);
+        double[][] normalized = normalize(candidatePoints, firstRank);
+        int[] niche = new int[numCandidates];
+        double[] distance = new double[numCandidates];
+        associate(normalized, refs, niche, distance);
+        for(int i = 0; i < numCandidates; i++)
+            {
+            NSGA3MultiObjectiveFitness fit = (NSGA3MultiObjectiveFitness)(inds[candidates[i]].fitness);
+            fit.niche = niche[i];
+            fit.nicheDistance = distance[i];
+            }
+
+        // fill the archive: everyone in the ranks before the last, then niching in the last
+        Individual[] archive = new Individual[archiveSize];
+        int size = 0;
+        int[] nicheCount = new int[refs.length];
+        for(int i = 0; i < numCandidates; i++)
+            if (ranks[candidates[i]] < lastRank || count == archiveSize)
+                {
+                archive[size++] = inds[candidates[i]];
+                nicheCount[niche[i]]++;
+                }
+        if (size < archiveSize)
+            {
+            int[] chosen = selectByNiche(state, candidates, ranks, lastRank, niche, distance, nicheCount, archiveSize - size);
+            for(int i = 0; i < chosen.length; i++)
+                archive[size++] = inds[chosen[i]];
+            }
+
+        // maybe force reevaluation
+        SimpleBreeder breeder = (SimpleBreeder)(state.breeder);
+        if (breeder.reevaluateElites[subpop])
+            for(int i = 0 ; i < archive.length; i++)
+                archive[i].evaluated = false;
+
+        return archive;
+        }
+
+
+    /** Builds the reference points for a subpopulation. */
+    double[][] buildReferencePoints(EvolutionState state, int numObjectives, int popSize, int subpop)
+        {
+        int p = divisions;
+        if (p == 0)
+            {
+            // the largest number of divisions which gives at most popSize reference points
+            p = 1;
+            while(numReferencePoints(numObjectives, p + 1) <= popSize) p++;
+            }
+        double[][] refs = dasDennis(numObjectives, p);
+        if (innerDivisions > 0)
+            {
+            double[][] inner = dasDennis(numObjectives, innerDivisions);
+            double[][] both = new double[refs.length + inner.length][];
+            System.arraycopy(refs, 0, both, 0, refs.length);
+            for(int i = 0; i < inner.length; i++)
+                {
+                // shrink halfway towards the center of the simplex
+                for(int j = 0; j < numObjectives; j++)
+                    inner[i][j] = (inner[i][j] + 1.0 / numObjectives) / 2;
+                both[refs.length + i] = inner[i];
+                }
+            refs = both;
+            }
+        state.output.message("Subpopulation " + subpop + " has " + refs.length + " NSGA-III reference points");
+        if (refs.length > popSize)
+            state.output.warning("Subpopulation " + subpop + " has more NSGA-III reference points (" + refs.length +
+                ") than individuals (" + popSize + ").");
+        return refs;
+        }
+
+
+    /** Returns the number of reference points on the simplex with the given number of divisions:
+        (numObjectives + divisions - 1) choose divisions, or Integer.MAX_VALUE if it is larger than that. */
+    public static int numReferencePoints(int numObjectives, int divisions)
+        {
+        double n = 1;
+        for(int i = 1; i <= divisions; i++)
+            n = n * (numObjectives - 1 + i) / i;
+        return (n >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)Math.round(n));
+        }
+
+
+    /** Returns the Das-Dennis reference points: all points on the unit simplex whose coordinates
+        are multiples of 1 / divisions. */
+    public static double[][] dasDennis(int numObjectives, int divisions)
+        {
+        double[][] refs = new double[numReferencePoints(numObjectives, divisions)][];
+        dasDennis(refs, 0, new int[numObjectives], 0, divisions, divisions);
+        return refs;
+        }
+
+    /** Fills refs, starting at index n, with the reference points which give the remaining divisions
+        to the objectives from j onwards, and returns the index after the last one. */
+    static int dasDennis(double[][] refs, int n, int[] counts, int j, int remaining, int divisions)
+        {
+        if (j == counts.length - 1)
+            {
+            counts[j] = remaining;
+            double[] ref = new double[counts.length];
+            for(int k = 0; k < counts.length; k++)
+                ref[k] = counts[k] / (double)divisions;
+            refs[n] = ref;
+            return n + 1;
+            }
+        for(int c = 0; c <= remaining; c++)
+            {
+            counts[j] = c;
+            n = dasDennis(refs, n, counts, j + 1, remaining - c, divisions);
+            }
+        return n;
+        }
+
+
+    /** Returns normalized copies of the points: translated so that the best value of each objective is 0,
+        then divided by the intercepts of the hyperplane through the extreme points of each objective.  If there
+        is no such hyperplane, or its intercepts are degenerate, the worst values of each objective among the points
+        in the first rank (else among all the points) are used instead. */
+    public static double[][] normalize(double[][] points, boolean[] firstRank)
+        {
+        int n = points.length;
+        int m = points[0].length;
+        double[] ideal = new double[m];
+        for(int j = 0; j < m; j++)
+            {
+            ideal[j] = Double.POSITIVE_INFINITY;
+            for(int i = 0; i < n; i++)
+                if (points[i][j] < ideal[j]) ideal[j] = points[i][j];
+            }
+        double[][] translated = new double[n][m];
+        for(int i = 0; i < n; i++)
+            for(int j = 0; j < m; j++)
+                translated[i][j] = points[i][j] - ideal[j];
+
+        // the extreme point of each objective minimizes the achievement scalarizing function
+        // with a weight vector along that objective's axis
+        double[][] extremes = new double[m][];
+        for(int j = 0; j < m; j++)
+            {
+            double best = Double.POSITIVE_INFINITY;
+            for(int i = 0; i < n; i++)
+                {
+                double asf = 0;
+                for(int k = 0; k < m; k++)
+                    {
+                    double v = translated[i][k] / (k == j ? 1.0 : 1e-6);
+                    if (v > asf) asf = v;
+                    }
+                if (asf < best) { best = asf; extremes[j] = translated[i]; }
+                }
+            }
+
+        double[] intercepts = intercepts(extremes);
+        if (intercepts == null)
+            {
+            // use the worst values of the first rank, falling back to those of all the points
+            intercepts = new double[m];
+            for(int j = 0; j < m; j++)
+                {
+                double worst = 0;
+                double worstOverall = 0;
+                for(int i = 0; i < n; i++)
+                    {
+                    if (firstRank[i] && translated[i][j] > worst) worst = translated[i][j];
+                    if (translated[i][j] > worstOverall) worstOverall = translated[i][j];
+                    }
+                intercepts[j] = (worst > EPSILON ? worst : (worstOverall > EPSILON ? worstOverall : 1.0));
+                }
+            }
+
+        for(int i = 0; i < n; i++)
+            for(int j = 0; j < m; j++)
+                translated[i][j] /= intercepts[j];
+        return translated;
+        }
+
+
+    /** Returns the intercepts with the axes of the hyperplane through the given points, one per objective,
+        or null if there is no such hyperplane or an intercept is not positive. */
+    static double[] intercepts(double[][] extremes)
+        {
+        int m = extremes.length;
+        // solve extremes * b = 1 by Gaussian elimination with partial pivoting; the intercepts are 1 / b
+        double[][] a = new double[m][m + 1];
+        for(int i = 0; i < m; i++)
+            {
+            System.arraycopy(extremes[i], 0, a[i], 0, m);
+            a[i][m] = 1;
+            }
+        for(int col = 0; col < m; col++)
+            {
+            int pivot = col;
+            for(int row = col + 1; row < m; row++)
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) pivot = row;
+            if (Math.abs(a[pivot][col]) < EPSILON) return null;  // singular
+            double[] t = a[col]; a[col] = a[pivot]; a[pivot] = t;
+            for(int row = 0; row < m; row++)
+                {
+                if (row == col) continue;
+                double factor = a[row][col] / a[col][col];
+                if (factor == 0) continue;
+                for(int k = col; k <= m; k++)
+                    a[row][k] -= factor * a[col][k];
+                }
+            }
+        double[] intercepts = new double[m];
+        for(int j = 0; j < m; j++)
+            {
+            double b = a[j][m] / a[j][j];
+            if (!(b > EPSILON)) return null;  // also catches NaN
+            intercepts[j] = 1.0 / b;
+            }
+        return intercepts;
+        }
+
+
+    /** Associates each normalized point with the reference point whose line from the origin
+        is closest to it, storing the index of that reference point in niche and the perpendicular
+        distance to its line in distance. */
+    public static void associate(double[][] normalized, double[][] refs, int[] niche, double[] distance)
+        {
+        int m = refs[0].length;
+        // unit vectors along the reference lines
+        double[][] directions = new double[refs.length][m];
+        for(int r = 0; r < refs.length; r++)
+            {
+            double norm = 0;
+            for(int j = 0; j < m; j++)
+                norm += refs[r][j] * refs[r][j];
+            norm = Math.sqrt(norm);
+            for(int j = 0; j < m; j++)
+                directions[r][j] = refs[r][j] / norm;
+            }
+
+        for(int i = 0; i < normalized.length; i++)
+            {
+            double[] point = normalized[i];
+            double squaredNorm = 0;
+            for(int j = 0; j < m; j++)
+                squaredNorm += point[j] * point[j];
+            double best = Double.POSITIVE_INFINITY;
+            int bestRef = 0;
+            for(int r = 0; r < directions.length; r++)
+                {
+                double[] dir = directions[r];
+                double projection = 0;
+                for(int j = 0; j < m; j++)
+                    projection += point[j] * dir[j];
+                double d = squaredNorm - projection * projection;
+                if (d < best) { best = d; bestRef = r; }
+                }
+            niche[i] = bestRef;
+            distance[i] = Math.sqrt(Math.max(best, 0));
+            }
+        }
+
+
+    /** Chooses the given number of individuals of the last rank by niching, and returns their indices.
+        candidates holds the indices of the candidate individuals, and niche and distance their niches and
+        distances.  nicheCount holds the number of individuals already in the archive in each niche. */
+    int[] selectByNiche(EvolutionState state, int[] candidates, int[] ranks, int lastRank,
+        int[] niche, double[] distance, int[] nicheCount, int numToChoose)
+        {
+        MersenneTwisterFast random = state.random[0];
+
+        // the candidates of the last rank in each niche.  Niches without any can never be chosen.
+        int numRefs = nicheCount.length;
+        int[] numMembers = new int[numRefs];
+        for(int i = 0; i < candidates.length; i++)
+            if (ranks[candidates[i]] == lastRank) numMembers[niche[i]]++;
+        int[][] members = new int[numRefs][];
+        for(int r = 0; r < numRefs; r++)
+            members[r] = new int[numMembers[r]];
+        Arrays.fill(numMembers, 0);
+        for(int i = 0; i < candidates.length; i++)
+            if (ranks[candidates[i]] == lastRank) members[niche[i]][numMembers[niche[i]]++] = i;
+
+        int[] open = new int[numRefs];  // the niches which still have members
+        int numOpen = 0;
+        for(int r = 0; r < numRefs; r++)
+            if (numMembers[r] > 0) open[numOpen++] = r;
+
+        int[] chosen = new int[numToChoose];
+        int[] tied = new int[numRefs];
+        for(int c = 0; c < numToChoose; c++)
+            {
+            // pick at random among the open niches with the fewest individuals in the archive
+            int fewest = Integer.MAX_VALUE;
+            int numTied = 0;
+            for(int k = 0; k < numOpen; k++)
+                {
+                int count = nicheCount[open[k]];
+                if (count < fewest) { fewest = count; numTied = 0; }
+                if (count == fewest) tied[numTied++] = k;
+                }
+            int k = tied[random.nextInt(numTied)];
+            int r = open[k];
+
+            // an empty niche takes its closest member; others take a random one
+            int which = 0;
+            if (nicheCount[r] == 0)
+                {
+                for(int i = 1; i < numMembers[r]; i++)
+                    if (distance[members[r][i]] < distance[members[r][which]]) which = i;
+                }
+            else which = random.nextInt(numMembers[r]);
+            chosen[c] = candidates[members[r][which]];
+            members[r][which] = members[r][--numMembers[r]];
+            nicheCount[r]++;
+            if (numMembers[r] == 0)
+                open[k] = open[--numOpen];
+            }
+        return chosen;
+        }
+    }
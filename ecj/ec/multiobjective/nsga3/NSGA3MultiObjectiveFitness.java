@@ -0,0 +1,100 @@
+/*
+  Copyright 2015 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+package ec.multiobjective.nsga3;
+
+import java.io.*;
+import ec.util.Code;
+import ec.multiobjective.MultiObjectiveFitness;
+import ec.EvolutionState;
+import ec.Fitness;
+
+/* 
+ * NSGA3MultiObjectiveFitness.java
+ */
+
+/**
+ * NSGA3MultiObjectiveFitness is a subclass of MultiObjectiveFitness which
+ * adds auxiliary fitness measures (rank, niche, and niche distance) largely used by MultiObjectiveStatistics.
+ * It also redefines the comparison measures to compare based on rank alone: NSGA-III
+ * has no measure of sparsity with which to break ties.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class NSGA3MultiObjectiveFitness extends MultiObjectiveFitness
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String NSGA3_RANK_PREAMBLE = "Rank: ";
+    public static final String NSGA3_NICHE_PREAMBLE = "Niche: ";
+    public static final String NSGA3_NICHE_DISTANCE_PREAMBLE = "NicheDistance: ";
+
+    public String[] getAuxilliaryFitnessNames() { return new String[] { "Rank", "Niche", "Niche Distance" }; }
+    public double[] getAuxilliaryFitnessValues() { return new double[] { rank, niche, nicheDistance }; }
+        
+    /** Pareto front rank measure (lower ranks are better) */
+    public int rank;
+
+    /** The reference point the individual is associated with, or -1 if it has not been associated with one */
+    public int niche = -1;
+
+    /** The perpendicular distance, in normalized objective space, from the individual to the 
+        reference line of its niche */
+    public double nicheDistance;
+
+    public String fitnessToString()
+        {
+        return super.fitnessToString() + "\n" + NSGA3_RANK_PREAMBLE + Code.encode(rank) + 
+            "\n" + NSGA3_NICHE_PREAMBLE + Code.encode(niche) + "\n" + NSGA3_NICHE_DISTANCE_PREAMBLE + Code.encode(nicheDistance);
+        }
+
+    public String fitnessToStringForHumans()
+        {
+        return super.fitnessToStringForHumans() + "\n" + NSGA3_RANK_PREAMBLE + rank + 
+            "\n" + NSGA3_NICHE_PREAMBLE + niche + "\n" + NSGA3_NICHE_DISTANCE_PREAMBLE + nicheDistance;
+        }
+
+    public void readFitness(final EvolutionState state, final LineNumberReader reader) throws IOException
+        {
+        super.readFitness(state, reader);
+        rank = Code.readIntegerWithPreamble(NSGA3_RANK_PREAMBLE, state, reader);
+        niche = Code.readIntegerWithPreamble(NSGA3_NICHE_PREAMBLE, state, reader);
+        nicheDistance = Code.readDoubleWithPreamble(NSGA3_NICHE_DISTANCE_PREAMBLE, state, reader);
+        }
+
+    public void writeFitness(final EvolutionState state, final DataOutput dataOutput) throws IOException
+        {
+        super.writeFitness(state, dataOutput);
+        dataOutput.writeInt(rank);
+        dataOutput.writeInt(niche);
+        dataOutput.writeDouble(nicheDistance);
+        writeTrials(state, dataOutput);
+        }
+
+    public void readFitness(final EvolutionState state, final DataInput dataInput) throws IOException
+        {
+        super.readFitness(state, dataInput);
+        rank = dataInput.readInt();
+        niche = dataInput.readInt();
+        nicheDistance = dataInput.readDouble();
+        readTrials(state, dataInput);
+        }
+
+    public boolean equivalentTo(Fitness _fitness)
+        {
+        return (rank == ((NSGA3MultiObjectiveFitness) _fitness).rank);
+        }
+
+    /**
+     * We specify the tournament selection criterion, Rank (lower values are better).
+     */
+    public boolean betterThan(Fitness _fitness)
+        {
+        return (rank < ((NSGA3MultiObjectiveFitness) _fitness).rank);
+        }
+    }
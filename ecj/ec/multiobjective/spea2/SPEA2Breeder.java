@@ -23,6 +23,7 @@ import java.util.*;
 /**
  * This subclass of SimpleBreeder overrides the loadElites method to build an archive in the top elites[subpopnum]
  * of each subpopulation.  It computes the sparsity metric, then constructs the archive.
+ * If the nondominated front is larger than the archive, it is reduced with truncateArchive(...).
  */
 
 public class SPEA2Breeder extends SimpleBreeder
@@ -31,7 +32,7 @@ public class SPEA2Breeder extends SimpleBreeder
         {
         super.setup(state, base);
 
-        for (int i = 0; i < state.population.subpops.length; i++)
+        for (int i = 0; i < reduceBy.length; i++)  // the population hasn't been made yet
             if (reduceBy[i] != 0)
                 state.output.fatal("SPEA2Breeder does not support population reduction.", base.push(P_REDUCE_BY).push(""+i), null);
                         
@@ -81,8 +82,8 @@ public class SPEA2Breeder extends SimpleBreeder
         //Individual[] dummy = new Individual[0];
                 
         // step 1: load the archive with the pareto-nondominated front
-        ArrayList archive = new ArrayList();
-        ArrayList nonFront = new ArrayList();
+        ArrayList<Individual> archive = new ArrayList<Individual>();
+        ArrayList<Individual> nonFront = new ArrayList<Individual>();
         MultiObjectiveFitness.partitionIntoParetoFront(oldInds, archive, nonFront);
         int currentArchiveSize = archive.size();
                 
@@ -99,42 +100,136 @@ public class SPEA2Breeder extends SimpleBreeder
             }
                         
 
-        // step 3: if the archive is OVERFULL, iterate as follows:
-        //              step 3a: remove the k-closest individual in the archive
+        // step 3: if the archive is OVERFULL, remove the individuals closest to the others
+        if (currentArchiveSize > archiveSize)
+            truncateArchive(archive, archiveSize);
+                                                
+        // step 4: put clones of the archive in the new individuals
+        Object[] obj = archive.toArray();
+        for(int i = 0; i < archiveSize; i++)
+            newInds[newInds.length - archiveSize + i] = (Individual)(((Individual)obj[i]).clone());
+        }
 
-        //SPEA2Evaluator evaluator = ((SPEA2Evaluator)(state.evaluator));
-        // Individual[] inds = (Individual[])(archive.toArray(dummy));
-                
-        while(currentArchiveSize > archiveSize)
+    /** The number of nearest neighbors cached per individual by truncateArchive(...). */
+    public static final int NUM_CACHED_NEIGHBORS = 8;
+
+    /** Reduces the archive to the given size by the SPEA2 truncation procedure: repeatedly remove the
+        individual whose distance to its nearest remaining neighbor in the archive is smallest, breaking
+        ties by the distance to the second-nearest neighbor, and so on.  The remaining individuals stay in order.
+        
+        <p>Rather than an N x N matrix of distances, each individual caches the distances to its few
+        nearest neighbors, which nearly always suffice to decide the comparisons.  When an individual
+        is removed, only the individuals which had it as a cached neighbor are updated. */
+    public void truncateArchive(ArrayList<Individual> archive, int archiveSize)
+        {
+        int n = archive.size();
+        double[][] objectives = new double[n][];
+        for(int i = 0; i < n; i++)
+            objectives[i] = ((MultiObjectiveFitness)(archive.get(i).fitness)).getObjectives();
+        boolean[] alive = new boolean[n];
+        Arrays.fill(alive, true);
+        int numAlive = n;
+        
+        int k = Math.min(NUM_CACHED_NEIGHBORS, n - 1);
+        double[][] neighborDistances = new double[n][k];
+        int[][] neighbors = new int[n][k];
+        int[] numNeighbors = new int[n];
+        for(int i = 0; i < n; i++)
+            numNeighbors[i] = nearestNeighbors(i, objectives, alive, neighborDistances[i], neighbors[i]);
+
+        while(numAlive > archiveSize)
             {
-            Individual closest = (Individual)(archive.get(0));
-            int closestIndex = 0;
-            double[] closestD = calculateDistancesFromIndividual(closest, oldInds);
-                        
-            for(int i = 1; i < currentArchiveSize; i++)
-                {
-                Individual competitor = (Individual)(archive.get(i));
-                double[] competitorD = calculateDistancesFromIndividual(competitor, oldInds);
-                                
-                for(int k = 0; k < oldInds.length; k++)
+            // find the most crowded individual
+            int closest = -1;
+            for(int i = 0; i < n; i++)
+                if (alive[i])
                     {
-                    if (closestD[i] > competitorD[i])
-                        { closest = competitor ; closestD = competitorD;  closestIndex = k; break; }
-                    else if (closestD[i] < competitorD[i])
-                        { break; }
+                    if (closest == -1 || 
+                        compareCrowding(i, closest, objectives, alive, neighborDistances, numNeighbors) < 0)
+                        closest = i;
                     }
-                }
-                        
-            // remove him destructively -- put the top guy in his place and remove the top guy.  This is O(1)
-            archive.set(closestIndex, archive.get(archive.size()-1));
-            archive.remove(archive.size()-1);
+                                                
+            // remove him, and update everyone who had him as a near neighbor
+            alive[closest] = false;
+            numAlive--;
+            for(int i = 0; i < n; i++)
+                if (alive[i])
+                    for(int j = 0; j < numNeighbors[i]; j++)
+                        if (neighbors[i][j] == closest)
+                            {
+                            numNeighbors[i] = nearestNeighbors(i, objectives, alive, neighborDistances[i], neighbors[i]);
+                            break;
+                            }
+            }
                         
-            currentArchiveSize--;
+        int count = 0;
+        for(int i = 0; i < n; i++)
+            if (alive[i])
+                archive.set(count++, archive.get(i));
+        while(archive.size() > count)
+            archive.remove(archive.size() - 1);
+        }
+
+    /** Fills distances and neighbors with the squared distances to, and indices of, the nearest
+        live individuals to individual i, in increasing order of distance.  Returns how many were found. */
+    int nearestNeighbors(int i, double[][] objectives, boolean[] alive, double[] distances, int[] neighbors)
+        {
+        int count = 0;
+        for(int j = 0; j < objectives.length; j++)
+            {
+            if (j == i || !alive[j]) continue;
+            double d = KDTree.squaredDistance(objectives[i], objectives[j]);
+            if (count == distances.length && d >= distances[count - 1]) continue;
+            // insertion into the sorted list
+            int pos = (count == distances.length ? count - 1 : count++);
+            while(pos > 0 && distances[pos - 1] > d)
+                {
+                distances[pos] = distances[pos - 1];
+                neighbors[pos] = neighbors[pos - 1];
+                pos--;
+                }
+            distances[pos] = d;
+            neighbors[pos] = j;
             }
-                                                
-        // step 4: put clones of the archive in the new individuals
-        Object[] obj = archive.toArray();
-        for(int i = 0; i < archiveSize; i++)
-            newInds[newInds.length - archiveSize + i] = (Individual)(((Individual)obj[i]).clone());
+        return count;
+        }
+
+    /** Returns < 0 if individual a is more crowded than individual b, that is, its sorted distances
+        to the other live individuals are lexicographically smaller; > 0 if b is more crowded; and 0 if neither is. */
+    int compareCrowding(int a, int b, double[][] objectives, boolean[] alive, double[][] neighborDistances, int[] numNeighbors)
+        {
+        int len = Math.min(numNeighbors[a], numNeighbors[b]);
+        for(int j = 0; j < len; j++)
+            {
+            if (neighborDistances[a][j] < neighborDistances[b][j]) return -1;
+            if (neighborDistances[a][j] > neighborDistances[b][j]) return 1;
+            }
+        if (len < neighborDistances[a].length)
+            return 0;  // the cached lists were complete: a tie
+        
+        // the cached neighbors tie, so we need the complete lists
+        double[] da = allDistances(a, objectives, alive);
+        double[] db = allDistances(b, objectives, alive);
+        for(int j = 0; j < da.length; j++)
+            {
+            if (da[j] < db[j]) return -1;
+            if (da[j] > db[j]) return 1;
+            }
+        return 0;
+        }
+
+    /** Returns the sorted squared distances from individual i to the other live individuals. */
+    double[] allDistances(int i, double[][] objectives, boolean[] alive)
+        {
+        int count = 0;
+        for(int j = 0; j < objectives.length; j++)
+            if (j != i && alive[j]) count++;
+        double[] d = new double[count];
+        count = 0;
+        for(int j = 0; j < objectives.length; j++)
+            if (j != i && alive[j])
+                d[count++] = KDTree.squaredDistance(objectives[i], objectives[j]);
+        Arrays.sort(d);
+        return d;
         }
     }
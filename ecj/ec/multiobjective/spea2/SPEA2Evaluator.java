@@ -22,10 +22,38 @@ import ec.simple.*;
 /**
  * This subclass of SimpleEvaluator evaluates the population, then computes auxiliary fitness
  * data of each subpopulation.
+ *
+ * <p>Small subpopulations are handled by computing a matrix of the distances between every pair
+ * of individuals.  This takes O(N<sup>2</sup>) memory, which is impractical for large subpopulations,
+ * so subpopulations larger than <tt>brute-force-size</tt> are instead handled by
+ * computeAuxiliaryDataIndexed(...): the objectives are copied into primitive arrays, the strengths
+ * and raw fitnesses are computed by the evaluation threads, and the k-th nearest neighbor distances
+ * are found with a KDTree.  Both produce the same fitness values, but only the former uses the
+ * random number generator.
+ *
+ * <p><b>Parameters</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>brute-force-size</tt><br>
+ * <font size=-1>int &gt;= 0 (default = 1000)</font></td>
+ * <td valign=top>(The largest subpopulation for which a full distance matrix is computed)</td></tr>
+ * </table>
  */
 
 public class SPEA2Evaluator extends SimpleEvaluator
     {
+    public static final String P_BRUTE_FORCE_SIZE = "brute-force-size";
+
+    /** The largest subpopulation for which a full distance matrix is computed. */
+    public int bruteForceSize;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+        bruteForceSize = state.parameters.getIntWithDefault(base.push(P_BRUTE_FORCE_SIZE), null, 1000);
+        if (bruteForceSize < 0)
+            state.output.fatal("The brute force size must be >= 0.", base.push(P_BRUTE_FORCE_SIZE), null);
+        }
+
     public void evaluatePopulation(final EvolutionState state)
         {
         super.evaluatePopulation(state);
@@ -42,6 +70,12 @@ public class SPEA2Evaluator extends SimpleEvaluator
         measure.  Finally, computes the final fitness of the individuals.  */
     public void computeAuxiliaryData(EvolutionState state, Individual[] inds)
         {
+        if (inds.length > bruteForceSize)
+            {
+            computeAuxiliaryDataIndexed(state, inds);
+            return;
+            }
+
         double[][] distances = calculateDistances(state, inds);
                         
         // For each individual calculate the strength
@@ -89,6 +123,92 @@ public class SPEA2Evaluator extends SimpleEvaluator
         }
     
         
+    /** Computes the same values as computeAuxiliaryData(...), without a distance matrix and using
+        the evaluation threads. */
+    public void computeAuxiliaryDataIndexed(EvolutionState state, Individual[] inds)
+        {
+        final int n = inds.length;
+        final double[][] points = NonDominatedSorter.extractObjectives(inds);   // for dominance
+        final double[][] objectives = new double[n][];                           // for distances
+        for(int i = 0; i < n; i++)
+            objectives[i] = ((MultiObjectiveFitness)(inds[i].fitness)).getObjectives();
+        final KDTree tree = new KDTree(objectives);
+        final int kTH = (int) Math.sqrt(n);  // note that the first element is k=1, not k=0
+
+        // A point can only dominate points which come after it lexicographically
+        final int[] order = NonDominatedSorter.lexicographicOrder(points);
+        final int[] strength = new int[n];
+        final double[] rawFitness = new double[n];
+        final double[] kthDistance = new double[n];
+
+        // strengths
+        parallelFor(state, n, new Body()
+            {
+            public void run(int a)
+                {
+                double[] point = points[order[a]];
+                int myStrength = 0;
+                for(int b = a + 1; b < n; b++)
+                    if (NonDominatedSorter.dominates(point, points[order[b]]))
+                        myStrength++;
+                strength[order[a]] = myStrength;
+                }
+            });
+
+        // raw fitnesses and k-th nearest neighbor distances
+        parallelFor(state, n, new Body()
+            {
+            public void run(int b)
+                {
+                int y = order[b];
+                double[] point = points[y];
+                double fitness = 0;
+                for(int a = 0; a < b; a++)
+                    if (NonDominatedSorter.dominates(points[order[a]], point))
+                        fitness += strength[order[a]];
+                rawFitness[y] = fitness;
+                // distances are squared, so we need to take the square root.
+                kthDistance[y] = Math.sqrt(tree.kthNearestSquaredDistance(objectives[y], kTH));
+                }
+            });
+
+        for(int y = 0; y < n; y++)
+            {
+            SPEA2MultiObjectiveFitness indYFitness = ((SPEA2MultiObjectiveFitness)inds[y].fitness);
+            indYFitness.strength = strength[y];
+            indYFitness.kthNNDistance = 1.0 / ( 2 + kthDistance[y]);
+            indYFitness.fitness = rawFitness[y] + indYFitness.kthNNDistance;
+            }
+        }
+
+    /** The body of a parallelFor(...) loop. */
+    interface Body { public void run(int i); }
+
+    /** Runs body for 0 ... n-1, interleaved among the evaluation threads. */
+    void parallelFor(EvolutionState state, final int n, final Body body)
+        {
+        final int numThreads = Math.min(state.evalthreads, Math.max(1, n));
+        if (numThreads == 1)
+            {
+            for(int i = 0; i < n; i++)
+                body.run(i);
+            return;
+            }
+        for(int t = 0; t < numThreads; t++)
+            {
+            final int thread = t;
+            pool.start(new Runnable()
+                {
+                public void run()
+                    {
+                    for(int i = thread; i < n; i += numThreads)
+                        body.run(i);
+                    }
+                }, "ECJ SPEA2 Thread " + t);
+            }
+        pool.joinAll();
+        }
+
     /** Returns a matrix of sum squared distances from each individual to each other individual. */
     public double[][] calculateDistances(EvolutionState state, Individual[] inds)
         {
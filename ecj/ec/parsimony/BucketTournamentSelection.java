@@ -66,6 +66,9 @@ import ec.select.*;
  <tr><td valign=top><i>base.</i><tt>num-buckets</tt><br>
  <font size=-1>int &gt;= 1 (default 10)</font></td>
  <td valign=top>(the number of buckets)</td></tr>
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare fitnesses and sizes using a FitnessSnapshot where we can?)</td></tr>
  </table>
 
  <p><b>Default Base</b><br>
@@ -139,68 +142,92 @@ public class BucketTournamentSelection extends SelectionMethod implements Steady
     /** Prepare to produce: create the buckets!!!! */
     public void prepareToProduce(final EvolutionState state, final int subpopulation, final int thread) 
         {
-        bucketValues = new int[ state.population.subpops[subpopulation].individuals.length ];
-
-        // correct?
-        java.util.Arrays.sort(state.population.subpops[subpopulation].individuals,
-            new java.util.Comparator()
+        final Individual[] inds = state.population.subpops[subpopulation].individuals;
+        bucketValues = new int[ inds.length ];
+        sizes = null;
+
+        // order[r] is the index of the individual of rank r, from worst to best
+        int[] order = new int[ inds.length ];
+        for( int i = 0 ; i < order.length ; i++ )
+            order[i] = i;
+
+        FitnessSnapshot s = loadFitnessSnapshot(state, subpopulation);
+        final double[] scalars = (s == null ? null : s.scalars);
+        if (scalars != null)
+            {
+            // sort the indices, leaving the individuals alone
+            QuickSort.qsort(order, new SortComparatorL()
                 {
-                public int compare(Object o1, Object o2)
-                    {
-                    Individual a = (Individual) o1;
-                    Individual b = (Individual) o2;
-                    if (a.fitness.betterThan(b.fitness))
-                        return 1;
-                    if (b.fitness.betterThan(a.fitness))
-                        return -1;
-                    return 0;
-                    }
+                public boolean lt(long a, long b) { return scalars[(int)a] < scalars[(int)b]; }
+                public boolean gt(long a, long b) { return scalars[(int)a] > scalars[(int)b]; }
                 });
+            }
+        else
+            {
+            // correct?
+            java.util.Arrays.sort(inds,
+                new java.util.Comparator()
+                    {
+                    public int compare(Object o1, Object o2)
+                        {
+                        Individual a = (Individual) o1;
+                        Individual b = (Individual) o2;
+                        if (a.fitness.betterThan(b.fitness))
+                            return 1;
+                        if (b.fitness.betterThan(a.fitness))
+                            return -1;
+                        return 0;
+                        }
+                    });
+            // we've just reordered the individuals, so any snapshot of them is stale
+            FitnessSnapshot.invalidate(state, subpopulation);
+            snapshot = null;
+            }
 
 
         // how many individuals in current bucket
         int nInd;
 
-        double averageBuck = ((double)state.population.subpops[subpopulation].individuals.length)/
+        double averageBuck = ((double)inds.length)/
             ((double)nBuckets);
 
         // first individual goes into first bucket
-        bucketValues[0] = 0;
+        bucketValues[order[0]] = 0;
 
         // now there is one individual in the first bucket
         nInd = 1;
 
-        for( int i = 1 ; i < state.population.subpops[subpopulation].individuals.length ; i++ )
+        for( int i = 1 ; i < inds.length ; i++ )
             {
             // if there is still some place left in the current bucket, throw the current individual there too
             if( nInd < averageBuck )
                 {
-                bucketValues[i] = bucketValues[i-1];
+                bucketValues[order[i]] = bucketValues[order[i-1]];
                 nInd++;
                 }
             else // check if it has the same fitness as last individual
                 {
-                if( ((Individual)state.population.subpops[subpopulation].individuals[i]).fitness.equivalentTo(
-                        ((Individual)state.population.subpops[subpopulation].individuals[i-1]).fitness ) )
+                if( scalars != null ? scalars[order[i]] == scalars[order[i-1]] :
+                    inds[i].fitness.equivalentTo(inds[i-1].fitness) )
                     {
                     // now the individual has exactly the same fitness as previous one,
                     // so we just put it in the same bucket as the previous one(s)
-                    bucketValues[i] = bucketValues[i-1];
+                    bucketValues[order[i]] = bucketValues[order[i-1]];
                     nInd++;
                     }
                 else
                     {
                     // if there are buckets left
-                    if( bucketValues[i-1]+1 < nBuckets )
+                    if( bucketValues[order[i-1]]+1 < nBuckets )
                         {
                         // new bucket!!!!
-                        bucketValues[i] = bucketValues[i-1] - 1;
+                        bucketValues[order[i]] = bucketValues[order[i-1]] - 1;
                         // with only one individual
                         nInd = 1;
                         }
                     else // no more buckets left, just stick everything in the last bucket
                         {
-                        bucketValues[i] = bucketValues[i-1];
+                        bucketValues[order[i]] = bucketValues[order[i-1]];
                         nInd++;
                         }
                     }
@@ -208,6 +235,16 @@ public class BucketTournamentSelection extends SelectionMethod implements Steady
             }
         }
 
+    // sizes from the FitnessSnapshot, loaded when first needed
+    long[] sizes;
+
+    long size(Individual[] oldinds, int index)
+        {
+        if (snapshot == null) return oldinds[index].size();
+        if (sizes == null) sizes = snapshot.sizes();
+        return sizes[index];
+        }
+
     public int produce(final int subpopulation,
         final EvolutionState state,
         final int thread)
@@ -227,8 +264,8 @@ public class BucketTournamentSelection extends SelectionMethod implements Steady
                 else
                     {
                     if (si==0)
-                        si = oldinds[i].size();
-                    long sj = oldinds[j].size();
+                        si = size(oldinds, i);
+                    long sj = size(oldinds, j);
 
                     if (sj >= si) // sj's got worse lookin' trees
                         { i = j; si = sj; }
@@ -241,8 +278,8 @@ public class BucketTournamentSelection extends SelectionMethod implements Steady
                 else
                     {
                     if (si==0)
-                        si = oldinds[i].size();
-                    long sj = oldinds[j].size();
+                        si = size(oldinds, i);
+                    long sj = size(oldinds, j);
 
                     if (sj < si) // sj's got better lookin' trees
                         { i = j; si = sj; }
@@ -47,6 +47,11 @@ import ec.steadystate.*;
  <tr><td valign=top><i>base.</i><tt>do-length-first</tt><br>
  <font size=-1> bool = <tt>true</tt> (default) or <tt>false</tt></font></td>
  <td valign=top>(should the initial ("qualifying") tournament be based on the length of the individual or (if false) the fitness of the individual?  The final ("champion") tournament will be based on the alternative option)</td></tr>
+
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare fitnesses and sizes using a FitnessSnapshot where we can?)</td></tr>
+
  </table>
 
  <p><b>Default Base</b><br>
@@ -138,6 +143,37 @@ public class DoubleTournamentSelection extends SelectionMethod implements Steady
         pickWorst2 = state.parameters.getBoolean(base.push(P_PICKWORST2),def.push(P_PICKWORST2),false);
         }
 
+    // scalar fitnesses and sizes from the FitnessSnapshot, if we're using one
+    double[] scalars;
+    long[] sizes;
+
+    public void prepareToProduce(final EvolutionState state, final int subpopulation, final int thread)
+        {
+        FitnessSnapshot s = loadFitnessSnapshot(state, subpopulation);
+        scalars = (s == null ? null : s.scalars);
+        sizes = null;
+        }
+
+    public void finishProducing(final EvolutionState state, final int subpopulation, final int thread)
+        {
+        snapshot = null;
+        scalars = null;
+        sizes = null;
+        }
+
+    boolean fitnessBetterThan(Individual[] oldinds, int first, int second)
+        {
+        if (scalars != null) return scalars[first] > scalars[second];
+        return oldinds[first].fitness.betterThan(oldinds[second].fitness);
+        }
+
+    long size(Individual[] oldinds, int index)
+        {
+        if (snapshot == null) return oldinds[index].size();
+        if (sizes == null) sizes = snapshot.sizes();
+        return sizes[index];
+        }
+
     /**
        Produces the index of a person selected from among several by a tournament.
        The tournament's criteria is fitness of individuals if doLengthFirst is true,
@@ -161,9 +197,9 @@ public class DoubleTournamentSelection extends SelectionMethod implements Steady
                 {
                 int j = inds[x];
                 if (pickWorst2)
-                    { if (oldinds[j].size() > oldinds[i].size()) { bad = i; i = j; } else bad = j; }
+                    { if (size(oldinds, j) > size(oldinds, i)) { bad = i; i = j; } else bad = j; }
                 else
-                    { if (oldinds[j].size() < oldinds[i].size()) { bad = i; i = j;} else bad = j; }
+                    { if (size(oldinds, j) < size(oldinds, i)) { bad = i; i = j;} else bad = j; }
                 }
             
             if (probabilityOfSelection2 != 1.0 && !state.random[thread].nextBoolean(probabilityOfSelection2))
@@ -181,9 +217,9 @@ public class DoubleTournamentSelection extends SelectionMethod implements Steady
                 {
                 int j = inds[x];
                 if (pickWorst2)
-                    { if (!(oldinds[j].fitness.betterThan(oldinds[i].fitness))) { bad = i; i = j; } else bad = j; }
+                    { if (!(fitnessBetterThan(oldinds, j, i))) { bad = i; i = j; } else bad = j; }
                 else
-                    { if (oldinds[j].fitness.betterThan(oldinds[i].fitness)) { bad = i; i = j;} else bad = j; }
+                    { if (fitnessBetterThan(oldinds, j, i)) { bad = i; i = j;} else bad = j; }
                 }
             
             if (probabilityOfSelection2 != 1.0 && !state.random[thread].nextBoolean(probabilityOfSelection2))
@@ -212,9 +248,9 @@ public class DoubleTournamentSelection extends SelectionMethod implements Steady
                 {
                 int j = state.random[thread].nextInt(oldinds.length);
                 if (pickWorst)
-                    { if (oldinds[j].size() > oldinds[i].size()) { bad = i; i = j; } else bad = j; }
+                    { if (size(oldinds, j) > size(oldinds, i)) { bad = i; i = j; } else bad = j; }
                 else
-                    { if (oldinds[j].size() < oldinds[i].size()) { bad = i; i = j;} else bad = j; }
+                    { if (size(oldinds, j) < size(oldinds, i)) { bad = i; i = j;} else bad = j; }
                 }
             
             if (probabilityOfSelection != 1.0 && !state.random[thread].nextBoolean(probabilityOfSelection))
@@ -232,9 +268,9 @@ public class DoubleTournamentSelection extends SelectionMethod implements Steady
                 {
                 int j = state.random[thread].nextInt(oldinds.length);
                 if (pickWorst)
-                    { if (!(oldinds[j].fitness.betterThan(oldinds[i].fitness))) { bad = i; i = j; } else bad = j; }
+                    { if (!(fitnessBetterThan(oldinds, j, i))) { bad = i; i = j; } else bad = j; }
                 else
-                    { if (oldinds[j].fitness.betterThan(oldinds[i].fitness)) { bad = i; i = j;} else bad = j; }
+                    { if (fitnessBetterThan(oldinds, j, i)) { bad = i; i = j;} else bad = j; }
                 }
             
             if (probabilityOfSelection != 1.0 && !state.random[thread].nextBoolean(probabilityOfSelection))
@@ -45,6 +45,10 @@ import ec.select.*;
  <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
  <td valign=top>(should we pick the <i>worst</i> individual in the tournament instead of the <i>best</i>?)</td></tr>
 
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare fitnesses and sizes using a FitnessSnapshot where we can?)</td></tr>
+
  </table>
 
  <p><b>Default Base</b><br>
@@ -70,5 +74,24 @@ public class LexicographicTournamentSelection extends TournamentSelection
         return (first.fitness.betterThan(second.fitness) ||
             (first.fitness.equivalentTo(second.fitness) && first.size() < second.size()));
         }
+
+    // sizes from the FitnessSnapshot, loaded when first needed
+    long[] sizes;
+
+    public void prepareToProduce(final EvolutionState state, final int subpopulation, final int thread)
+        {
+        super.prepareToProduce(state, subpopulation, thread);
+        sizes = null;
+        }
+
+    public boolean betterThan(int first, int second, int subpopulation, EvolutionState state, int thread)
+        {
+        if (scalars == null)
+            return super.betterThan(first, second, subpopulation, state, thread);
+        if (scalars[first] != scalars[second])
+            return scalars[first] > scalars[second];
+        if (sizes == null) sizes = snapshot.sizes();
+        return sizes[first] < sizes[second];
+        }
                 
     }
@@ -42,6 +42,10 @@ import ec.steadystate.*;
  <font size=-1> double &gt;= 0 and &lt;= 1</font></td>
  <td valign=top>(the probability of comparing individuals based on fitness, rather than size)</td></tr>
 
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare fitnesses and sizes using a FitnessSnapshot where we can?)</td></tr>
+
  </table>
 
  <p><b>Default Base</b><br>
@@ -87,4 +91,23 @@ public class ProportionalTournamentSelection extends TournamentSelection
         else
             return first.size() < second.size();
         }
+
+    // sizes from the FitnessSnapshot, loaded when first needed
+    long[] sizes;
+
+    public void prepareToProduce(final EvolutionState state, final int subpopulation, final int thread)
+        {
+        super.prepareToProduce(state, subpopulation, thread);
+        sizes = null;
+        }
+
+    public boolean betterThan(int first, int second, int subpopulation, EvolutionState state, int thread)
+        {
+        if (scalars == null)
+            return super.betterThan(first, second, subpopulation, state, thread);
+        if (state.random[thread].nextBoolean(fitnessPressureProb))
+            return scalars[first] > scalars[second];
+        if (sizes == null) sizes = snapshot.sizes();
+        return sizes[first] < sizes[second];
+        }
     }
@@ -62,6 +62,9 @@ import ec.select.*;
  <tr><td valign=top><i>base.</i><tt>ratio</tt><br>
  <font size=-1>double &gt;= 2 (default)</font></td>
  <td valign=top>(the ratio of worst out of remaining individuals that go in the next bucket)</td></tr>
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare fitnesses and sizes using a FitnessSnapshot where we can?)</td></tr>
  </table>
 
  <p><b>Default Base</b><br>
@@ -135,60 +138,84 @@ public class RatioBucketTournamentSelection extends SelectionMethod implements S
     /** Prepare to produce: create the buckets!!!! */
     public void prepareToProduce(final EvolutionState state, final int subpopulation, final int thread) 
         {
-        bucketValues = new int[ state.population.subpops[subpopulation].individuals.length ];
-        
-        // correct?
-        java.util.Arrays.sort(state.population.subpops[subpopulation].individuals,
-            new java.util.Comparator()
+        final Individual[] inds = state.population.subpops[subpopulation].individuals;
+        bucketValues = new int[ inds.length ];
+        sizes = null;
+
+        // order[r] is the index of the individual of rank r, from worst to best
+        int[] order = new int[ inds.length ];
+        for( int i = 0 ; i < order.length ; i++ )
+            order[i] = i;
+
+        FitnessSnapshot s = loadFitnessSnapshot(state, subpopulation);
+        final double[] scalars = (s == null ? null : s.scalars);
+        if (scalars != null)
+            {
+            // sort the indices, leaving the individuals alone
+            QuickSort.qsort(order, new SortComparatorL()
                 {
-                public int compare(Object o1, Object o2)
-                    {
-                    Individual a = (Individual) o1;
-                    Individual b = (Individual) o2;
-                    if (a.fitness.betterThan(b.fitness))
-                        return 1;
-                    if (b.fitness.betterThan(a.fitness))
-                        return -1;
-                    return 0;
-                    }
+                public boolean lt(long a, long b) { return scalars[(int)a] < scalars[(int)b]; }
+                public boolean gt(long a, long b) { return scalars[(int)a] > scalars[(int)b]; }
                 });
+            }
+        else
+            {
+            // correct?
+            java.util.Arrays.sort(inds,
+                new java.util.Comparator()
+                    {
+                    public int compare(Object o1, Object o2)
+                        {
+                        Individual a = (Individual) o1;
+                        Individual b = (Individual) o2;
+                        if (a.fitness.betterThan(b.fitness))
+                            return 1;
+                        if (b.fitness.betterThan(a.fitness))
+                            return -1;
+                        return 0;
+                        }
+                    });
+            // we've just reordered the individuals, so any snapshot of them is stale
+            FitnessSnapshot.invalidate(state, subpopulation);
+            snapshot = null;
+            }
 
         // how many individuals in current bucket
         int nInd;
 
-        double totalInds = ((double)state.population.subpops[subpopulation].individuals.length);
+        double totalInds = ((double)inds.length);
         double averageBuck = Math.max( totalInds/ratio, 1 );
 
         // first individual goes into first bucket
-        bucketValues[0] = 0;
+        bucketValues[order[0]] = 0;
 
         // now there is one individual in the first bucket
         nInd = 1;
         totalInds--;
 
-        for( int i = 1 ; i < state.population.subpops[subpopulation].individuals.length ; i++ )
+        for( int i = 1 ; i < inds.length ; i++ )
             {
             // if there is still some place left in the current bucket, throw the current individual there too
             if( nInd < averageBuck )
                 {
-                bucketValues[i] = bucketValues[i-1];
+                bucketValues[order[i]] = bucketValues[order[i-1]];
                 nInd++;
                 }
             else // check if it has the same fitness as last individual
                 {
-                if( ((Individual)state.population.subpops[subpopulation].individuals[i]).fitness.equivalentTo(
-                        ((Individual)state.population.subpops[subpopulation].individuals[i-1]).fitness ) )
+                if( scalars != null ? scalars[order[i]] == scalars[order[i-1]] :
+                    inds[i].fitness.equivalentTo(inds[i-1].fitness) )
                     {
                     // now the individual has exactly the same fitness as previous one,
                     // so we just put it in the same bucket as the previous one(s)
-                    bucketValues[i] = bucketValues[i-1];
+                    bucketValues[order[i]] = bucketValues[order[i-1]];
                     nInd++;
                     }
                 else
                     {
                     // new bucket!!!!
                     averageBuck = Math.max( totalInds/ratio, 1 );
-                    bucketValues[i] = bucketValues[i-1] - 1; // decrease the fitness, so that high fit individuals have lower bucket values
+                    bucketValues[order[i]] = bucketValues[order[i-1]] - 1; // decrease the fitness, so that high fit individuals have lower bucket values
                     // with only one individual
                     nInd = 1;
                     }
@@ -197,6 +224,16 @@ public class RatioBucketTournamentSelection extends SelectionMethod implements S
             }
         }
 
+    // sizes from the FitnessSnapshot, loaded when first needed
+    long[] sizes;
+
+    long size(Individual[] oldinds, int index)
+        {
+        if (snapshot == null) return oldinds[index].size();
+        if (sizes == null) sizes = snapshot.sizes();
+        return sizes[index];
+        }
+
     public int produce(final int subpopulation,
         final EvolutionState state,
         final int thread)
@@ -216,8 +253,8 @@ public class RatioBucketTournamentSelection extends SelectionMethod implements S
                 else
                     {
                     if (si==0)
-                        si = oldinds[i].size();
-                    long sj = oldinds[j].size();
+                        si = size(oldinds, i);
+                    long sj = size(oldinds, j);
 
                     if (sj >= si) // sj's got worse lookin' trees
                         { i = j; si = sj; }
@@ -230,8 +267,8 @@ public class RatioBucketTournamentSelection extends SelectionMethod implements S
                 else
                     {
                     if (si==0)
-                        si = oldinds[i].size();
-                    long sj = oldinds[j].size();
+                        si = size(oldinds, i);
+                    long sj = size(oldinds, j);
 
                     if (sj < si) // sj's got better lookin' trees
                         { i = j; si = sj; }
@@ -3,6 +3,8 @@ package ec.pso;
 import ec.* ;
 import ec.util.* ;
 import ec.vector.* ;
+import ec.simple.* ;
+import java.util.concurrent.atomic.* ;
 
 
 /*
@@ -11,7 +13,7 @@ import ec.vector.* ;
  */
 
 /**
- * PSOBreeder is a simple single-threaded Breeder which performs 
+ * PSOBreeder is a simple Breeder which performs 
  * Particle Swarm Optimization using the Particle class as individuals. 
  * PSOBreeder relies on a number of parameters which define weights for
  * various vectors computed during Particle Swarm Optimization, plus
@@ -30,6 +32,31 @@ import ec.vector.* ;
  * <li> The basic particle update equation is PARTICLE <-- PARTICLE + VELOCITY
  * </ul>
  *
+ * <p>Ordinarily PSOBreeder is <i>synchronous</i>: all the personal, neighborhood, and global bests are
+ * updated, then all the particles are moved, then (in the Evaluator) all the particles are evaluated.
+ * Both the updating and the moving are divided among <tt>breedthreads</tt> threads, each handling a contiguous
+ * chunk of each subpopulation with its own random number generator.  Each thread finds the best particle in
+ * its chunk, and these are then reduced in order, so the global best is the same as if found by one thread.
+ * The results are reproducible given the same seeds and number of breeding threads.
+ *
+ * <p>If <tt>asynchronous</tt> is true, PSOBreeder instead performs <i>asynchronous</i> PSO.  The
+ * <tt>breedthreads</tt> threads each repeatedly grab the next particle which hasn't yet moved this
+ * generation, update its neighborhood best from the present personal bests of its informants, move it,
+ * and evaluate it immediately (with the Evaluator's Problem), updating its personal best and the global best.
+ * Thus particles take advantage of improvements found by their informants as soon as they are found, rather than
+ * waiting for the next generation.  Note that in this mode neighborhood bests are drawn from the informants'
+ * personal bests rather than their present locations, and the Evaluator will find the particles already evaluated.
+ * Your Problem should not reevaluate individuals whose <tt>evaluated</tt> flag is set.
+ * With more than one thread, asynchronous PSO is not reproducible, as it depends on the order in which the
+ * threads happen to finish their evaluations.
+ *
+ * <p>Asynchronous PSO is still not entirely free of barriers: each particle moves exactly once per generation,
+ * and breedPopulation(...) waits for all the threads to finish before it returns.  This is because the rest of
+ * ECJ's generational loop (the Evaluator, the Statistics, checkpointing, and the termination tests) runs between
+ * generations and expects a settled population.  Thus at the end of each generation, threads which run out of
+ * particles sit idle while the last evaluations finish.  This idle time is small when the swarm is much larger
+ * than the number of threads, unless the evaluations vary greatly in cost.
+ *
  * <p>
  * <b>Parameters</b><br>
  * <table>
@@ -61,6 +88,10 @@ import ec.vector.* ;
  * <td valign=top><i>base</i>.<tt>include-self</tt><br>
  *  <font size=-1>true or false (default)</font></td>
  *  <td valign=top>(Whether to include the particle itself as a member of the neighborhood after building the neighborhood)</td>
+ * </tr><tr>
+ * <td valign=top><i>base</i>.<tt>asynchronous</tt><br>
+ *  <font size=-1>true or false (default)</font></td>
+ *  <td valign=top>(Whether to move and evaluate each particle as soon as possible, using the latest bests, rather than all at once)</td>
  * </tr>
  *
  * </table>
@@ -82,6 +113,7 @@ public class PSOBreeder extends Breeder
     public static final String P_INCLUDE_SELF = "include-self" ;
     public static final String P_NEIGHBORHOOD = "neighborhood-style" ;
     public static final String P_NEIGHBORHOOD_SIZE = "neighborhood-size" ;
+    public static final String P_ASYNCHRONOUS = "asynchronous" ;
     public static final String V_NEIGHBORHOOD_RANDOM = "random";
     public static final String V_NEIGHBORHOOD_TOROIDAL = "toroidal";
     public static final String V_NEIGHBORHOOD_RANDOM_EACH_TIME = "random-each-time";
@@ -93,10 +125,14 @@ public class PSOBreeder extends Breeder
     public double globalCoeff = 0.5 ;               //  coefficient for global best, this is not done in the standard PSO
     public int neighborhoodSize = 3 ; 
     public boolean includeSelf = false;         
+    public boolean asynchronous = false;
 
     public double[][] globalBest = null ; // one for each subpopulation
     public Fitness[] globalBestFitness = null;
 
+    // we use a threadpool here
+    public ThreadPool pool = new ThreadPool();
+
     public void setup(final EvolutionState state, final Parameter base)
         {
         velCoeff = state.parameters.getDouble(base.push(P_VELOCITY_COEFFICIENT),null,0.0);
@@ -135,9 +171,10 @@ public class PSOBreeder extends Breeder
         else state.output.fatal( "Neighborhood style must be either 'random', 'toroidal', or 'random-each-time'.", base.push(P_NEIGHBORHOOD), null );
 
         includeSelf = state.parameters.getBoolean(base.push(P_INCLUDE_SELF), null, false);               
+        asynchronous = state.parameters.getBoolean(base.push(P_ASYNCHRONOUS), null, false);               
         }
 
-    public Population breedPopulation(EvolutionState state)
+    public Population breedPopulation(final EvolutionState state)
         {
         // initialize the global best
         if (globalBest == null)
@@ -145,37 +182,177 @@ public class PSOBreeder extends Breeder
             globalBest = new double[state.population.subpops.length][];
             globalBestFitness = new Fitness[state.population.subpops.length];
             }
-                
-        // update global best, neighborhood best, and personal best 
+
+        if (asynchronous)
+            {
+            breedAsynchronously(state);
+            return state.population;
+            }
+
+        final int numThreads = state.breedthreads;
+
+        // update neighborhood best and personal best, and find the best individual in each thread's chunk
+        final int[][] chunkBest = new int[numThreads][state.population.subpops.length];
+        if (numThreads == 1)
+            {
+            updatePopChunk(state, 0, 1, chunkBest[0]);
+            }
+        else
+            {
+            for(int y = 0; y < numThreads; y++)
+                {
+                final int threadnum = y;
+                pool.start(new Runnable()
+                    {
+                    public void run() { updatePopChunk(state, threadnum, numThreads, chunkBest[threadnum]); }
+                    }, "ECJ Breeding Thread " + y);
+                }
+            pool.joinAll();
+            }
+
+        // update global best from the chunks' bests, in order
         for(int subpop = 0 ; subpop < state.population.subpops.length ; subpop++)
             {
-            for(int ind = 0 ; ind < state.population.subpops[subpop].individuals.length ; ind++)
+            for(int y = 0; y < numThreads; y++)
                 {
-                if (globalBestFitness[subpop] == null ||
-                    state.population.subpops[subpop].individuals[ind].fitness.betterThan(globalBestFitness[subpop]))
+                int ind = chunkBest[y][subpop];
+                if (ind >= 0 && (globalBestFitness[subpop] == null ||
+                        state.population.subpops[subpop].individuals[ind].fitness.betterThan(globalBestFitness[subpop])))
                     {
                     globalBest[subpop] = ((DoubleVectorIndividual)state.population.subpops[subpop].individuals[ind]).genome;
                     globalBestFitness[subpop] = state.population.subpops[subpop].individuals[ind].fitness;
                     }
-                ((Particle)state.population.subpops[subpop].individuals[ind]).update(state, subpop, ind, 0);
                 }
             // clone global best
             globalBest[subpop] = (double[])(globalBest[subpop].clone());
             globalBestFitness[subpop] = (Fitness)(globalBestFitness[subpop].clone());
             }
 
-
         // now move the particles
-        for(int subpop = 0 ; subpop < state.population.subpops.length ; subpop++)
+        if (numThreads == 1)
             {
-            for(int ind = 0 ; ind < state.population.subpops[subpop].individuals.length ; ind++)
-                // tweak in place, destructively
-                ((Particle)state.population.subpops[subpop].individuals[ind]).tweak(state, globalBest[subpop],
-                    velCoeff, personalCoeff, informantCoeff, globalCoeff, 0);
+            tweakPopChunk(state, 0, 1);
             }
-                
+        else
+            {
+            for(int y = 0; y < numThreads; y++)
+                {
+                final int threadnum = y;
+                pool.start(new Runnable()
+                    {
+                    public void run() { tweakPopChunk(state, threadnum, numThreads); }
+                    }, "ECJ Breeding Thread " + y);
+                }
+            pool.joinAll();
+            }
+
         // we return the same population
         return state.population ;
         }
+
+    /** Updates the personal and neighborhood bests of the given thread's chunk of each subpopulation, storing in best[subpop] 
+        the index of the best individual in the chunk (or -1 if the chunk is empty). */
+    protected void updatePopChunk(EvolutionState state, int threadnum, int numThreads, int[] best)
+        {
+        for(int subpop = 0 ; subpop < state.population.subpops.length ; subpop++)
+            {
+            Individual[] inds = state.population.subpops[subpop].individuals;
+            int from = (int)(((long) inds.length) * threadnum / numThreads);
+            int to = (int)(((long) inds.length) * (threadnum + 1) / numThreads);
+            best[subpop] = -1;
+            for(int ind = from ; ind < to ; ind++)
+                {
+                if (best[subpop] == -1 || inds[ind].fitness.betterThan(inds[best[subpop]].fitness))
+                    best[subpop] = ind;
+                ((Particle)inds[ind]).update(state, subpop, ind, threadnum);
+                }
+            }
+        }
+
+    /** Moves the particles in the given thread's chunk of each subpopulation. */
+    protected void tweakPopChunk(EvolutionState state, int threadnum, int numThreads)
+        {
+        for(int subpop = 0 ; subpop < state.population.subpops.length ; subpop++)
+            {
+            Individual[] inds = state.population.subpops[subpop].individuals;
+            int from = (int)(((long) inds.length) * threadnum / numThreads);
+            int to = (int)(((long) inds.length) * (threadnum + 1) / numThreads);
+            for(int ind = from ; ind < to ; ind++)
+                // tweak in place, destructively
+                ((Particle)inds[ind]).tweak(state, globalBest[subpop],
+                    velCoeff, personalCoeff, informantCoeff, globalCoeff, threadnum);
+            }
+        }
+
+    /** Performs asynchronous PSO: each particle in turn is moved and immediately evaluated, and the 
+        personal and global bests updated, by whichever thread is free. */
+    protected void breedAsynchronously(final EvolutionState state)
+        {
+        if (!(state.evaluator.p_problem instanceof SimpleProblemForm))
+            state.output.fatal("Asynchronous PSO requires a Problem which implements SimpleProblemForm.");
+
+        // bring the personal and global bests up to date with the present fitnesses (this only matters in the first generation)
+        for(int subpop = 0 ; subpop < state.population.subpops.length ; subpop++)
+            {
+            Individual[] inds = state.population.subpops[subpop].individuals;
+            for(int ind = 0 ; ind < inds.length ; ind++)
+                {
+                ((Particle)inds[ind]).updatePersonalBest();
+                updateGlobalBest(subpop, (Particle)inds[ind]);
+                }
+            }
+
+        final AtomicInteger next = new AtomicInteger(0);
+        final int numThreads = state.breedthreads;
+        for(int y = 0; y < numThreads; y++)
+            {
+            final int threadnum = y;
+            final SimpleProblemForm prob = (SimpleProblemForm)(state.evaluator.p_problem.clone());
+            Runnable run = new Runnable()
+                {
+                public void run()
+                    {
+                    ((Problem)prob).prepareToEvaluate(state, threadnum);
+                    while(true)
+                        {
+                        // grab the next particle
+                        int subpop = 0;
+                        int ind = next.getAndIncrement();
+                        while(subpop < state.population.subpops.length && ind >= state.population.subpops[subpop].individuals.length)
+                            ind -= state.population.subpops[subpop++].individuals.length;
+                        if (subpop == state.population.subpops.length) break;
+
+                        Particle particle = (Particle)(state.population.subpops[subpop].individuals[ind]);
+                        particle.updateFromInformants(state, subpop, ind, threadnum);
+                        particle.tweak(state, getGlobalBest(subpop), velCoeff, personalCoeff, informantCoeff, globalCoeff, threadnum);
+                        prob.evaluate(state, particle, subpop, threadnum);
+                        particle.updatePersonalBest();
+                        updateGlobalBest(subpop, particle);
+                        }
+                    ((Problem)prob).finishEvaluating(state, threadnum);
+                    }
+                };
+            if (numThreads == 1) run.run();
+            else pool.start(run, "ECJ Breeding Thread " + y);
+            }
+        pool.joinAll();
+        }
+
+    // the global best genome is never modified in place, only replaced, so it's safe to use once gotten
+    synchronized double[] getGlobalBest(int subpop)
+        {
+        return globalBest[subpop];
+        }
+
+    // replaces the global best with the particle if the particle is superior
+    synchronized void updateGlobalBest(int subpop, Particle particle)
+        {
+        if (globalBestFitness[subpop] == null || particle.fitness.betterThan(globalBestFitness[subpop]))
+            {
+            globalBest[subpop] = particle.genome.clone();
+            globalBestFitness[subpop] = (Fitness)(particle.fitness.clone());
+            }
+        }
     }
 
+
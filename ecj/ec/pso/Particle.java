@@ -30,6 +30,10 @@ import java.io.*;
  * <p> Many of the parameters passed into the tweak(...) method are based on
  * weights determined by the PSOBreeder.
  *
+ * <p> The personal best and neighborhood best genomes are private copies belonging
+ * to the Particle, and are overwritten in place by update(...) rather than reallocated
+ * each generation.  Don't hold onto them between generations; clone them if you need to.
+ *
  * @author Khaled Ahsan Talukder
  */
 
@@ -153,6 +157,9 @@ public class Particle extends DoubleVectorIndividual
         // must clone the velocity and neighborhood pattern if they exist
         if (velocity != null) velocity = (double[])(velocity.clone());
         if (neighborhood != null) neighborhood = (int[])(neighborhood.clone());
+        // the best genomes are overwritten in place by update(...), so they can't be shared
+        if (neighborhoodBestGenome != null) myobj.neighborhoodBestGenome = neighborhoodBestGenome.clone();
+        if (personalBestGenome != null) myobj.personalBestGenome = personalBestGenome.clone();
         return myobj;
         }
 
@@ -162,10 +169,68 @@ public class Particle extends DoubleVectorIndividual
         if (personalBestFitness == null || fitness.betterThan(personalBestFitness))
             {
             personalBestFitness = (Fitness)(fitness.clone());
-            personalBestGenome = (double[])(genome.clone());
+            personalBestGenome = copyInto(genome, personalBestGenome);
             }
         
-        // initialize neighborhood if it's not been created yet
+        buildNeighborhood(state, subpop, myindex, thread);
+
+        // identify neighborhood best
+        Fitness bestFitness = fitness;  // initially me
+        double[] bestGenome = genome;
+        for(int i = 0 ; i < neighborhood.length ; i++)
+            {
+            int ind = neighborhood[i] ;
+            if (state.population.subpops[subpop].individuals[ind].fitness.betterThan(fitness))
+                {
+                bestFitness = state.population.subpops[subpop].individuals[ind].fitness;
+                bestGenome = ((DoubleVectorIndividual)(state.population.subpops[subpop].individuals[ind])).genome;
+                }
+            }
+                
+        // copy neighborhood best, since the neighbor will soon be moved
+        neighborhoodBestFitness = (Fitness)(bestFitness.clone());
+        neighborhoodBestGenome = copyInto(bestGenome, neighborhoodBestGenome);
+        }
+
+    /** Updates the neighborhood best to the best of the personal bests of the particle and its informants.  
+        This is used in asynchronous PSO, where update(...) is not called, and the informants may be moving
+        and updating their personal bests at the same time in other threads.  The particle must have a personal best. */
+    public void updateFromInformants(final EvolutionState state, int subpop, int myindex, int thread)
+        {
+        buildNeighborhood(state, subpop, myindex, thread);
+
+        Individual[] inds = state.population.subpops[subpop].individuals;
+        Fitness bestFitness = personalBestFitness;  // initially me
+        neighborhoodBestGenome = copyInto(personalBestGenome, neighborhoodBestGenome);
+        for(int i = 0 ; i < neighborhood.length ; i++)
+            {
+            Particle informant = (Particle)(inds[neighborhood[i]]);
+            synchronized(informant)
+                {
+                if (informant.personalBestFitness != null && informant.personalBestFitness.betterThan(bestFitness))
+                    {
+                    bestFitness = informant.personalBestFitness;
+                    neighborhoodBestGenome = copyInto(informant.personalBestGenome, neighborhoodBestGenome);
+                    }
+                }
+            }
+        neighborhoodBestFitness = (Fitness)(bestFitness.clone());
+        }
+
+    /** Updates the personal best if the particle's present fitness is superior to it.  Synchronized because
+        in asynchronous PSO other particles may be reading the personal best at the same time. */
+    public synchronized void updatePersonalBest()
+        {
+        if (personalBestFitness == null || fitness.betterThan(personalBestFitness))
+            {
+            personalBestFitness = (Fitness)(fitness.clone());
+            personalBestGenome = copyInto(genome, personalBestGenome);
+            }
+        }
+
+    // initialize neighborhood if it's not been created yet, or if it's to be recreated every time
+    void buildNeighborhood(final EvolutionState state, int subpop, int myindex, int thread)
+        {
         PSOBreeder psob = (PSOBreeder)(state.breeder);
         if (neighborhood == null || psob.neighborhood == psob.C_NEIGHBORHOOD_RANDOM_EACH_TIME)
             {
@@ -178,23 +243,15 @@ public class Particle extends DoubleVectorIndividual
             else // huh?
                 state.output.fatal("internal error: invalid PSO neighborhood style: " + psob.neighborhood);
             }
+        }
 
-        // identify neighborhood best
-        neighborhoodBestFitness = fitness;  // initially me
-        neighborhoodBestGenome = genome;
-        for(int i = 0 ; i < neighborhood.length ; i++)
-            {
-            int ind = neighborhood[i] ;
-            if (state.population.subpops[subpop].individuals[ind].fitness.betterThan(fitness))
-                {
-                neighborhoodBestFitness = state.population.subpops[subpop].individuals[ind].fitness;
-                neighborhoodBestGenome = ((DoubleVectorIndividual)(state.population.subpops[subpop].individuals[ind])).genome;
-                }
-            }
-                
-        // clone neighborhood best
-        neighborhoodBestFitness = (Fitness)(neighborhoodBestFitness.clone());
-        neighborhoodBestGenome = (double[])(neighborhoodBestGenome.clone());
+    /** Copies from into to, reusing to if it is the right length, else into a new array, and returns the copy. */
+    static double[] copyInto(double[] from, double[] to)
+        {
+        if (to == null || to.length != from.length)
+            return from.clone();
+        System.arraycopy(from, 0, to, 0, from.length);
+        return to;
         }
 
     // velocityCoeff:       cognitive/confidence coefficient for the velocity
@@ -207,15 +264,23 @@ public class Particle extends DoubleVectorIndividual
         double informantCoeff, double globalCoeff, 
         int thread)
         {
-        for(int x = 0 ; x < genomeLength() ; x++)
+        // local copies, so the loop below doesn't keep reloading the fields
+        MersenneTwisterFast random = state.random[thread];
+        double[] genome = this.genome;
+        double[] velocity = this.velocity;
+        double[] personalBestGenome = this.personalBestGenome;
+        double[] neighborhoodBestGenome = this.neighborhoodBestGenome;
+        int len = genome.length;
+        
+        for(int x = 0 ; x < len ; x++)
             {
             double xCurrent = genome[x] ;
             double xPersonal = personalBestGenome[x] ;
             double xNeighbour = neighborhoodBestGenome[x] ;
             double xGlobal = globalBest[x] ;
-            double beta = state.random[thread].nextDouble() * personalCoeff ;
-            double gamma = state.random[thread].nextDouble() * informantCoeff ;
-            double delta = state.random[thread].nextDouble() * globalCoeff ;
+            double beta = random.nextDouble() * personalCoeff ;
+            double gamma = random.nextDouble() * informantCoeff ;
+            double delta = random.nextDouble() * globalCoeff ;
 
             double newVelocity = (velocityCoeff * velocity[x]) + (beta * (xPersonal - xCurrent)) + (gamma * (xNeighbour - xCurrent)) + (delta * (xGlobal - xCurrent)) ;
             velocity[x] = newVelocity ;
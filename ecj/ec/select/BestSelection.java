@@ -19,8 +19,9 @@ import ec.*;
  * Performs a tournament selection restricted to only the best, or worst, <i>n</i>
  * indivdiuals in the population.  If the best individuals, then tournament selection
  * will prefer the better among them; if the worst individuals, then tournament selection
- * will prefer the worse among them.  The procedure for performing restriction is expensive to
- * set up and bring down, so it's not appropriate for steady-state evolution.  Like
+ * will prefer the worse among them.  The restriction is found without sorting the whole
+ * population, in time roughly linear in its size, but must still be redone every time
+ * selection is set up, so it's not appropriate for steady-state evolution.  Like
  * TournamentSelection, the size of the tournament can be any 
  * If you're not familiar with the relative advantages of 
  * selection methods and just want a good one,
@@ -48,6 +49,9 @@ import ec.*;
  <tr><td valign=top><i>base.</i><tt>n-fraction</tt><br>
  <font size=-1> 0.0 <= double < 1.0 (default is 1)</font></td>
  <td valign=top>(the number of best-individuals to select from, as a fraction of the total population)</td></tr>
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare fitnesses using a FitnessSnapshot where we can?)</td></tr>
  </table>
 
  <p><b>Default Base</b><br>
@@ -76,9 +80,12 @@ public class BestSelection extends SelectionMethod
     /** Do we pick the worst instead of the best? */
     public boolean pickWorst;
     
-    /** Sorted, normalized, totalized fitnesses for the population */
+    /** The best (or worst) n individuals in the population, best (or worst) first */
     public int[] sortedPop;
 
+    /** Scalar fitnesses from the FitnessSnapshot, if we're using one. */
+    public double[] scalars;
+
     public static final int NOT_SET = -1;
     public int bestn = NOT_SET;
     public double bestnFrac = NOT_SET;
@@ -135,42 +142,20 @@ public class BestSelection extends SelectionMethod
         final int subpopulation,
         final int thread)
         {
-        // load sortedPop integers
         final Individual[] i = s.population.subpops[subpopulation].individuals;
 
-        sortedPop = new int[i.length];
-        for(int x=0;x<sortedPop.length;x++) sortedPop[x] = x;
-
-        // sort sortedPop in increasing fitness order
-        QuickSort.qsort(sortedPop, 
-            new SortComparatorL()
-                {
-                public boolean lt(long a, long b)
-                    {
-                    return ((Individual)(i[(int)b])).fitness.betterThan(
-                        ((Individual)(i[(int)a])).fitness);
-                    }
-
-                public boolean gt(long a, long b)
-                    {
-                    return ((Individual)(i[(int)a])).fitness.betterThan(
-                        ((Individual)(i[(int)b])).fitness);
-                    }
-                });
-
-        if (!pickWorst)  // gotta reverse it
-            for(int x = 0; x < sortedPop.length / 2; x++)
-                {
-                int p = sortedPop[x];
-                sortedPop[x] = sortedPop[sortedPop.length - x - 1];
-                sortedPop[sortedPop.length - x - 1] = p;
-                }
-                        
         // figure out bestn
         if (bestnFrac != NOT_SET)
             {
-            bestn = (int) Math.max(Math.floor(s.population.subpops[subpopulation].individuals.length * bestnFrac), 1);
+            bestn = (int) Math.max(Math.floor(i.length * bestnFrac), 1);
             }
+
+        FitnessSnapshot snap = loadFitnessSnapshot(s, subpopulation);
+        scalars = (snap == null ? null : snap.scalars);
+
+        // load the best (or worst) bestn individuals into sortedPop, best (or worst) first.
+        // We needn't sort the rest.
+        sortedPop = FitnessSnapshot.best(i, scalars, bestn, pickWorst);
         }
 
 
@@ -182,28 +167,34 @@ public class BestSelection extends SelectionMethod
         return size + (random.nextBoolean(p) ? 1 : 0);
         }
 
+    boolean betterThan(Individual[] oldinds, int first, int second)
+        {
+        if (scalars != null) return scalars[first] > scalars[second];
+        return oldinds[first].fitness.betterThan(oldinds[second].fitness);
+        }
+
     public int produce(final int subpopulation,
         final EvolutionState state,
         final int thread)
         {
         // pick size random individuals, then pick the best.
         Individual[] oldinds = state.population.subpops[subpopulation].individuals;
-        int best = state.random[thread].nextInt(bestn);  // only among the first N
+        int best = state.random[thread].nextInt(sortedPop.length);  // only among the first N
         
         int s = getTournamentSizeToUse(state.random[thread]);
                 
         if (pickWorst)
             for (int x=1;x<s;x++)
                 {
-                int j = state.random[thread].nextInt(bestn);  // only among the first N
-                if (!(oldinds[sortedPop[j]].fitness.betterThan(oldinds[sortedPop[best]].fitness)))  // j isn't better than best
+                int j = state.random[thread].nextInt(sortedPop.length);  // only among the first N
+                if (!betterThan(oldinds, sortedPop[j], sortedPop[best]))  // j isn't better than best
                     best = j;
                 }
         else
             for (int x=1;x<s;x++)
                 {
-                int j = state.random[thread].nextInt(bestn);  // only among the first N
-                if (oldinds[sortedPop[j]].fitness.betterThan(oldinds[sortedPop[best]].fitness))  // j is better than best
+                int j = state.random[thread].nextInt(sortedPop.length);  // only among the first N
+                if (betterThan(oldinds, sortedPop[j], sortedPop[best]))  // j is better than best
                     best = j;
                 }
         
@@ -217,5 +208,7 @@ public class BestSelection extends SelectionMethod
         // release the distributions so we can quickly 
         // garbage-collect them if necessary
         sortedPop = null;
+        snapshot = null;
+        scalars = null;
         }    
     }
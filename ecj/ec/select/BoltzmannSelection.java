@@ -46,7 +46,11 @@ import ec.*;
  <tr><td valign=top><i>base.</i><tt>cooling-rate</tt><br>
  <font size=-1> double = some smaller number (defaults to 0.0 which causes BoltzmannSelection to behave just as FitProportionateSelection would)</font></td>
  <td valign=top>(how slow, or fast, do you want to cool the annealing fitness proportions?)</td></tr>
- 
+
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we read fitnesses using a FitnessSnapshot where we can?)</td></tr>
+
  </table> 
 
  <p><b>Default Base</b><br>
@@ -119,19 +123,22 @@ public class BoltzmannSelection extends FitProportionateSelection
         final int subpopulation,
         final int thread)
         {
-        // load fitnesses
+        // load fitnesses, from the snapshot if we have one
+        FitnessSnapshot snap = loadFitnessSnapshot(s, subpopulation);
+        double[] f = (snap == null ? null : snap.fitnesses());
         fitnesses = new double[s.population.subpops[subpopulation].individuals.length];
         for(int x=0;x<fitnesses.length;x++)
             {
             fitnesses[x] = (double) boltzmannExpectedValue(
-                ((Individual)(s.population.subpops[subpopulation].individuals[x])).fitness.fitness(), 
+                (f != null ? f[x] : ((Individual)(s.population.subpops[subpopulation].individuals[x])).fitness.fitness()), 
                 s); // adjust the fitness proportion according to current temperature.
             if (fitnesses[x] < 0) // uh oh
                 s.output.fatal("Discovered a negative fitness value.  BoltzmannnSelection requires that all fitness values be non-negative(offending subpopulation #" + subpopulation + ")");
             }
         
         // organize the distribution.  All zeros in fitness is fine
-        RandomChoice.organizeDistribution(fitnesses, true);
+        alias = new int[fitnesses.length];
+        RandomChoice.organizeAliasDistribution(fitnesses, alias, true);
         }
 
     double boltzmannExpectedValue(double fitness, final EvolutionState s)
@@ -18,7 +18,9 @@ import ec.*;
 
 /**
  * Picks individuals in a population in direct proportion to their
- * fitnesses as returned by their fitness() methods.  This is expensive to
+ * fitnesses as returned by their fitness() methods.  Individuals are picked
+ * using an alias table (see RandomChoice), so once the table has been built,
+ * each pick takes constant time.  But this is expensive to
  * set up and bring down, so it's not appropriate for steady-state evolution.
  * If you're not familiar with the relative advantages of 
  * selection methods and just want a good one,
@@ -44,8 +46,10 @@ public class FitProportionateSelection extends SelectionMethod
     {
     /** Default base */
     public static final String P_FITNESSPROPORTIONATE = "fitness-proportionate";
-    /** Normalized, totalized fitnesses for the population */
+    /** Fitnesses for the population, organized into an alias table along with alias */
     public double[] fitnesses;
+    /** The alias table for fitnesses */
+    public int[] alias;
 
     public Parameter defaultBase()
         {
@@ -68,7 +72,8 @@ public class FitProportionateSelection extends SelectionMethod
             }
         
         // organize the distribution.  All zeros in fitness is fine
-        RandomChoice.organizeDistribution(fitnesses, true);
+        alias = new int[fitnesses.length];
+        RandomChoice.organizeAliasDistribution(fitnesses, alias, true);
         }
 
     public int produce(final int subpopulation,
@@ -76,8 +81,8 @@ public class FitProportionateSelection extends SelectionMethod
         final int thread)
         {
         // Pick and return an individual from the population
-        return RandomChoice.pickFromDistribution(
-            fitnesses,state.random[thread].nextDouble());
+        return RandomChoice.pickFromAliasDistribution(
+            fitnesses, alias, state.random[thread].nextDouble());
         }
     
     public void finishProducing(final EvolutionState s,
@@ -87,5 +92,7 @@ public class FitProportionateSelection extends SelectionMethod
         // release the distributions so we can quickly 
         // garbage-collect them if necessary
         fitnesses = null;
+        alias = null;
+        snapshot = null;
         }
     }
@@ -33,7 +33,8 @@ import ec.util.*;
  * proportionate to his fitness relative to the fitnesses of others in his
  * group.
  *
- * <p> All this is expensive to
+ * <p> Within each group, individuals are picked using an alias table (see
+ * RandomChoice), so each pick takes constant time.  All this is still expensive to
  * set up and bring down, so it's not appropriate for steady-state evolution.
  * If you're not familiar with the relative advantages of 
  * selection methods and just want a good one,
@@ -64,9 +65,14 @@ import ec.util.*;
 
 public class GreedyOverselection extends SelectionMethod
     {
+    /** Fitnesses of the "good" group, organized into an alias table along with aliasOver */
     public double[] sortedFitOver;
+    /** Fitnesses of the "bad" group, organized into an alias table along with aliasUnder */
     public double[] sortedFitUnder;
-    /** Sorted population -- since I *have* to use an int-sized
+    public int[] aliasOver;
+    public int[] aliasUnder;
+    /** The population, partitioned into the "bad" group followed by the "good" group -- 
+        since I *have* to use an int-sized
         individual (short gives me only 16K), 
         I might as well just have pointers to the
         population itself.  :-( */
@@ -115,8 +121,16 @@ public class GreedyOverselection extends SelectionMethod
         sortedPop = new int[i.length];
         for(int x=0;x<sortedPop.length;x++) sortedPop[x] = x;
         
-        // sort sortedPop in increasing fitness order
-        QuickSort.qsort(sortedPop, 
+        // determine my boundary -- must be at least 1 and must leave 1 over
+        int boundary = (int)(sortedPop.length * top_n_percent);
+        if (boundary == 0) boundary = 1;
+        if (boundary == sortedPop.length) boundary = sortedPop.length-1;
+        if (boundary == 0) // uh oh
+            s.output.fatal("Greedy Overselection can only be done with a population of size 2 or more (offending subpopulation #" + subpopulation + ")");
+        
+        // partition sortedPop so that the worst individuals come first and the best 
+        // boundary individuals come last.  We needn't sort within the two groups.
+        QuickSort.qselect(sortedPop, sortedPop.length - boundary, 
             new SortComparatorL()
                 {
                 public boolean lt(long a, long b)
@@ -132,13 +146,6 @@ public class GreedyOverselection extends SelectionMethod
                     }
                 });
         
-        // determine my boundary -- must be at least 1 and must leave 1 over
-        int boundary = (int)(sortedPop.length * top_n_percent);
-        if (boundary == 0) boundary = 1;
-        if (boundary == sortedPop.length) boundary = sortedPop.length-1;
-        if (boundary == 0) // uh oh
-            s.output.fatal("Greedy Overselection can only be done with a population of size 2 or more (offending subpopulation #" + subpopulation + ")");
-        
         // load sortedFitOver
         sortedFitOver = new double[boundary];
         int y=0;
@@ -162,8 +169,10 @@ public class GreedyOverselection extends SelectionMethod
             }
 
         // organize the distributions.  All zeros in fitness is fine
-        RandomChoice.organizeDistribution(sortedFitUnder, true);
-        RandomChoice.organizeDistribution(sortedFitOver, true);
+        aliasUnder = new int[sortedFitUnder.length];
+        aliasOver = new int[sortedFitOver.length];
+        RandomChoice.organizeAliasDistribution(sortedFitUnder, aliasUnder, true);
+        RandomChoice.organizeAliasDistribution(sortedFitOver, aliasOver, true);
         }
 
     public int produce(final int subpopulation,
@@ -174,12 +183,12 @@ public class GreedyOverselection extends SelectionMethod
         if (state.random[thread].nextBoolean(gets_n_percent))
             // over -- sortedFitUnder.length to sortedPop.length
             return sortedPop[
-                sortedFitUnder.length + RandomChoice.pickFromDistribution(
-                    sortedFitOver,state.random[thread].nextDouble())];
+                sortedFitUnder.length + RandomChoice.pickFromAliasDistribution(
+                    sortedFitOver, aliasOver, state.random[thread].nextDouble())];
         else
             // under -- 0 to sortedFitUnder.length
-            return sortedPop[RandomChoice.pickFromDistribution(
-                    sortedFitUnder,state.random[thread].nextDouble())];
+            return sortedPop[RandomChoice.pickFromAliasDistribution(
+                    sortedFitUnder, aliasUnder, state.random[thread].nextDouble())];
         }
 
     public void finishProducing(final EvolutionState s,
@@ -190,6 +199,8 @@ public class GreedyOverselection extends SelectionMethod
         // garbage-collect them if necessary
         sortedFitUnder = null;
         sortedFitOver = null;
+        aliasUnder = null;
+        aliasOver = null;
         sortedPop = null;
         }
     }
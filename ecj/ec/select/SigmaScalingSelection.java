@@ -130,7 +130,8 @@ public class SigmaScalingSelection extends FitProportionateSelection
             }
         
         // organize the distribution.  All zeros in fitness is fine
-        RandomChoice.organizeDistribution(fitnesses, true);
+        alias = new int[fitnesses.length];
+        RandomChoice.organizeAliasDistribution(fitnesses, alias, true);
         }
 
     private double sigmaScaledValue(double fitness, double meanFitness, double sigma, final EvolutionState s)
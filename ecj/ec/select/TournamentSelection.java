@@ -51,6 +51,10 @@ import ec.steadystate.*;
  <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
  <td valign=top>(should we pick the <i>worst</i> individual in the tournament instead of the <i>best</i>?)</td></tr>
 
+ <tr><td valign=top><i>base.</i><tt>fitness-snapshot</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we compare fitnesses using a FitnessSnapshot where we can?)</td></tr>
+
  </table>
 
  <p><b>Default Base</b><br>
@@ -125,18 +129,48 @@ public class TournamentSelection extends SelectionMethod implements SteadyStateB
         return state.random[thread].nextInt(oldinds.length);
         }
 
+    /** Scalar fitnesses from the FitnessSnapshot, if we're using one. */
+    public double[] scalars;
+
+    public void prepareToProduce(final EvolutionState state,
+        final int subpopulation,
+        final int thread)
+        {
+        FitnessSnapshot s = loadFitnessSnapshot(state, subpopulation);
+        scalars = (s == null ? null : s.scalars);
+        }
+
+    public void finishProducing(final EvolutionState state,
+        final int subpopulation,
+        final int thread)
+        {
+        snapshot = null;
+        scalars = null;
+        }
+
     /** Returns true if *first* is a better (fitter, whatever) individual than *second*. */
     public boolean betterThan(Individual first, Individual second, int subpopulation, EvolutionState state, int thread)
         {
         return first.fitness.betterThan(second.fitness);
         }
+
+    /** Returns true if the individual at index *first* in the subpopulation is better than the
+        one at index *second*.  This compares their scalar fitnesses if we have a FitnessSnapshot,
+        else calls betterThan(Individual, Individual, ...).  If you override the latter, you should
+        override this method as well, or not use a FitnessSnapshot.  */
+    public boolean betterThan(int first, int second, int subpopulation, EvolutionState state, int thread)
+        {
+        if (scalars != null)
+            return scalars[first] > scalars[second];
+        Individual[] oldinds = state.population.subpops[subpopulation].individuals;
+        return betterThan(oldinds[first], oldinds[second], subpopulation, state, thread);
+        }
                 
     public int produce(final int subpopulation,
         final EvolutionState state,
         final int thread)
         {
         // pick size random individuals, then pick the best.
-        Individual[] oldinds = state.population.subpops[subpopulation].individuals;
         int best = getRandomIndividual(0, subpopulation, state, thread);
         
         int s = getTournamentSizeToUse(state.random[thread]);
@@ -145,14 +179,14 @@ public class TournamentSelection extends SelectionMethod implements SteadyStateB
             for (int x=1;x<s;x++)
                 {
                 int j = getRandomIndividual(x, subpopulation, state, thread);
-                if (!betterThan(oldinds[j], oldinds[best], subpopulation, state, thread))  // j is at least as bad as best
+                if (!betterThan(j, best, subpopulation, state, thread))  // j is at least as bad as best
                     best = j;
                 }
         else
             for (int x=1;x<s;x++)
                 {
                 int j = getRandomIndividual(x, subpopulation, state, thread);
-                if (betterThan(oldinds[j], oldinds[best], subpopulation, state, thread))  // j is better than best
+                if (betterThan(j, best, subpopulation, state, thread))  // j is better than best
                     best = j;
                 }
             
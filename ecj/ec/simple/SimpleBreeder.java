@@ -11,6 +11,7 @@ import ec.Individual;
 import ec.BreedingPipeline;
 import ec.Breeder;
 import ec.EvolutionState;
+import ec.FitnessSnapshot;
 import ec.Population;
 import ec.util.Parameter;
 import ec.util.*;
@@ -32,7 +33,16 @@ import ec.util.*;
  * <p>Prior to breeding a subpopulation, a SimpleBreeder may first fill part of the new
  * subpopulation up with the best <i>n</i> individuals from the old subpopulation.
  * By default, <i>n</i> is 0 for each subpopulation (that is, this "elitism"
- * is not done).  The elitist step is performed by a single thread.
+ * is not done).  The best individuals are found without sorting the whole subpopulation
+ * (see FitnessSnapshot.best(...)), and if there are several subpopulations, their elites
+ * are loaded in parallel by up to <i>breedthreads</i> threads.  If <i>fitness-snapshot</i>
+ * is true, individuals are compared using a FitnessSnapshot of the subpopulation where possible.
+ *
+ * <p>If EvolutionState.deriveRandom is true, each thread's random number generator is reseeded
+ * (see EvolutionState.reseedRandom(...)) before each call to produce(...), which is never asked to
+ * produce individuals across a multiple of DERIVED_RANDOM_BLOCK, and the chunks handed to the
+ * threads begin at such multiples.  Thus the same individuals are produced from the same random
+ * numbers no matter how many threads there are.
  *
  * <p>If the <i>sequential</i> parameter below is true, then breeding is done specially:
  * instead of breeding all Subpopulations each generation, we only breed one each generation.
@@ -61,6 +71,9 @@ import ec.util.*;
  <tr><td valign=top><tt><i>base</i>.sequential</tt><br>
  <font size=-1>boolean (default = false)</font></td>
  <td valign=top>(should we breed just one subpopulation each generation (as opposed to all of them)?)</td></tr>
+ <tr><td valign=top><tt><i>base</i>.fitness-snapshot</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(should we compare individuals using a FitnessSnapshot, where we can, when loading elites?)</td></tr>
  </table>
  *
  *
@@ -77,6 +90,7 @@ public class SimpleBreeder extends Breeder
     public static final String P_CLONE_PIPELINE_AND_POPULATION = "clone-pipeline-and-population";
     public static final String P_REDUCE_BY = "reduce-by";
     public static final String P_MINIMUM_SIZE = "minimum-size";
+    public static final String P_FITNESS_SNAPSHOT = "fitness-snapshot";
     /** An array[subpop] of the number of elites to keep for that subpopulation */
     public int[] elite;
     public int[] reduceBy;
@@ -85,9 +99,14 @@ public class SimpleBreeder extends Breeder
     public boolean[] reevaluateElites;
     public boolean sequentialBreeding;
     public boolean clonePipelineAndPopulation;
+    /** Should we compare individuals using a FitnessSnapshot when loading elites? */
+    public boolean useFitnessSnapshot;
     public Population backupPopulation = null;
         
     public static final int NOT_SET = -1;
+
+    /** If random numbers are derived per individual, breeding is done in blocks of this many individuals. */
+    public static final int DERIVED_RANDOM_BLOCK = 16;
     
     public ThreadPool pool = new ThreadPool();
 
@@ -140,6 +159,8 @@ public class SimpleBreeder extends Breeder
         if (!clonePipelineAndPopulation && (state.breedthreads > 1)) // uh oh, this can't be right
             state.output.fatal("The Breeder is not cloning its pipeline and population, but you have more than one thread.", base.push(P_CLONE_PIPELINE_AND_POPULATION));
 
+        useFitnessSnapshot = state.parameters.getBoolean(base.push(P_FITNESS_SNAPSHOT), null, false);
+
         int defaultSubpop = state.parameters.getInt(new Parameter(Initializer.P_POP).push(Population.P_DEFAULT_SUBPOP), null, 0);
         for(int x=0;x<size;x++)
             {
@@ -273,20 +294,25 @@ public class SimpleBreeder extends Breeder
             {
             int length = computeSubpopulationLength(state, newpop, x, 0);
 
+            // if we're deriving random numbers, chunks are made of whole blocks
+            int unit = (state.deriveRandom ? DERIVED_RANDOM_BLOCK : 1);
+            int units = (length + unit - 1) / unit;
+
             // we will have some extra individuals.  We distribute these among the early subpopulations
-            int individualsPerThread = length / numThreads;  // integer division
-            int slop = length - numThreads * individualsPerThread;
+            int unitsPerThread = units / numThreads;  // integer division
+            int slop = units - numThreads * unitsPerThread;
             int currentFrom = 0;
                                 
             for(int y=0;y<numThreads;y++)
                 {
                 if (slop > 0)
                     {
-                    numinds[y][x] = individualsPerThread + 1;
+                    numinds[y][x] = (unitsPerThread + 1) * unit;
                     slop--;
                     }
                 else
-                    numinds[y][x] = individualsPerThread;
+                    numinds[y][x] = unitsPerThread * unit;
+                numinds[y][x] = Math.min(numinds[y][x], length - currentFrom);  // the last block may be short
                     
                 if (numinds[y][x] == 0)
                     {
@@ -371,6 +397,9 @@ public class SimpleBreeder extends Breeder
                 
             pool.joinAll();
             }
+
+        if (state.deriveRandom)
+            state.reseedRandom(EvolutionState.RANDOM_BREEDING);
         return newpop;
         }
 
@@ -421,9 +450,17 @@ public class SimpleBreeder extends Breeder
                 x=from[subpop];
                 int upperbound = from[subpop]+numinds[subpop];
                 while(x<upperbound)
-                    x += bp.produce(1,upperbound-x,x,subpop,
+                    {
+                    int max = upperbound - x;
+                    if (state.deriveRandom)
+                        {
+                        state.reseedRandom(threadnum, EvolutionState.RANDOM_BREEDING, subpop, x);
+                        max = Math.min(max, DERIVED_RANDOM_BLOCK - x % DERIVED_RANDOM_BLOCK);  // don't cross into the next block
+                        }
+                    x += bp.produce(1,max,x,subpop,
                         newpop.subpops[subpop].individuals,
                         state,threadnum);
+                    }
                 if (x>upperbound) // uh oh!  Someone blew it!
                     state.output.fatal("Whoa!  A breeding pipeline overwrote the space of another pipeline in subpopulation " + subpop + ".  You need to check your breeding pipeline code (in produce() ).");
 
@@ -432,16 +469,6 @@ public class SimpleBreeder extends Breeder
             }
         }
     
-    static class EliteComparator implements SortComparatorL
-        {
-        Individual[] inds;
-        public EliteComparator(Individual[] inds) {super(); this.inds = inds;}
-        public boolean lt(long a, long b)
-            { return inds[(int)b].fitness.betterThan(inds[(int)a].fitness); }
-        public boolean gt(long a, long b)
-            { return inds[(int)a].fitness.betterThan(inds[(int)b].fitness); }
-        }
-
     protected void unmarkElitesEvaluated(EvolutionState state, Population newpop)
         {
         for(int sub=0;sub<newpop.subpops.length;sub++)
@@ -457,8 +484,50 @@ public class SimpleBreeder extends Breeder
             }
         }
 
+    /** A private helper function for loadElites which loads the elites of a single subpopulation,
+        best last, into the top of the corresponding subpopulation of newpop.  This may be called
+        from several threads at once, each loading a different subpopulation.
+        Although this method is declared protected, you should not call it. */
+
+    protected void loadElites(EvolutionState state, Population newpop, int sub)
+        {
+        Individual[] oldinds = state.population.subpops[sub].individuals;
+        Individual[] inds = newpop.subpops[sub].individuals;
+        int n = numElites(state, sub);
+        FitnessSnapshot snapshot = (useFitnessSnapshot ? FitnessSnapshot.get(state, sub) : null);
+        double[] scalars = (snapshot == null ? null : snapshot.scalars);
+                        
+        // if the number of elites is 1, then we handle this by just finding the best one.
+        if (n==1)
+            {
+            int best = 0;
+            if (scalars != null)
+                {
+                for(int x=1;x<scalars.length;x++)
+                    if (scalars[x] > scalars[best])
+                        best = x;
+                }
+            else
+                {
+                for(int x=1;x<oldinds.length;x++)
+                    if (oldinds[x].fitness.betterThan(oldinds[best].fitness))
+                        best = x;
+                }
+            inds[inds.length-1] = (Individual)(oldinds[best].clone());
+            }
+        else if (n>0)
+            {
+            // find the top N individuals, best first, without sorting everyone
+            int[] best = FitnessSnapshot.best(oldinds, scalars, n, false);
+
+            // load them, best last
+            for(int e=0;e<best.length;e++)
+                inds[inds.length-1-e] = (Individual)(oldinds[best[e]].clone());
+            }
+        }
+
     /** A private helper function for breedPopulation which loads elites into
-        a subpopulation. */
+        each subpopulation. */
 
     protected void loadElites(EvolutionState state, Population newpop)
         {
@@ -474,40 +543,34 @@ public class SimpleBreeder extends Breeder
             }
         state.output.exitIfErrors();
 
-        // we assume that we're only grabbing a small number (say <10%), so
-        // it's not being done multithreaded
-        for(int sub=0;sub<state.population.subpops.length;sub++) 
+        // load the elites of each subpopulation, in parallel if there are several
+        final int numSubpops = state.population.subpops.length;
+        final int numThreads = Math.min(state.breedthreads, numSubpops);
+        if (numThreads <= 1)
             {
-            if (!shouldBreedSubpop(state, sub, 0))  // don't load the elites for this one, we're not doing breeding of it
-                {
-                continue;
-                }
-                        
-            // if the number of elites is 1, then we handle this by just finding the best one.
-            if (numElites(state, sub)==1)
-                {
-                int best = 0;
-                Individual[] oldinds = state.population.subpops[sub].individuals;
-                for(int x=1;x<oldinds.length;x++)
-                    if (oldinds[x].fitness.betterThan(oldinds[best].fitness))
-                        best = x;
-                Individual[] inds = newpop.subpops[sub].individuals;
-                inds[inds.length-1] = (Individual)(oldinds[best].clone());
-                }
-            else if (numElites(state, sub)>0)  // we'll need to sort
+            for(int sub=0;sub<numSubpops;sub++) 
+                if (shouldBreedSubpop(state, sub, 0))  // don't load the elites for this one if we're not doing breeding of it
+                    loadElites(state, newpop, sub);
+            }
+        else
+            {
+            final EvolutionState st = state;
+            final Population pop = newpop;
+            for(int y=0;y<numThreads;y++)
                 {
-                int[] orderedPop = new int[state.population.subpops[sub].individuals.length];
-                for(int x=0;x<state.population.subpops[sub].individuals.length;x++) orderedPop[x] = x;
-
-                // sort the best so far where "<" means "not as fit as"
-                QuickSort.qsort(orderedPop, new EliteComparator(state.population.subpops[sub].individuals));
-                // load the top N individuals
-
-                Individual[] inds = newpop.subpops[sub].individuals;
-                Individual[] oldinds = state.population.subpops[sub].individuals;
-                for(int x=inds.length-numElites(state, sub);x<inds.length;x++)
-                    inds[x] = (Individual)(oldinds[orderedPop[x]].clone());
+                final int threadnum = y;
+                Runnable run = new Runnable()
+                    {
+                    public void run()
+                        {
+                        for(int sub=threadnum;sub<numSubpops;sub+=numThreads)
+                            if (shouldBreedSubpop(st, sub, threadnum))
+                                loadElites(st, pop, sub);
+                        }
+                    };
+                pool.start(run, "ECJ Elitism Thread " + y);
                 }
+            pool.joinAll();
             }
                 
         // optionally force reevaluation
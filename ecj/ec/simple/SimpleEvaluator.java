@@ -22,6 +22,11 @@ import ec.util.*;
  * own problem space.  One Problem instance is cloned from p_problem for
  * each evaluating thread.  The Problem must implement SimpleProblemForm.
  *
+ * <p>If EvolutionState.deriveRandom is true, the evaluating thread's random number
+ * generator is reseeded before each individual is evaluated (see
+ * EvolutionState.reseedRandom(...)), so that each individual is evaluated with the same
+ * random numbers no matter which thread evaluates it.
+ *
  * @author Sean Luke
  * @version 2.0 
  *
@@ -215,6 +220,9 @@ public class SimpleEvaluator extends Evaluator
 
         if (numTests > 1)
             contract(state);
+
+        if (state.deriveRandom)
+            state.reseedRandom(EvolutionState.RANDOM_EVALUATION);
         }
 
 
@@ -256,7 +264,11 @@ public class SimpleEvaluator extends Evaluator
             int upperbound = fp+numinds[pop];
             Individual[] inds = subpops[pop].individuals;
             for (int x=fp;x<upperbound;x++)
+                {
+                if (state.deriveRandom)
+                    state.reseedRandom(threadnum, EvolutionState.RANDOM_EVALUATION, pop, x);
                 p.evaluate(state,inds[x], pop, threadnum);
+                }
             }
                         
         ((ec.Problem)p).finishEvaluating(state,threadnum);
@@ -93,6 +93,7 @@ public class SimpleEvolutionState extends EvolutionState
         // EVALUATION
         statistics.preEvaluationStatistics(this);
         evaluator.evaluatePopulation(this);
+        FitnessSnapshot.invalidate(this);  // fitnesses may have changed in place
         statistics.postEvaluationStatistics(this);
 
         // SHOULD WE QUIT?
@@ -95,6 +95,12 @@ public class SimpleFitness extends Fitness
         return ((SimpleFitness)_fitness).fitness() < fitness();
         }
 
+    /** Returns fitness(), which orders SimpleFitnesses as betterThan() does. */
+    public double scalarFitness()
+        {
+        return fitness();
+        }
+
     public String fitnessToString()
         {
         return FITNESS_PREAMBLE + Code.encode(fitness());
@@ -9,6 +9,7 @@ package ec.simple;
 import ec.Initializer;
 import ec.EvolutionState;
 import ec.util.Parameter;
+import ec.util.ThreadPool;
 import ec.Population;
 
 /* 
@@ -21,7 +22,8 @@ import ec.Population;
 /**
  * SimpleInitializer is a default Initializer which initializes a Population
  * by calling the Population's populate(...) method.  For most applications,
- * this should suffice.
+ * this should suffice.  If there is more than one breeding thread, the Population
+ * is populated in parallel using that many threads.
  *
  * @author Sean Luke
  * @version 1.0 
@@ -31,20 +33,28 @@ public class SimpleInitializer extends Initializer
     {
     private static final long serialVersionUID = 1;
 
+    public ThreadPool pool = new ThreadPool();
+
     public void setup(final EvolutionState state, final Parameter base)
         { 
         }
 
     /** Creates, populates, and returns a new population by making a new
         population, calling setup(...) on it, and calling populate(...)
-        on it, assuming an unthreaded environment (thread 0).
+        on it.  If state.breedthreads is greater than 1, the population is
+        populated in parallel using that many threads, else on the given thread.
         Obviously, this is an expensive method.  It should only
         be called once typically in a run. */
 
     public Population initialPopulation(final EvolutionState state, int thread)
         {
         Population p = setupPopulation(state, thread); 
-        p.populate(state, thread);
+        if (state.breedthreads > 1)
+            p.populate(state, state.breedthreads, pool);
+        else
+            p.populate(state, thread);
+        if (state.deriveRandom)
+            state.reseedRandom(EvolutionState.RANDOM_INITIALIZATION);
         return p;
         }
                 
@@ -10,7 +10,9 @@ import ec.*;
 import ec.util.Parameter;
 import ec.util.Checkpoint;
 import ec.util.Output;
+import ec.util.FingerprintSet;
 import ec.simple.*;
+import ec.multiobjective.ParetoArchive;
 //import ec.eval.MasterProblem;
 import java.util.*; 
 
@@ -42,6 +44,12 @@ import java.util.*;
  * specify the number of evaluations (the M), then SteadyStateEvolutionState will use the standard
  * generations parameter defined in EvolutionState.
  *
+ * <p>In multiobjective runs, SteadyStateEvolutionState can also keep a ParetoArchive of each subpopulation,
+ * to which every evaluated individual is offered, so that the nondominated individuals found during the run
+ * aren't lost when they are marked for death.  An individual which the archive takes always replaces the
+ * individual marked for death.  Use ParetoArchiveSelection to select parents from the archives.
+ * MultiObjectiveStatistics reports these archives as the Pareto fronts of the run.
+ *
  
  <p><b>Parameters</b><br>
  <table>
@@ -52,6 +60,15 @@ import java.util.*;
  <font size=-1>0.0 &lt;= double &lt;= 1.0 (default is 1.0)</font></td>
  <td valign=top>(probability that an incoming individual will unilaterally replace the individual marked 
  for death, as opposed to replacing it only if the incoming individual is superior in fitness)</td></tr>
+ <tr><td valign=top><tt>steady.archive</tt><br>
+ <font size=-1>classname, inherits or = ec.multiobjective.ParetoArchive</font></td>
+ <td valign=top>(the Pareto archive to keep of each subpopulation, if any)</td></tr>
+ </table>
+ 
+ <p><b>Parameter bases</b><br>
+ <table>
+ <tr><td valign=top><tt>steady.archive</tt></td>
+ <td>The Pareto archives</td></tr>
  </table>
  
  *
@@ -63,6 +80,7 @@ import java.util.*;
 public class SteadyStateEvolutionState extends EvolutionState
     {
     public static final String P_REPLACEMENT_PROBABILITY = "replacement-probability";
+    public static final String P_ARCHIVE = "archive";
         
     /** Did we just start a new generation? */
     public boolean generationBoundary;
@@ -73,12 +91,16 @@ public class SteadyStateEvolutionState extends EvolutionState
     /** When a new individual arrives, with what probability should it directly replace the existing
         "marked for death" individual, as opposed to only replacing it if it's superior? */
     public double replacementProbability;
+    /** The Pareto archive of each subpopulation, or null if we're not keeping any. */
+    public ParetoArchive[] archives;
+    /** The archive which the archives are cloned from, or null. */
+    public ParetoArchive archivePrototype;
         
     /** How many individuals have we added to the initial population? */ 
     int[] individualCount; 
         
-    /** Hash table to check for duplicate individuals */ 
-    HashMap[] individualHash; 
+    /** Fingerprints of the individuals, used to check for duplicates */ 
+    FingerprintSet[] individualHash; 
         
     /** Holds which subpopulation we are currently operating on */
     int whichSubpop;
@@ -112,6 +134,13 @@ public class SteadyStateEvolutionState extends EvolutionState
             replacementProbability = 1.0;  // always replace
             state.output.message("Replacement probability not defined: using 1.0 (always replace)");
             }
+
+        Parameter p = SteadyStateDefaults.base().push(P_ARCHIVE);
+        if (parameters.exists(p, null))
+            {
+            archivePrototype = (ParetoArchive)(parameters.getInstanceForParameterEq(p, null, ParetoArchive.class));
+            archivePrototype.setup(state, p);
+            }
         }
     
     // recursively prints out warnings for all statistics that are not
@@ -146,8 +175,15 @@ public class SteadyStateEvolutionState extends EvolutionState
         evaluations=0; 
         whichSubpop=-1; 
                 
-        individualHash = new HashMap[population.subpops.length];
-        for(int i=0;i<population.subpops.length; i++) individualHash[i] = new HashMap();
+        individualHash = new FingerprintSet[population.subpops.length];
+        for(int i=0;i<population.subpops.length; i++) individualHash[i] = new FingerprintSet(population.subpops[i].individuals.length);
+                
+        if (archivePrototype != null)
+            {
+            archives = new ParetoArchive[population.subpops.length];
+            for(int i = 0; i < archives.length; i++)
+                archives[i] = (ParetoArchive)(archivePrototype.clone());
+            }
                 
         individualCount = new int[population.subpops.length];
         for (int sub=0; sub < population.subpops.length; sub++)  
@@ -218,12 +254,8 @@ public class SteadyStateEvolutionState extends EvolutionState
                                 
                 if (numDuplicateRetries >= 1)  
                     { 
-                    Object o = individualHash[whichSubpop].get(ind); 
-                    if (o == null) 
-                        { 
-                        individualHash[whichSubpop].put(ind, ind); 
+                    if (individualHash[whichSubpop].add(ind)) 
                         break; 
-                        }
                     }
                 } // tried to cut down the duplicates 
                         
@@ -238,6 +270,9 @@ public class SteadyStateEvolutionState extends EvolutionState
             {
             int subpop = ((SteadyStateEvaluator)evaluator).getSubpopulationOfEvaluatedIndividual(); 
             whichSubpop = subpop;
+            
+            // offer it to the archive: if the archive takes it, it's better than the individual it replaces
+            boolean archived = (archives != null && archives[subpop].add(ind));
                                              
             if ( partiallyFullSubpop ) // is subpopulation full? 
                 {  
@@ -256,6 +291,7 @@ public class SteadyStateEvolutionState extends EvolutionState
                 
                 // maybe replace dead individual with new individual
                 if (ind.fitness.betterThan(deadInd.fitness) ||         // it's better, we want it
+                    archived ||                                          // it's on the front found so far, we want it
                     random[0].nextDouble() < replacementProbability)      // it's not better but maybe we replace it directly anyway
                     {
                     population.subpops[subpop].individuals[deadIndividual] = ind;
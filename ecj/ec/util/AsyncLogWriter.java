@@ -0,0 +1,206 @@
+/*
+  Copyright 2006 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * AsyncLogWriter.java
+ */
+
+/**
+ * AsyncLogWriter is the machinery behind Output's asynchronous mode.  Threads which
+ * print to the Output do not write to the Logs themselves: instead they enqueue
+ * their text into a bounded, lock-free ring buffer and return immediately.  A single
+ * daemon writer thread removes the text in batches, writes it to the appropriate Logs,
+ * and flushes each Log once per batch rather than once per line.
+ *
+ * <p>The ring buffer is a bounded multi-producer queue in the style of Dmitry Vyukov:
+ * each slot carries a sequence number which tells producers whether the slot is free
+ * and tells the consumer whether the slot has been filled.  Producers claim slots with a
+ * single compare-and-set and never block on a monitor.  If the buffer is full, producers
+ * spin (yielding) until the writer thread catches up, which bounds the memory used.
+ * If the writer thread has died (say, from an exception thrown while writing), a
+ * producer which finds the buffer full writes out a batch itself instead, so that it
+ * never waits forever, and any exception is thrown in the producer where it can be seen.
+ *
+ * <p>Records are only ever removed by a thread holding the Output's monitor, either the
+ * writer thread or a thread which calls Output.flush(), close(), fatal(...), and the like.
+ * This guarantees that text is written out in the order it was enqueued, and that
+ * synchronous writes made by the Output (errors and fatal errors) appear after all the
+ * text enqueued before them.
+ *
+ * <p>AsyncLogWriter is not Serializable: Output holds it in a transient variable, and
+ * it is rebuilt when the Output is restarted from a checkpoint.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+class AsyncLogWriter implements Runnable
+    {
+    /** The default capacity of the ring buffer.  Must be a power of two. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** The maximum number of records written out between flushes. */
+    public static final int BATCH_SIZE = 1024;
+
+    /** How long the writer thread sleeps, in nanoseconds, when it finds the buffer empty. */
+    public static final long IDLE_NANOS = 1000000L;  // 1 ms
+
+    final Output output;
+    final int mask;
+    final AtomicLongArray sequences;
+    final String[] texts;
+    final int[] logs;
+    final boolean[] newlines;
+    final boolean[] announcements;
+    final AtomicLong tail = new AtomicLong(0);    // next slot to be claimed by a producer
+    long head = 0;                                // next slot to be consumed; guarded by output's monitor
+
+    Thread thread;
+    volatile boolean running;
+
+    /** Builds an AsyncLogWriter for the given Output with a ring buffer of the given
+        capacity, which is rounded up to a power of two. */
+    public AsyncLogWriter(Output output, int capacity)
+        {
+        this.output = output;
+        int c = 1;
+        while(c < capacity) c <<= 1;
+        mask = c - 1;
+        sequences = new AtomicLongArray(c);
+        for(int i = 0; i < c; i++)
+            sequences.set(i, i);
+        texts = new String[c];
+        logs = new int[c];
+        newlines = new boolean[c];
+        announcements = new boolean[c];
+        }
+
+    /** Starts the writer thread. */
+    public void start()
+        {
+        running = true;
+        thread = new Thread(this, "ECJ Output Writer");
+        thread.setDaemon(true);
+        thread.start();
+        }
+
+    /** Tells the writer thread to stop.  Does not wait for it: the thread writes out
+        whatever remains in the buffer and then dies.  This may be called while holding the
+        Output's monitor (as Output.close() does). */
+    public void stop()
+        {
+        running = false;
+        LockSupport.unpark(thread);
+        }
+
+    /** Enqueues text to be written to the given log (or ALL_MESSAGE_LOGS).  If
+        <i>newline</i> is true, the text is written with println, else with print.
+        If the buffer is full, waits for the writer thread to make room.  Never acquires
+        a monitor. */
+    public void enqueue(String text, int log, boolean newline, boolean announcement)
+        {
+        long pos;
+        while(true)
+            {
+            pos = tail.get();
+            int slot = (int)(pos & mask);
+            long dif = sequences.get(slot) - pos;
+            if (dif == 0)
+                {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+                }
+            else if (dif < 0)
+                {
+                // buffer is full.  If we hold the Output's monitor (say, we're inside
+                // warning(...)) the writer thread can't get in, so we drain it ourselves.
+                // Otherwise we let the writer thread catch up.
+                if (Thread.holdsLock(output))
+                    drain(BATCH_SIZE);
+                else if (!thread.isAlive())
+                    {
+                    // the writer thread is gone, so nobody will make room for us
+                    synchronized(output) { drain(BATCH_SIZE); }
+                    }
+                else
+                    {
+                    LockSupport.unpark(thread);
+                    Thread.yield();
+                    }
+                }
+            // else another producer beat us to the slot; retry
+            }
+        int slot = (int)(pos & mask);
+        texts[slot] = text;
+        logs[slot] = log;
+        newlines[slot] = newline;
+        announcements[slot] = announcement;
+        sequences.set(slot, pos + 1);   // publish
+        }
+
+    /** Writes out up to <i>max</i> records, then flushes every log which was written to.
+        Returns the number of records written.  The caller must hold the Output's monitor. */
+    int drain(int max)
+        {
+        int count = 0;
+        int numLogs = output.logs.size();       // logs can't change under us: we hold the monitor
+        boolean[] touched = new boolean[numLogs];
+        while(count < max)
+            {
+            int slot = (int)(head & mask);
+            if (sequences.get(slot) != head + 1) break;     // empty, or producer hasn't published yet
+
+            String text = texts[slot];
+            int log = logs[slot];
+            boolean newline = newlines[slot];
+            boolean announcement = announcements[slot];
+            texts[slot] = null;  // let GC have it
+            sequences.set(slot, head + mask + 1);           // release the slot to producers
+            head++;
+            count++;
+
+            if (log == Output.ALL_MESSAGE_LOGS)
+                {
+                for(int x = 0; x < numLogs; x++)
+                    if (output.write(text, (Log)(output.logs.elementAt(x)), newline, announcement, false, false))
+                        touched[x] = true;
+                }
+            else if (log >= 0 && log < numLogs)
+                {
+                if (output.write(text, (Log)(output.logs.elementAt(log)), newline, announcement, false, false))
+                    touched[log] = true;
+                }
+            }
+
+        for(int x = 0; x < numLogs; x++)
+            if (touched[x])
+                ((Log)(output.logs.elementAt(x))).writer.flush();
+        return count;
+        }
+
+    /** Writes out everything currently in the buffer.  The caller must hold the Output's monitor. */
+    void drainAll()
+        {
+        while(drain(BATCH_SIZE) > 0) { }
+        }
+
+    public void run()
+        {
+        while(running)
+            {
+            int count;
+            synchronized(output) { count = drain(BATCH_SIZE); }
+            if (count == 0)
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        // write out whatever remains
+        synchronized(output) { drainAll(); }
+        }
+    }
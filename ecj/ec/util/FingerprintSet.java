@@ -0,0 +1,260 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+import ec.Individual;
+import java.util.HashSet;
+
+/*
+ * FingerprintSet.java
+ */
+
+/**
+ * A FingerprintSet is a set of 64-bit fingerprints, as returned by Individual.fingerprint(), used to
+ * detect duplicate individuals.  Unlike a HashSet of Individuals, it neither holds on to the individuals
+ * nor calls their hashCode() and equals(...) methods, which may walk over the entire genotype
+ * every time they are called.  Instead each individual is fingerprinted once, and the fingerprint is
+ * stored in a primitive open-addressing hash table with linear probing.
+ *
+ * <p>Trusting the fingerprint alone is only safe for individuals whose hasUniqueFingerprint() is true,
+ * such as the vector individuals with primitive genomes, whose fingerprints fold in every bit of the
+ * genotype.  Other fingerprints are built from 32-bit hash codes (of genes, GP nodes, ERCs, or the whole
+ * individual) and may collide.  So if you add, remove, or look up individuals (rather than fingerprints),
+ * an individual without a unique fingerprint is instead kept in an ordinary HashSet, hashed by its
+ * fingerprint but compared with equals(...), and is never mistaken for a duplicate.  A FingerprintSet
+ * will never claim that a duplicate is not one, so long as fingerprint() is consistent with equals(...).
+ *
+ * <p>clear() takes constant time: each slot is stamped with the "generation" of the set in which it
+ * was filled, and clearing the set simply moves on to the next generation, which makes every
+ * old slot empty.  This makes it cheap to reuse the same set generation after generation.
+ *
+ * <p>FingerprintSet also has some static methods, mix(...) and combine(...), for building fingerprints.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class FingerprintSet implements Cloneable, java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The initial fingerprint to which the genes of an individual are combined. */
+    public static final long SEED = 0x9E3779B97F4A7C15L;
+
+    static final int MINIMUM_CAPACITY = 16;
+
+    long[] keys;
+    int[] stamps;   // slot x is full if stamps[x] == stamp
+    int stamp;
+    int size;
+    HashSet<Confirmed> others;  // individuals without unique fingerprints, if any
+
+    /** An individual without a unique fingerprint.  Its fingerprint is computed once and used as
+        its hash code, and equal fingerprints are confirmed with equals(...). */
+    static class Confirmed implements java.io.Serializable
+        {
+        private static final long serialVersionUID = 1;
+        Individual ind;
+        long fingerprint;
+        Confirmed(Individual ind)
+            {
+            this.ind = ind;
+            fingerprint = ind.fingerprint();
+            }
+        public int hashCode()
+            {
+            return (int)(fingerprint ^ (fingerprint >>> 32));
+            }
+        public boolean equals(Object obj)
+            {
+            if (!(obj instanceof Confirmed)) return false;
+            Confirmed other = (Confirmed)obj;
+            return other.fingerprint == fingerprint && other.ind.equals(ind);
+            }
+        }
+
+    /** Builds an empty set. */
+    public FingerprintSet()
+        {
+        this(MINIMUM_CAPACITY);
+        }
+
+    /** Builds an empty set which can hold the given number of fingerprints without growing. */
+    public FingerprintSet(int expectedSize)
+        {
+        allocate(expectedSize);
+        }
+
+    void allocate(int expectedSize)
+        {
+        int capacity = MINIMUM_CAPACITY;
+        while(capacity < expectedSize * 2 && capacity < (1 << 30))  // keep the load at or below 1/2
+            capacity <<= 1;
+        keys = new long[capacity];
+        stamps = new int[capacity];
+        stamp = 1;
+        size = 0;
+        }
+
+    public Object clone()
+        {
+        try
+            {
+            FingerprintSet s = (FingerprintSet)(super.clone());
+            s.keys = keys.clone();
+            s.stamps = stamps.clone();
+            if (others != null) s.others = new HashSet<Confirmed>(others);
+            return s;
+            }
+        catch (CloneNotSupportedException e)
+            { throw new InternalError(); } // never happens
+        }
+
+    /** Returns the number of fingerprints (and individuals without fingerprints) in the set. */
+    public int size() { return size + (others == null ? 0 : others.size()); }
+
+    /** Empties the set.  If it holds only fingerprints, this takes constant time. */
+    public void clear()
+        {
+        if (others != null) others.clear();
+        size = 0;
+        if (++stamp == 0)  // wrapped around, very unlikely
+            {
+            java.util.Arrays.fill(stamps, 0);
+            stamp = 1;
+            }
+        }
+
+    int home(long fingerprint)
+        {
+        return (int)(mix(fingerprint)) & (keys.length - 1);
+        }
+
+    // returns the slot holding the fingerprint, or the empty slot where it would go
+    int find(long fingerprint)
+        {
+        int mask = keys.length - 1;
+        int slot = home(fingerprint);
+        while(stamps[slot] == stamp && keys[slot] != fingerprint)
+            slot = (slot + 1) & mask;
+        return slot;
+        }
+
+    /** Returns true if the set contains the given fingerprint. */
+    public boolean contains(long fingerprint)
+        {
+        return stamps[find(fingerprint)] == stamp;
+        }
+
+    /** Adds the fingerprint to the set.  Returns true if it was not already in the set. */
+    public boolean add(long fingerprint)
+        {
+        int slot = find(fingerprint);
+        if (stamps[slot] == stamp)
+            return false;
+        keys[slot] = fingerprint;
+        stamps[slot] = stamp;
+        if (++size * 2 > keys.length)
+            grow();
+        return true;
+        }
+
+    /** Removes the fingerprint from the set.  Returns true if it was in the set. */
+    public boolean remove(long fingerprint)
+        {
+        int mask = keys.length - 1;
+        int slot = find(fingerprint);
+        if (stamps[slot] != stamp)
+            return false;
+
+        // Shift later members of the run back into the hole so that none of them
+        // is cut off from its home slot.  See Knuth, TAOCP vol. 3, Algorithm 6.4R.
+        int hole = slot;
+        int next = hole;
+        while(true)
+            {
+            next = (next + 1) & mask;
+            if (stamps[next] != stamp) break;
+            int h = home(keys[next]);
+            // can keys[next] move back to the hole?  Only if its home isn't cyclically in (hole, next]
+            if (hole <= next ? (hole >= h || h > next) : (hole >= h && h > next))
+                {
+                keys[hole] = keys[next];
+                hole = next;
+                }
+            }
+        stamps[hole] = 0;
+        size--;
+        return true;
+        }
+
+    /** Returns true if the set contains the individual's fingerprint, or if it doesn't have a
+        unique fingerprint, an individual equal to it. */
+    public boolean contains(Individual ind)
+        {
+        if (ind.hasUniqueFingerprint()) return contains(ind.fingerprint());
+        return others != null && others.contains(new Confirmed(ind));
+        }
+
+    /** Adds the individual's fingerprint to the set, or if it doesn't have a unique fingerprint,
+        the individual itself.  Returns true if it was not already in the set. */
+    public boolean add(Individual ind)
+        {
+        if (ind.hasUniqueFingerprint()) return add(ind.fingerprint());
+        if (others == null) others = new HashSet<Confirmed>();
+        return others.add(new Confirmed(ind));
+        }
+
+    /** Removes the individual's fingerprint from the set, or if it doesn't have a unique
+        fingerprint, an individual equal to it.  Returns true if it was in the set. */
+    public boolean remove(Individual ind)
+        {
+        if (ind.hasUniqueFingerprint()) return remove(ind.fingerprint());
+        return others != null && others.remove(new Confirmed(ind));
+        }
+
+    void grow()
+        {
+        long[] oldKeys = keys;
+        int[] oldStamps = stamps;
+        int oldStamp = stamp;
+        keys = new long[oldKeys.length * 2];
+        stamps = new int[oldKeys.length * 2];
+        stamp = 1;
+        int mask = keys.length - 1;
+        for(int x = 0; x < oldKeys.length; x++)
+            if (oldStamps[x] == oldStamp)
+                {
+                int slot = home(oldKeys[x]);
+                while(stamps[slot] == stamp)
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[x];
+                stamps[slot] = stamp;
+                }
+        }
+
+    /** Scrambles the bits of the given value, so that similar values produce very different results.
+        This is a bijection, so different values always produce different results.  (It is the finalizer
+        of the MurmurHash3 hash function.) */
+    public static long mix(long value)
+        {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+        }
+
+    /** Returns a fingerprint built from the given fingerprint followed by the given value.  To fingerprint
+        a sequence of values, start with SEED (or something particular to the kind of thing being fingerprinted),
+        then combine each value in turn.  The order of the values matters. */
+    public static long combine(long fingerprint, long value)
+        {
+        return mix(fingerprint * SEED + value);
+        }
+    }
@@ -59,6 +59,17 @@ import java.util.Enumeration;
  * 
  * <p>Output will also store all announcements in memory by default so as to reproduce
  * them if it's restarted from a checkpoint.  You can change this behavior also by
+ * calling setStore(false), or bound the memory used with setMaxAnnouncements(...).
+ *
+ * <p>Output is normally <i>synchronous</i>: every print or println writes straight to the
+ * logs, while holding the Output's monitor, on the calling thread.  If many threads print
+ * (for example, evaluation threads calling message(...)), they will contend for that monitor
+ * and wait on disk I/O.  Calling setAsynchronous(true) puts Output in <i>asynchronous</i> mode:
+ * messages, warnings, and non-announcement print and println calls are enqueued into a
+ * lock-free ring buffer and written out, in order and in batches, by a dedicated writer thread
+ * (see AsyncLogWriter).  Errors and fatal errors are still flushed synchronously, as are
+ * flush() and close(), so nothing is lost if the system exits.  Announcements are stored in
+ * memory when they are actually written, so the set stored is the same in either mode.
  *
  * @author Sean Luke
  * @version 1.0
@@ -83,6 +94,10 @@ public class Output implements Serializable
     boolean store = true;
     String filePrefix = "";
     boolean throwsErrors = false;
+    int maxAnnouncements = 0;
+    boolean announcementsTruncated = false;
+    boolean async = false;
+    transient volatile AsyncLogWriter asyncWriter = null;
 
     /** Total verbosity */
     public static final int V_VERBOSE = 0;
@@ -141,6 +156,13 @@ public class Output implements Serializable
         // just in case
         flush();
         
+        // shut down the writer thread; nothing more is written from here on
+        if (asyncWriter != null)
+            {
+            asyncWriter.stop();
+            asyncWriter = null;
+            }
+
         Enumeration e = logs.elements();
         while(e.hasMoreElements())
             {
@@ -153,6 +175,10 @@ public class Output implements Serializable
     /** Flushes the logs */
     public synchronized void flush()
         {
+        // write out anything waiting in the asynchronous buffer first
+        if (asyncWriter != null)
+            asyncWriter.drainAll();
+
         Enumeration e = logs.elements();
         while(e.hasMoreElements())
             {
@@ -207,6 +233,50 @@ public class Output implements Serializable
         {
         return store;
         }
+
+    /** Sets the maximum number of announcements the Output stores in memory for reposting
+        on restart.  Once this many have been stored, further announcements are still written
+        to the logs but are not stored (a single note saying so is stored in their place).
+        The earliest announcements are kept because they include the version, thread, and seed
+        messages.  A value of 0 (the default) means there is no limit.  */
+    public synchronized void setMaxAnnouncements(int v)
+        {
+        maxAnnouncements = (v < 0 ? 0 : v);
+        }
+
+    /** Returns the maximum number of announcements the Output stores in memory, or 0 if there is no limit. */
+    public synchronized int getMaxAnnouncements()
+        {
+        return maxAnnouncements;
+        }
+
+    /** Turns asynchronous mode on or off.  In asynchronous mode, print and println requests,
+        messages, and warnings are enqueued and written out by a dedicated writer thread; errors,
+        fatal errors, flush(), and close() still write everything out synchronously.
+        Turning asynchronous mode off writes out anything still enqueued.  You should only turn
+        asynchronous mode off when no other threads are printing to the Output.  */
+    public synchronized void setAsynchronous(boolean v)
+        {
+        async = v;
+        if (v && asyncWriter == null)
+            {
+            asyncWriter = new AsyncLogWriter(this, AsyncLogWriter.DEFAULT_CAPACITY);
+            asyncWriter.start();
+            }
+        else if (!v && asyncWriter != null)
+            {
+            AsyncLogWriter w = asyncWriter;
+            asyncWriter = null;
+            w.stop();
+            w.drainAll();
+            }
+        }
+
+    /** Returns true if the Output is in asynchronous mode. */
+    public synchronized boolean isAsynchronous()
+        {
+        return async;
+        }
     
     /** Sets the Output object's general verbosity to <i>v</i>. 
         @deprecated Verbosity no longer has an effect.
@@ -570,6 +640,7 @@ public class Output implements Serializable
         {
         println(a("ERROR:\n"+s), ALL_MESSAGE_LOGS, true);
         errors = true;
+        if (asyncWriter != null) flush();
         }
             
     /** Posts a simple error. This causes the error flag to be raised as well. */
@@ -578,6 +649,7 @@ public class Output implements Serializable
         println(a("ERROR:\n"+s), ALL_MESSAGE_LOGS, true);
         if (p1!=null) println(a("PARAMETER: " + p1), ALL_MESSAGE_LOGS, true);
         errors = true;
+        if (asyncWriter != null) flush();
         }
 
     /** Posts a simple error. This causes the error flag to be raised as well. */
@@ -588,6 +660,7 @@ public class Output implements Serializable
         if (p2!=null && p1!=null) println(a("     ALSO: " + p2), ALL_MESSAGE_LOGS, true);
         else println(a("PARAMETER: " + p2), ALL_MESSAGE_LOGS, true);
         errors = true;
+        if (asyncWriter != null) flush();
         }
 
     /** Posts a warning. */
@@ -647,7 +720,7 @@ public class Output implements Serializable
 
     
     /** Posts a message. */
-    public synchronized void message(String s)
+    public void message(String s)
         {
         println(s, ALL_MESSAGE_LOGS, true);
         }
@@ -686,20 +759,47 @@ public class Output implements Serializable
         boolean _announcement,
         boolean _reposting) throws OutputException
         {
-        if (log==null) return;
+        // always flush
+        write(s, log, true, _announcement, _reposting, true);
+        }
+
+    /** Writes text to a given log, with or without a trailing newline, and possibly flushes
+        the log.  If the text is an announcement (and we're not reposting), it's stashed in
+        memory.  Returns true if the text was actually written.  This is the single place where
+        text reaches a Log, both in synchronous mode and from the asynchronous writer thread.  
+        The caller must hold the Output's monitor. */
+    boolean write(String s,
+        Log log,
+        boolean newline,
+        boolean _announcement,
+        boolean _reposting,
+        boolean flush) throws OutputException
+        {
+        if (log==null) return false;
         if (log.writer==null) throw new OutputException("Log with a null writer: " + log);
-        if (!log.postAnnouncements && _announcement) return;  // don't write it
+        if (!log.postAnnouncements && _announcement) return false;  // don't write it
         // if (log.verbosity >= _verbosity) return;  // don't write it
         // if (verbosity >= _verbosity) return;  // don't write it
-        if (log.silent) return;  // don't write it
+        if (log.silent) return false;  // don't write it
         // now write it
-        log.writer.println(s);
-        // if (flush) 
-        // always flush
-        log.writer.flush();
+        if (newline) log.writer.println(s);
+        else log.writer.print(s);
+        if (flush) log.writer.flush();
         //...and stash it in memory maybe
         if (store && _announcement && !_reposting)
-            announcements.addElement(new Announcement(s));
+            storeAnnouncement(s);
+        return true;
+        }
+
+    void storeAnnouncement(String s)
+        {
+        if (maxAnnouncements > 0 && announcements.size() >= maxAnnouncements)
+            {
+            if (announcementsTruncated) return;
+            announcementsTruncated = true;
+            s = "[Further announcements were not stored: the limit of " + maxAnnouncements + " was reached]";
+            }
+        announcements.addElement(new Announcement(s));
         }
 
 
@@ -708,30 +808,40 @@ public class Output implements Serializable
         If the log is NO_LOGS, nothing is printed.
         @deprecated Verbosity no longer has an effect
     */
-    synchronized void println(String s,
+    void println(String s,
         int _verbosity,
         int log,
         boolean _announcement) throws OutputException
         {
         if (log==NO_LOGS) return;
+        AsyncLogWriter w = asyncWriter;
+        if (w != null)
+            w.enqueue(s, log, true, _announcement);
+        else printlnNow(s, log, _announcement);
+        }
+
+    synchronized void printlnNow(String s,
+        int log,
+        boolean _announcement) throws OutputException
+        {
         if (log==ALL_MESSAGE_LOGS) for (int x = 0; x<logs.size();x++)
                                        {
                                        Log l = (Log) logs.elementAt(x);
                                        if (l==null) throw new OutputException("Unknown log number" + l);
-                                       println(s,_verbosity,l,_announcement,false);
+                                       println(s,V_VERBOSE,l,_announcement,false);
                                        }
         else
             {
             Log l = (Log) logs.elementAt(log);
             if (l==null) throw new OutputException("Unknown log number" + log);
-            println(s,_verbosity,l,_announcement,false);
+            println(s,V_VERBOSE,l,_announcement,false);
             }
         }
 
     /** Prints a message to a given log.  If log==ALL_MESSAGE_LOGS, posted to all logs which accept announcements. 
         If the log is NO_LOGS, nothing is printed.
     */
-    public synchronized void println(String s,
+    public void println(String s,
         int log,
         boolean _announcement) throws OutputException
         {
@@ -745,14 +855,14 @@ public class Output implements Serializable
         If a log is NO_LOGS, nothing is printed to that log.
         @deprecated Verbosity no longer has an effect
     */
-    public synchronized void println(String s,
+    public void println(String s,
         int _verbosity,
         int[] _logs) throws OutputException
         {
         for(int x=0;x<_logs.length;x++)
             {
             if (_logs[x]==NO_LOGS) break;
-            println(s,V_VERBOSE,(Log)(logs.elementAt(_logs[x])),false,false);
+            println(s,V_VERBOSE,_logs[x],false);
             }
         }
 
@@ -762,12 +872,12 @@ public class Output implements Serializable
         If the log is NO_LOGS, nothing is printed.
         @deprecated Verbosity no longer has an effect
     */
-    public synchronized void println(String s,
+    public void println(String s,
         int _verbosity,
         int log) throws OutputException
         {
         if (log==NO_LOGS) return;
-        println(s,V_VERBOSE,(Log)(logs.elementAt(log)),false,false);
+        println(s,V_VERBOSE,log,false);
         }
 
 
@@ -775,7 +885,7 @@ public class Output implements Serializable
         Prints a non-announcement message to the given logs, with a verbosity of V_NO_GENERAL. 
         If the log is NO_LOGS, nothing is printed.
     */
-    public synchronized void println(String s,
+    public void println(String s,
         int log) throws OutputException
         {
         if (log==NO_LOGS) return;
@@ -797,9 +907,8 @@ public class Output implements Serializable
         //if (verbosity >= _verbosity) return;  // don't write it
         if (log.silent) return;  // don't write it
         // now write it
-        log.writer.print(s);
         // do not flush until you get a println
-        //if (flush) log.writer.flush();
+        write(s, log, false, false, false, false);
         }
 
     /** Prints a non-announcement message to a given log, with a
@@ -807,11 +916,20 @@ public class Output implements Serializable
         No '\n' is printed.  
         If the log is NO_LOGS, nothing is printed.
     */
-    public synchronized void print(String s,
+    public void print(String s,
         int _verbosity,
         int log) throws OutputException
         {
         if (log==NO_LOGS) return;
+        AsyncLogWriter w = asyncWriter;
+        if (w != null)
+            w.enqueue(s, log, false, false);
+        else printNow(s, log);
+        }
+
+    synchronized void printNow(String s,
+        int log) throws OutputException
+        {
         if (log==ALL_MESSAGE_LOGS) for (int x = 0; x<logs.size();x++)
                                        {
                                        Log l = (Log) logs.elementAt(x);
@@ -830,7 +948,7 @@ public class Output implements Serializable
         If log==ALL_MESSAGE_LOGS, posted to all logs which accept announcements. No '\n' is printed.  
         If the log is NO_LOGS, nothing is printed.
     */
-    public synchronized void print(String s,
+    public void print(String s,
         int log) throws OutputException
         {
         print(s, V_VERBOSE, log);
@@ -841,7 +959,7 @@ public class Output implements Serializable
         If a log is NO_LOGS, nothing is printed to that log.
         @deprecated Verbosity no longer has any effect 
     */
-    public synchronized void print(String s,
+    public void print(String s,
         int _verbosity,
         int[] _logs) throws OutputException
         {
@@ -856,7 +974,7 @@ public class Output implements Serializable
         with a certain verbosity. No '\n' is printed.  
         If a log is NO_LOGS, nothing is printed to that log.
     */
-    public synchronized void print(String s,
+    public void print(String s,
         int[] _logs) throws OutputException
         {
         print(s, V_VERBOSE, _logs);
@@ -885,6 +1003,7 @@ public class Output implements Serializable
         {
         if (announcements!=null)
             announcements = new Vector();
+        announcementsTruncated = false;
         }
 
     public synchronized void restart() throws IOException
@@ -906,9 +1025,24 @@ public class Output implements Serializable
                 }
             }
 
+        // the writer thread doesn't survive checkpointing: build a new one
+        if (async && asyncWriter == null)
+            {
+            asyncWriter = new AsyncLogWriter(this, AsyncLogWriter.DEFAULT_CAPACITY);
+            asyncWriter.start();
+            }
+
         // exit with a fatal error if the errors flag is set. 
         exitIfErrors();
         }
+
+    // Anything still waiting in the asynchronous buffer is written out before
+    // the Output is checkpointed.
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException
+        {
+        flush();
+        out.defaultWriteObject();
+        }
         
     /** Returns a compressing input stream using JZLib (http://www.jcraft.com/jzlib/).  If JZLib is not available on your system, this method will return null. */
     public static InputStream makeCompressingInputStream(InputStream in)
@@ -399,6 +399,147 @@ public class ParameterDatabase extends Properties implements Serializable
     Class relativeClass;
     String relativePath;
 
+    // Time (in nanoseconds) spent loading classes and building instances, per parameter,
+    // and how many times each parameter was so used.  Built lazily.
+    Hashtable<String, Long> instantiationTimes;
+    Hashtable<String, Integer> instantiationCounts;
+
+    // Loaded classes, keyed first by the ClassLoader used to load them and then by class name.
+    // Shared among all databases in the JVM.  A Class refers to its ClassLoader, so the classes
+    // are held by WeakReferences: otherwise the weak key could never be dropped, and every
+    // loader which passed through (say, one per job in a daemon) would leak.  A class can't be
+    // unloaded while its loader is alive, so the references aren't cleared prematurely.
+    static final WeakHashMap<ClassLoader, HashMap<String, java.lang.ref.WeakReference<Class<?>>>> classCache = 
+        new WeakHashMap<ClassLoader, HashMap<String, java.lang.ref.WeakReference<Class<?>>>>();
+
+    // No-argument constructors, keyed weakly by class.  Shared among all databases in the JVM.
+    // A Constructor refers to its Class, so for the same reason the constructors are held by
+    // SoftReferences.  Thus an otherwise unreachable loader is collected, at the latest, once
+    // the collector needs the memory and clears them.  (WeakReferences would be cleared at
+    // the next collection, since nobody else holds on to the Constructor objects.)
+    static final WeakHashMap<Class<?>, java.lang.ref.SoftReference<java.lang.reflect.Constructor<?>>> constructorCache = 
+        new WeakHashMap<Class<?>, java.lang.ref.SoftReference<java.lang.reflect.Constructor<?>>>();
+
+    /** Loads the named class with the current thread's context class loader, as
+        Class.forName(name, true, loader) would, but remembers the result so that
+        the same class named by many parameters (GP function nodes, pipelines,
+        subpopulations, species...) or by many successive runs in the same JVM
+        is only looked up once. */
+    static Class<?> loadClass(String name) throws ClassNotFoundException
+        {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        HashMap<String, java.lang.ref.WeakReference<Class<?>>> classes;
+        synchronized(classCache)
+            {
+            classes = classCache.get(loader);
+            if (classes == null)
+                {
+                classes = new HashMap<String, java.lang.ref.WeakReference<Class<?>>>();
+                classCache.put(loader, classes);
+                }
+            java.lang.ref.WeakReference<Class<?>> ref = classes.get(name);
+            Class<?> c = (ref == null ? null : ref.get());
+            if (c != null) return c;
+            }
+        Class<?> c = Class.forName(name, true, loader);  // don't hold the lock while loading: static initializers may load parameters
+        synchronized(classCache) { classes.put(name, new java.lang.ref.WeakReference<Class<?>>(c)); }
+        return c;
+        }
+
+    /** Builds an instance of the given class with its no-argument constructor, which is
+        looked up once and cached.  Exceptions thrown by the constructor itself are passed
+        through unchanged, as Class.newInstance() does.  */
+    static Object newInstance(Class<?> c) throws InstantiationException, IllegalAccessException
+        {
+        java.lang.reflect.Constructor<?> cons;
+        synchronized(constructorCache)
+            {
+            java.lang.ref.SoftReference<java.lang.reflect.Constructor<?>> ref = constructorCache.get(c);
+            cons = (ref == null ? null : ref.get());
+            }
+        if (cons == null)
+            {
+            if (c.isInterface() || java.lang.reflect.Modifier.isAbstract(c.getModifiers()))
+                throw new InstantiationException(c.getName());
+            try
+                {
+                cons = c.getDeclaredConstructor((Class<?>[])null);
+                }
+            catch (NoSuchMethodException e)
+                {
+                throw new InstantiationException(c.getName() + " has no default constructor");
+                }
+            synchronized(constructorCache) { constructorCache.put(c, new java.lang.ref.SoftReference<java.lang.reflect.Constructor<?>>(cons)); }
+            }
+        try
+            {
+            return cons.newInstance((Object[])null);
+            }
+        catch (java.lang.reflect.InvocationTargetException e)
+            {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            InstantiationException ie = new InstantiationException("Exception in constructor of " + c.getName() + ": " + t);
+            ie.initCause(t);
+            throw ie;
+            }
+        }
+
+    /** Adds the given time (in nanoseconds) to the time recorded for the given parameter. */
+    synchronized void recordInstantiationTime(Parameter parameter, long nanos)
+        {
+        if (instantiationTimes == null)
+            {
+            instantiationTimes = new Hashtable<String, Long>();
+            instantiationCounts = new Hashtable<String, Integer>();
+            }
+        Long t = instantiationTimes.get(parameter.param);
+        instantiationTimes.put(parameter.param, Long.valueOf(nanos + (t == null ? 0 : t.longValue())));
+        Integer n = instantiationCounts.get(parameter.param);
+        instantiationCounts.put(parameter.param, Integer.valueOf(1 + (n == null ? 0 : n.intValue())));
+        }
+
+    /** Prints out the <i>max</i> parameters (or all of them if <i>max</i> &lt;= 0) which took the
+        most time to load classes for and build instances from, via getInstanceForParameter(...),
+        getInstanceForParameterEq(...), or getClassForParameter(...), in decreasing order of time.
+        Each line gives the total time in milliseconds, the number of times the parameter was used,
+        the parameter, and its value.  This is useful for finding what makes startup slow.  Note that
+        this does not include the time taken by the setup(...) method of the instances.  */
+    public synchronized void listInstantiationTimes(PrintWriter p, int max)
+        {
+        if (instantiationTimes == null)
+            {
+            p.flush();
+            return;
+            }
+        String[] keys = instantiationTimes.keySet().toArray(new String[0]);
+        Arrays.sort(keys, new Comparator<String>()
+            {
+            public int compare(String s1, String s2)
+                {
+                long t1 = instantiationTimes.get(s1).longValue();
+                long t2 = instantiationTimes.get(s2).longValue();
+                return (t1 > t2 ? -1 : (t1 < t2 ? 1 : s1.compareTo(s2)));
+                }
+            });
+        long total = 0;
+        for(int x = 0; x < keys.length; x++)
+            total += instantiationTimes.get(keys[x]).longValue();
+        int n = (max <= 0 || max > keys.length ? keys.length : max);
+        for(int x = 0; x < n; x++)
+            {
+            String s = keys[x];
+            String v = _get(s);
+            uncheck();
+            if (v == null) v = UNKNOWN_VALUE;
+            p.println(instantiationTimes.get(s).longValue() / 1000000.0 + " ms\t" + 
+                instantiationCounts.get(s) + "x\t" + s + " = " + v);
+            }
+        p.println("Total: " + total / 1000000.0 + " ms over " + keys.length + " parameters");
+        p.flush();
+        }
+
     /**
      * Searches down through databases to find a given parameter, whose value
      * must be a full Class name, and the class must be a descendent of but not
@@ -424,7 +565,8 @@ public class ParameterDatabase extends Properties implements Serializable
                     + defaultParameter));
         try 
             {
-            Class c = Class.forName(get(p), true, Thread.currentThread().getContextClassLoader());
+            long time = System.nanoTime();
+            Class c = loadClass(get(p));
             if (!mustCastTosuperclass.isAssignableFrom(c))
                 throw new ParamClassLoadException("The class "
                     + c.getName()
@@ -443,7 +585,9 @@ public class ParameterDatabase extends Properties implements Serializable
                     + parameter
                     + (defaultParameter == null ? "" : "\n     ALSO: "
                         + defaultParameter));
-            return c.newInstance();
+            Object o = newInstance(c);
+            recordInstantiationTime(p, System.nanoTime() - time);
+            return o;
             } 
         catch (ClassNotFoundException e) 
             {
@@ -514,7 +658,8 @@ public class ParameterDatabase extends Properties implements Serializable
                     + defaultParameter));
         try
             {
-            Class c = Class.forName(get(p), true, Thread.currentThread().getContextClassLoader());
+            long time = System.nanoTime();
+            Class c = loadClass(get(p));
             if (!mustCastTosuperclass.isAssignableFrom(c))
                 throw new ParamClassLoadException("The class "
                     + c.getName()
@@ -525,7 +670,9 @@ public class ParameterDatabase extends Properties implements Serializable
                     + "\n     ALSO: "
                     + (defaultParameter == null ? "" : "\n     ALSO: "
                         + defaultParameter));
-            return c.newInstance();
+            Object o = newInstance(c);
+            recordInstantiationTime(p, System.nanoTime() - time);
+            return o;
             } 
         catch (ClassNotFoundException e) 
             {
@@ -601,7 +748,8 @@ public class ParameterDatabase extends Properties implements Serializable
                     + defaultParameter));
         try
             {
-            Class c = Class.forName(get(p), true, Thread.currentThread().getContextClassLoader());
+            long time = System.nanoTime();
+            Class c = loadClass(get(p));
             if (!mustCastTosuperclass.isAssignableFrom(c))
                 throw new ParamClassLoadException("The class "
                     + c.getName()
@@ -612,6 +760,7 @@ public class ParameterDatabase extends Properties implements Serializable
                     + "\n     ALSO: "
                     + (defaultParameter == null ? "" : "\n     ALSO: "
                         + defaultParameter));
+            recordInstantiationTime(p, System.nanoTime() - time);
             return c;
             } 
         catch (ClassNotFoundException e) 
@@ -1633,7 +1782,7 @@ public class ParameterDatabase extends Properties implements Serializable
                         return null;
                     String classname = p.substring(C_CLASS.length(),i);
                     String filename = p.substring(i).trim();
-                    return Class.forName(classname, true, Thread.currentThread().getContextClassLoader()).getResourceAsStream(filename);
+                    return loadClass(classname).getResourceAsStream(filename);
                     }
                 else 
                     {
@@ -2600,7 +2749,7 @@ public class ParameterDatabase extends Properties implements Serializable
                 String filename = s.substring(i).trim();
                 try
                     {
-                    parents.addElement(new ParameterDatabase(filename, Class.forName(classname, true, Thread.currentThread().getContextClassLoader())));
+                    parents.addElement(new ParameterDatabase(filename, loadClass(classname)));
                     }
                 catch (ClassNotFoundException ex)
                     {
@@ -2643,7 +2792,7 @@ public class ParameterDatabase extends Properties implements Serializable
                 String filename = s.substring(i).trim();
                 try
                     {
-                    parents.addElement(new ParameterDatabase(filename, Class.forName(classname, true, Thread.currentThread().getContextClassLoader())));
+                    parents.addElement(new ParameterDatabase(filename, loadClass(classname)));
                     }
                 catch (ClassNotFoundException ex)
                     {
@@ -2687,7 +2836,7 @@ public class ParameterDatabase extends Properties implements Serializable
                 String fname = s.substring(i).trim();
                 try
                     {
-                    parents.addElement(new ParameterDatabase(fname, Class.forName(classname, true, Thread.currentThread().getContextClassLoader())));
+                    parents.addElement(new ParameterDatabase(fname, loadClass(classname)));
                     }
                 catch (ClassNotFoundException ex)
                     {
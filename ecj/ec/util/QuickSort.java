@@ -768,6 +768,51 @@ public class QuickSort
             }
         inssort(array,comp);             // Final Insertion Sort
         }
+
+
+    /** Non-Recursive QuickSelect.  Rearranges the array so that its k smallest elements 
+        come first, in no particular order, followed by the rest, also in no particular order.
+        This takes expected linear time, and so is much cheaper than sorting the whole array
+        when you only need the smallest few elements. */
+    static public void qselect(int[] array, int k, SortComparatorL comp) 
+        {
+        int i = 0;
+        int j = array.length - 1;
+        int tmp;
+        
+        if (k <= 0 || k >= array.length) return;  // nothing to do
+        
+        while (i < j)    // While the kth smallest may still be misplaced
+            {
+            // Findpivot: median of three
+            int mid = (i+j)/2;
+            if (comp.lt(array[mid],array[i])) { tmp = array[mid]; array[mid] = array[i]; array[i] = tmp; }
+            if (comp.lt(array[j],array[i])) { tmp = array[j]; array[j] = array[i]; array[i] = tmp; }
+            if (comp.lt(array[j],array[mid])) { tmp = array[j]; array[j] = array[mid]; array[mid] = tmp; }
+            int pivot = array[mid];
+            
+            // Partition: afterwards everything in i...r is <= pivot, everything in l...j is >= pivot,
+            // and anything between r and l is equal to pivot
+            int l = i;
+            int r = j;
+            while (l <= r)
+                {
+                while (comp.lt(array[l],pivot)) l++;
+                while (comp.gt(array[r],pivot)) r--;
+                if (l <= r)
+                    {
+                    tmp = array[l]; array[l] = array[r]; array[r] = tmp;
+                    l++;
+                    r--;
+                    }
+                }
+            
+            // Continue with whichever side holds position k-1
+            if (k - 1 <= r) j = r;
+            else if (k - 1 >= l) i = l;
+            else break;
+            }
+        }
     }
     
 
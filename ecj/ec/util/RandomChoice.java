@@ -47,6 +47,12 @@ package ec.util;
  * after which you may call pickFromDistribution() as many times as you like.
  * You should not modify the array thereafter.
  *
+ * <p>If you will be picking many times from a large array of doubles, you can instead
+ * organize it into an alias table with organizeAliasDistribution(), which takes an
+ * additional int array of the same length.  pickFromAliasDistribution() then picks each
+ * item in constant time rather than with a binary search, and can fill an array with
+ * many picks in one call.
+ *
  * @author Sean Luke
  * @version 1.0 
  */
@@ -641,6 +647,132 @@ public class RandomChoice
             }
         }
 
+
+    /** Same as organizeAliasDistribution(probabilities, alias, <b>false</b>); */
+    public static void organizeAliasDistribution(final double[] probabilities, final int[] alias)
+        {
+        organizeAliasDistribution(probabilities, alias, false);
+        }
+
+    /** Converts probabilities into an alias table (Vose's version of Walker's alias method),
+        which lets pickFromAliasDistribution pick an item in constant time rather than
+        with a binary search.  Building the table takes O(n) time.  The probabilities
+        need not be normalized.  On return, probabilities[i] holds the chance that slot i
+        returns item i itself, and alias[i] holds the item that slot i returns otherwise.
+        alias must be the same length as probabilities.  An item with zero probability is
+        never returned.  If the probabilities are all 0, then selection is uniform, unless allowAllZeros
+        is false, in which case an ArithmeticException is thrown.  If any of them are negative,
+        or if the distribution is empty, then an ArithmeticException is thrown.
+        Note that the result is not usable by pickFromDistribution, nor vice versa. */
+
+    public static void organizeAliasDistribution(final double[] probabilities, final int[] alias, final boolean allowAllZeros)
+        {
+        final int len = probabilities.length;
+        double sum=0.0;
+        int positive = 0;           // some item with nonzero probability
+
+        if (len == 0)
+            throw new ArithmeticException("Distribution has no elements");
+        if (alias.length != len)
+            throw new ArithmeticException("Alias table is not the same length as the distribution");
+
+        for(int x=0;x<len;x++)
+            {
+            if (probabilities[x]<0.0)
+                throw new ArithmeticException("Distribution has negative probabilities");
+            if (probabilities[x]>0.0) positive = x;
+            sum += probabilities[x];
+            }
+
+        if (sum==0.0)
+            if (!allowAllZeros)
+                throw new ArithmeticException("Distribution has all zero probabilities");
+            else
+                {
+                for(int x=0;x<len;x++)
+                    probabilities[x] = 1.0;
+                sum = len;
+                }
+
+        // scale so that the average item is 1.0, then split the items into those
+        // below average (stacked up from the front of work) and those at or above
+        // average (stacked down from the back of work)
+        int[] work = new int[len];
+        int small = 0;
+        int large = len;
+        for(int x=0;x<len;x++)
+            {
+            probabilities[x] = probabilities[x] * len / sum;
+            if (probabilities[x] < 1.0) work[small++] = x;
+            else work[--large] = x;
+            }
+
+        // each below-average item fills out the rest of its slot from an above-average item
+        while(small > 0 && large < len)
+            {
+            int s = work[--small];
+            int l = work[large++];
+            alias[s] = l;
+            probabilities[l] = (probabilities[l] + probabilities[s]) - 1.0;
+            if (probabilities[l] < 1.0) work[small++] = l;
+            else work[--large] = l;
+            }
+
+        // anything left over is within roundoff of 1.0, except for zero-probability
+        // items, which must never be returned
+        while(large < len)
+            {
+            int l = work[large++];
+            probabilities[l] = 1.0;
+            alias[l] = l;
+            }
+        while(small > 0)
+            {
+            int s = work[--small];
+            if (probabilities[s] > 0.0)
+                {
+                probabilities[s] = 1.0;
+                alias[s] = s;
+                }
+            else
+                {
+                probabilities[s] = 0.0;
+                alias[s] = positive;
+                }
+            }
+        }
+
+    /** Picks a random item, in constant time, from a distribution organized by
+        organizeAliasDistribution.  prob should be a uniform random value 0.0 <= prob < 1.0:
+        it picks a slot, and what's left of it decides between the slot's own item and its alias. */
+
+    public static int pickFromAliasDistribution(final double[] probabilities, final int[] alias,
+        final double prob)
+        {
+        if (prob<0.0 || prob>1.0)
+            throw new ArithmeticException("Invalid probability for pickFromAliasDistribution (must be 0.0<=x<=1.0)");
+        final double p = prob * probabilities.length;
+        int slot = (int) p;
+        if (slot == probabilities.length) slot--;  // prob was 1.0
+        return (p - slot < probabilities[slot] ? slot : alias[slot]);
+        }
+
+    /** Fills picks[start] ... picks[start + len - 1] with random items drawn independently,
+        with replacement, from a distribution organized by organizeAliasDistribution.
+        Each pick takes constant time and one call to random.nextDouble(). */
+
+    public static void pickFromAliasDistribution(final double[] probabilities, final int[] alias,
+        final MersenneTwisterFast random, final int[] picks, final int start, final int len)
+        {
+        final int n = probabilities.length;
+        for(int x = start; x < start + len; x++)
+            {
+            final double p = random.nextDouble() * n;
+            final int slot = (int) p;
+            picks[x] = (p - slot < probabilities[slot] ? slot : alias[slot]);
+            }
+        }
+
     }
 
 
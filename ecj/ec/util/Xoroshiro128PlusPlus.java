@@ -0,0 +1,327 @@
+/*
+  Copyright 2015 by Sean Luke
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+import java.io.*;
+
+/*
+ * Xoroshiro128PlusPlus.java
+ */
+
+/**
+ * Xoroshiro128PlusPlus is a drop-in replacement for MersenneTwisterFast which uses
+ * David Blackman and Sebastiano Vigna's xoroshiro128++ generator instead of the Mersenne Twister.
+ * It has 128 bits of state rather than 19937, so it is much cheaper to seed, clone, and
+ * serialize, and it is at least as fast to draw numbers from.  Its period is 2^128 - 1, which is
+ * plenty for any evolutionary run.  Select it with the <tt>rng</tt> parameter (see ec.Evolve).
+ *
+ * <p>Because it is so cheap to seed, it is the generator to use if you have ECJ reseed
+ * its generators for every individual (see EvolutionState.reseedRandom(...)).
+ *
+ * <p>In addition to the MersenneTwisterFast methods, it can jump ahead 2^64 or 2^96 numbers
+ * in its stream, which is equivalent to drawing that many numbers, but takes constant time.
+ * This is a way to carve one stream up into many non-overlapping streams.  It can also split
+ * off an independent generator.
+ *
+ * <p>Seeds are scrambled with SplitMix64 to build the initial state, so nearby seeds (such as
+ * seed.0 = 1, seed.1 = 2) produce unrelated streams.
+ *
+ * <p>Since this class overrides every method in MersenneTwisterFast, none of the Mersenne Twister's
+ * state is ever allocated.
+ *
+ * @author Sean Luke
+ * @version 1.0
+ */
+
+public class Xoroshiro128PlusPlus extends MersenneTwisterFast
+    {
+    private static final long serialVersionUID = 1;
+
+    static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    static final long[] JUMP = { 0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L };
+    static final long[] LONG_JUMP = { 0x360fd5f2cf8d5d99L, 0x9c6e6877736c46e3L };
+
+    // not initialized here: MersenneTwisterFast's constructor calls setSeed(...) before
+    // field initializers would run
+    long s0;
+    long s1;
+    double nextNextGaussian;
+    boolean haveNextNextGaussian;
+
+    /** Constructor using the current time as the seed. */
+    public Xoroshiro128PlusPlus()
+        {
+        this(System.currentTimeMillis());
+        }
+
+    /** Constructor using a given seed.  All 64 bits of the seed are used. */
+    public Xoroshiro128PlusPlus(long seed)
+        {
+        super(seed);
+        }
+
+    /** Constructor using an array of integers as the seed.  Your array must have a non-zero length. */
+    public Xoroshiro128PlusPlus(int[] array)
+        {
+        super(array);
+        }
+
+    public Object clone()
+        {
+        // we can't call super.clone(), as MersenneTwisterFast would try to clone its (nonexistent) state
+        Xoroshiro128PlusPlus f = new Xoroshiro128PlusPlus(0);
+        f.s0 = s0;
+        f.s1 = s1;
+        f.nextNextGaussian = nextNextGaussian;
+        f.haveNextNextGaussian = haveNextNextGaussian;
+        return f;
+        }
+
+    /** Returns true if the other generator is a Xoroshiro128PlusPlus with the same internal state.
+        As in MersenneTwisterFast, this does not compare the internal gaussian storage. */
+    public boolean stateEquals(MersenneTwisterFast other)
+        {
+        if (other == this) return true;
+        if (!(other instanceof Xoroshiro128PlusPlus)) return false;
+        Xoroshiro128PlusPlus o = (Xoroshiro128PlusPlus)other;
+        return (s0 == o.s0 && s1 == o.s1);
+        }
+
+    /** Reads the entire state of the generator from the stream */
+    public void readState(DataInputStream stream) throws IOException
+        {
+        s0 = stream.readLong();
+        s1 = stream.readLong();
+        nextNextGaussian = stream.readDouble();
+        haveNextNextGaussian = stream.readBoolean();
+        }
+
+    /** Writes the entire state of the generator to the stream */
+    public void writeState(DataOutputStream stream) throws IOException
+        {
+        stream.writeLong(s0);
+        stream.writeLong(s1);
+        stream.writeDouble(nextNextGaussian);
+        stream.writeBoolean(haveNextNextGaussian);
+        }
+
+    // The SplitMix64 finalizer
+    static long mix64(long z)
+        {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+        }
+
+    /** Seeds the generator.  All 64 bits of the seed are used. */
+    public void setSeed(long seed)
+        {
+        haveNextNextGaussian = false;
+        s0 = mix64(seed += GOLDEN_GAMMA);
+        s1 = mix64(seed += GOLDEN_GAMMA);
+        if (s0 == 0 && s1 == 0)  // the one state we can't be in
+            s1 = GOLDEN_GAMMA;
+        }
+
+    /** Seeds the generator using an array of integers.  Your array must have a non-zero length.
+        All of the integers are used. */
+    public void setSeed(int[] array)
+        {
+        if (array.length == 0)
+            throw new IllegalArgumentException("Array length must be greater than zero");
+        long seed = 0;
+        for(int i = 0; i < array.length; i++)
+            seed = mix64(seed + GOLDEN_GAMMA + (array[i] & 0xFFFFFFFFL));
+        setSeed(seed);
+        }
+
+    /** Returns a new generator, seeded from this one, whose stream is for all practical purposes
+        independent of this one's. */
+    public Xoroshiro128PlusPlus split()
+        {
+        Xoroshiro128PlusPlus f = new Xoroshiro128PlusPlus(0);
+        f.s0 = mix64(nextLong());
+        f.s1 = mix64(nextLong());
+        if (f.s0 == 0 && f.s1 == 0)
+            f.s1 = GOLDEN_GAMMA;
+        return f;
+        }
+
+    /** Advances the generator by 2^64 numbers.  Calling jump() on clones of a generator
+        0, 1, 2, ... times gives up to 2^64 non-overlapping streams of 2^64 numbers each. */
+    public void jump()
+        {
+        jump(JUMP);
+        }
+
+    /** Advances the generator by 2^96 numbers.  Calling longJump() on clones of a generator
+        0, 1, 2, ... times gives up to 2^32 non-overlapping streams of 2^96 numbers each, each of
+        which can be carved up further with jump(). */
+    public void longJump()
+        {
+        jump(LONG_JUMP);
+        }
+
+    void jump(long[] polynomial)
+        {
+        long t0 = 0;
+        long t1 = 0;
+        for(int i = 0; i < polynomial.length; i++)
+            for(int b = 0; b < 64; b++)
+                {
+                if ((polynomial[i] & (1L << b)) != 0)
+                    {
+                    t0 ^= s0;
+                    t1 ^= s1;
+                    }
+                nextLong();
+                }
+        s0 = t0;
+        s1 = t1;
+        }
+
+    public long nextLong()
+        {
+        final long s0 = this.s0;
+        long s1 = this.s1;
+        final long result = Long.rotateLeft(s0 + s1, 17) + s0;
+        s1 ^= s0;
+        this.s0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+        this.s1 = Long.rotateLeft(s1, 28);
+        return result;
+        }
+
+    public int nextInt()
+        {
+        return (int)(nextLong() >>> 32);
+        }
+
+    public short nextShort()
+        {
+        return (short)(nextLong() >>> 48);
+        }
+
+    public char nextChar()
+        {
+        return (char)(nextLong() >>> 48);
+        }
+
+    public boolean nextBoolean()
+        {
+        return nextLong() < 0;
+        }
+
+    /** This generates a coin flip with a probability <tt>probability</tt>
+        of returning true, else returning false.  <tt>probability</tt> must
+        be between 0.0 and 1.0, inclusive. */
+    public boolean nextBoolean(float probability)
+        {
+        if (probability < 0.0f || probability > 1.0f)
+            throw new IllegalArgumentException ("probability must be between 0.0 and 1.0 inclusive.");
+        if (probability==0.0f) return false;            // fix half-open issues
+        else if (probability==1.0f) return true;        // fix half-open issues
+        return nextFloat() < probability;
+        }
+
+    /** This generates a coin flip with a probability <tt>probability</tt>
+        of returning true, else returning false.  <tt>probability</tt> must
+        be between 0.0 and 1.0, inclusive. */
+    public boolean nextBoolean(double probability)
+        {
+        if (probability < 0.0 || probability > 1.0)
+            throw new IllegalArgumentException ("probability must be between 0.0 and 1.0 inclusive.");
+        if (probability==0.0) return false;             // fix half-open issues
+        else if (probability==1.0) return true; // fix half-open issues
+        return nextDouble() < probability;
+        }
+
+    public byte nextByte()
+        {
+        return (byte)(nextLong() >>> 56);
+        }
+
+    public void nextBytes(byte[] bytes)
+        {
+        for(int x = 0; x < bytes.length; x++)
+            bytes[x] = (byte)(nextLong() >>> 56);
+        }
+
+    /** Returns a long drawn uniformly from 0 to n-1.  Suffice it to say,
+        n must be &gt; 0, or an IllegalArgumentException is raised. */
+    public long nextLong(long n)
+        {
+        if (n<=0)
+            throw new IllegalArgumentException("n must be positive, got: " + n);
+
+        long bits, val;
+        do
+            {
+            bits = (nextLong() >>> 1);
+            val = bits % n;
+            }
+        while(bits - val + (n-1) < 0);
+        return val;
+        }
+
+    /** Returns a random double in the half-open range from [0.0,1.0). */
+    public double nextDouble()
+        {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+    /** Returns a random float in the half-open range from [0.0f,1.0f). */
+    public float nextFloat()
+        {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+        }
+
+    public void clearGaussian() { haveNextNextGaussian = false; }
+
+    public double nextGaussian()
+        {
+        if (haveNextNextGaussian)
+            {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+            }
+        else
+            {
+            double v1, v2, s;
+            do
+                {
+                v1 = 2 * nextDouble() - 1; // between -1.0 and 1.0
+                v2 = 2 * nextDouble() - 1; // between -1.0 and 1.0
+                s = v1 * v1 + v2 * v2;
+                }
+            while (s >= 1 || s==0);
+            double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s)/s);
+            nextNextGaussian = v2 * multiplier;
+            haveNextNextGaussian = true;
+            return v1 * multiplier;
+            }
+        }
+
+    /** Returns an integer drawn uniformly from 0 to n-1.  Suffice it to say,
+        n must be &gt; 0, or an IllegalArgumentException is raised. */
+    public int nextInt(int n)
+        {
+        if (n<=0)
+            throw new IllegalArgumentException("n must be positive, got: " + n);
+
+        if ((n & -n) == n)  // i.e., n is a power of 2
+            return (int)((n * (nextLong() >>> 33)) >> 31);
+
+        int bits, val;
+        do
+            {
+            bits = (int)(nextLong() >>> 33);
+            val = bits % n;
+            }
+        while(bits - val + (n-1) < 0);
+        return val;
+        }
+    }
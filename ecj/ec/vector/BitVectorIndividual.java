@@ -271,6 +271,25 @@ public class BitVectorIndividual extends VectorIndividual
         return hash;
         }
 
+    public long fingerprint()
+        {
+        long fingerprint = FingerprintSet.combine(FingerprintSet.SEED, this.getClass().hashCode());
+        long bits = 0;
+        for(int x=0;x<genome.length;x++)
+            {
+            bits = (bits << 1) | (genome[x] ? 1L : 0L);
+            if ((x & 63) == 63)  // 64 bits at a time
+                { fingerprint = FingerprintSet.combine(fingerprint, bits); bits = 0; }
+            }
+        fingerprint = FingerprintSet.combine(fingerprint, bits);
+        return FingerprintSet.combine(fingerprint, genome.length);
+        }
+
+    public boolean hasUniqueFingerprint()
+        {
+        return true;
+        }
+
     public String genotypeToStringForHumans()
         {
         StringBuilder s = new StringBuilder();
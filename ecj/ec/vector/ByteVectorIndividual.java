@@ -358,6 +358,19 @@ public class ByteVectorIndividual extends VectorIndividual
         return hash;
         }
 
+    public long fingerprint()
+        {
+        long fingerprint = FingerprintSet.combine(FingerprintSet.SEED, this.getClass().hashCode());
+        for(int x=0;x<genome.length;x++)
+            fingerprint = FingerprintSet.combine(fingerprint, genome[x]);
+        return FingerprintSet.combine(fingerprint, genome.length);
+        }
+
+    public boolean hasUniqueFingerprint()
+        {
+        return true;
+        }
+
     public String genotypeToStringForHumans()
         {
         StringBuilder s = new StringBuilder();
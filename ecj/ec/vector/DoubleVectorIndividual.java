@@ -454,6 +454,20 @@ public class DoubleVectorIndividual extends VectorIndividual
         return hash;
         }
 
+    public long fingerprint()
+        {
+        long fingerprint = FingerprintSet.combine(FingerprintSet.SEED, this.getClass().hashCode());
+        // 0.0 and -0.0 are equal, so they must have the same fingerprint
+        for(int x=0;x<genome.length;x++)
+            fingerprint = FingerprintSet.combine(fingerprint, Double.doubleToLongBits(genome[x] == 0.0 ? 0.0 : genome[x]));
+        return FingerprintSet.combine(fingerprint, genome.length);
+        }
+
+    public boolean hasUniqueFingerprint()
+        {
+        return true;
+        }
+
     public String genotypeToStringForHumans()
         {
         StringBuilder s = new StringBuilder();
@@ -454,6 +454,20 @@ public class FloatVectorIndividual extends VectorIndividual
         return hash;
         }
 
+    public long fingerprint()
+        {
+        long fingerprint = FingerprintSet.combine(FingerprintSet.SEED, this.getClass().hashCode());
+        // 0.0 and -0.0 are equal, so they must have the same fingerprint
+        for(int x=0;x<genome.length;x++)
+            fingerprint = FingerprintSet.combine(fingerprint, Float.floatToIntBits(genome[x] == 0.0f ? 0.0f : genome[x]));
+        return FingerprintSet.combine(fingerprint, genome.length);
+        }
+
+    public boolean hasUniqueFingerprint()
+        {
+        return true;
+        }
+
     public String genotypeToStringForHumans()
         {
         StringBuilder s = new StringBuilder();
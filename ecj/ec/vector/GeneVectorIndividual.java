@@ -292,6 +292,14 @@ public class GeneVectorIndividual extends VectorIndividual
         return hash;
         }
 
+    public long fingerprint()
+        {
+        long fingerprint = FingerprintSet.combine(FingerprintSet.SEED, this.getClass().hashCode());
+        for(int x=0;x<genome.length;x++)
+            fingerprint = FingerprintSet.combine(fingerprint, genome[x].hashCode());
+        return FingerprintSet.combine(fingerprint, genome.length);
+        }
+
     public String genotypeToStringForHumans()
         {
         StringBuilder s = new StringBuilder();
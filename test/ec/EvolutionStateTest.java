@@ -0,0 +1,107 @@
+package ec;
+
+import ec.simple.SimpleEvolutionState;
+import ec.util.MersenneTwisterFast;
+import ec.util.Output;
+import ec.util.Parameter;
+import ec.util.ParameterDatabase;
+import ec.util.Xoroshiro128PlusPlus;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that EvolutionState.reseedRandom(...) derives the same random numbers for an individual
+ * whichever thread handles it, and different numbers for different individuals, and that
+ * Evolve builds the generator named by the rng parameter.
+ */
+public class EvolutionStateTest {
+    private final static int NUM_THREADS = 4;
+
+    public EvolutionStateTest() {
+    }
+
+    private static EvolutionState getState(MersenneTwisterFast prototype) {
+        final EvolutionState state = new SimpleEvolutionState();
+        state.random = new MersenneTwisterFast[NUM_THREADS];
+        for (int i = 0; i < NUM_THREADS; i++) {
+            state.random[i] = (MersenneTwisterFast) prototype.clone();
+            state.random[i].setSeed(1000 + i);
+        }
+        state.randomDerivationSeed = 0x5DEECE66DL;
+        state.generation = 3;
+        return state;
+    }
+
+    private static long[] draw(MersenneTwisterFast random) {
+        final long[] values = new long[20];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextLong();
+        return values;
+    }
+
+    private static void checkDerivation(MersenneTwisterFast prototype) {
+        final EvolutionState state = getState(prototype);
+
+        // the same individual gets the same numbers on every thread
+        state.reseedRandom(0, EvolutionState.RANDOM_BREEDING, 1, 17);
+        final long[] expected = draw(state.random[0]);
+        for (int thread = 1; thread < NUM_THREADS; thread++) {
+            state.random[thread].nextLong();  // so the generators were in different states
+            state.reseedRandom(thread, EvolutionState.RANDOM_BREEDING, 1, 17);
+            assertArrayEquals("thread " + thread, expected, draw(state.random[thread]));
+        }
+
+        // and a different generation, purpose, subpopulation, or index gets different numbers
+        state.reseedRandom(0, EvolutionState.RANDOM_EVALUATION, 1, 17);
+        assertFalse(Arrays.equals(expected, draw(state.random[0])));
+        state.reseedRandom(0, EvolutionState.RANDOM_BREEDING, 0, 17);
+        assertFalse(Arrays.equals(expected, draw(state.random[0])));
+        state.reseedRandom(0, EvolutionState.RANDOM_BREEDING, 1, 18);
+        assertFalse(Arrays.equals(expected, draw(state.random[0])));
+        state.generation++;
+        state.reseedRandom(0, EvolutionState.RANDOM_BREEDING, 1, 17);
+        assertFalse(Arrays.equals(expected, draw(state.random[0])));
+        state.generation--;
+
+        // reseeding all the generators gives each thread its own stream, the same every time
+        state.reseedRandom(EvolutionState.RANDOM_INITIALIZATION);
+        final long[][] streams = new long[NUM_THREADS][];
+        for (int thread = 0; thread < NUM_THREADS; thread++)
+            streams[thread] = draw(state.random[thread]);
+        for (int thread = 0; thread < NUM_THREADS; thread++)
+            for (int other = 0; other < thread; other++)
+                assertFalse(Arrays.equals(streams[thread], streams[other]));
+
+        final EvolutionState state2 = getState(prototype);
+        state2.reseedRandom(EvolutionState.RANDOM_INITIALIZATION);
+        for (int thread = 0; thread < NUM_THREADS; thread++)
+            assertArrayEquals(streams[thread], draw(state2.random[thread]));
+    }
+
+    @Test
+    public void testDerivationWithXoroshiro() {
+        checkDerivation(new Xoroshiro128PlusPlus(0));
+    }
+
+    @Test
+    public void testDerivationWithMersenneTwister() {
+        checkDerivation(new MersenneTwisterFast(0));
+    }
+
+    @Test
+    public void testBuildGenerator() {
+        final Output output = Evolve.buildOutput();
+        final ParameterDatabase parameters = new ParameterDatabase();
+        final MersenneTwisterFast twister = Evolve.buildGenerator(output, parameters, 5);
+        assertEquals(MersenneTwisterFast.class, twister.getClass());
+
+        parameters.set(new Parameter(Evolve.P_RNG), Xoroshiro128PlusPlus.class.getName());
+        final MersenneTwisterFast a = Evolve.buildGenerator(output, parameters, 5);
+        final MersenneTwisterFast b = Evolve.buildGenerator(output, parameters, 5);
+        final MersenneTwisterFast c = Evolve.buildGenerator(output, parameters, 6);
+        assertEquals(Xoroshiro128PlusPlus.class, a.getClass());
+        assertTrue(a.stateEquals(b));
+        assertFalse(a.stateEquals(c));
+    }
+}
@@ -0,0 +1,141 @@
+package ec;
+
+import ec.simple.SimpleFitness;
+import ec.util.MersenneTwisterFast;
+import ec.vector.DoubleVectorIndividual;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that FitnessSnapshot captures the fitnesses of a subpopulation, and is handed out
+ * again only while the subpopulation is unchanged, and checks best(...) against a full sort.
+ */
+public class FitnessSnapshotTest {
+
+    private EvolutionState state;
+
+    public FitnessSnapshotTest() {
+    }
+
+    private static Individual individual(double fitness, boolean scalar) {
+        final SimpleFitness f = (scalar ? new SimpleFitness() : new SimpleFitness() {
+            public double scalarFitness() {
+                return Double.NaN;
+            }
+        });
+        f.setFitness(null, fitness, false);
+        final DoubleVectorIndividual ind = new DoubleVectorIndividual();
+        ind.genome = new double[(int) Math.abs(fitness) % 5];
+        ind.fitness = f;
+        return ind;
+    }
+
+    private static Individual[] individuals(double[] fitnesses, boolean scalar) {
+        final Individual[] inds = new Individual[fitnesses.length];
+        for (int i = 0; i < inds.length; i++)
+            inds[i] = individual(fitnesses[i], scalar);
+        return inds;
+    }
+
+    @Before
+    public void setUp() {
+        state = new EvolutionState();
+        state.population = new Population();
+        state.population.subpops = new Subpopulation[] { new Subpopulation() };
+        state.population.subpops[0].individuals = individuals(new double[] { 3, 1, 4, 1, 5 }, true);
+    }
+
+    @Test
+    public void testScalarsAndLazyArrays() {
+        final FitnessSnapshot snapshot = new FitnessSnapshot(state.population.subpops[0].individuals, 7);
+        assertEquals(7, snapshot.generation);
+        assertArrayEquals(new double[] { 3, 1, 4, 1, 5 }, snapshot.scalars, 0.0);
+        assertArrayEquals(new double[] { 3, 1, 4, 1, 5 }, snapshot.fitnesses(), 0.0);
+        assertSame(snapshot.fitnesses(), snapshot.fitnesses());
+        assertArrayEquals(new long[] { 3, 1, 4, 1, 0 }, snapshot.sizes());
+
+        // one individual without a scalar fitness means no scalars at all
+        final Individual[] inds = individuals(new double[] { 1, 2 }, true);
+        inds[1] = individual(2, false);
+        assertNull(new FitnessSnapshot(inds, 0).scalars);
+        inds[1] = null;
+        assertNull(new FitnessSnapshot(inds, 0).scalars);
+    }
+
+    @Test
+    public void testSnapshotsAreSharedUntilTheSubpopulationChanges() {
+        final FitnessSnapshot first = FitnessSnapshot.get(state, 0);
+        assertSame(first, FitnessSnapshot.get(state, 0));
+
+        // a new generation
+        state.generation++;
+        final FitnessSnapshot second = FitnessSnapshot.get(state, 0);
+        assertNotSame(first, second);
+        assertSame(second, FitnessSnapshot.get(state, 0));
+
+        // a new individuals array
+        state.population.subpops[0].individuals = individuals(new double[] { 2, 7 }, true);
+        final FitnessSnapshot third = FitnessSnapshot.get(state, 0);
+        assertNotSame(second, third);
+        assertArrayEquals(new double[] { 2, 7 }, third.scalars, 0.0);
+
+        // fitnesses changed in place
+        ((SimpleFitness) state.population.subpops[0].individuals[0].fitness).setFitness(null, 9, false);
+        assertSame(third, FitnessSnapshot.get(state, 0));
+        FitnessSnapshot.invalidate(state);
+        final FitnessSnapshot fourth = FitnessSnapshot.get(state, 0);
+        assertNotSame(third, fourth);
+        assertArrayEquals(new double[] { 9, 7 }, fourth.scalars, 0.0);
+    }
+
+    /** The first k indices of a stable sort of all the individuals, best (or worst) first. */
+    private static int[] sortedBest(final double[] fitnesses, int k, final boolean worst) {
+        final Integer[] order = new Integer[fitnesses.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = Integer.valueOf(i);
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                final int c = Double.compare(fitnesses[b.intValue()], fitnesses[a.intValue()]);
+                return (worst ? -c : c);
+            }
+        });
+        final int[] best = new int[Math.max(0, Math.min(k, order.length))];
+        for (int i = 0; i < best.length; i++)
+            best[i] = order[i].intValue();
+        return best;
+    }
+
+    @Test
+    public void testBestMatchesAFullSort() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(4242);
+        for (int trial = 0; trial < 100; trial++) {
+            final double[] fitnesses = new double[random.nextInt(60)];
+            for (int i = 0; i < fitnesses.length; i++)
+                fitnesses[i] = random.nextInt(trial % 2 == 0 ? 5 : 1000);   // many ties on even trials
+            final int k = random.nextInt(fitnesses.length + 3);
+            final boolean worst = random.nextBoolean();
+            final int[] expected = sortedBest(fitnesses, k, worst);
+
+            // with scalars, and comparing with betterThan()
+            final Individual[] inds = individuals(fitnesses, true);
+            assertArrayEquals("trial " + trial, expected, FitnessSnapshot.best(inds, new FitnessSnapshot(inds, 0).scalars, k, worst));
+            final Individual[] nonScalar = individuals(fitnesses, false);
+            assertNull(new FitnessSnapshot(nonScalar, 0).scalars);
+            assertArrayEquals("trial " + trial, expected, FitnessSnapshot.best(nonScalar, null, k, worst));
+        }
+    }
+
+    @Test
+    public void testBestOfNone() {
+        final Individual[] inds = state.population.subpops[0].individuals;
+        final FitnessSnapshot snapshot = new FitnessSnapshot(inds, 0);
+        assertEquals(0, snapshot.best(0, false).length);
+        assertEquals(0, snapshot.best(-1, true).length);
+        assertEquals(0, FitnessSnapshot.best(inds, null, 0, false).length);
+        assertEquals(0, FitnessSnapshot.best(new Individual[0], null, 3, false).length);
+        assertArrayEquals(new int[] { 4, 2, 0, 1, 3 }, snapshot.best(10, false));
+    }
+}
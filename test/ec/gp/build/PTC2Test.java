@@ -0,0 +1,102 @@
+package ec.gp.build;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.app.regression.Quintic;
+import ec.gp.GPIndividual;
+import ec.gp.GPInitializer;
+import ec.gp.GPNode;
+import ec.gp.GPTreeConstraints;
+import ec.util.ParameterDatabase;
+import ec.util.ThreadPool;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Builds a large initial population of PTC2 trees on many threads at once, which once made the
+ * threads trample each other's queues in the single shared builder, and checks every tree is whole.
+ */
+public class PTC2Test {
+    private final static int NUM_THREADS = 8;
+    private final static int POPULATION_SIZE = 4000;
+
+    private EvolutionState state;
+
+    public PTC2Test() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final ArrayList<String> args = new ArrayList<String>();
+        args.add("gp.fs.0=" + PTCFunctionSet.class.getName());
+        args.add("gp.tc.0.init=" + PTC2.class.getName());
+        args.add("gp.build.ptc2.min-size=2");
+        args.add("gp.build.ptc2.max-size=50");
+        args.add("gp.build.ptc2.expected-size=20");
+        args.add("gp.build.ptc2.max-depth=17");
+        args.add("pop.subpop.0.size=" + POPULATION_SIZE);
+        args.add("breedthreads=" + NUM_THREADS);
+        args.add("evalthreads=" + NUM_THREADS);
+        args.add("silent=true");
+        args.add("stat.silent=true");
+        for (int i = 0; i < NUM_THREADS; i++)
+            args.add("seed." + i + "=" + (i + 1));
+
+        final String[] argv = new String[args.size() * 2];
+        for (int i = 0; i < args.size(); i++) {
+            argv[2 * i] = "-p";
+            argv[2 * i + 1] = args.get(i);
+        }
+        state = Evolve.initialize(new ParameterDatabase("quinticerc.params", Quintic.class, argv), 0);
+        state.setup(state, null);
+        state.population = state.initializer.setupPopulation(state, 0);
+    }
+
+    @After
+    public void tearDown() {
+        Evolve.cleanup(state);
+    }
+
+    /** Checks that every node below the given one has all its children, and that they point back at it. */
+    private static void checkTree(GPNode node) {
+        for (int i = 0; i < node.children.length; i++) {
+            final GPNode child = node.children[i];
+            assertNotNull(child);
+            assertSame(node, child.parent);
+            assertEquals(i, child.argposition);
+            checkTree(child);
+        }
+    }
+
+    @Test
+    public void testEachThreadHasItsOwnBuilder() {
+        final GPTreeConstraints constraints = ((GPInitializer) state.initializer).treeConstraints[0];
+        assertSame(constraints.init, constraints.initFor(0));
+        for (int i = 1; i < NUM_THREADS; i++) {
+            assertTrue(constraints.initFor(i) instanceof PTC2);
+            for (int j = 0; j < i; j++)
+                assertNotSame(constraints.initFor(j), constraints.initFor(i));
+        }
+    }
+
+    @Test
+    public void testParallelInitializationBuildsWholeTrees() {
+        final ThreadPool pool = new ThreadPool();
+        state.population.populate(state, NUM_THREADS, pool);
+        pool.killAll();
+
+        final Individual[] inds = state.population.subpops[0].individuals;
+        assertEquals(POPULATION_SIZE, inds.length);
+        for (int i = 0; i < inds.length; i++) {
+            final GPIndividual ind = (GPIndividual) inds[i];
+            for (int t = 0; t < ind.trees.length; t++) {
+                assertSame(ind.trees[t], ind.trees[t].child.parent);
+                checkTree(ind.trees[t].child);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ec.multiobjective;
+
+import ec.util.MersenneTwisterFast;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks KDTree's k-th nearest neighbor queries against sorting the distances to every point.
+ */
+public class KDTreeTest {
+
+    public KDTreeTest() {
+    }
+
+    private static double bruteForceKthNearest(double[][] points, double[] query, int k) {
+        final double[] d = new double[points.length];
+        for (int i = 0; i < points.length; i++)
+            d[i] = KDTree.squaredDistance(query, points[i]);
+        Arrays.sort(d);
+        return d[Math.max(1, Math.min(k, d.length)) - 1];
+    }
+
+    private static double[][] randomPoints(MersenneTwisterFast random, int n, int dimensions, boolean grid) {
+        final double[][] points = new double[n][dimensions];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < dimensions; j++)
+                points[i][j] = (grid ? random.nextInt(5) : random.nextDouble());
+        return points;
+    }
+
+    @Test
+    public void testKthNearestMatchesBruteForce() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(54321);
+        for (int dimensions = 1; dimensions <= 4; dimensions++)
+            for (int trial = 0; trial < 10; trial++) {
+                final int n = 1 + random.nextInt(400);
+                final double[][] points = randomPoints(random, n, dimensions, trial % 2 == 0);
+                final KDTree tree = new KDTree(points);
+                assertEquals(n, tree.size());
+                final int[] ks = { 1, 2, (int) Math.sqrt(n), n, n + 5 };
+                // query both points in the tree (which count themselves at distance 0) and other points
+                for (int q = 0; q < 20; q++) {
+                    final double[] query = (q % 2 == 0 ? points[random.nextInt(n)]
+                        : randomPoints(random, 1, dimensions, false)[0]);
+                    for (int k : ks)
+                        assertEquals("dimensions " + dimensions + " trial " + trial + " k " + k,
+                            bruteForceKthNearest(points, query, k), tree.kthNearestSquaredDistance(query, k), 0.0);
+                }
+            }
+    }
+
+    @Test
+    public void testEmptyTree() {
+        final KDTree tree = new KDTree(new double[0][]);
+        assertEquals(0, tree.size());
+        assertEquals(Double.POSITIVE_INFINITY, tree.kthNearestSquaredDistance(new double[] { 0, 0 }, 1), 0.0);
+    }
+
+    @Test
+    public void testSquaredDistanceMatchesFitness() {
+        final double[] a = { 0.1, 0.7, 0.3 };
+        final double[] b = { 0.9, 0.2, 0.4 };
+        final MultiObjectiveFitness fa = new MultiObjectiveFitness();
+        final MultiObjectiveFitness fb = new MultiObjectiveFitness();
+        fa.objectives = a;
+        fb.objectives = b;
+        assertEquals(fa.sumSquaredObjectiveDistance(fb), KDTree.squaredDistance(a, b), 0.0);
+    }
+}
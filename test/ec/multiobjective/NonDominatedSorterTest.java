@@ -0,0 +1,123 @@
+package ec.multiobjective;
+
+import ec.Individual;
+import ec.util.MersenneTwisterFast;
+import ec.vector.DoubleVectorIndividual;
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the non-dominated sorters against a brute-force reference which repeatedly
+ * peels off the points that no remaining point dominates.
+ */
+public class NonDominatedSorterTest {
+
+    public NonDominatedSorterTest() {
+    }
+
+    /** Brute-force Pareto ranks, smaller objective values being better. */
+    private static int[] referenceRanks(double[][] points) {
+        final int n = points.length;
+        final int[] ranks = new int[n];
+        final boolean[] assigned = new boolean[n];
+        int remaining = n;
+        for (int rank = 0; remaining > 0; rank++) {
+            final boolean[] inFront = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                if (assigned[i])
+                    continue;
+                boolean dominated = false;
+                for (int j = 0; j < n && !dominated; j++)
+                    if (!assigned[j] && NonDominatedSorter.dominates(points[j], points[i]))
+                        dominated = true;
+                inFront[i] = !dominated;
+            }
+            for (int i = 0; i < n; i++)
+                if (inFront[i]) {
+                    ranks[i] = rank;
+                    assigned[i] = true;
+                    remaining--;
+                }
+        }
+        return ranks;
+    }
+
+    /** Random points on a small grid, so that there are many ties and duplicates. */
+    private static double[][] randomPoints(MersenneTwisterFast random, int n, int objectives, int levels) {
+        final double[][] points = new double[n][objectives];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < objectives; j++)
+                points[i][j] = random.nextInt(levels);
+        return points;
+    }
+
+    private static void checkAgainstReference(NonDominatedSorter sorter, int minPoints, int maxPoints, int trials) {
+        final MersenneTwisterFast random = new MersenneTwisterFast(12345);
+        for (int objectives = 2; objectives <= 5; objectives++)
+            for (int trial = 0; trial < trials; trial++) {
+                final int n = minPoints + random.nextInt(maxPoints - minPoints + 1);
+                final int levels = (trial % 2 == 0 ? 4 : 1000);
+                final double[][] points = randomPoints(random, n, objectives, levels);
+                assertArrayEquals("objectives " + objectives + " trial " + trial,
+                    referenceRanks(points), sorter.rank(points));
+            }
+    }
+
+    @Test
+    public void testENSMatchesReference() {
+        checkAgainstReference(new ENSNonDominatedSorter(), 0, 300, 20);
+    }
+
+    @Test
+    public void testMultithreadedENSMatchesReference() {
+        final ENSNonDominatedSorter sorter = new ENSNonDominatedSorter();
+        sorter.numThreads = 4;
+        // large enough that the sorter actually splits the work among its threads
+        checkAgainstReference(sorter, 600, 1200, 4);
+    }
+
+    @Test
+    public void testDivideAndConquerMatchesReference() {
+        checkAgainstReference(new DivideAndConquerNonDominatedSorter(), 0, 300, 20);
+    }
+
+    @Test
+    public void testEmptyAndSinglePoint() {
+        assertEquals(0, new ENSNonDominatedSorter().rank(new double[0][]).length);
+        assertEquals(0, new DivideAndConquerNonDominatedSorter().rank(new double[0][]).length);
+        assertArrayEquals(new int[] { 0 }, new ENSNonDominatedSorter().rank(new double[][] { { 1, 2 } }));
+        assertArrayEquals(new int[] { 0 }, new DivideAndConquerNonDominatedSorter().rank(new double[][] { { 1, 2 } }));
+    }
+
+    @Test
+    public void testIdenticalPointsShareARank() {
+        final double[][] points = { { 1, 1 }, { 0, 0 }, { 1, 1 }, { 0, 0 }, { 2, 0 } };
+        final int[] expected = { 1, 0, 1, 0, 1 };
+        assertArrayEquals(expected, new ENSNonDominatedSorter().rank(points));
+        assertArrayEquals(expected, new DivideAndConquerNonDominatedSorter().rank(points));
+    }
+
+    @Test
+    public void testPartitionIntoRanksNegatesMaximizedObjectives() {
+        // objective 0 is minimized and objective 1 maximized
+        final double[][] objectives = { { 1, 5 }, { 2, 5 }, { 0, 1 }, { 1, 4 } };
+        final Individual[] inds = new Individual[objectives.length];
+        for (int i = 0; i < inds.length; i++) {
+            final MultiObjectiveFitness fitness = new MultiObjectiveFitness();
+            fitness.maximize = new boolean[] { false, true };
+            fitness.objectives = objectives[i];
+            inds[i] = new DoubleVectorIndividual();
+            inds[i].fitness = fitness;
+        }
+
+        final ArrayList<ArrayList<Individual>> fronts = new ENSNonDominatedSorter().partitionIntoRanks(inds);
+        assertEquals(2, fronts.size());
+        assertEquals(2, fronts.get(0).size());
+        assertSame(inds[0], fronts.get(0).get(0));
+        assertSame(inds[2], fronts.get(0).get(1));
+        assertEquals(2, fronts.get(1).size());
+        assertSame(inds[1], fronts.get(1).get(0));
+        assertSame(inds[3], fronts.get(1).get(1));
+    }
+}
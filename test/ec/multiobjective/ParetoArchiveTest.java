@@ -0,0 +1,219 @@
+package ec.multiobjective;
+
+import ec.Individual;
+import ec.util.MersenneTwisterFast;
+import ec.vector.DoubleVectorIndividual;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks ParetoArchive against a brute-force filter which keeps, of all the individuals offered so far,
+ * those which no other dominates, the earliest of any with the same objectives.
+ */
+public class ParetoArchiveTest {
+
+    public ParetoArchiveTest() {
+    }
+
+    /** An individual whose second objective is maximized. */
+    private static Individual individual(double[] objectives) {
+        final MultiObjectiveFitness fitness = new MultiObjectiveFitness();
+        fitness.maximize = new boolean[objectives.length];
+        fitness.maximize[1] = true;
+        fitness.objectives = objectives;
+        fitness.minObjective = new double[objectives.length];
+        fitness.maxObjective = new double[objectives.length];
+        java.util.Arrays.fill(fitness.maxObjective, 1000);
+        final Individual ind = new DoubleVectorIndividual();
+        ind.fitness = fitness;
+        return ind;
+    }
+
+    private static Individual randomIndividual(MersenneTwisterFast random, int objectives, int levels) {
+        final double[] o = new double[objectives];
+        for (int j = 0; j < objectives; j++)
+            o[j] = random.nextInt(levels);
+        return individual(o);
+    }
+
+    private static boolean sameObjectives(Individual a, Individual b) {
+        return java.util.Arrays.equals(((MultiObjectiveFitness) a.fitness).getObjectives(),
+            ((MultiObjectiveFitness) b.fitness).getObjectives());
+    }
+
+    private static ArrayList<Individual> bruteForceFront(ArrayList<Individual> offered) {
+        final ArrayList<Individual> front = new ArrayList<Individual>();
+        for (int i = 0; i < offered.size(); i++) {
+            final Individual ind = offered.get(i);
+            boolean keep = true;
+            for (int k = 0; k < offered.size() && keep; k++)
+                keep = !offered.get(k).fitness.betterThan(ind.fitness) && !(k < i && sameObjectives(offered.get(k), ind));
+            if (keep)
+                front.add(ind);
+        }
+        return front;
+    }
+
+    private static void assertSameMembers(ArrayList<Individual> expected, Individual[] actual) {
+        assertEquals(expected.size(), actual.length);
+        final IdentityHashMap<Individual, Individual> members = new IdentityHashMap<Individual, Individual>();
+        for (Individual ind : actual)
+            members.put(ind, ind);
+        for (Individual ind : expected)
+            assertTrue(members.containsKey(ind));
+    }
+
+    @Test
+    public void testUnboundedArchiveMatchesBruteForce() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(1010);
+        for (int objectives = 2; objectives <= 4; objectives++)
+            for (int trial = 0; trial < 4; trial++) {
+                final ParetoArchive archive = new ParetoArchive();
+                archive.leafSize = 3 + trial;   // small leaves, so that the tree is deep
+                final ArrayList<Individual> offered = new ArrayList<Individual>();
+                final int levels = (trial % 2 == 0 ? 6 : 1000);
+                for (int i = 0; i < 400; i++) {
+                    final Individual ind = randomIndividual(random, objectives, levels);
+                    final ArrayList<Individual> before = bruteForceFront(offered);
+
+                    // the queries agree with the brute-force front before the individual is added
+                    boolean dominated = false;
+                    int dominates = 0;
+                    for (Individual member : before) {
+                        if (member.fitness.betterThan(ind.fitness) || sameObjectives(member, ind))
+                            dominated = true;
+                        if (ind.fitness.betterThan(member.fitness))
+                            dominates++;
+                    }
+                    assertEquals(dominated, archive.isDominated(ind));
+                    assertEquals(dominates, archive.getDominatedBy(ind).length);
+
+                    offered.add(ind);
+                    assertEquals(!dominated, archive.add(ind));
+                    assertSameMembers(bruteForceFront(offered), archive.getIndividuals());
+                    assertEquals(archive.getIndividuals().length, archive.size());
+                }
+            }
+    }
+
+    @Test
+    public void testCrowdingBoundKeepsANondominatedFront() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(2020);
+        final ParetoArchive archive = new ParetoArchive();
+        archive.maxSize = 10;
+        final ArrayList<Individual> offered = new ArrayList<Individual>();
+        for (int i = 0; i < 1000; i++) {
+            final Individual ind = randomIndividual(random, 2, 1000);
+            offered.add(ind);
+            archive.add(ind);
+            final Individual[] members = archive.getIndividuals();
+            assertTrue(members.length <= 10);
+            for (Individual a : members)
+                for (Individual b : members)
+                    assertFalse(a.fitness.betterThan(b.fitness));
+        }
+        // the extremes of the front have infinite crowding distance, so they are never removed
+        final ArrayList<Individual> front = bruteForceFront(offered);
+        Individual best0 = front.get(0);
+        Individual best1 = front.get(0);
+        for (Individual ind : front) {
+            if (((MultiObjectiveFitness) ind.fitness).getObjective(0) < ((MultiObjectiveFitness) best0.fitness).getObjective(0))
+                best0 = ind;
+            if (((MultiObjectiveFitness) ind.fitness).getObjective(1) > ((MultiObjectiveFitness) best1.fitness).getObjective(1))
+                best1 = ind;
+        }
+        final ArrayList<Individual> extremes = new ArrayList<Individual>();
+        extremes.add(best0);
+        extremes.add(best1);
+        final IdentityHashMap<Individual, Individual> members = new IdentityHashMap<Individual, Individual>();
+        for (Individual ind : archive.getIndividuals())
+            members.put(ind, ind);
+        for (Individual ind : extremes)
+            assertTrue(members.containsKey(ind));
+    }
+
+    @Test
+    public void testHypervolumeBoundRemovesTheSmallestContribution() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(3030);
+        for (int objectives = 2; objectives <= 3; objectives++) {
+            final ParetoArchive archive = new ParetoArchive();
+            archive.maxSize = 8;
+            archive.bound = ParetoArchive.BOUND_HYPERVOLUME;
+            for (int i = 0; i < 300; i++) {
+                final Individual ind = randomIndividual(random, objectives, 1000);
+                // what an unbounded archive would hold after adding the individual
+                final ParetoArchive unbounded = (ParetoArchive) archive.clone();
+                unbounded.maxSize = 0;
+                unbounded.add(ind);
+                final Individual[] candidates = unbounded.getIndividuals();
+
+                archive.add(ind);
+                if (candidates.length <= 8) {
+                    assertEquals(candidates.length, archive.size());
+                    continue;
+                }
+
+                // the member removed must have had the smallest contribution, recomputed from scratch
+                final double[] reference = archive.referencePoint((MultiObjectiveFitness) ind.fitness);
+                final double[][] points = new double[candidates.length][];
+                for (int k = 0; k < points.length; k++)
+                    points[k] = ParetoArchive.toMinimization((MultiObjectiveFitness) candidates[k].fitness);
+                final double[] contributions = QualityIndicators.hypervolumeContributions(points, reference);
+                double smallest = Double.POSITIVE_INFINITY;
+                for (double c : contributions)
+                    smallest = Math.min(smallest, c);
+
+                final IdentityHashMap<Individual, Individual> members = new IdentityHashMap<Individual, Individual>();
+                for (Individual member : archive.getIndividuals())
+                    members.put(member, member);
+                assertEquals(8, members.size());
+                for (int k = 0; k < candidates.length; k++)
+                    if (!members.containsKey(candidates[k]))
+                        assertEquals(smallest, contributions[k], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testSelectPrefersLessCrowdedMembers() {
+        final ParetoArchive archive = new ParetoArchive();
+        final MersenneTwisterFast random = new MersenneTwisterFast(4040);
+        assertNull(archive.select(random, 2));
+
+        // objective 1 is maximized, so these points are mutually nondominated
+        final Individual[] inds = new Individual[5];
+        for (int i = 0; i < inds.length; i++) {
+            inds[i] = individual(new double[] { i, i });
+            assertTrue(archive.add(inds[i]));
+        }
+        // a huge tournament nearly always contains an extreme point, which has infinite crowding distance
+        for (int i = 0; i < 100; i++) {
+            final Individual selected = archive.select(random, 50);
+            assertTrue(selected == inds[0] || selected == inds[4]);
+        }
+        // a tournament of one is uniform
+        final int[] counts = new int[inds.length];
+        for (int i = 0; i < 5000; i++) {
+            final Individual selected = archive.select(random, 1);
+            for (int k = 0; k < inds.length; k++)
+                if (selected == inds[k])
+                    counts[k]++;
+        }
+        for (int k = 0; k < inds.length; k++)
+            assertTrue(counts[k] > 800);
+    }
+
+    @Test
+    public void testCloneAndClear() {
+        final ParetoArchive archive = new ParetoArchive();
+        archive.add(individual(new double[] { 1, 1 }));
+        archive.add(individual(new double[] { 2, 2 }));
+        final ParetoArchive copy = (ParetoArchive) archive.clone();
+        archive.clear();
+        assertEquals(0, archive.size());
+        assertEquals(0, archive.getIndividuals().length);
+        assertEquals(2, copy.size());
+    }
+}
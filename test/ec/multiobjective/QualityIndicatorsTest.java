@@ -0,0 +1,190 @@
+package ec.multiobjective;
+
+import ec.util.MersenneTwisterFast;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the quality indicators against brute-force references: hypervolumes of integer points
+ * are checked by counting the unit cells they dominate, and IGD by scanning every point.
+ */
+public class QualityIndicatorsTest {
+
+    public QualityIndicatorsTest() {
+    }
+
+    private static double[][] randomPoints(MersenneTwisterFast random, int n, int dimensions, int levels) {
+        final double[][] points = new double[n][dimensions];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < dimensions; j++)
+                points[i][j] = random.nextInt(levels);
+        return points;
+    }
+
+    /** Counts the unit cells between the origin and the reference point which some point weakly dominates. */
+    private static double bruteForceHypervolume(double[][] points, int[] reference) {
+        final int dims = reference.length;
+        final int[] cell = new int[dims];
+        int count = 0;
+        while (true) {
+            for (int i = 0; i < points.length; i++) {
+                boolean dominates = true;
+                for (int j = 0; j < dims && dominates; j++)
+                    dominates = points[i][j] <= cell[j];
+                if (dominates) {
+                    count++;
+                    break;
+                }
+            }
+            // next cell, odometer style
+            int j = 0;
+            while (j < dims && ++cell[j] == reference[j])
+                cell[j++] = 0;
+            if (j == dims)
+                return count;
+        }
+    }
+
+    private static double[] toDouble(int[] a) {
+        final double[] d = new double[a.length];
+        for (int i = 0; i < a.length; i++)
+            d[i] = a[i];
+        return d;
+    }
+
+    @Test
+    public void testHypervolumeMatchesCellCount() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(13579);
+        for (int dims = 1; dims <= 5; dims++)
+            for (int trial = 0; trial < 20; trial++) {
+                final int levels = 7;
+                final double[][] points = randomPoints(random, random.nextInt(25), dims, levels);
+                final int[] reference = new int[dims];
+                for (int j = 0; j < dims; j++)
+                    reference[j] = levels - 2 + random.nextInt(3);  // some points lie on or past it
+                assertEquals("dims " + dims + " trial " + trial, bruteForceHypervolume(points, reference),
+                    QualityIndicators.hypervolume(points, toDouble(reference)), 1e-9);
+            }
+    }
+
+    @Test
+    public void testHypervolumeContributionsMatchDifferences() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(97531);
+        for (int dims = 2; dims <= 4; dims++)
+            for (int trial = 0; trial < 20; trial++) {
+                final double[][] front = QualityIndicators.nondominated(randomPoints(random, 30, dims, 10));
+                final double[] reference = new double[dims];
+                for (int j = 0; j < dims; j++)
+                    reference[j] = 9;
+                final double total = QualityIndicators.hypervolume(front, reference);
+                final double[] contributions = QualityIndicators.hypervolumeContributions(front, reference);
+                for (int i = 0; i < front.length; i++) {
+                    final double[][] others = new double[front.length - 1][];
+                    for (int k = 0, count = 0; k < front.length; k++)
+                        if (k != i)
+                            others[count++] = front[k];
+                    assertEquals("dims " + dims + " trial " + trial + " point " + i,
+                        total - QualityIndicators.hypervolume(others, reference), contributions[i], 1e-9);
+                }
+            }
+    }
+
+    @Test
+    public void testMonteCarloHypervolumeIsClose() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(11111);
+        final double[][] points = randomPoints(random, 40, 3, 20);
+        final double[] reference = { 20, 20, 20 };
+        final double exact = QualityIndicators.hypervolume(points, reference);
+        final double estimate = QualityIndicators.hypervolumeMonteCarlo(points, reference, 200000, random);
+        assertEquals(exact, estimate, exact * 0.02);
+        assertEquals(0, QualityIndicators.hypervolumeMonteCarlo(new double[0][], reference, 1000, random), 0.0);
+    }
+
+    @Test
+    public void testNondominatedMatchesBruteForce() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(24680);
+        for (int trial = 0; trial < 20; trial++) {
+            final double[][] points = randomPoints(random, 60, 3, 5);
+            final double[][] front = QualityIndicators.nondominated(points);
+            // every nondominated point, with duplicates once, and nothing else
+            int expected = 0;
+            for (int i = 0; i < points.length; i++) {
+                boolean keep = true;
+                for (int k = 0; k < points.length && keep; k++)
+                    keep = !NonDominatedSorter.dominates(points[k], points[i])
+                        && !(k < i && NonDominatedSorter.compareLexicographically(points[k], points[i]) == 0);
+                if (keep)
+                    expected++;
+            }
+            assertEquals(expected, front.length);
+            for (int i = 0; i < front.length; i++)
+                for (int k = 0; k < points.length; k++)
+                    assertFalse(NonDominatedSorter.dominates(points[k], front[i]));
+        }
+    }
+
+    @Test
+    public void testIgdMatchesBruteForce() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(36912);
+        for (int dims = 2; dims <= 4; dims++)
+            for (int trial = 0; trial < 10; trial++) {
+                final double[][] front = new double[1 + random.nextInt(100)][dims];
+                final double[][] reference = new double[1 + random.nextInt(100)][dims];
+                for (double[] p : front)
+                    for (int j = 0; j < dims; j++)
+                        p[j] = random.nextDouble();
+                for (double[] p : reference)
+                    for (int j = 0; j < dims; j++)
+                        p[j] = random.nextDouble();
+
+                double igd = 0;
+                double igdPlus = 0;
+                for (double[] z : reference) {
+                    double best = Double.POSITIVE_INFINITY;
+                    double bestPlus = Double.POSITIVE_INFINITY;
+                    for (double[] a : front) {
+                        double d = 0;
+                        double dPlus = 0;
+                        for (int j = 0; j < dims; j++) {
+                            d += (a[j] - z[j]) * (a[j] - z[j]);
+                            dPlus += Math.max(0, a[j] - z[j]) * Math.max(0, a[j] - z[j]);
+                        }
+                        best = Math.min(best, Math.sqrt(d));
+                        bestPlus = Math.min(bestPlus, Math.sqrt(dPlus));
+                    }
+                    igd += best;
+                    igdPlus += bestPlus;
+                }
+                assertEquals(igd / reference.length, QualityIndicators.igd(front, reference), 1e-12);
+                assertEquals(igdPlus / reference.length, QualityIndicators.igdPlus(front, reference), 1e-12);
+            }
+    }
+
+    @Test
+    public void testIgdOfEmptyFronts() {
+        final double[][] reference = { { 0, 1 }, { 1, 0 } };
+        assertEquals(Double.POSITIVE_INFINITY, QualityIndicators.igd(new double[0][], reference), 0.0);
+        assertEquals(0, QualityIndicators.igd(reference, new double[0][]), 0.0);
+        assertEquals(0, QualityIndicators.igd(reference, reference), 0.0);
+    }
+
+    @Test
+    public void testToMinimizationAndReadFront() throws IOException {
+        final double[] point = { 1, 2, 3 };
+        QualityIndicators.toMinimization(point, new boolean[] { false, true, false });
+        assertArrayEquals(new double[] { 1, -2, 3 }, point, 0.0);
+
+        final double[][] front = QualityIndicators.readFront(new StringReader("# a front\n0.5 1\n\n  1 0.25\n"));
+        assertEquals(2, front.length);
+        assertArrayEquals(new double[] { 0.5, 1 }, front[0], 0.0);
+        assertArrayEquals(new double[] { 1, 0.25 }, front[1], 0.0);
+        try {
+            QualityIndicators.readFront(new StringReader("1 2\n3\n"));
+            fail("Expected an IOException for a short line");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
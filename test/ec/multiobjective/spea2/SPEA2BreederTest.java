@@ -0,0 +1,99 @@
+package ec.multiobjective.spea2;
+
+import ec.Individual;
+import ec.multiobjective.KDTree;
+import ec.util.MersenneTwisterFast;
+import ec.vector.DoubleVectorIndividual;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks SPEA2Breeder's archive truncation against the textbook procedure, which recomputes
+ * every individual's sorted distances to the others before each removal.
+ */
+public class SPEA2BreederTest {
+
+    public SPEA2BreederTest() {
+    }
+
+    private static double[] sortedDistances(int i, ArrayList<double[]> points) {
+        final double[] d = new double[points.size() - 1];
+        int count = 0;
+        for (int j = 0; j < points.size(); j++)
+            if (j != i)
+                d[count++] = KDTree.squaredDistance(points.get(i), points.get(j));
+        Arrays.sort(d);
+        return d;
+    }
+
+    private static int compare(double[] a, double[] b) {
+        for (int j = 0; j < a.length; j++) {
+            if (a[j] < b[j])
+                return -1;
+            if (a[j] > b[j])
+                return 1;
+        }
+        return 0;
+    }
+
+    /** Removes the most crowded point, earliest first among ties, until archiveSize remain. */
+    private static ArrayList<double[]> referenceTruncate(ArrayList<double[]> points, int archiveSize) {
+        final ArrayList<double[]> remaining = new ArrayList<double[]>(points);
+        while (remaining.size() > archiveSize) {
+            int closest = 0;
+            double[] closestD = sortedDistances(0, remaining);
+            for (int i = 1; i < remaining.size(); i++) {
+                final double[] d = sortedDistances(i, remaining);
+                if (compare(d, closestD) < 0) {
+                    closest = i;
+                    closestD = d;
+                }
+            }
+            remaining.remove(closest);
+        }
+        return remaining;
+    }
+
+    private static Individual individual(final double[] point) {
+        // objectives is protected, and setObjectives(...) needs a set-up fitness
+        final SPEA2MultiObjectiveFitness fitness = new SPEA2MultiObjectiveFitness() {
+            {
+                objectives = point;
+            }
+        };
+        final Individual ind = new DoubleVectorIndividual();
+        ind.fitness = fitness;
+        return ind;
+    }
+
+    @Test
+    public void testTruncateArchiveMatchesReference() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(2468);
+        final SPEA2Breeder breeder = new SPEA2Breeder();
+        for (int trial = 0; trial < 40; trial++) {
+            final int n = 2 + random.nextInt(60);
+            final int objectives = 2 + random.nextInt(2);
+            // grids produce many ties, which must be broken by the farther neighbors
+            final int levels = (trial % 2 == 0 ? 4 : 1000);
+            final ArrayList<double[]> points = new ArrayList<double[]>();
+            final ArrayList<Individual> archive = new ArrayList<Individual>();
+            for (int i = 0; i < n; i++) {
+                final double[] p = new double[objectives];
+                for (int j = 0; j < objectives; j++)
+                    p[j] = random.nextInt(levels) / (double) levels;
+                points.add(p);
+                archive.add(individual(p));
+            }
+            final int archiveSize = 1 + random.nextInt(n - 1);
+
+            breeder.truncateArchive(archive, archiveSize);
+            final ArrayList<double[]> expected = referenceTruncate(points, archiveSize);
+            assertEquals(archiveSize, archive.size());
+            for (int i = 0; i < archiveSize; i++)
+                assertArrayEquals("trial " + trial + " position " + i, expected.get(i),
+                    ((SPEA2MultiObjectiveFitness) archive.get(i).fitness).getObjectives(), 0.0);
+        }
+    }
+}
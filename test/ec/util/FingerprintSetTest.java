@@ -0,0 +1,181 @@
+package ec.util;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.vector.Gene;
+import ec.vector.GeneVectorIndividual;
+import ec.vector.IntegerVectorIndividual;
+import java.util.HashSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks FingerprintSet against a HashSet of the same fingerprints or individuals, and checks that
+ * individuals whose fingerprints are built from colliding hash codes are told apart with equals(...).
+ */
+public class FingerprintSetTest {
+
+    public FingerprintSetTest() {
+    }
+
+    /** A gene whose hash code is the same for every value, so that its fingerprint always collides. */
+    static class CollidingGene extends Gene {
+        private static final long serialVersionUID = 1;
+        int value;
+
+        CollidingGene(int value) {
+            this.value = value;
+        }
+
+        public int hashCode() {
+            return 0;
+        }
+
+        public boolean equals(Object other) {
+            return other instanceof CollidingGene && ((CollidingGene) other).value == value;
+        }
+
+        public void reset(EvolutionState state, int thread) {
+        }
+    }
+
+    private static GeneVectorIndividual geneVector(int... values) {
+        final GeneVectorIndividual ind = new GeneVectorIndividual();
+        ind.genome = new Gene[values.length];
+        for (int i = 0; i < values.length; i++)
+            ind.genome[i] = new CollidingGene(values[i]);
+        return ind;
+    }
+
+    private static IntegerVectorIndividual integerVector(int... values) {
+        final IntegerVectorIndividual ind = new IntegerVectorIndividual();
+        ind.genome = values;
+        return ind;
+    }
+
+    @Test
+    public void testFingerprintsMatchAHashSet() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(2468);
+        final FingerprintSet set = new FingerprintSet();
+        final HashSet<Long> reference = new HashSet<Long>();
+        // few enough distinct values that adds and removes often hit existing fingerprints,
+        // and enough operations that the table grows several times
+        for (int i = 0; i < 100000; i++) {
+            final long fingerprint = random.nextInt(5000) * 0x9E3779B97F4A7C15L;
+            switch (random.nextInt(3)) {
+            case 0:
+                assertEquals(reference.add(fingerprint), set.add(fingerprint));
+                break;
+            case 1:
+                assertEquals(reference.remove(fingerprint), set.remove(fingerprint));
+                break;
+            default:
+                assertEquals(reference.contains(fingerprint), set.contains(fingerprint));
+                break;
+            }
+            assertEquals(reference.size(), set.size());
+        }
+        for (long fingerprint = 0; fingerprint < 5000; fingerprint++)
+            assertEquals(reference.contains(fingerprint * 0x9E3779B97F4A7C15L),
+                set.contains(fingerprint * 0x9E3779B97F4A7C15L));
+    }
+
+    @Test
+    public void testClearAndClone() {
+        final FingerprintSet set = new FingerprintSet(4);
+        for (long fingerprint = 0; fingerprint < 100; fingerprint++)
+            set.add(fingerprint);
+        set.add(geneVector(1, 2));
+
+        final FingerprintSet copy = (FingerprintSet) set.clone();
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(5L));
+        assertFalse(set.contains(geneVector(1, 2)));
+
+        assertEquals(101, copy.size());
+        assertTrue(copy.contains(5L));
+        assertTrue(copy.contains(geneVector(1, 2)));
+
+        // the cleared set is still usable
+        assertTrue(set.add(5L));
+        assertTrue(set.contains(5L));
+        assertFalse(set.contains(6L));
+    }
+
+    @Test
+    public void testCollidingFingerprintsAreConfirmedWithEquals() {
+        final GeneVectorIndividual a = geneVector(1, 2, 3);
+        final GeneVectorIndividual b = geneVector(3, 2, 1);
+        assertEquals(a.fingerprint(), b.fingerprint());
+        assertFalse(a.equals(b));
+        assertFalse(a.hasUniqueFingerprint());
+
+        final FingerprintSet set = new FingerprintSet();
+        assertTrue(set.add(a));
+        assertFalse(set.contains(b));
+        assertTrue(set.add(b));
+        assertEquals(2, set.size());
+
+        // a different but equal individual is a duplicate
+        assertTrue(set.contains(geneVector(1, 2, 3)));
+        assertFalse(set.add(geneVector(1, 2, 3)));
+
+        assertTrue(set.remove(geneVector(3, 2, 1)));
+        assertFalse(set.contains(b));
+        assertTrue(set.contains(a));
+        assertFalse(set.remove(b));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testHashCodeFingerprintsAreConfirmedWithEquals() {
+        // an individual which doesn't override fingerprint() is fingerprinted by its hashCode()
+        final Individual[] inds = new Individual[100];
+        for (int i = 0; i < inds.length; i++) {
+            final int value = i;
+            inds[i] = new Individual() {
+                private static final long serialVersionUID = 1;
+                final int id = value;
+
+                public Parameter defaultBase() {
+                    return null;
+                }
+
+                public int hashCode() {
+                    return id % 3;
+                }
+
+                public boolean equals(Object other) {
+                    return other != null && other.getClass() == getClass() && other.toString().equals(toString());
+                }
+
+                public String toString() {
+                    return "" + id;
+                }
+            };
+        }
+        final FingerprintSet set = new FingerprintSet();
+        for (int i = 0; i < inds.length; i++)
+            assertTrue(set.add(inds[i]));
+        for (int i = 0; i < inds.length; i++)
+            assertFalse(set.add(inds[i]));
+        assertEquals(inds.length, set.size());
+    }
+
+    @Test
+    public void testUniqueFingerprintsAreTrusted() {
+        final IntegerVectorIndividual a = integerVector(1, 2, 3);
+        assertTrue(a.hasUniqueFingerprint());
+
+        final FingerprintSet set = new FingerprintSet();
+        assertTrue(set.add(a));
+        assertTrue(set.contains(a.fingerprint()));
+        assertTrue(set.contains(integerVector(1, 2, 3)));
+        assertFalse(set.contains(integerVector(3, 2, 1)));
+        assertTrue(set.add(integerVector(3, 2, 1)));
+        assertTrue(set.remove(a.fingerprint()));
+        assertFalse(set.contains(integerVector(1, 2, 3)));
+        assertEquals(1, set.size());
+    }
+}
@@ -0,0 +1,119 @@
+package ec.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the alias-method sampler in RandomChoice by reconstructing, from the alias table,
+ * the exact probability with which each item is picked.
+ */
+public class RandomChoiceTest {
+
+    public RandomChoiceTest() {
+    }
+
+    /** The probability of picking each item: each slot is picked with probability 1/n, and
+        returns its own item with probability table[slot], else its alias. */
+    private static double[] impliedProbabilities(double[] table, int[] alias) {
+        final int n = table.length;
+        final double[] p = new double[n];
+        for (int slot = 0; slot < n; slot++) {
+            assertTrue(table[slot] >= 0.0 && table[slot] <= 1.0);
+            p[slot] += table[slot] / n;
+            p[alias[slot]] += (1.0 - table[slot]) / n;
+        }
+        return p;
+    }
+
+    private static void checkTable(double[] weights) {
+        final double[] table = weights.clone();
+        final int[] alias = new int[weights.length];
+        RandomChoice.organizeAliasDistribution(table, alias);
+
+        double sum = 0;
+        for (double w : weights)
+            sum += w;
+        final double[] p = impliedProbabilities(table, alias);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals("item " + i, weights[i] / sum, p[i], 1e-12);
+            if (weights[i] == 0.0)
+                assertEquals("zero-probability item " + i, 0.0, p[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testAliasTableReproducesTheDistribution() {
+        final MersenneTwisterFast random = new MersenneTwisterFast(777);
+        checkTable(new double[] { 1 });
+        checkTable(new double[] { 1, 1, 1, 1 });
+        checkTable(new double[] { 0, 5, 0 });
+        checkTable(new double[] { 1e-12, 1, 1e12 });
+        for (int trial = 0; trial < 200; trial++) {
+            final double[] weights = new double[1 + random.nextInt(200)];
+            for (int i = 0; i < weights.length; i++)
+                weights[i] = (random.nextInt(4) == 0 ? 0.0 : random.nextDouble() * (trial % 3 == 0 ? 1000 : 1));
+            weights[random.nextInt(weights.length)] = 0.5;  // not all zero
+            checkTable(weights);
+        }
+    }
+
+    @Test
+    public void testPicksFollowTheTable() {
+        final double[] weights = { 3, 0, 1, 4, 2 };
+        final double[] table = weights.clone();
+        final int[] alias = new int[weights.length];
+        RandomChoice.organizeAliasDistribution(table, alias);
+
+        // sweeping prob evenly over [0, 1) picks each item in exact proportion to its weight
+        final int steps = 1000000;
+        final int[] counts = new int[weights.length];
+        for (int i = 0; i < steps; i++)
+            counts[RandomChoice.pickFromAliasDistribution(table, alias, (i + 0.5) / steps)]++;
+        for (int i = 0; i < weights.length; i++)
+            assertEquals(weights[i] / 10.0, counts[i] / (double) steps, 1e-5);
+        assertTrue(RandomChoice.pickFromAliasDistribution(table, alias, 1.0) != 1);
+
+        // the bulk picker makes the same picks from the same random numbers
+        final MersenneTwisterFast a = new MersenneTwisterFast(99);
+        final MersenneTwisterFast b = new MersenneTwisterFast(99);
+        final int[] picks = new int[1000];
+        RandomChoice.pickFromAliasDistribution(table, alias, a, picks, 10, 990);
+        for (int i = 10; i < picks.length; i++)
+            assertEquals(RandomChoice.pickFromAliasDistribution(table, alias, b.nextDouble()), picks[i]);
+    }
+
+    @Test
+    public void testAllZerosAndBadDistributions() {
+        final double[] zeros = new double[5];
+        final int[] alias = new int[5];
+        RandomChoice.organizeAliasDistribution(zeros, alias, true);
+        final double[] p = impliedProbabilities(zeros, alias);
+        for (int i = 0; i < p.length; i++)
+            assertEquals(0.2, p[i], 1e-12);
+
+        try {
+            RandomChoice.organizeAliasDistribution(new double[5], new int[5]);
+            fail("Expected an ArithmeticException for all zeros");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+        try {
+            RandomChoice.organizeAliasDistribution(new double[] { 1, -1 }, new int[2]);
+            fail("Expected an ArithmeticException for a negative probability");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+        try {
+            RandomChoice.organizeAliasDistribution(new double[0], new int[0]);
+            fail("Expected an ArithmeticException for an empty distribution");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+        try {
+            RandomChoice.organizeAliasDistribution(new double[] { 1, 2 }, new int[3]);
+            fail("Expected an ArithmeticException for a mismatched alias table");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+}
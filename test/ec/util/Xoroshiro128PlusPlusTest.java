@@ -0,0 +1,185 @@
+package ec.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks Xoroshiro128PlusPlus against a straightforward reference implementation of SplitMix64
+ * seeding and the xoroshiro128++ recurrence, plus the properties of jump(), split(), and state I/O.
+ */
+public class Xoroshiro128PlusPlusTest {
+
+    public Xoroshiro128PlusPlusTest() {
+    }
+
+    /** The reference SplitMix64 generator, which seeds xoroshiro128++. */
+    private static class SplitMix64 {
+        long x;
+
+        SplitMix64(long seed) {
+            x = seed;
+        }
+
+        long next() {
+            long z = (x += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    /** The reference xoroshiro128++ generator, as published by Blackman and Vigna. */
+    private static class Reference {
+        long s0;
+        long s1;
+
+        Reference(long seed) {
+            final SplitMix64 splitmix = new SplitMix64(seed);
+            s0 = splitmix.next();
+            s1 = splitmix.next();
+        }
+
+        long next() {
+            final long result = Long.rotateLeft(s0 + s1, 17) + s0;
+            s1 ^= s0;
+            s0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+            s1 = Long.rotateLeft(s1, 28);
+            return result;
+        }
+    }
+
+    @Test
+    public void testSplitMix64KnownAnswers() {
+        // the first outputs of SplitMix64 seeded with 0
+        final SplitMix64 splitmix = new SplitMix64(0);
+        assertEquals(0xE220A8397B1DCDAFL, splitmix.next());
+        assertEquals(0x6E789E6AA1B965F4L, splitmix.next());
+        assertEquals(0x06C45D188009454FL, splitmix.next());
+
+        final Xoroshiro128PlusPlus random = new Xoroshiro128PlusPlus(0);
+        assertEquals(0xE220A8397B1DCDAFL, random.s0);
+        assertEquals(0x6E789E6AA1B965F4L, random.s1);
+    }
+
+    @Test
+    public void testMatchesReference() {
+        final long[] seeds = { 0, 1, 2, -1, 4357, Long.MIN_VALUE, 0x123456789ABCDEFL };
+        for (long seed : seeds) {
+            final Xoroshiro128PlusPlus random = new Xoroshiro128PlusPlus(seed);
+            final Reference reference = new Reference(seed);
+            for (int i = 0; i < 10000; i++)
+                assertEquals("seed " + seed + " draw " + i, reference.next(), random.nextLong());
+        }
+    }
+
+    @Test
+    public void testDerivedValuesMatchReference() {
+        final Xoroshiro128PlusPlus random = new Xoroshiro128PlusPlus(99);
+        final Reference reference = new Reference(99);
+        assertEquals((int) (reference.next() >>> 32), random.nextInt());
+        assertEquals((reference.next() >>> 11) * 0x1.0p-53, random.nextDouble(), 0.0);
+        assertEquals((reference.next() >>> 40) * 0x1.0p-24f, random.nextFloat(), 0.0f);
+        assertEquals(reference.next() < 0, random.nextBoolean());
+        assertEquals((byte) (reference.next() >>> 56), random.nextByte());
+    }
+
+    @Test
+    public void testRanges() {
+        final Xoroshiro128PlusPlus random = new Xoroshiro128PlusPlus(7);
+        final int[] counts = new int[10];
+        for (int i = 0; i < 100000; i++) {
+            final double d = random.nextDouble();
+            assertTrue(d >= 0.0 && d < 1.0);
+            final float f = random.nextFloat();
+            assertTrue(f >= 0.0f && f < 1.0f);
+            final int n = random.nextInt(10);
+            assertTrue(n >= 0 && n < 10);
+            counts[n]++;
+            final int p = random.nextInt(16);
+            assertTrue(p >= 0 && p < 16);
+            final long l = random.nextLong(1000000000000L);
+            assertTrue(l >= 0 && l < 1000000000000L);
+            assertFalse(random.nextBoolean(0.0));
+            assertTrue(random.nextBoolean(1.0));
+        }
+        for (int i = 0; i < counts.length; i++)
+            assertEquals(10000, counts[i], 500);
+    }
+
+    @Test
+    public void testSeedingWithArrays() {
+        final Xoroshiro128PlusPlus a = new Xoroshiro128PlusPlus(new int[] { 1, 2, 3 });
+        final Xoroshiro128PlusPlus b = new Xoroshiro128PlusPlus(new int[] { 1, 2, 3 });
+        final Xoroshiro128PlusPlus c = new Xoroshiro128PlusPlus(new int[] { 1, 2, 4 });
+        final Xoroshiro128PlusPlus d = new Xoroshiro128PlusPlus(new int[] { 3, 2, 1 });
+        assertTrue(a.stateEquals(b));
+        assertFalse(a.stateEquals(c));
+        assertFalse(a.stateEquals(d));
+        for (int i = 0; i < 100; i++)
+            assertEquals(a.nextLong(), b.nextLong());
+    }
+
+    @Test
+    public void testJumpCommutesWithDrawing() {
+        // a jump is a power of the generator's transition, so jumping and then drawing gives the
+        // same state as drawing and then jumping
+        final Xoroshiro128PlusPlus a = new Xoroshiro128PlusPlus(11);
+        final Xoroshiro128PlusPlus b = (Xoroshiro128PlusPlus) a.clone();
+        a.jump();
+        for (int i = 0; i < 5; i++)
+            a.nextLong();
+        for (int i = 0; i < 5; i++)
+            b.nextLong();
+        b.jump();
+        assertTrue(a.stateEquals(b));
+
+        final Xoroshiro128PlusPlus c = new Xoroshiro128PlusPlus(11);
+        final Xoroshiro128PlusPlus e = (Xoroshiro128PlusPlus) c.clone();
+        c.longJump();
+        c.nextLong();
+        e.nextLong();
+        e.longJump();
+        assertTrue(c.stateEquals(e));
+        assertFalse(a.stateEquals(c));
+    }
+
+    @Test
+    public void testCloneAndSplit() {
+        final Xoroshiro128PlusPlus a = new Xoroshiro128PlusPlus(12);
+        a.nextGaussian();  // leaves a gaussian waiting
+        final Xoroshiro128PlusPlus b = (Xoroshiro128PlusPlus) a.clone();
+        assertTrue(a.stateEquals(b));
+        assertEquals(a.nextGaussian(), b.nextGaussian(), 0.0);
+        assertEquals(a.nextLong(), b.nextLong());
+
+        final Xoroshiro128PlusPlus split = a.split();
+        final Xoroshiro128PlusPlus split2 = b.split();
+        assertTrue(split.stateEquals(split2));
+        assertFalse(split.stateEquals(a));
+        int same = 0;
+        for (int i = 0; i < 1000; i++)
+            if (split.nextLong() == a.nextLong())
+                same++;
+        assertEquals(0, same);
+    }
+
+    @Test
+    public void testStateRoundTrip() throws IOException {
+        final Xoroshiro128PlusPlus a = new Xoroshiro128PlusPlus(13);
+        a.nextGaussian();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        a.writeState(new DataOutputStream(bytes));
+
+        final Xoroshiro128PlusPlus b = new Xoroshiro128PlusPlus(0);
+        b.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(a.stateEquals(b));
+        assertEquals(a.nextGaussian(), b.nextGaussian(), 0.0);
+        for (int i = 0; i < 100; i++)
+            assertEquals(a.nextLong(), b.nextLong());
+    }
+}